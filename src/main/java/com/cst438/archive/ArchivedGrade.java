@@ -0,0 +1,12 @@
+package com.cst438.archive;
+
+/*
+ * assignment score kept in a term archive segment
+ */
+public record ArchivedGrade(
+        int gradeId,
+        int enrollmentId,
+        int assignmentId,
+        Integer score
+) {
+}
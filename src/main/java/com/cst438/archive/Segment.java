@@ -0,0 +1,261 @@
+package com.cst438.archive;
+
+import com.cst438.dto.EnrollmentDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/*
+ * Immutable file holding the enrollments and grades of one archived term.
+ *
+ *   int    magic "CSTA"
+ *   int    format version
+ *   int    term id
+ *   int    number of students n
+ *   n  x   { int studentId, long offset, int length }   sorted by studentId
+ *   n  x   deflate compressed block with the student's enrollments and grades
+ *
+ * The index is read into memory when the segment is opened.  Reading the
+ * records of a student is a binary search of the index and one positional
+ * read of the student's block, so readers do not need to synchronize.
+ *
+ * A segment is reference counted.  The archive holds one reference while
+ * the segment is current and each reader holds one while it reads, so a
+ * segment replaced by a new archive run is closed by its last reader.
+ */
+class Segment implements AutoCloseable {
+
+    private static final int MAGIC = 0x43535441;
+    private static final int FORMAT = 1;
+    private static final int INDEX_ENTRY_BYTES = 16;
+
+    final int termId;
+    private final FileChannel channel;
+    private final int[] studentIds;
+    private final long[] offsets;
+    private final int[] lengths;
+    // the archive's reference plus one per reader. 0 once closed
+    private final AtomicInteger refs = new AtomicInteger(1);
+
+    /*
+     * records of one student in the term
+     */
+    record Block(List<EnrollmentDTO> enrollments, List<ArchivedGrade> grades) { }
+
+    private Segment(int termId, FileChannel channel, int[] studentIds, long[] offsets, int[] lengths) {
+        this.termId = termId;
+        this.channel = channel;
+        this.studentIds = studentIds;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    // write a segment.  the file is written under a temporary name, forced to
+    // disk and then renamed, so a segment file is either complete or absent.
+    static void write(Path file, int termId, Map<Integer, Block> students) throws IOException {
+        int[] ids = students.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        List<byte[]> blocks = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            blocks.add(compress(students.get(id)));
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(16 + ids.length * INDEX_ENTRY_BYTES);
+            header.putInt(MAGIC).putInt(FORMAT).putInt(termId).putInt(ids.length);
+            long offset = header.capacity();
+            for (int i=0; i<ids.length; i++) {
+                header.putInt(ids[i]).putLong(offset).putInt(blocks.get(i).length);
+                offset += blocks.get(i).length;
+            }
+            header.flip();
+            writeFully(ch, header);
+            for (byte[] b : blocks) {
+                writeFully(ch, ByteBuffer.wrap(b));
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static Segment open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            readFully(ch, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT) {
+                throw new IOException("not a term archive segment " + file);
+            }
+            int termId = header.getInt();
+            int n = header.getInt();
+            ByteBuffer index = ByteBuffer.allocate(n * INDEX_ENTRY_BYTES);
+            readFully(ch, index, 16);
+            index.flip();
+            int[] ids = new int[n];
+            long[] offsets = new long[n];
+            int[] lengths = new int[n];
+            for (int i=0; i<n; i++) {
+                ids[i] = index.getInt();
+                offsets[i] = index.getLong();
+                lengths[i] = index.getInt();
+            }
+            return new Segment(termId, ch, ids, offsets, lengths);
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    int[] studentIds() {
+        return studentIds;
+    }
+
+    // records of the student, or null if the student had no enrollments in the term
+    Block read(int studentId) throws IOException {
+        int i = Arrays.binarySearch(studentIds, studentId);
+        if (i < 0) {
+            return null;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(lengths[i]);
+        readFully(channel, buf, offsets[i]);
+        return decompress(buf.array());
+    }
+
+    // take a reference for reading.  false if the segment is already closed
+    boolean acquire() {
+        while (true) {
+            int n = refs.get();
+            if (n == 0) {
+                return false;
+            }
+            if (refs.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() throws IOException {
+        if (refs.decrementAndGet() == 0) {
+            channel.close();
+        }
+    }
+
+    // drop the archive's reference.  the file is closed when no reader holds it
+    @Override
+    public void close() throws IOException {
+        release();
+    }
+
+    private static byte[] compress(Block block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(block.enrollments().size());
+            for (EnrollmentDTO e : block.enrollments()) {
+                out.writeInt(e.enrollmentId());
+                writeString(out, e.grade());
+                out.writeInt(e.studentId());
+                writeString(out, e.name());
+                writeString(out, e.email());
+                writeString(out, e.courseId());
+                out.writeInt(e.sectionId());
+                out.writeInt(e.sectionNo());
+                writeString(out, e.building());
+                writeString(out, e.room());
+                writeString(out, e.times());
+                out.writeInt(e.credits());
+                out.writeInt(e.year());
+                writeString(out, e.semester());
+            }
+            out.writeInt(block.grades().size());
+            for (ArchivedGrade g : block.grades()) {
+                out.writeInt(g.gradeId());
+                out.writeInt(g.enrollmentId());
+                out.writeInt(g.assignmentId());
+                out.writeBoolean(g.score() != null);
+                out.writeInt(g.score() != null ? g.score() : 0);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Block decompress(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            int n = in.readInt();
+            List<EnrollmentDTO> enrollments = new ArrayList<>(n);
+            for (int i=0; i<n; i++) {
+                enrollments.add(new EnrollmentDTO(
+                        in.readInt(),
+                        readString(in),
+                        in.readInt(),
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        in.readInt(),
+                        in.readInt(),
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        in.readInt(),
+                        in.readInt(),
+                        readString(in),
+                        null    // archived rows can not be updated
+                ));
+            }
+            int m = in.readInt();
+            List<ArchivedGrade> grades = new ArrayList<>(m);
+            for (int i=0; i<m; i++) {
+                int gradeId = in.readInt();
+                int enrollmentId = in.readInt();
+                int assignmentId = in.readInt();
+                boolean hasScore = in.readBoolean();
+                int score = in.readInt();
+                grades.add(new ArchivedGrade(gradeId, enrollmentId, assignmentId, hasScore ? score : null));
+            }
+            return new Block(enrollments, grades);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) {
+                throw new IOException("unexpected end of segment file");
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.cst438.archive;
+
+import com.cst438.domain.*;
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
+import com.cst438.seats.SeatCounters;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+ * Moves the enrollments and grades of closed terms out of the database
+ * into one compressed, indexed segment file per term.
+ *
+ * Archiving a term locks the term's grade and enrollment rows, writes
+ * its segment file and then deletes the rows, in one transaction.  If
+ * the transaction rolls back after the file is written the rows are
+ * both archived and live; readers prefer the archived copy, so the
+ * archive can simply be run again.
+ */
+@Component
+public class TermArchive {
+
+    @Autowired
+    TermRepository termRepository;
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    GradeRepository gradeRepository;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    @Autowired
+    SeatCounters seatCounters;
+
+    private static final int DELETE_CHUNK = 1000;
+
+    private final Path dir;
+    private final TransactionTemplate transactionTemplate;
+
+    // open segments by term id, in term order
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+    public TermArchive(
+            PlatformTransactionManager transactionManager,
+            @Value("${cst438.archive.dir:archive}") String dir) throws IOException {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dir = Paths.get(dir);
+        Files.createDirectories(this.dir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.dir, "term-*.seg")) {
+            for (Path f : files) {
+                Segment s = Segment.open(f);
+                segments.put(s.termId, s);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        for (Segment s : segments.values()) {
+            s.close();
+        }
+    }
+
+    public boolean isArchived(int termId) {
+        return segments.containsKey(termId);
+    }
+
+    // archive the enrollments and grades of the term.
+    // return the number of enrollments archived.
+    // the rows are locked, read, written to the segment and deleted in one
+    // transaction, so a grade can not change between being archived and
+    // being deleted.  updates of the term's rows wait for the archive and
+    // then find the rows gone.  only the rows written to the segment are
+    // deleted; a grade inserted after they were read makes the delete of
+    // its enrollment fail and the whole archive roll back.
+    public int archive(Term term) throws IOException {
+        int termId = term.getTermId();
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return archive(termId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private int archive(int termId) throws IOException {
+        enrollmentRepository.lockByTermId(termId);
+        gradeRepository.lockByTermId(termId);
+
+        // read the term's rows and group them by student
+        Map<Integer, Segment.Block> students = new HashMap<>();
+        Map<Integer, Integer> studentByEnrollment = new HashMap<>();
+        List<Integer> enrollmentIds = new ArrayList<>();
+        List<Integer> gradeIds = new ArrayList<>();
+        Map<Integer, Integer> dropped = new HashMap<>();
+        for (Enrollment e : enrollmentRepository.findByTermIdOrderByStudentId(termId)) {
+            int studentId = e.getStudent().getId();
+            enrollmentIds.add(e.getEnrollmentId());
+            dropped.merge(e.getSection().getSectionNo(), -1, Integer::sum);
+            studentByEnrollment.put(e.getEnrollmentId(), studentId);
+            students.computeIfAbsent(studentId, k -> new Segment.Block(new ArrayList<>(), new ArrayList<>()))
+                    .enrollments().add(toDTO(e));
+        }
+        for (Grade g : gradeRepository.findByTermId(termId)) {
+            Integer studentId = studentByEnrollment.get(g.getEnrollment().getEnrollmentId());
+            if (studentId == null) {
+                throw new IllegalStateException("grade " + g.getGradeId() + " of an enrollment added during the archive");
+            }
+            gradeIds.add(g.getGradeId());
+            students.get(studentId).grades().add(new ArchivedGrade(
+                    g.getGradeId(),
+                    g.getEnrollment().getEnrollmentId(),
+                    g.getAssignment().getAssignmentId(),
+                    g.getScore()));
+        }
+
+        // merge with rows archived by an earlier run that did not finish
+        for (int studentId : studentIds(termId)) {
+            Segment.Block old = read(termId, studentId);
+            if (old == null) {
+                continue;
+            }
+            Segment.Block block = students.computeIfAbsent(studentId,
+                    k -> new Segment.Block(new ArrayList<>(), new ArrayList<>()));
+            for (EnrollmentDTO e : old.enrollments()) {
+                if (block.enrollments().stream().noneMatch(x -> x.enrollmentId() == e.enrollmentId())) {
+                    block.enrollments().add(e);
+                }
+            }
+            for (ArchivedGrade g : old.grades()) {
+                if (block.grades().stream().noneMatch(x -> x.gradeId() == g.gradeId())) {
+                    block.grades().add(g);
+                }
+            }
+        }
+
+        Path file = dir.resolve("term-" + termId + ".seg");
+        Segment.write(file, termId, students);
+        Segment opened = Segment.open(file);
+        Segment replaced = segments.put(termId, opened);
+        if (replaced != null) {
+            // closed when the readers still using it are done
+            replaced.close();
+        }
+
+        // the rows are locked, so every one of them must still be there
+        int grades = 0;
+        for (List<Integer> ids : chunks(gradeIds)) {
+            grades += gradeRepository.deleteByGradeIdIn(ids);
+        }
+        int enrollments = 0;
+        for (List<Integer> ids : chunks(enrollmentIds)) {
+            enrollments += enrollmentRepository.deleteByEnrollmentIdIn(ids);
+        }
+        if (grades != gradeIds.size() || enrollments != enrollmentIds.size()) {
+            throw new IllegalStateException("term " + termId + " changed while it was archived");
+        }
+        changeEventBus.publishAll(EntityType.GRADE);
+        changeEventBus.publishAll(EntityType.ENROLLMENT);
+        dropped.forEach(seatCounters::enrolled);
+        return enrollmentIds.size();
+    }
+
+    // archived enrollments of a student in term order
+    public List<EnrollmentDTO> findEnrollments(int studentId) {
+        List<EnrollmentDTO> dlist = new ArrayList<>();
+        for (int termId : segments.keySet()) {
+            try {
+                Segment.Block block = read(termId, studentId);
+                if (block != null) {
+                    List<EnrollmentDTO> enrollments = new ArrayList<>(block.enrollments());
+                    enrollments.sort(Comparator.comparing(EnrollmentDTO::courseId));
+                    dlist.addAll(enrollments);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return dlist;
+    }
+
+    // records of the student in the current segment of the term.
+    // a segment replaced while it is looked up is skipped for its successor.
+    private Segment.Block read(int termId, int studentId) throws IOException {
+        while (true) {
+            Segment s = segments.get(termId);
+            if (s == null) {
+                return null;
+            }
+            if (s.acquire()) {
+                try {
+                    return s.read(studentId);
+                } finally {
+                    s.release();
+                }
+            }
+        }
+    }
+
+    private int[] studentIds(int termId) {
+        Segment s = segments.get(termId);
+        return (s == null) ? new int[0] : s.studentIds();
+    }
+
+    // ids in lists short enough for an in clause
+    private static List<List<Integer>> chunks(List<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i=0; i<ids.size(); i+=DELETE_CHUNK) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + DELETE_CHUNK)));
+        }
+        return chunks;
+    }
+
+    private static EnrollmentDTO toDTO(Enrollment e) {
+        Section s = e.getSection();
+        return new EnrollmentDTO(
+                e.getEnrollmentId(),
+                e.getGrade(),
+                e.getStudent().getId(),
+                e.getStudent().getName(),
+                e.getStudent().getEmail(),
+                s.getCourse().getCourseId(),
+                s.getSecId(),
+                s.getSectionNo(),
+                s.getBuilding(),
+                s.getRoom(),
+                s.getTimes(),
+                s.getCourse().getCredits(),
+                s.getTerm().getYear(),
+                s.getTerm().getSemester(),
+                null
+        );
+    }
+}
@@ -0,0 +1,48 @@
+package com.cst438.audit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+
+/*
+ * Prints the grade change history of an enrollment or an assignment from
+ * the audit segment files, without starting the application.
+ *
+ *    java -cp target/classes com.cst438.audit.AuditQuery audit enrollment 2
+ *    java -cp target/classes com.cst438.audit.AuditQuery audit assignment 1
+ *
+ * The files can be read while the application is writing them.
+ */
+public class AuditQuery {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[1].equals("enrollment") || args[1].equals("assignment"))) {
+            System.err.println("usage: AuditQuery <audit dir> enrollment|assignment <id>");
+            System.exit(2);
+        }
+        Path dir = Paths.get(args[0]);
+        boolean byEnrollment = args[1].equals("enrollment");
+        int id = Integer.parseInt(args[2]);
+        for (Path f : GradeAuditLog.segmentFiles(dir)) {
+            AuditSegment.read(f, r -> {
+                boolean match = byEnrollment ? r.enrollmentId() == id
+                        : r.kind() == GradeAuditRecord.Kind.SCORE && r.assignmentId() == id;
+                if (match) {
+                    print(r);
+                }
+            });
+        }
+    }
+
+    private static void print(GradeAuditRecord r) {
+        if (r.kind() == GradeAuditRecord.Kind.SCORE) {
+            System.out.printf("%d %s enrollment %d assignment %d grade %d score %s -> %s%n",
+                    r.sequence(), Instant.ofEpochMilli(r.time()), r.enrollmentId(), r.assignmentId(),
+                    r.gradeId(), r.oldScore(), r.newScore());
+        } else {
+            System.out.printf("%d %s enrollment %d final grade %s -> %s%n",
+                    r.sequence(), Instant.ofEpochMilli(r.time()), r.enrollmentId(), r.oldGrade(), r.newGrade());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.cst438.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/*
+ * One file of the grade audit log, memory mapped at its full size.
+ *
+ *   int    magic "CSTG"
+ *   int    format version
+ *   int    record size
+ *   int    capacity, the number of record slots
+ *   long   sequence of the first record
+ *   ...    zero padded to one record
+ *   capacity x record
+ *
+ * Records are appended in sequence order.  After a crash the records
+ * up to the first one that is incomplete or out of sequence are kept,
+ * and appends continue from there.
+ *
+ * Only the audit writer thread appends.
+ */
+class AuditSegment implements AutoCloseable {
+
+    private static final int MAGIC = 0x43535447;
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = GradeAuditRecord.SIZE;
+
+    final Path file;
+    final long firstSequence;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buf;
+    private int count;
+    private int forced;
+
+    private AuditSegment(Path file, long firstSequence, int capacity, FileChannel channel, MappedByteBuffer buf, int count) {
+        this.file = file;
+        this.firstSequence = firstSequence;
+        this.capacity = capacity;
+        this.channel = channel;
+        this.buf = buf;
+        this.count = count;
+        this.forced = count;
+    }
+
+    static AuditSegment create(Path file, long firstSequence, int capacity) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * GradeAuditRecord.SIZE);
+        buf.putInt(MAGIC).putInt(FORMAT).putInt(GradeAuditRecord.SIZE).putInt(capacity).putLong(firstSequence);
+        buf.force(0, HEADER_BYTES);
+        return new AuditSegment(file, firstSequence, capacity, ch, buf, 0);
+    }
+
+    // open an existing segment to append to it
+    static AuditSegment open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+        int capacity = readHeader(buf, file);
+        long firstSequence = buf.getLong(16);
+        int count = scan(buf, firstSequence, capacity, r -> { });
+        return new AuditSegment(file, firstSequence, capacity, ch, buf, count);
+    }
+
+    // pass each record of the segment file to the consumer, in sequence order
+    static void read(Path file, Consumer<GradeAuditRecord> consumer) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            int capacity = readHeader(buf, file);
+            scan(buf, buf.getLong(16), capacity, consumer);
+        }
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    long nextSequence() {
+        return firstSequence + count;
+    }
+
+    void append(GradeAuditRecord r) {
+        buf.position(HEADER_BYTES + count * GradeAuditRecord.SIZE);
+        r.write(buf);
+        count++;
+    }
+
+    // write the records appended since the last force to disk
+    void force() {
+        if (forced < count) {
+            buf.force(HEADER_BYTES + forced * GradeAuditRecord.SIZE, (count - forced) * GradeAuditRecord.SIZE);
+            forced = count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private static int readHeader(ByteBuffer buf, Path file) throws IOException {
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT
+                || buf.getInt(8) != GradeAuditRecord.SIZE) {
+            throw new IOException("not a grade audit segment " + file);
+        }
+        int capacity = buf.getInt(12);
+        if (buf.capacity() < HEADER_BYTES + (long) capacity * GradeAuditRecord.SIZE) {
+            throw new IOException("truncated grade audit segment " + file);
+        }
+        return capacity;
+    }
+
+    // return the number of complete records
+    private static int scan(ByteBuffer buf, long firstSequence, int capacity, Consumer<GradeAuditRecord> consumer) {
+        ByteBuffer b = buf.duplicate();
+        b.position(HEADER_BYTES);
+        for (int i=0; i<capacity; i++) {
+            GradeAuditRecord r = GradeAuditRecord.read(b);
+            if (r == null || r.sequence() != firstSequence + i) {
+                return i;
+            }
+            consumer.accept(r);
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,232 @@
+package com.cst438.audit;
+
+import com.cst438.domain.Enrollment;
+import com.cst438.domain.Grade;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/*
+ * Append-only history of every score and final grade change, kept for
+ * grade disputes.
+ *
+ * A change is recorded after it is saved and the caller does not wait
+ * for the disk.  Request threads claim the next sequence number and put
+ * the record in that slot of a ring buffer.  A single writer thread takes
+ * the records in sequence order, appends them to the current memory
+ * mapped segment file and forces the whole batch to disk at once, so a
+ * burst of grade uploads costs one force per batch rather than one per
+ * change.  A request thread only waits when the ring is full.
+ *
+ * Segment files grades-<first sequence>.audit hold segment-records
+ * records each; when one is full the writer starts the next.  History
+ * queries scan the segments in order.
+ */
+@Component
+public class GradeAuditLog {
+
+    private static final Logger log = LoggerFactory.getLogger(GradeAuditLog.class);
+
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long FULL_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long QUERY_WAIT_MILLIS = 1000;
+
+    private final Path dir;
+    private final int segmentRecords;
+
+    // segment files in sequence order.  the last one is being written.
+    private final List<Path> files = new CopyOnWriteArrayList<>();
+    private AuditSegment segment;
+
+    private final AtomicReferenceArray<GradeAuditRecord> ring;
+    private final int mask;
+    // next sequence number to hand out
+    private final AtomicLong claimed;
+    // every sequence number below this one has been written
+    private volatile long written;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public GradeAuditLog(
+            @Value("${cst438.audit.dir:audit}") String dir,
+            @Value("${cst438.audit.ring-size:8192}") int ringSize,
+            @Value("${cst438.audit.segment-records:65536}") int segmentRecords) throws IOException {
+        this.dir = Paths.get(dir);
+        this.segmentRecords = segmentRecords;
+        Files.createDirectories(this.dir);
+        this.files.addAll(segmentFiles(this.dir));
+        long next = 0;
+        if (!files.isEmpty()) {
+            segment = AuditSegment.open(files.get(files.size() - 1));
+            next = segment.nextSequence();
+        }
+        this.claimed = new AtomicLong(next);
+        this.written = next;
+
+        int size = Integer.highestOneBit(Math.max(ringSize - 1, 1)) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+
+        this.writer = new Thread(this::writeLoop, "grade-audit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // write what is in the ring and close the segment
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // the score of a grade was changed from oldScore to its current score
+    public void scoreChanged(Grade g, Integer oldScore) {
+        append(new GradeAuditRecord(0, System.currentTimeMillis(), GradeAuditRecord.Kind.SCORE,
+                g.getEnrollment().getEnrollmentId(), g.getAssignment().getAssignmentId(), g.getGradeId(),
+                oldScore, g.getScore(), null, null));
+    }
+
+    // the final grade of an enrollment was changed from oldGrade to its current grade
+    public void finalGradeChanged(Enrollment e, String oldGrade) {
+        append(new GradeAuditRecord(0, System.currentTimeMillis(), GradeAuditRecord.Kind.FINAL_GRADE,
+                e.getEnrollmentId(), 0, 0, null, null, oldGrade, e.getGrade()));
+    }
+
+    // score and final grade changes of the enrollment, oldest first
+    public List<GradeAuditRecord> historyOfEnrollment(int enrollmentId) {
+        return history(r -> r.enrollmentId() == enrollmentId);
+    }
+
+    // score changes of the assignment, oldest first
+    public List<GradeAuditRecord> historyOfAssignment(int assignmentId) {
+        return history(r -> r.kind() == GradeAuditRecord.Kind.SCORE && r.assignmentId() == assignmentId);
+    }
+
+    // the record is complete before its sequence number is claimed.  a
+    // claimed number that is never filled would stop the writer for good.
+    private void append(GradeAuditRecord record) {
+        long seq = claimed.getAndIncrement();
+        while (seq - written >= ring.length()) {
+            // ring is full.  wait for the writer to make room.
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, FULL_WAIT_NANOS);
+        }
+        ring.set((int) seq & mask, record.withSequence(seq));
+        LockSupport.unpark(writer);
+    }
+
+    private List<GradeAuditRecord> history(Predicate<GradeAuditRecord> filter) {
+        awaitWritten(claimed.get());
+        List<GradeAuditRecord> result = new ArrayList<>();
+        try {
+            for (Path f : files) {
+                AuditSegment.read(f, r -> {
+                    if (filter.test(r)) {
+                        result.add(r);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    // wait a short time for the changes recorded before a query to be written,
+    // so a change shows up in the history as soon as its request returns
+    private void awaitWritten(long sequence) {
+        long deadline = System.currentTimeMillis() + QUERY_WAIT_MILLIS;
+        while (written < sequence && System.currentTimeMillis() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, FULL_WAIT_NANOS);
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            if (writeBatch() == 0) {
+                if (!running && written == claimed.get()) {
+                    break;
+                }
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+        if (segment != null) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.error("closing grade audit segment {} failed", segment.file, e);
+            }
+        }
+    }
+
+    // write the records that are ready, in sequence order, and force them
+    // to disk together.  return the number of records written.
+    private int writeBatch() {
+        long next = written;
+        int count = 0;
+        GradeAuditRecord r;
+        while ((r = ring.get((int) next & mask)) != null && r.sequence() == next) {
+            ring.set((int) next & mask, null);
+            write(r);
+            next++;
+            count++;
+        }
+        if (count > 0) {
+            if (segment != null) {
+                segment.force();
+            }
+            written = next;
+        }
+        return count;
+    }
+
+    private void write(GradeAuditRecord r) {
+        try {
+            if (segment == null || segment.isFull()) {
+                if (segment != null) {
+                    segment.close();
+                }
+                Path f = dir.resolve(String.format("grades-%020d.audit", r.sequence()));
+                segment = AuditSegment.create(f, r.sequence(), segmentRecords);
+                files.add(f);
+            }
+            segment.append(r);
+        } catch (IOException e) {
+            // request threads must not block on a broken disk.  the record is lost.
+            log.error("grade audit record {} not written", r, e);
+            segment = null;
+        }
+    }
+
+    static List<Path> segmentFiles(Path dir) throws IOException {
+        List<Path> list = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "grades-*.audit")) {
+            for (Path f : files) {
+                list.add(f);
+            }
+        }
+        // names are zero padded sequence numbers, so name order is sequence order
+        list.sort(null);
+        return list;
+    }
+}
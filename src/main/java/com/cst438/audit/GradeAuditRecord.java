@@ -0,0 +1,126 @@
+package com.cst438.audit;
+
+import com.cst438.dto.GradeAuditDTO;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.zip.CRC32;
+
+/*
+ * One change of an assignment score or a final grade.
+ *
+ * Stored as a fixed layout record of SIZE bytes
+ *   long     sequence
+ *   long     time, epoch milliseconds
+ *   int      enrollment id
+ *   int      assignment id        0 for a final grade
+ *   int      grade id             0 for a final grade
+ *   int      old score            -1 if none
+ *   int      new score            -1 if none
+ *   byte     kind                 1 score, 2 final grade
+ *   byte[5]  old final grade      ASCII, zero padded
+ *   byte[5]  new final grade
+ *   byte[13] reserved
+ *   int      CRC32 of the bytes before it
+ * A record whose CRC does not match was not completely written.
+ */
+public record GradeAuditRecord(
+        long sequence,
+        long time,
+        Kind kind,
+        int enrollmentId,
+        int assignmentId,
+        int gradeId,
+        Integer oldScore,
+        Integer newScore,
+        String oldGrade,
+        String newGrade) {
+
+    public enum Kind { SCORE, FINAL_GRADE }
+
+    static final int SIZE = 64;
+    private static final int GRADE_BYTES = 5;
+    private static final int CRC_OFFSET = SIZE - 4;
+
+    GradeAuditRecord withSequence(long sequence) {
+        return new GradeAuditRecord(sequence, time, kind, enrollmentId, assignmentId, gradeId,
+                oldScore, newScore, oldGrade, newGrade);
+    }
+
+    // write the record at the buffer's position, which is advanced by SIZE
+    void write(ByteBuffer buf) {
+        int start = buf.position();
+        buf.putLong(sequence).putLong(time)
+                .putInt(enrollmentId).putInt(assignmentId).putInt(gradeId)
+                .putInt(oldScore == null ? -1 : oldScore)
+                .putInt(newScore == null ? -1 : newScore)
+                .put((byte) (kind.ordinal() + 1));
+        putGrade(buf, oldGrade);
+        putGrade(buf, newGrade);
+        while (buf.position() < start + CRC_OFFSET) {
+            buf.put((byte) 0);
+        }
+        buf.putInt(crc(buf, start));
+    }
+
+    // read the record at the buffer's position, which is advanced by SIZE.
+    // return null if the record is incomplete or was never written.
+    static GradeAuditRecord read(ByteBuffer buf) {
+        int start = buf.position();
+        buf.position(start + SIZE);
+        if (buf.getInt(start + CRC_OFFSET) != crc(buf, start)) {
+            return null;
+        }
+        int kind = buf.get(start + 36);
+        if (kind < 1 || kind > Kind.values().length) {
+            return null;
+        }
+        int oldScore = buf.getInt(start + 28);
+        int newScore = buf.getInt(start + 32);
+        return new GradeAuditRecord(
+                buf.getLong(start),
+                buf.getLong(start + 8),
+                Kind.values()[kind - 1],
+                buf.getInt(start + 16),
+                buf.getInt(start + 20),
+                buf.getInt(start + 24),
+                oldScore < 0 ? null : oldScore,
+                newScore < 0 ? null : newScore,
+                getGrade(buf, start + 37),
+                getGrade(buf, start + 37 + GRADE_BYTES));
+    }
+
+    public GradeAuditDTO toDTO() {
+        return new GradeAuditDTO(sequence, Instant.ofEpochMilli(time), kind.name(), enrollmentId,
+                kind == Kind.SCORE ? assignmentId : null,
+                kind == Kind.SCORE ? gradeId : null,
+                oldScore, newScore, oldGrade, newGrade);
+    }
+
+    private static void putGrade(ByteBuffer buf, String grade) {
+        byte[] b = (grade == null) ? new byte[0] : grade.getBytes(StandardCharsets.US_ASCII);
+        for (int i=0; i<GRADE_BYTES; i++) {
+            buf.put(i < b.length ? b[i] : 0);
+        }
+    }
+
+    private static String getGrade(ByteBuffer buf, int offset) {
+        int length = 0;
+        while (length < GRADE_BYTES && buf.get(offset + length) != 0) {
+            length++;
+        }
+        if (length == 0) {
+            return null;
+        }
+        byte[] b = new byte[length];
+        buf.get(offset, b);
+        return new String(b, StandardCharsets.US_ASCII);
+    }
+
+    private static int crc(ByteBuffer buf, int start) {
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(start, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+}
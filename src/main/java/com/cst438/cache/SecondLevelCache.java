@@ -0,0 +1,109 @@
+package com.cst438.cache;
+
+import com.cst438.domain.Course;
+import com.cst438.domain.Term;
+import com.cst438.domain.User;
+import com.cst438.dto.CacheStatsDTO;
+import com.cst438.event.ChangeEvent;
+import com.cst438.event.ChangeSubscriber;
+import com.cst438.event.EntityType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Hibernate second level cache of Course, Term and User.
+ *
+ * Writes made through JPA update the cache themselves.  Bulk JDBC writes,
+ * such as the CSV import, bypass Hibernate; they publish an "all rows
+ * changed" event and the entity region and cached query results are
+ * evicted here in onCommit, on the writing thread right after the
+ * transaction commits, so the writer's next request reads the new rows.
+ * onChanges evicts again when the events reach the dispatch thread, which
+ * also covers the "all rows changed" events the bus sends for dropped batches.
+ *
+ * Only course, term and user rows are cached and the cached queries read
+ * only those tables, so bulk writes of other rows (cohort enrollment,
+ * term rollover) have nothing to evict.
+ */
+@Component
+public class SecondLevelCache implements ChangeSubscriber {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public Set<EntityType> types() {
+        return Set.of(EntityType.COURSE, EntityType.TERM, EntityType.USER);
+    }
+
+    @Override
+    public void onCommit(List<ChangeEvent> events) {
+        onChanges(events);
+    }
+
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        org.hibernate.Cache cache = sessionFactory().getCache();
+        boolean evicted = false;
+        for (ChangeEvent e : events) {
+            if (e.isAll()) {
+                cache.evictEntityData(entityClass(e.type()));
+                evicted = true;
+            }
+        }
+        if (evicted) {
+            cache.evictQueryRegions();
+        }
+    }
+
+    public void evictAll() {
+        sessionFactory().getCache().evictAllRegions();
+    }
+
+    // hit, miss and put counts for each entity region and the query cache
+    public List<CacheStatsDTO> stats() {
+        Statistics statistics = sessionFactory().getStatistics();
+        List<CacheStatsDTO> dlist = new ArrayList<>();
+        for (Class<?> c : List.of(Course.class, Term.class, User.class)) {
+            dlist.add(toDTO(c.getName(), statistics.getDomainDataRegionStatistics(c.getName())));
+        }
+        dlist.add(toDTO(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                statistics.getQueryRegionStatistics(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME)));
+        return dlist;
+    }
+
+    // number of JDBC statements prepared since startup
+    public long statementCount() {
+        return sessionFactory().getStatistics().getPrepareStatementCount();
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    private static Class<?> entityClass(EntityType type) {
+        return switch (type) {
+            case COURSE -> Course.class;
+            case TERM -> Term.class;
+            case USER -> User.class;
+            default -> throw new IllegalArgumentException("not cached " + type);
+        };
+    }
+
+    private static CacheStatsDTO toDTO(String region, CacheRegionStatistics s) {
+        if (s == null) {
+            return new CacheStatsDTO(region, 0, 0, 0, 0);
+        }
+        return new CacheStatsDTO(region, s.getHitCount(), s.getMissCount(), s.getPutCount(),
+                s.getElementCountInMemory());
+    }
+}
@@ -0,0 +1,53 @@
+package com.cst438.config;
+
+import com.cst438.routing.RoutingContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/*
+ * Thread pools used by controllers that run independent queries concurrently,
+ * and by background jobs.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    // pool for read queries fanned out by composite endpoints.
+    // when the pool and its queue are full the request thread runs the
+    // query itself, so a burst slows down requests instead of failing them.
+    @Bean(name="queryExecutor")
+    public ThreadPoolTaskExecutor queryExecutor(
+            @Value("${cst438.query-executor.threads:8}") int threads,
+            @Value("${cst438.query-executor.queue:200}") int queue) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        executor.setThreadNamePrefix("query-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // queries run for a request follow the request's replica routing
+        executor.setTaskDecorator(RoutingContext::wrap);
+        executor.initialize();
+        return executor;
+    }
+
+    // pool for long running jobs (exports, reports).  threads is the number of
+    // jobs that may run at once and up to queue more may wait.  submits beyond
+    // that are rejected, so heavy jobs can not take over the database.
+    @Bean(name="jobExecutor")
+    public ThreadPoolTaskExecutor jobExecutor(
+            @Value("${cst438.jobs.threads:2}") int threads,
+            @Value("${cst438.jobs.queue:20}") int queue) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        executor.setThreadNamePrefix("job-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,68 @@
+package com.cst438.config;
+
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.SectionDTO;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.util.Set;
+
+/*
+ * Jackson settings for sparse fieldsets and the binary encodings.
+ *
+ * The DTOs in FIELDS_FILTERED are written through the property filter
+ * FIELDS_FILTER, which writes every property unless a request replaces it
+ * (see FieldsAdvice).  The filter is attached here rather than with
+ * @JsonFilter on the records, so an ObjectMapper created outside spring
+ * still serializes the DTOs.
+ *
+ * CBOR (application/cbor) and Smile (application/x-jackson-smile) responses
+ * are written by mappers built from the same builder as the JSON mapper, so
+ * they have the same settings and filter.
+ */
+@Configuration
+public class JacksonConfig {
+
+    public static final String FIELDS_FILTER = "fields";
+
+    static final Set<Class<?>> FIELDS_FILTERED = Set.of(SectionDTO.class, EnrollmentDTO.class);
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fieldsFilter() {
+        return builder -> builder
+                .annotationIntrospector(existing -> AnnotationIntrospector.pair(new FieldsIntrospector(), existing))
+                .filters(new SimpleFilterProvider().addFilter(FIELDS_FILTER, SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    static class FieldsIntrospector extends NopAnnotationIntrospector {
+        @Override
+        public Object findFilterId(Annotated a) {
+            if (a instanceof AnnotatedClass c && FIELDS_FILTERED.contains(c.getRawType())) {
+                return FIELDS_FILTER;
+            }
+            return null;
+        }
+    }
+}
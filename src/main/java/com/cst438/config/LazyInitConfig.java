@@ -0,0 +1,31 @@
+package com.cst438.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.sql.init.AbstractScriptDatabaseInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+
+/*
+ * Beans created at startup even when spring.main.lazy-initialization=true.
+ *
+ * Lazy initialization only defers controllers, repositories and services
+ * to their first use.  The database is still loaded and Hibernate still
+ * bootstrapped during startup, otherwise the first request would pay for
+ * both and a bad schema or data.sql would not fail the deploy.
+ */
+@Configuration
+public class LazyInitConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerDatabase() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                DataSource.class,
+                AbstractScriptDatabaseInitializer.class,
+                EntityManagerFactory.class,
+                AbstractEntityManagerFactoryBean.class);
+    }
+}
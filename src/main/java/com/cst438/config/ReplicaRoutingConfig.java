@@ -0,0 +1,106 @@
+package com.cst438.config;
+
+import com.cst438.routing.*;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/*
+ * Read replica routing, enabled with cst438.replica.enabled=true.
+ *
+ * The primary is configured with spring.datasource.*, the replica with
+ * cst438.replica.url.  If no replica url is given, a LocalReplica (a copy
+ * of the in-memory H2 primary refreshed every cst438.replica.sync-millis)
+ * stands in for the replica.  Run locally with  --spring.profiles.active=replica
+ */
+@Configuration
+@ConditionalOnProperty(name="cst438.replica.enabled", havingValue="true")
+public class ReplicaRoutingConfig implements WebMvcConfigurer {
+
+    @Autowired
+    ReadYourWrites readYourWrites;
+
+    private LocalReplica localReplica;
+    private QueryReplicaLag queryReplicaLag;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            DataSourceProperties properties,
+            @Value("${cst438.replica.url:}") String replicaUrl,
+            @Value("${cst438.replica.username:}") String replicaUsername,
+            @Value("${cst438.replica.password:}") String replicaPassword,
+            @Value("${cst438.replica.lag-query:}") String lagQuery,
+            @Value("${cst438.replica.max-lag-millis:2000}") long maxLagMillis,
+            @Value("${cst438.replica.sync-millis:500}") long syncMillis) {
+
+        DataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        DataSource replica;
+        ReplicaLag lag;
+        if (replicaUrl.isBlank()) {
+            localReplica = new LocalReplica(primary, syncMillis);
+            replica = localReplica;
+            lag = localReplica;
+        } else {
+            replica = DataSourceBuilder.create()
+                    .url(replicaUrl)
+                    .username(replicaUsername)
+                    .password(replicaPassword)
+                    .type(HikariDataSource.class)
+                    .build();
+            queryReplicaLag = new QueryReplicaLag(replica, lagQuery, 1000);
+            lag = queryReplicaLag;
+        }
+        // connections are taken from the routing data source on first use,
+        // after the transaction's read only flag is known
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, replica, lag, maxLagMillis));
+    }
+
+    // hibernate normally keeps the first connection of a request until the
+    // request ends.  Release it after each transaction so that every
+    // transaction is routed on its own.
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return props -> props.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReadYourWritesInterceptor(readYourWrites));
+    }
+
+    // schema.sql and data.sql have been loaded into the primary
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLocalReplica() {
+        if (localReplica != null) {
+            localReplica.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (localReplica != null) {
+            localReplica.stop();
+        }
+        if (queryReplicaLag != null) {
+            queryReplicaLag.stop();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.cst438.config;
+
+import com.cst438.snapshot.SnapshotDatabaseInitializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+
+/*
+ * Load the in-memory database from a binary snapshot of schema.sql and
+ * data.sql, enabled with cst438.snapshot.enabled=true.  When disabled
+ * spring boot replays the scripts on every start.
+ */
+@Configuration
+@ConditionalOnProperty(name="cst438.snapshot.enabled", havingValue="true")
+@EnableConfigurationProperties(SqlInitializationProperties.class)
+public class SnapshotConfig {
+
+    @Bean
+    public SnapshotDatabaseInitializer snapshotDatabaseInitializer(
+            DataSource dataSource,
+            SqlInitializationProperties properties,
+            @Value("classpath:schema.sql") Resource schema,
+            @Value("classpath:data.sql") Resource data,
+            @Value("${cst438.snapshot.file:snapshot/testdb.snap}") String file) {
+        return new SnapshotDatabaseInitializer(dataSource, properties, schema, data, Path.of(file));
+    }
+}
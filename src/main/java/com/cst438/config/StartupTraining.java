@@ -0,0 +1,66 @@
+package com.cst438.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+/*
+ * Training run of the startup profile (mvn -Pstartup package).
+ *
+ * The JVM is started with -XX:ArchiveClassesAtExit so every class loaded
+ * before it exits goes into the class data sharing archive.  Once the
+ * application is ready, a few requests are sent to the main endpoints so
+ * the classes used by the first real request (Jackson, Hibernate queries,
+ * the controllers) are loaded too, then the application exits.
+ *
+ * The flag is read at run time rather than with a bean condition because
+ * AOT processing fixes the set of beans when the application is built.
+ */
+@Component
+public class StartupTraining {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTraining.class);
+
+    static final List<String> REQUESTS = List.of(
+            "/terms",
+            "/courses",
+            "/sections/open",
+            "/sections/1/enrollments",
+            "/transcripts?studentId=3",
+            "/students/3/home?year=2024&semester=Spring");
+
+    @Value("${cst438.training-run:false}")
+    boolean trainingRun;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void train(ApplicationReadyEvent event) {
+        if (!trainingRun) {
+            return;
+        }
+        int port = ((WebServerApplicationContext) event.getApplicationContext()).getWebServer().getPort();
+        HttpClient client = HttpClient.newHttpClient();
+        for (String path : REQUESTS) {
+            try {
+                HttpResponse<String> response = client.send(
+                        HttpRequest.newBuilder(URI.create("http://localhost:"+port+path)).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                log.info("training request {} {}", path, response.statusCode());
+            } catch (Exception e) {
+                // a failed request only means fewer classes in the archive
+                log.warn("training request {} failed", path, e);
+            }
+        }
+        System.exit(SpringApplication.exit(event.getApplicationContext(), () -> 0));
+    }
+}
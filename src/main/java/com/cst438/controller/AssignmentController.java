@@ -1,10 +1,23 @@
 package com.cst438.controller;
 
+import com.cst438.audit.GradeAuditLog;
 import com.cst438.domain.*;
 import com.cst438.dto.AssignmentDTO;
 import com.cst438.dto.AssignmentStudentDTO;
 import com.cst438.dto.GradeDTO;
+import com.cst438.dto.JobDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
+import com.cst438.job.Job;
+import com.cst438.job.JobManager;
+import com.cst438.job.Reports;
+import com.cst438.reminder.DueDateReminders;
+import com.cst438.stream.GradeStream;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -13,14 +26,56 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
-
+import java.sql.Date;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:3000")
 public class AssignmentController {
 
+    // number of times a grade is re-read and saved again after losing
+    // a race with another update of the same grade.
+    static final int MAX_UPDATE_ATTEMPTS = 3;
+
+    @Autowired
+    AssignmentRepository assignmentRepository;
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    GradeRepository gradeRepository;
+
+    @Autowired
+    GradeStream gradeStream;
+
+    @Autowired
+    GradeAuditLog gradeAuditLog;
+
+    @Autowired
+    SectionRepository sectionRepository;
+
+    @Autowired
+    DueDateReminders dueDateReminders;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    @Autowired
+    TermRepository termRepository;
+
+    @Autowired
+    JobManager jobManager;
+
+    @Autowired
+    Reports reports;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
 
     // instructor lists assignments for a section.  Assignments ordered by due date.
     // logged in user must be the instructor for the section
@@ -28,13 +83,12 @@ public class AssignmentController {
     public List<AssignmentDTO> getAssignments(
             @PathVariable("secNo") int secNo) {
 
-        // TODO remove the following line when done
-		
-		// hint: use the assignment repository method 
-		//  findBySectionNoOrderByDueDate to return 
-		//  a list of assignments
-
-        return null;
+        List<Assignment> assignments = assignmentRepository.findBySectionNoOrderByDueDate(secNo);
+        List<AssignmentDTO> dlist = new ArrayList<>();
+        for (Assignment a : assignments) {
+            dlist.add(toDTO(a));
+        }
+        return dlist;
     }
 
     // add assignment
@@ -44,9 +98,17 @@ public class AssignmentController {
     public AssignmentDTO createAssignment(
             @RequestBody AssignmentDTO dto) {
 
-        // TODO remove the following line when done
-
-        return null;
+        Section s = sectionRepository.findById(dto.secNo()).orElse(null);
+        if (s==null) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "section not found "+dto.secNo());
+        }
+        Assignment a = new Assignment();
+        a.setSection(s);
+        a.setTitle(checkTitle(dto.title()));
+        a.setDueDate(checkDueDate(dto.dueDate(), s.getTerm()));
+        a = assignmentRepository.save(a);
+        dueDateReminders.schedule(a);
+        return toDTO(a);
     }
 
     // update assignment for a section.  Only title and dueDate may be changed.
@@ -55,17 +117,36 @@ public class AssignmentController {
     @PutMapping("/assignments")
     public AssignmentDTO updateAssignment(@RequestBody AssignmentDTO dto) {
 
-        // TODO remove the following line when done
-
-        return null;
+        Assignment a = assignmentRepository.findById(dto.id()).orElse(null);
+        if (a==null) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "assignment not found "+dto.id());
+        }
+        Date oldDueDate = a.getDueDate();
+        a.setTitle(checkTitle(dto.title()));
+        a.setDueDate(checkDueDate(dto.dueDate(), a.getSection().getTerm()));
+        assignmentRepository.save(a);
+        if (!a.getDueDate().equals(oldDueDate)) {
+            dueDateReminders.schedule(a);
+        }
+        return toDTO(a);
     }
 
-    // delete assignment for a section
+    // delete assignment for a section, with its grades
     // logged in user must be instructor of the section
     @DeleteMapping("/assignments/{assignmentId}")
+    @Transactional
     public void deleteAssignment(@PathVariable("assignmentId") int assignmentId) {
 
-        // TODO
+        if (!assignmentRepository.existsById(assignmentId)) {
+            return;
+        }
+        List<Integer> gradeIds = gradeRepository.findIdsByAssignmentId(assignmentId);
+        if (!gradeIds.isEmpty()) {
+            gradeRepository.deleteByAssignmentId(assignmentId);
+            changeEventBus.publishDeletes(EntityType.GRADE, gradeIds);
+        }
+        assignmentRepository.deleteById(assignmentId);
+        dueDateReminders.cancel(assignmentId);
     }
 
     // instructor gets grades for assignment ordered by student name
@@ -73,28 +154,164 @@ public class AssignmentController {
     @GetMapping("/assignments/{assignmentId}/grades")
     public List<GradeDTO> getAssignmentGrades(@PathVariable("assignmentId") int assignmentId) {
 
-        // TODO remove the following line when done
-
-        // get the list of enrollments for the section related to this assignment.
-		// hint: use te enrollment repository method findEnrollmentsBySectionOrderByStudentName.
-        // for each enrollment, get the grade related to the assignment and enrollment
-		//   hint: use the gradeRepository findByEnrollmentIdAndAssignmentId method.
-        //   if the grade does not exist, create a grade entity and set the score to NULL
-        //   and then save the new entity
+        Assignment a = assignmentRepository.findById(assignmentId).orElse(null);
+        if (a==null) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "assignment not found "+assignmentId);
+        }
 
-        return null;
+        // get the list of enrollments for the section related to this assignment
+        // and the grades of the assignment, one query each.
+        // if the grade of an enrollment does not exist, create a grade entity with a NULL score.
+        Map<Integer, Grade> grades = new HashMap<>();
+        for (Grade g : gradeRepository.findByAssignmentId(assignmentId)) {
+            grades.put(g.getEnrollment().getEnrollmentId(), g);
+        }
+        List<Enrollment> enrollments = enrollmentRepository.findEnrollmentsBySectionNoOrderByStudentName(a.getSection().getSectionNo());
+        List<GradeDTO> dlist = new ArrayList<>();
+        for (Enrollment e : enrollments) {
+            Grade g = grades.get(e.getEnrollmentId());
+            if (g==null) {
+                g = new Grade();
+                g.setAssignment(a);
+                g.setEnrollment(e);
+                g.setScore(null);
+                gradeRepository.save(g);
+            }
+            dlist.add(toDTO(g, e, a));
+        }
+        return dlist;
     }
 
     // instructor uploads grades for assignment
     // user must be instructor for the section
+    // Each grade is saved separately.  Grades that were changed after the
+    // instructor read them are not updated; they are returned with their
+    // current score and a 409 CONFLICT status.  All other grades are updated.
     @PutMapping("/grades")
-    public void updateGrades(@RequestBody List<GradeDTO> dlist) {
+    public ResponseEntity<List<GradeDTO>> updateGrades(@RequestBody List<GradeDTO> dlist) {
 
-        // TODO
+        List<GradeDTO> conflicts = new ArrayList<>();
+        for (GradeDTO d : dlist) {
+            GradeDTO current = updateScore(d);
+            if (current!=null) {
+                conflicts.add(current);
+            }
+        }
+        if (conflicts.isEmpty()) {
+            return ResponseEntity.ok(conflicts);
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(conflicts);
+    }
+
+    // update the score for one grade.
+    // return null if updated, or the current grade data if there is a conflict.
+    // each attempt reads and writes the grade in its own short transaction.
+    // the grade stream and audit log are told after the update commits.
+    private GradeDTO updateScore(GradeDTO d) {
+        for (int attempt=1; ; attempt++) {
+            Integer[] oldScore = new Integer[1];
+            Grade[] updated = new Grade[1];
+            try {
+                GradeDTO conflict = transactionTemplate.execute(status -> {
+                    Grade g = gradeRepository.findById(d.gradeId()).orElse(null);
+                    if (g==null) {
+                        throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "grade not found "+d.gradeId());
+                    }
+                    if (d.version()!=null && d.version()!=g.getVersion()) {
+                        return toDTO(g);
+                    }
+                    oldScore[0] = g.getScore();
+                    g.setScore(d.score());
+                    gradeRepository.save(g);
+                    status.flush();
+                    updated[0] = g;
+                    return null;
+                });
+                if (conflict!=null) {
+                    return conflict;
+                }
+            } catch (ObjectOptimisticLockingFailureException ex) {
+                // another update committed after the read. re-read and try again.
+                if (attempt==MAX_UPDATE_ATTEMPTS) {
+                    return gradeRepository.findById(d.gradeId()).map(this::toDTO).orElse(null);
+                }
+                continue;
+            }
+            Grade g = updated[0];
+            gradeStream.publishScore(g);
+            if (!Objects.equals(oldScore[0], g.getScore())) {
+                gradeAuditLog.scoreChanged(g, oldScore[0]);
+            }
+            return null;
+        }
+    }
+
+    // ADMIN function to build the grade report of a term as a background job.
+    // returns 202 ACCEPTED with the job.  poll GET /jobs/{jobId} and download
+    // the CSV from GET /jobs/{jobId}/result when it has SUCCEEDED.
+    @PostMapping("/assignments/report")
+    public ResponseEntity<JobDTO> gradeReport(
+            @RequestParam("year") int year,
+            @RequestParam("semester") String semester) {
+        Term term = termRepository.findByYearAndSemester(year, semester);
+        if (term==null) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "year, semester invalid ");
+        }
+        int termId = term.getTermId();
+        Job job = jobManager.submit("grade-report", "text/csv",
+                (j, out) -> reports.gradeReport(termId, j, out));
+        return ResponseEntity.accepted().body(job.toDTO());
+    }
+
+    private String checkTitle(String title) {
+        if (title==null || title.isBlank()) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "title is required");
+        }
+        return title;
+    }
+
+    // due date must be a yyyy-mm-dd date within the term of the section
+    private Date checkDueDate(String dueDate, Term term) {
+        Date d;
+        try {
+            d = Date.valueOf(dueDate);
+        } catch (IllegalArgumentException e) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "invalid due date "+dueDate);
+        }
+        if (d.before(term.getStartDate()) || d.after(term.getEndDate())) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "due date must be within the term "+dueDate);
+        }
+        return d;
+    }
+
+    private AssignmentDTO toDTO(Assignment a) {
+        Section s = a.getSection();
+        return new AssignmentDTO(
+                a.getAssignmentId(),
+                a.getTitle(),
+                a.getDueDate().toString(),
+                s.getCourse().getCourseId(),
+                s.getSecId(),
+                s.getSectionNo()
+        );
+    }
 
-        // for each grade in the GradeDTO list, retrieve the grade entity
-        // update the score and save the entity
+    private GradeDTO toDTO(Grade g) {
+        return toDTO(g, g.getEnrollment(), g.getAssignment());
+    }
 
+    // the enrollment and assignment of the grade, already loaded by the caller
+    private GradeDTO toDTO(Grade g, Enrollment e, Assignment a) {
+        return new GradeDTO(
+                g.getGradeId(),
+                e.getStudent().getName(),
+                e.getStudent().getEmail(),
+                a.getTitle(),
+                e.getSection().getCourse().getCourseId(),
+                e.getSection().getSecId(),
+                g.getScore(),
+                g.getVersion()
+        );
     }
 
 
@@ -107,12 +324,25 @@ public class AssignmentController {
             @RequestParam("year") int year,
             @RequestParam("semester") String semester) {
 
-        // TODO remove the following line when done
-
         // return a list of assignments and (if they exist) the assignment grade
         //  for all sections that the student is enrolled for the given year and semester
-		//  hint: use the assignment repository method findByStudentIdAndYearAndSemesterOrderByDueDate
-
-        return null;
+        // scores for all of the student's assignments in the term, by assignment id
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Grade g : gradeRepository.findByStudentIdAndYearAndSemester(studentId, year, semester)) {
+            scores.put(g.getAssignment().getAssignmentId(), g.getScore());
+        }
+        List<Assignment> assignments = assignmentRepository.findByStudentIdAndYearAndSemesterOrderByDueDate(studentId, year, semester);
+        List<AssignmentStudentDTO> dlist = new ArrayList<>();
+        for (Assignment a : assignments) {
+            dlist.add(new AssignmentStudentDTO(
+                    a.getAssignmentId(),
+                    a.getTitle(),
+                    a.getDueDate(),
+                    a.getSection().getCourse().getCourseId(),
+                    a.getSection().getSecId(),
+                    scores.get(a.getAssignmentId())
+            ));
+        }
+        return dlist;
     }
 }
@@ -0,0 +1,37 @@
+package com.cst438.controller;
+
+import com.cst438.audit.GradeAuditLog;
+import com.cst438.audit.GradeAuditRecord;
+import com.cst438.dto.GradeAuditDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/*
+ * ADMIN functions to look up the history of scores and final grades for grade disputes
+ */
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+public class AuditController {
+
+    @Autowired
+    GradeAuditLog gradeAuditLog;
+
+    // score and final grade changes of an enrollment, or score changes of an
+    // assignment, oldest first.  exactly one of enrollmentId, assignmentId is required.
+    @GetMapping("/audit/grades")
+    public List<GradeAuditDTO> getGradeHistory(
+            @RequestParam(name="enrollmentId", required=false) Integer enrollmentId,
+            @RequestParam(name="assignmentId", required=false) Integer assignmentId) {
+        if ((enrollmentId==null) == (assignmentId==null)) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "specify one of enrollmentId, assignmentId");
+        }
+        List<GradeAuditRecord> history = (enrollmentId!=null)
+                ? gradeAuditLog.historyOfEnrollment(enrollmentId)
+                : gradeAuditLog.historyOfAssignment(assignmentId);
+        return history.stream().map(GradeAuditRecord::toDTO).toList();
+    }
+}
@@ -0,0 +1,31 @@
+package com.cst438.controller;
+
+import com.cst438.cache.SecondLevelCache;
+import com.cst438.dto.CacheStatsDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/*
+ * ADMIN functions for the Course, Term and User cache
+ */
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+public class CacheController {
+
+    @Autowired
+    SecondLevelCache secondLevelCache;
+
+    // hits, misses and puts for each cache region since startup
+    @GetMapping("/admin/cache")
+    public List<CacheStatsDTO> getCacheStats() {
+        return secondLevelCache.stats();
+    }
+
+    // empty the cache
+    @DeleteMapping("/admin/cache")
+    public void evictCache() {
+        secondLevelCache.evictAll();
+    }
+}
@@ -1,13 +1,20 @@
 package com.cst438.controller;
 
+import com.cst438.archive.TermArchive;
 import com.cst438.domain.*;
 import com.cst438.dto.CourseDTO;
 import com.cst438.dto.SectionDTO;
+import com.cst438.event.ChangeEvent;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,6 +41,24 @@ public class CourseController {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    TermArchive termArchive;
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    AssignmentRepository assignmentRepository;
+
+    @Autowired
+    GradeRepository gradeRepository;
+
+    @Autowired
+    WaitlistRepository waitlistRepository;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
 
     // ADMIN function to create a new course
     @PostMapping("/courses")
@@ -69,14 +94,36 @@ public class CourseController {
     }
 
     // ADMIN function to delete a course
-    // delete will fail if the course has sections
+    // a course with sections is not deleted (409 CONFLICT) unless cascade=true,
+    // which also deletes the sections and their enrollments, assignments, grades and waitlists
+    // with one bulk delete statement for each table.
     @DeleteMapping("/courses/{courseid}")
-    public void deleteCourse(@PathVariable String courseid) {
-        Course c = courseRepository.findById(courseid).orElse(null);
+    @Transactional
+    public void deleteCourse(
+            @PathVariable String courseid,
+            @RequestParam(value="cascade", defaultValue="false") boolean cascade) {
         // if course does not exist, do nothing.
-        if (c!=null) {
-            courseRepository.delete(c);
+        if (!courseRepository.existsById(courseid)) {
+            return;
         }
+        if (cascade) {
+            gradeRepository.deleteByCourseId(courseid);
+            enrollmentRepository.deleteByCourseId(courseid);
+            assignmentRepository.deleteByCourseId(courseid);
+            waitlistRepository.deleteByCourseId(courseid);
+            sectionRepository.deleteByCourseId(courseid);
+            changeEventBus.publishAll(EntityType.GRADE);
+            changeEventBus.publishAll(EntityType.ENROLLMENT);
+            changeEventBus.publishAll(EntityType.ASSIGNMENT);
+            changeEventBus.publishAll(EntityType.SECTION);
+        } else {
+            long sections = sectionRepository.countByCourseId(courseid);
+            if (sections > 0) {
+                throw  new ResponseStatusException( HttpStatus.CONFLICT, "course has "+sections+" sections");
+            }
+        }
+        courseRepository.deleteByCourseId(courseid);
+        changeEventBus.publish(EntityType.COURSE, ChangeEvent.Kind.DELETE, courseid);
     }
 
     @GetMapping("/courses")
@@ -94,5 +141,28 @@ public class CourseController {
         return termRepository.findAllByOrderByTermIdDesc();
     }
 
+    // ADMIN function to move the enrollments and grades of a term that has
+    // ended to the term archive. After this the term's enrollments are only
+    // available through the student transcript.
+    // return the number of enrollments archived
+    @PostMapping("/terms/{termId}/archive")
+    public int archiveTerm(@PathVariable("termId") int termId) {
+        Term term = termRepository.findById(termId).orElse(null);
+        if (term==null) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "term not found "+termId);
+        }
+        if (!term.getEndDate().before(new java.sql.Date(System.currentTimeMillis()))) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "term has not ended "+termId);
+        }
+        try {
+            return termArchive.archive(term);
+        } catch (IOException e) {
+            throw  new ResponseStatusException( HttpStatus.INTERNAL_SERVER_ERROR, "archive failed "+e.getMessage());
+        } catch (IllegalStateException | DataIntegrityViolationException e) {
+            // a row of the term was added while it was archived.  nothing was deleted
+            throw  new ResponseStatusException( HttpStatus.CONFLICT, "term changed during the archive, try again "+termId);
+        }
+    }
+
 
 }
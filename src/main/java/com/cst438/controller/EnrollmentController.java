@@ -1,42 +1,301 @@
 package com.cst438.controller;
 
 
+import com.cst438.audit.GradeAuditLog;
+import com.cst438.domain.*;
+import com.cst438.dto.CohortEnrollmentDTO;
+import com.cst438.dto.CohortResultDTO;
 import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.JobDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
+import com.cst438.job.Job;
+import com.cst438.job.JobManager;
+import com.cst438.job.Reports;
+import com.cst438.routing.ReadYourWrites;
+import com.cst438.seats.SeatCounters;
+import com.cst438.stream.GradeStream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:3000")
 public class EnrollmentController {
 
+    // number of times a row is re-read and saved again after losing
+    // a race with another update of the same row.
+    static final int MAX_UPDATE_ATTEMPTS = 3;
+
+    // largest number of student and section pairs in one cohort enrollment
+    static final int MAX_COHORT_PAIRS = 10_000;
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    GradeStream gradeStream;
+
+    @Autowired
+    GradeAuditLog gradeAuditLog;
+
+    @Autowired
+    TermRepository termRepository;
+
+    @Autowired
+    JobManager jobManager;
+
+    @Autowired
+    Reports reports;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    SectionRepository sectionRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    @Autowired
+    SeatCounters seatCounters;
+
+    @Autowired
+    ReadYourWrites readYourWrites;
+
     // instructor downloads student enrollments for a section, ordered by student name
     // user must be instructor for the section
     @GetMapping("/sections/{sectionNo}/enrollments")
     public List<EnrollmentDTO> getEnrollments(
             @PathVariable("sectionNo") int sectionNo ) {
 
-        // TODO
-		//  hint: use enrollment repository findEnrollmentsBySectionNoOrderByStudentName method
-        //  remove the following line when done
-        return null;
+        List<Enrollment> enrollments = enrollmentRepository.findEnrollmentsBySectionNoOrderByStudentName(sectionNo);
+        List<EnrollmentDTO> dlist = new ArrayList<>();
+        for (Enrollment e : enrollments) {
+            dlist.add(toDTO(e));
+        }
+        return dlist;
     }
 
     // instructor uploads enrollments with the final grades for the section
     // user must be instructor for the section
+    // Each enrollment is saved separately.  Enrollments that were changed after
+    // the instructor read them are not updated; they are returned with their
+    // current data and a 409 CONFLICT status.  All other enrollments are updated.
     @PutMapping("/enrollments")
-    public void updateEnrollmentGrade(@RequestBody List<EnrollmentDTO> dlist) {
+    public ResponseEntity<List<EnrollmentDTO>> updateEnrollmentGrade(@RequestBody List<EnrollmentDTO> dlist) {
+
+        List<EnrollmentDTO> conflicts = new ArrayList<>();
+        for (EnrollmentDTO d : dlist) {
+            EnrollmentDTO current = updateGrade(d);
+            if (current!=null) {
+                conflicts.add(current);
+            }
+        }
+        if (conflicts.isEmpty()) {
+            return ResponseEntity.ok(conflicts);
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(conflicts);
+    }
+
+    // update the grade for one enrollment.
+    // return null if updated, or the current enrollment data if there is a conflict.
+    // each attempt reads and writes the enrollment in its own short transaction.
+    // the grade stream and audit log are told after the update commits.
+    private EnrollmentDTO updateGrade(EnrollmentDTO d) {
+        for (int attempt=1; ; attempt++) {
+            String[] oldGrade = new String[1];
+            Enrollment[] updated = new Enrollment[1];
+            try {
+                EnrollmentDTO conflict = transactionTemplate.execute(status -> {
+                    Enrollment e = enrollmentRepository.findById(d.enrollmentId()).orElse(null);
+                    if (e==null) {
+                        throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "enrollment not found "+d.enrollmentId());
+                    }
+                    if (d.version()!=null && d.version()!=e.getVersion()) {
+                        return toDTO(e);
+                    }
+                    oldGrade[0] = e.getGrade();
+                    e.setGrade(d.grade());
+                    enrollmentRepository.save(e);
+                    status.flush();
+                    updated[0] = e;
+                    return null;
+                });
+                if (conflict!=null) {
+                    return conflict;
+                }
+            } catch (ObjectOptimisticLockingFailureException ex) {
+                // another update committed after the read. re-read and try again.
+                if (attempt==MAX_UPDATE_ATTEMPTS) {
+                    return enrollmentRepository.findById(d.enrollmentId()).map(this::toDTO).orElse(null);
+                }
+                continue;
+            }
+            Enrollment e = updated[0];
+            gradeStream.publishFinalGrade(e);
+            if (!Objects.equals(oldGrade[0], e.getGrade())) {
+                gradeAuditLog.finalGradeChanged(e, oldGrade[0]);
+            }
+            return null;
+        }
+    }
 
-        // TODO
+    // ADMIN function to enroll a cohort of students into a list of sections,
+    // for example the first year students of a learning community into its
+    // linked sections.  the add period is checked once per term, existing
+    // enrollments are found with one query and the new enrollments are
+    // inserted with one JDBC batch, all in one transaction that holds the
+    // locks of the section rows.  students beyond
+    // the capacity of a section are not enrolled; they can join its waitlist
+    // with POST /enrollments/sections/{sectionNo}.
+    // return the outcome of every student and section pair.
+    @PostMapping("/enrollments/cohort")
+    @Transactional
+    public CohortResultDTO enrollCohort(@RequestBody CohortEnrollmentDTO cohort) {
+        List<Integer> studentIds = (cohort.studentIds()==null) ? List.of() : cohort.studentIds();
+        List<Integer> sectionNos = (cohort.sectionNos()==null) ? List.of() : cohort.sectionNos();
+        if (studentIds.contains(null) || sectionNos.contains(null)) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "student ids and section numbers must not be null");
+        }
+        if ((long) studentIds.size() * sectionNos.size() > MAX_COHORT_PAIRS) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "more than "+MAX_COHORT_PAIRS+" student and section pairs");
+        }
 
-        // For each EnrollmentDTO in the list
-        //  find the Enrollment entity using enrollmentId
-        //  update the grade and save back to database
+        Map<Integer, Section> sections = new HashMap<>();
+        Set<Integer> students = new HashSet<>();
+        if (!studentIds.isEmpty() && !sectionNos.isEmpty()) {
+            // concurrent adds and cohorts of these sections wait until this
+            // one commits, so the free seats counted below stay free
+            sectionRepository.lockBySectionNoIn(sectionNos);
+            for (Section s : sectionRepository.findBySectionNoIn(sectionNos)) {
+                sections.put(s.getSectionNo(), s);
+            }
+            for (User u : userRepository.findAllById(studentIds)) {
+                if (u.getType().equals("STUDENT")) {
+                    students.add(u.getId());
+                }
+            }
+        }
 
+        // add period of each term, and free seats of each section
+        Date today = new Date();
+        Map<Integer, Boolean> addOpen = new HashMap<>();
+        Map<Integer, Long> seats = new HashMap<>();
+        for (Section s : sections.values()) {
+            Term t = s.getTerm();
+            addOpen.computeIfAbsent(t.getTermId(),
+                    k -> !today.before(t.getAddDate()) && !today.after(t.getAddDeadline()));
+            seats.put(s.getSectionNo(), (long) s.getCapacity());
+        }
+        Set<Long> enrolled = new HashSet<>();
+        if (!sections.isEmpty() && !students.isEmpty()) {
+            for (SectionCount c : enrollmentRepository.countBySectionNoIn(sections.keySet())) {
+                seats.merge(c.getSectionNo(), -c.getTotal(), Long::sum);
+            }
+            for (SectionStudent e : enrollmentRepository.findStudentsBySectionNoInAndStudentIdIn(sections.keySet(), students)) {
+                enrolled.add(pair(e.getSectionNo(), e.getStudentId()));
+            }
+        }
+
+        List<List<String>> results = new ArrayList<>(studentIds.size());
+        List<Object[]> inserts = new ArrayList<>();
+        Map<Integer, Integer> added = new HashMap<>();
+        for (int studentId : studentIds) {
+            List<String> row = new ArrayList<>(sectionNos.size());
+            for (int sectionNo : sectionNos) {
+                Section s = sections.get(sectionNo);
+                if (s==null) {
+                    row.add("SECTION_NOT_FOUND");
+                } else if (!students.contains(studentId)) {
+                    row.add("STUDENT_NOT_FOUND");
+                } else if (!addOpen.get(s.getTerm().getTermId())) {
+                    row.add("ADD_PERIOD_CLOSED");
+                } else if (enrolled.contains(pair(sectionNo, studentId))) {
+                    row.add("ALREADY_ENROLLED");
+                } else if (seats.get(sectionNo) <= 0) {
+                    row.add("SECTION_FULL");
+                } else {
+                    enrolled.add(pair(sectionNo, studentId));
+                    seats.merge(sectionNo, -1L, Long::sum);
+                    inserts.add(new Object[] {sectionNo, studentId});
+                    added.merge(sectionNo, 1, Integer::sum);
+                    row.add("ENROLLED");
+                }
+            }
+            results.add(row);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into enrollment (section_no, user_id) values (?, ?)", inserts);
+            changeEventBus.publishAll(EntityType.ENROLLMENT);
+            added.forEach(seatCounters::enrolled);
+            for (Object[] insert : inserts) {
+                readYourWrites.markWrite((Integer) insert[1]);
+            }
+        }
+        return new CohortResultDTO(studentIds, sectionNos, results, inserts.size());
+    }
+
+    private static long pair(int sectionNo, int studentId) {
+        return ((long) sectionNo << 32) | (studentId & 0xffffffffL);
     }
 
+    // ADMIN function to export the rosters of every section of a term as a
+    // background job.  returns 202 ACCEPTED with the job.  poll GET /jobs/{jobId}
+    // and download the CSV from GET /jobs/{jobId}/result when it has SUCCEEDED.
+    @PostMapping("/enrollments/export")
+    public ResponseEntity<JobDTO> exportRosters(
+            @RequestParam("year") int year,
+            @RequestParam("semester") String semester) {
+        Term term = termRepository.findByYearAndSemester(year, semester);
+        if (term==null) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "year, semester invalid ");
+        }
+        int termId = term.getTermId();
+        Job job = jobManager.submit("roster-export", "text/csv",
+                (j, out) -> reports.rosterExport(termId, j, out));
+        return ResponseEntity.accepted().body(job.toDTO());
+    }
+
+    private EnrollmentDTO toDTO(Enrollment e) {
+        Section s = e.getSection();
+        return new EnrollmentDTO(
+                e.getEnrollmentId(),
+                e.getGrade(),
+                e.getStudent().getId(),
+                e.getStudent().getName(),
+                e.getStudent().getEmail(),
+                s.getCourse().getCourseId(),
+                s.getSecId(),
+                s.getSectionNo(),
+                s.getBuilding(),
+                s.getRoom(),
+                s.getTimes(),
+                s.getCourse().getCredits(),
+                s.getTerm().getYear(),
+                s.getTerm().getSemester(),
+                e.getVersion()
+        );
+    }
 }
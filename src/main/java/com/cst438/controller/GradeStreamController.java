@@ -0,0 +1,38 @@
+package com.cst438.controller;
+
+import com.cst438.stream.GradeStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/*
+ * Server sent event streams of grade updates.
+ *   students receive changes to their own scores and final grades.
+ *   instructors receive changes to the scores and final grades of a section.
+ * Browsers reconnect with the Last-Event-ID header and are sent the
+ * updates they missed.
+ */
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+public class GradeStreamController {
+
+    @Autowired
+    GradeStream gradeStream;
+
+    // example URL  /students/3/grades/stream
+    @GetMapping(value="/students/{studentId}/grades/stream", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStudentGrades(
+            @PathVariable("studentId") int studentId,
+            @RequestHeader(value="Last-Event-ID", required=false) Long lastEventId) {
+        return gradeStream.subscribeStudent(studentId, lastEventId);
+    }
+
+    // example URL  /sections/8/grades/stream
+    @GetMapping(value="/sections/{sectionNo}/grades/stream", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSectionGrades(
+            @PathVariable("sectionNo") int sectionNo,
+            @RequestHeader(value="Last-Event-ID", required=false) Long lastEventId) {
+        return gradeStream.subscribeSection(sectionNo, lastEventId);
+    }
+}
@@ -0,0 +1,55 @@
+package com.cst438.controller;
+
+import com.cst438.dto.ImportResultDTO;
+import com.cst438.importer.CsvImporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * ADMIN functions to load courses, sections and enrollments for a term
+ * from CSV files uploaded as multipart/form-data with part name "file".
+ * Valid rows are inserted and invalid rows are reported by line number.
+ */
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+public class ImportController {
+
+    @Autowired
+    CsvImporter csvImporter;
+
+    // file layout  course_id,title,credits
+    @PostMapping("/import/courses")
+    public ImportResultDTO importCourses(@RequestParam("file") MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return csvImporter.importCourses(in);
+        } catch (IOException e) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "unable to read file "+e.getMessage());
+        }
+    }
+
+    // file layout  course_id,year,semester,sec_id,building,room,times,instructor_email
+    @PostMapping("/import/sections")
+    public ImportResultDTO importSections(@RequestParam("file") MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return csvImporter.importSections(in);
+        } catch (IOException e) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "unable to read file "+e.getMessage());
+        }
+    }
+
+    // file layout  section_no,student_email
+    @PostMapping("/import/enrollments")
+    public ImportResultDTO importEnrollments(@RequestParam("file") MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return csvImporter.importEnrollments(in);
+        } catch (IOException e) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "unable to read file "+e.getMessage());
+        }
+    }
+}
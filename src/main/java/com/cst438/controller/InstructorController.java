@@ -0,0 +1,83 @@
+package com.cst438.controller;
+
+import com.cst438.domain.*;
+import com.cst438.dto.InstructorDashboardDTO;
+import com.cst438.dto.SectionSummaryDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+public class InstructorController {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    SectionRepository sectionRepository;
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    AssignmentRepository assignmentRepository;
+
+    @Autowired
+    GradeRepository gradeRepository;
+
+    // instructor landing page.  sections for the term with the number of
+    // enrollments, assignments and ungraded student assignments for each section.
+    // The counts are computed with one grouped query each, so the number
+    // of queries does not depend on the number of sections.
+    // example URL  /instructors/dwisneski@csumb.edu/dashboard?year=2024&semester=Spring
+    @GetMapping("/instructors/{email}/dashboard")
+    public InstructorDashboardDTO getDashboard(
+            @PathVariable("email") String email,
+            @RequestParam("year") int year,
+            @RequestParam("semester") String semester) {
+
+        User instructor = userRepository.findByEmail(email);
+        if (instructor == null || !instructor.getType().equals("INSTRUCTOR")) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "email not found or not an instructor " + email);
+        }
+
+        List<Section> sections = sectionRepository.findByInstructorEmailAndYearAndSemester(email, year, semester);
+        Map<Integer, Long> enrollments = toMap(enrollmentRepository.countByInstructorEmailAndYearAndSemester(email, year, semester));
+        Map<Integer, Long> assignments = toMap(assignmentRepository.countByInstructorEmailAndYearAndSemester(email, year, semester));
+        Map<Integer, Long> scored = toMap(gradeRepository.countScoredByInstructorEmailAndYearAndSemester(email, year, semester));
+
+        List<SectionSummaryDTO> dlist = new ArrayList<>();
+        for (Section s : sections) {
+            long enrollmentCount = enrollments.getOrDefault(s.getSectionNo(), 0L);
+            long assignmentCount = assignments.getOrDefault(s.getSectionNo(), 0L);
+            long ungraded = enrollmentCount * assignmentCount - scored.getOrDefault(s.getSectionNo(), 0L);
+            dlist.add(new SectionSummaryDTO(
+                    s.getSectionNo(),
+                    s.getCourse().getCourseId(),
+                    s.getSecId(),
+                    s.getBuilding(),
+                    s.getRoom(),
+                    s.getTimes(),
+                    enrollmentCount,
+                    assignmentCount,
+                    Math.max(ungraded, 0)
+            ));
+        }
+        return new InstructorDashboardDTO(instructor.getName(), instructor.getEmail(), year, semester, dlist);
+    }
+
+    private static Map<Integer, Long> toMap(List<SectionCount> counts) {
+        Map<Integer, Long> map = new HashMap<>();
+        for (SectionCount c : counts) {
+            map.put(c.getSectionNo(), c.getTotal());
+        }
+        return map;
+    }
+}
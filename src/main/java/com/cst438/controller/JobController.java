@@ -0,0 +1,63 @@
+package com.cst438.controller;
+
+import com.cst438.dto.JobDTO;
+import com.cst438.job.Job;
+import com.cst438.job.JobManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+/*
+ * Status, result and cancellation of background jobs
+ */
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+public class JobController {
+
+    @Autowired
+    JobManager jobManager;
+
+    // status and progress of a job
+    @GetMapping("/jobs/{jobId}")
+    public JobDTO getJob(@PathVariable("jobId") String jobId) {
+        return findJob(jobId).toDTO();
+    }
+
+    // download the result of a SUCCEEDED job
+    @GetMapping("/jobs/{jobId}/result")
+    public ResponseEntity<Resource> getJobResult(@PathVariable("jobId") String jobId) {
+        Job job = findJob(jobId);
+        if (job.getStatus() != Job.Status.SUCCEEDED) {
+            throw  new ResponseStatusException( HttpStatus.CONFLICT, "job is "+job.getStatus());
+        }
+        String filename = job.getType() + "-" + job.getId() + ".csv";
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(job.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(jobManager.result(job));
+    }
+
+    // cancel a job that is QUEUED or RUNNING
+    @DeleteMapping("/jobs/{jobId}")
+    public void cancelJob(@PathVariable("jobId") String jobId) {
+        Job job = findJob(jobId);
+        if (!jobManager.cancel(job)) {
+            throw  new ResponseStatusException( HttpStatus.CONFLICT, "job has already finished");
+        }
+    }
+
+    private Job findJob(String jobId) {
+        Job job = jobManager.get(jobId);
+        if (job==null) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "job not found "+jobId);
+        }
+        return job;
+    }
+}
@@ -1,14 +1,31 @@
 package com.cst438.controller;
 
 import com.cst438.domain.*;
+import com.cst438.dto.RolloverDTO;
+import com.cst438.dto.SeatAvailabilityDTO;
 import com.cst438.dto.SectionDTO;
+import com.cst438.event.ChangeEvent;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
+import com.cst438.search.SectionQuery;
+import com.cst438.search.SectionSearch;
+import com.cst438.seats.SeatCounters;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:3000")
@@ -26,6 +43,30 @@ public class SectionController {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    AssignmentRepository assignmentRepository;
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    GradeRepository gradeRepository;
+
+    @Autowired
+    WaitlistRepository waitlistRepository;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    SectionSearch sectionSearch;
+
+    @Autowired
+    SeatCounters seatCounters;
+
 
     // ADMIN function to create a new section
     @PostMapping("/sections")
@@ -71,46 +112,137 @@ public class SectionController {
                 s.getRoom(),
                 s.getTimes(),
                 (instructor!=null) ? instructor.getName() : "",
-                (instructor!=null) ? instructor.getEmail() : ""
+                (instructor!=null) ? instructor.getEmail() : "",
+                s.getVersion(),
+                0,
+                s.getCapacity()
         );
     }
 
     // ADMIN function to update a section
+    // if the section was changed after the client read it, return 409 CONFLICT
+    // with the current section data and do not update.
+    // the section is read, checked and written in one short transaction so the
+    // connection is returned to the pool before the response is serialized.
     @PutMapping("/sections")
-    public void updateSection(@RequestBody SectionDTO section) {
-        // can only change instructor email, sec_id, building, room, times, start, end dates
-        Section s = sectionRepository.findById(section.secNo()).orElse(null);
-        if (s==null) {
-            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "section not found "+section.secNo());
-        }
-        s.setSecId(section.secId());
-        s.setBuilding(section.building());
-        s.setRoom(section.room());
-        s.setTimes(section.times());
+    public ResponseEntity<SectionDTO> updateSection(@RequestBody SectionDTO section) {
+        try {
+            return transactionTemplate.execute(status -> {
+                // can only change instructor email, sec_id, building, room, times, start, end dates
+                Section s = sectionRepository.findById(section.secNo()).orElse(null);
+                if (s==null) {
+                    throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "section not found "+section.secNo());
+                }
+                if (section.version()!=null && section.version()!=s.getVersion()) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(toDTO(s));
+                }
+                s.setSecId(section.secId());
+                s.setBuilding(section.building());
+                s.setRoom(section.room());
+                s.setTimes(section.times());
 
-        User instructor = null;
-        if (section.instructorEmail()==null || section.instructorEmail().equals("")) {
-            s.setInstructor_email("");
-        } else {
-            instructor = userRepository.findByEmail(section.instructorEmail());
-            if (instructor == null || !instructor.getType().equals("INSTRUCTOR")) {
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "email not found or not an instructor " + section.instructorEmail());
+                if (section.instructorEmail()==null || section.instructorEmail().equals("")) {
+                    s.setInstructor_email("");
+                } else {
+                    User instructor = userRepository.findByEmail(section.instructorEmail());
+                    if (instructor == null || !instructor.getType().equals("INSTRUCTOR")) {
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "email not found or not an instructor " + section.instructorEmail());
+                    }
+                    s.setInstructor_email(section.instructorEmail());
+                }
+                sectionRepository.save(s);
+                // write the update now so the response has the new version
+                status.flush();
+                return ResponseEntity.ok(toDTO(s));
+            });
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // another update was committed between the read and the save
+            Section s = sectionRepository.findById(section.secNo()).orElse(null);
+            if (s==null) {
+                throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "section not found "+section.secNo());
             }
-            s.setInstructor_email(section.instructorEmail());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(toDTO(s));
         }
-        sectionRepository.save(s);
     }
 
     // ADMIN function to create a delete section
-    // delete will fail there are related assignments or enrollments
+    // a section with enrollments, assignments or a waitlist is not deleted (409 CONFLICT)
+    // unless cascade=true, which also deletes its enrollments, assignments, grades and waitlist.
+    // each kind of row is removed with one bulk delete statement, and a delete
+    // event is published for each removed row.
     @DeleteMapping("/sections/{sectionno}")
-    public void deleteSection(@PathVariable int sectionno) {
-        Section s = sectionRepository.findById(sectionno).orElse(null);
-        if (s != null) {
-            sectionRepository.delete(s);
+    @Transactional
+    public void deleteSection(
+            @PathVariable int sectionno,
+            @RequestParam(value="cascade", defaultValue="false") boolean cascade) {
+        if (!sectionRepository.existsById(sectionno)) {
+            return;
         }
+        if (cascade) {
+            // the rows of one section are read first so each gets its own delete event
+            List<Integer> gradeIds = gradeRepository.findIdsBySectionNo(sectionno);
+            List<Integer> enrollmentIds = enrollmentRepository.findIdsBySectionNo(sectionno);
+            List<Integer> assignmentIds = assignmentRepository.findIdsBySectionNo(sectionno);
+            gradeRepository.deleteBySectionNo(sectionno);
+            enrollmentRepository.deleteBySectionNo(sectionno);
+            assignmentRepository.deleteBySectionNo(sectionno);
+            waitlistRepository.deleteBySectionNo(sectionno);
+            changeEventBus.publishDeletes(EntityType.GRADE, gradeIds);
+            changeEventBus.publishDeletes(EntityType.ENROLLMENT, enrollmentIds);
+            changeEventBus.publishDeletes(EntityType.ASSIGNMENT, assignmentIds);
+        } else {
+            long enrollments = enrollmentRepository.countBySectionNo(sectionno);
+            long assignments = assignmentRepository.countBySectionNo(sectionno);
+            long waitlisted = waitlistRepository.countBySectionNo(sectionno);
+            if (enrollments > 0 || assignments > 0 || waitlisted > 0) {
+                throw  new ResponseStatusException( HttpStatus.CONFLICT,
+                        "section has "+enrollments+" enrollments, "+assignments+" assignments and "+waitlisted+" waitlisted students");
+            }
+        }
+        sectionRepository.deleteBySectionNo(sectionno);
+        changeEventBus.publish(EntityType.SECTION, ChangeEvent.Kind.DELETE, sectionno);
     }
 
+    // ADMIN function to set up a new term by copying all sections of an earlier term.
+    // if assignments=true, assignments are also copied with due dates moved by the
+    // number of days between the start dates of the two terms.
+    // sections that already exist in the new term are not copied.
+    // example URL  /sections/rollover?fromYear=2024&fromSemester=Spring&toYear=2024&toSemester=Fall&assignments=true
+    @PostMapping("/sections/rollover")
+    @Transactional
+    public RolloverDTO rolloverSections(
+            @RequestParam("fromYear") int fromYear,
+            @RequestParam("fromSemester") String fromSemester,
+            @RequestParam("toYear") int toYear,
+            @RequestParam("toSemester") String toSemester,
+            @RequestParam(value="assignments", defaultValue="false") boolean assignments) {
+
+        Term from = termRepository.findByYearAndSemester(fromYear, fromSemester);
+        Term to = termRepository.findByYearAndSemester(toYear, toSemester);
+        if (from == null || to == null) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "year, semester invalid ");
+        }
+        if (from.getTermId() == to.getTermId()) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "terms must be different");
+        }
+
+        // assignments are copied only into the sections this copy inserted,
+        // not into sections added to the term at the same time
+        List<Integer> copied = sectionRepository.copySectionsToTerm(from.getTermId(), to.getTermId());
+        int sectionsCopied = copied.size();
+        changeEventBus.publishAll(EntityType.SECTION);
+
+        int shiftDays = (int) ChronoUnit.DAYS.between(
+                from.getStartDate().toLocalDate(), to.getStartDate().toLocalDate());
+        int assignmentsCopied = 0;
+        if (assignments && sectionsCopied > 0) {
+            assignmentsCopied = assignmentRepository.copyAssignmentsToSections(
+                    from.getTermId(), copied, shiftDays);
+            changeEventBus.publishAll(EntityType.ASSIGNMENT);
+        }
+        return new RolloverDTO(fromYear, fromSemester, toYear, toSemester,
+                sectionsCopied, assignmentsCopied, shiftDays);
+    }
 
     // get Sections for a course with request params year, semester
     // example URL   /course/cst363/sections?year=2024&semester=Spring
@@ -124,12 +256,10 @@ public class SectionController {
 
         List<Section> sections = sectionRepository.findByLikeCourseIdAndYearAndSemester(courseId+"%", year, semester);
 
+        Map<String, User> instructors = findInstructors(sections);
         List<SectionDTO> dto_list = new ArrayList<>();
         for (Section s : sections) {
-            User instructor = null;
-            if (s.getInstructorEmail()!=null) {
-                instructor = userRepository.findByEmail(s.getInstructorEmail());
-            }
+            User instructor = instructors.get(s.getInstructorEmail());
             dto_list.add(new SectionDTO(
                     s.getSectionNo(),
                     s.getTerm().getYear(),
@@ -140,7 +270,10 @@ public class SectionController {
                     s.getRoom(),
                     s.getTimes(),
                     (instructor!=null) ? instructor.getName() : "",
-                    (instructor!=null) ? instructor.getEmail() : ""
+                    (instructor!=null) ? instructor.getEmail() : "",
+                    s.getVersion(),
+                    seatCounters.enrolled(s.getSectionNo()),
+                    seatCounters.available(s.getSectionNo())
             ));
 
         }
@@ -158,12 +291,10 @@ public class SectionController {
 
         List<Section> sections = sectionRepository.findByInstructorEmailAndYearAndSemester(instructorEmail, year, semester);
 
+        Map<String, User> instructors = findInstructors(sections);
         List<SectionDTO> dto_list = new ArrayList<>();
         for (Section s : sections) {
-            User instructor = null;
-            if (s.getInstructorEmail()!=null) {
-                instructor = userRepository.findByEmail(s.getInstructorEmail());
-            }
+            User instructor = instructors.get(s.getInstructorEmail());
             dto_list.add(new SectionDTO(
                     s.getSectionNo(),
                     s.getTerm().getYear(),
@@ -174,7 +305,10 @@ public class SectionController {
                     s.getRoom(),
                     s.getTimes(),
                     (instructor!=null) ? instructor.getName() : "",
-                    (instructor!=null) ? instructor.getEmail() : ""
+                    (instructor!=null) ? instructor.getEmail() : "",
+                    s.getVersion(),
+                    seatCounters.enrolled(s.getSectionNo()),
+                    seatCounters.available(s.getSectionNo())
             ));
         }
         return dto_list;
@@ -185,9 +319,10 @@ public class SectionController {
 
         List<Section> sections = sectionRepository.findByOpenOrderByCourseIdSectionId();
 
+        Map<String, User> instructors = findInstructors(sections);
         List<SectionDTO> dlist = new ArrayList<>();
         for (Section s : sections) {
-            User instructor = userRepository.findByEmail(s.getInstructorEmail());
+            User instructor = instructors.get(s.getInstructorEmail());
             dlist.add( new SectionDTO(
                     s.getSectionNo(),
                     s.getTerm().getYear(),
@@ -198,9 +333,102 @@ public class SectionController {
                     s.getRoom(),
                     s.getTimes(),
                     (instructor!=null) ? instructor.getName() : "",
-                    (instructor!=null) ? instructor.getEmail() : ""
+                    (instructor!=null) ? instructor.getEmail() : "",
+                    s.getVersion(),
+                    seatCounters.enrolled(s.getSectionNo()),
+                    seatCounters.available(s.getSectionNo())
             ));
         }
         return dlist;
     }
+
+    // search the sections of a term.  every filter is optional.
+    // days are the days the student can attend, from and to a 24 hour time window.
+    // building, instructorEmail and credits may be given more than once.
+    // example URL  /sections/search?year=2024&semester=Spring&days=MW&from=09:00&to=13:00&credits=4&course=cst
+    @GetMapping("/sections/search")
+    public List<SectionDTO> searchSections(
+            @RequestParam("year") int year,
+            @RequestParam("semester") String semester,
+            @RequestParam(value="days", required=false) String days,
+            @RequestParam(value="from", required=false) String from,
+            @RequestParam(value="to", required=false) String to,
+            @RequestParam(value="building", required=false) List<String> buildings,
+            @RequestParam(value="instructorEmail", required=false) List<String> instructors,
+            @RequestParam(value="credits", required=false) List<Integer> credits,
+            @RequestParam(value="course", required=false) String course) {
+
+        SectionQuery query;
+        try {
+            query = new SectionQuery(year, semester,
+                    isBlank(days) ? null : SectionQuery.parseDays(days),
+                    isBlank(from) ? null : SectionQuery.parseTime(from),
+                    isBlank(to) ? null : SectionQuery.parseTime(to),
+                    buildings, instructors, credits,
+                    isBlank(course) ? null : course);
+        } catch (IllegalArgumentException e) {
+            throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        List<SectionDTO> sections = sectionSearch.search(query);
+        if (sections == null) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "year, semester invalid ");
+        }
+        // the index holds the sections without their seat counts
+        sections.replaceAll(seatCounters::withSeats);
+        return sections;
+    }
+
+    // capacity, enrolled count and free seats of every section of a term.
+    // answered from the in-memory seat counters without a query, so it can be
+    // polled while registration is open.  the counts can trail the database
+    // for a moment after bulk changes.  an unknown term has no sections.
+    // example URL  /sections/availability?term=3
+    @GetMapping("/sections/availability")
+    public List<SeatAvailabilityDTO> getSeatAvailability(@RequestParam("term") int termId) {
+        return seatCounters.term(termId);
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    // instructors of the sections by email, loaded with one query
+    // instead of one query per section
+    private Map<String, User> findInstructors(List<Section> sections) {
+        Set<String> emails = new HashSet<>();
+        for (Section s : sections) {
+            if (s.getInstructorEmail()!=null && !s.getInstructorEmail().equals("")) {
+                emails.add(s.getInstructorEmail());
+            }
+        }
+        Map<String, User> instructors = new HashMap<>();
+        if (!emails.isEmpty()) {
+            for (User u : userRepository.findByEmailIn(emails)) {
+                instructors.put(u.getEmail(), u);
+            }
+        }
+        return instructors;
+    }
+
+    private SectionDTO toDTO(Section s) {
+        User instructor = null;
+        if (s.getInstructorEmail()!=null && !s.getInstructorEmail().equals("")) {
+            instructor = userRepository.findByEmail(s.getInstructorEmail());
+        }
+        return new SectionDTO(
+                s.getSectionNo(),
+                s.getTerm().getYear(),
+                s.getTerm().getSemester(),
+                s.getCourse().getCourseId(),
+                s.getSecId(),
+                s.getBuilding(),
+                s.getRoom(),
+                s.getTimes(),
+                (instructor!=null) ? instructor.getName() : "",
+                (instructor!=null) ? instructor.getEmail() : "",
+                s.getVersion(),
+                seatCounters.enrolled(s.getSectionNo()),
+                seatCounters.available(s.getSectionNo())
+        );
+    }
 }
@@ -1,35 +1,136 @@
 package com.cst438.controller;
 
 import com.cst438.domain.*;
+import com.cst438.dto.AssignmentStudentDTO;
 import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.StudentHomeDTO;
+import com.cst438.dto.WaitlistDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
+import com.cst438.routing.ReadYourWrites;
+import com.cst438.seats.SeatCounters;
+import com.cst438.transcript.TranscriptSnapshot;
+import com.cst438.transcript.TranscriptSnapshots;
+import com.cst438.waitlist.Waitlists;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:3000")
 public class StudentController {
 
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    AssignmentRepository assignmentRepository;
+
+    @Autowired
+    GradeRepository gradeRepository;
+
+    @Autowired
+    TermRepository termRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    TranscriptSnapshots transcriptSnapshots;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    @Autowired
+    SectionRepository sectionRepository;
+
+    @Autowired
+    Waitlists waitlists;
+
+    @Autowired
+    WaitlistRepository waitlistRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    SeatCounters seatCounters;
+
+    @Autowired
+    ReadYourWrites readYourWrites;
+
+    @Autowired
+    @Qualifier("queryExecutor")
+    Executor queryExecutor;
+
 
    // student gets transcript showing list of all enrollments
    // studentId will be temporary until Login security is implemented
    //example URL  /transcript?studentId=19803
+   // the response is a precomputed snapshot with an ETag.  A request with
+   // If-None-Match set to the current ETag gets 304 NOT MODIFIED.
+   // with a fields parameter the snapshot's enrollments are serialized with
+   // only those fields, and the ETag also depends on the fields.
    @GetMapping("/transcripts")
-   public List<EnrollmentDTO> getTranscript(@RequestParam("studentId") int studentId) {
-
-       // TODO
+   public ResponseEntity<?> getTranscript(
+           @RequestParam("studentId") int studentId,
+           @RequestParam(value="fields", required=false) String fields,
+           WebRequest request) {
 
        // list course_id, sec_id, title, credit, grade in chronological order
        // user must be a student
-	   // hint: use enrollment repository method findEnrollmentByStudentIdOrderByTermId
-       // remove the following line when done
-       return null;
+       User student = userRepository.findById(studentId).orElse(null);
+       if (student==null || !student.getType().equals("STUDENT")) {
+           throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "student not found "+studentId);
+       }
+       TranscriptSnapshot snapshot = transcriptSnapshots.get(studentId);
+       if (fields!=null && !fields.isBlank()) {
+           String etag = "\"" + DigestUtils.md5DigestAsHex(
+                   (snapshot.etag() + fields).getBytes(StandardCharsets.UTF_8)) + "\"";
+           if (request.checkNotModified(etag)) {
+               return null;
+           }
+           return ResponseEntity.ok().eTag(etag).body(snapshot.enrollments());
+       }
+       if (request.checkNotModified(snapshot.etag())) {
+           return null;
+       }
+       return ResponseEntity.ok()
+               .eTag(snapshot.etag())
+               .contentType(MediaType.APPLICATION_JSON)
+               .body(snapshot.json());
+   }
+
+    // ADMIN function to rebuild the transcript snapshots of every student
+    // enrolled in a term, after final grades for the term are posted.
+    // the snapshots are rebuilt in the background.
+    // return the number of students.
+   @PostMapping("/transcripts/regenerate")
+   public int regenerateTranscripts(
+           @RequestParam("year") int year,
+           @RequestParam("semester") String semester) {
+       List<Integer> studentIds = enrollmentRepository.findStudentIdsByYearAndSemester(year, semester);
+       transcriptSnapshots.rebuild(studentIds);
+       return studentIds.size();
    }
 
     // student gets a list of their enrollments for the given year, semester
@@ -41,41 +142,223 @@ public class StudentController {
            @RequestParam("semester") String semester,
            @RequestParam("studentId") int studentId) {
 
-
-     // TODO
-	 //  hint: use enrollment repository method findByYearAndSemesterOrderByCourseId
-     //  remove the following line when done
-       return null;
+       List<Enrollment> enrollments = enrollmentRepository.findByYearAndSemesterOrderByCourseId(year, semester, studentId);
+       List<EnrollmentDTO> dlist = new ArrayList<>();
+       for (Enrollment e : enrollments) {
+           dlist.add(toDTO(e));
+       }
+       return dlist;
    }
 
+    // student landing page.  schedule and assignments for the term and the
+    // transcript in one request.  The student and term are looked up once and
+    // the three lists are queried concurrently on the query executor.
+    // example URL  /students/3/home?year=2024&semester=Spring
+    @GetMapping("/students/{studentId}/home")
+    public StudentHomeDTO getHome(
+            @PathVariable("studentId") int studentId,
+            @RequestParam("year") int year,
+            @RequestParam("semester") String semester) {
+
+        User student = userRepository.findById(studentId).orElse(null);
+        if (student==null || !student.getType().equals("STUDENT")) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "student not found "+studentId);
+        }
+        Term term = termRepository.findByYearAndSemester(year, semester);
+        if (term==null) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "year, semester invalid ");
+        }
+        int termId = term.getTermId();
+
+        CompletableFuture<List<EnrollmentDTO>> schedule = CompletableFuture.supplyAsync(() -> {
+            List<EnrollmentDTO> dlist = new ArrayList<>();
+            for (Enrollment e : enrollmentRepository.findByTermIdAndStudentIdOrderByCourseId(termId, studentId)) {
+                dlist.add(toDTO(e));
+            }
+            return dlist;
+        }, queryExecutor);
+
+        CompletableFuture<List<AssignmentStudentDTO>> assignments = CompletableFuture.supplyAsync(() -> {
+            // scores for all of the student's assignments in the term, by assignment id
+            Map<Integer, Integer> scores = new HashMap<>();
+            for (Grade g : gradeRepository.findByStudentIdAndTermId(studentId, termId)) {
+                scores.put(g.getAssignment().getAssignmentId(), g.getScore());
+            }
+            List<AssignmentStudentDTO> dlist = new ArrayList<>();
+            for (Assignment a : assignmentRepository.findByStudentIdAndTermIdOrderByDueDate(studentId, termId)) {
+                dlist.add(new AssignmentStudentDTO(
+                        a.getAssignmentId(),
+                        a.getTitle(),
+                        a.getDueDate(),
+                        a.getSection().getCourse().getCourseId(),
+                        a.getSection().getSecId(),
+                        scores.get(a.getAssignmentId())
+                ));
+            }
+            return dlist;
+        }, queryExecutor);
+
+        CompletableFuture<List<EnrollmentDTO>> transcript = CompletableFuture.supplyAsync(
+                () -> transcriptSnapshots.get(studentId).enrollments(), queryExecutor);
+
+        try {
+            CompletableFuture.allOf(schedule, assignments, transcript).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+
+        int creditsEarned = 0;
+        for (EnrollmentDTO e : transcript.join()) {
+            if (e.grade()!=null && !e.grade().equals("F")) {
+                creditsEarned += e.credits();
+            }
+        }
+        return new StudentHomeDTO(
+                student.getId(),
+                student.getName(),
+                term.getYear(),
+                term.getSemester(),
+                schedule.join(),
+                assignments.join(),
+                transcript.join(),
+                creditsEarned
+        );
+    }
+
 
     // student adds enrollment into a section
     // user must be student
     // return EnrollmentDTO with enrollmentId generated by database
+    // if the section is full, or students are already waiting for it, the
+    // student is put on its waitlist and the response is 409 CONFLICT with
+    // the waitlist position.  the student is enrolled automatically when a
+    // seat is dropped.
+    // the section row is locked while its enrollments are counted, so
+    // concurrent adds to its last seat are decided one at a time.
     @PostMapping("/enrollments/sections/{sectionNo}")
     public EnrollmentDTO addCourse(
 		    @PathVariable int sectionNo,
             @RequestParam("studentId") int studentId ) {
 
-        // TODO
-
-        // check that the Section entity with primary key sectionNo exists
-        // check that today is between addDate and addDeadline for the section
-        // check that student is not already enrolled into this section
-        // create a new enrollment entity and save.  The enrollment grade will
-        // be NULL until instructor enters final grades for the course.
+        long[] position = new long[1];
+        Enrollment enrollment = transactionTemplate.execute(status -> {
+            // check that the Section entity with primary key sectionNo exists
+            if (sectionRepository.lockBySectionNo(sectionNo)==null) {
+                throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "section not found "+sectionNo);
+            }
+            Section section = sectionRepository.findById(sectionNo).orElse(null);
+            User student = userRepository.findById(studentId).orElse(null);
+            if (student==null || !student.getType().equals("STUDENT")) {
+                throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "student not found "+studentId);
+            }
+            // check that today is between addDate and addDeadline for the section
+            Date today = new Date();
+            Term term = section.getTerm();
+            if (today.before(term.getAddDate()) || today.after(term.getAddDeadline())) {
+                throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "not within the add period");
+            }
+            // check that student is not already enrolled into this section
+            if (enrollmentRepository.findEnrollmentBySectionNoAndStudentId(sectionNo, studentId)!=null) {
+                throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "already enrolled in section "+sectionNo);
+            }
+            // a free seat belongs to the students already waiting for it
+            if (enrollmentRepository.countBySectionNo(sectionNo) >= section.getCapacity()
+                    || waitlistRepository.countBySectionNo(sectionNo) > 0) {
+                position[0] = waitlists.join(section, student);
+                return null;
+            }
+            // create a new enrollment entity and save.  The enrollment grade will
+            // be NULL until instructor enters final grades for the course.
+            Enrollment e = new Enrollment();
+            e.setSection(section);
+            e.setStudent(student);
+            enrollmentRepository.save(e);
+            seatCounters.enrolled(sectionNo, 1);
+            return e;
+        });
+        if (enrollment==null) {
+            throw  new ResponseStatusException( HttpStatus.CONFLICT, "section is full. waitlist position "+position[0]);
+        }
+        return toDTO(enrollment);
+    }
 
-        // remove the following line when done.
-        return null;
+    // student gets their position on the waitlist of a full section
+    @GetMapping("/sections/{sectionNo}/waitlist")
+    public WaitlistDTO getWaitlistPosition(
+            @PathVariable("sectionNo") int sectionNo,
+            @RequestParam("studentId") int studentId) {
+        long position = waitlists.position(sectionNo, studentId);
+        if (position==0) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "student not on waitlist of section "+sectionNo);
+        }
+        return new WaitlistDTO(sectionNo, studentId, position, waitlists.size(sectionNo));
+    }
 
+    // student leaves the waitlist of a section
+    @DeleteMapping("/sections/{sectionNo}/waitlist")
+    public void leaveWaitlist(
+            @PathVariable("sectionNo") int sectionNo,
+            @RequestParam("studentId") int studentId) {
+        if (!waitlists.leave(sectionNo, studentId)) {
+            throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "student not on waitlist of section "+sectionNo);
+        }
     }
 
     // student drops a course
     // user must be student
+    // the grades of the enrollment are removed first with one bulk delete.
+    // the drop and the promotion of the first waitlisted student commit together.
+    // both students read from the primary until the replica has the change.
    @DeleteMapping("/enrollments/{enrollmentId}")
+   @Transactional
    public void dropCourse(@PathVariable("enrollmentId") int enrollmentId) {
 
-       // TODO
+       Enrollment e = enrollmentRepository.findById(enrollmentId).orElse(null);
+       if (e==null) {
+           throw  new ResponseStatusException( HttpStatus.NOT_FOUND, "enrollment not found "+enrollmentId);
+       }
        // check that today is not after the dropDeadline for section
+       if (new Date().after(e.getSection().getTerm().getDropDeadline())) {
+           throw  new ResponseStatusException( HttpStatus.BAD_REQUEST, "drop deadline has passed");
+       }
+       int sectionNo = e.getSection().getSectionNo();
+       // adds of the section wait until the freed seat is given out
+       sectionRepository.lockBySectionNo(sectionNo);
+       List<Integer> gradeIds = gradeRepository.findIdsByEnrollmentId(enrollmentId);
+       gradeRepository.deleteByEnrollmentId(enrollmentId);
+       changeEventBus.publishDeletes(EntityType.GRADE, gradeIds);
+       enrollmentRepository.delete(e);
+       seatCounters.enrolled(sectionNo, -1);
+       readYourWrites.markWrite(e.getStudent().getId());
+       // the freed seat goes to the first student on the waitlist
+       Enrollment promoted = waitlists.promote(e.getSection());
+       if (promoted!=null) {
+           seatCounters.enrolled(sectionNo, 1);
+           readYourWrites.markWrite(promoted.getStudent().getId());
+       }
    }
-}
\ No newline at end of file
+
+    private EnrollmentDTO toDTO(Enrollment e) {
+        Section s = e.getSection();
+        return new EnrollmentDTO(
+                e.getEnrollmentId(),
+                e.getGrade(),
+                e.getStudent().getId(),
+                e.getStudent().getName(),
+                e.getStudent().getEmail(),
+                s.getCourse().getCourseId(),
+                s.getSecId(),
+                s.getSectionNo(),
+                s.getBuilding(),
+                s.getRoom(),
+                s.getTimes(),
+                s.getCourse().getCredits(),
+                s.getTerm().getYear(),
+                s.getTerm().getSemester(),
+                e.getVersion()
+        );
+    }
+}
@@ -1,10 +1,13 @@
 package com.cst438.controller;
 
-import com.cst438.domain.User;
-import com.cst438.domain.UserRepository;
+import com.cst438.domain.*;
 import com.cst438.dto.UserDTO;
+import com.cst438.event.ChangeEvent;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -25,6 +28,21 @@ public class UserController {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    GradeRepository gradeRepository;
+
+    @Autowired
+    SectionRepository sectionRepository;
+
+    @Autowired
+    WaitlistRepository waitlistRepository;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
     BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
 
     @GetMapping("/users")
@@ -79,13 +97,37 @@ public class UserController {
         return new UserDTO(user.getId(), user.getName(), user.getEmail(), user.getType());
     }
 
+    // a student with enrollments or an instructor assigned to sections is not
+    // deleted (409 CONFLICT) unless cascade=true.  cascade deletes a student's
+    // enrollments and grades; an instructor's sections are kept without an instructor.
     @DeleteMapping("/users/{id}")
-    public void  updateUser(@PathVariable("id") int id) {
+    @Transactional
+    public void  updateUser(
+            @PathVariable("id") int id,
+            @RequestParam(value="cascade", defaultValue="false") boolean cascade) {
         User user = userRepository.findById(id).orElse(null);
-        if (user!=null) {
-            userRepository.delete(user);
+        if (user==null) {
+            return;
         }
-
+        if (cascade) {
+            gradeRepository.deleteByStudentId(id);
+            enrollmentRepository.deleteByStudentId(id);
+            sectionRepository.clearInstructorEmail(user.getEmail());
+            changeEventBus.publishAll(EntityType.GRADE);
+            changeEventBus.publishAll(EntityType.ENROLLMENT);
+            changeEventBus.publishAll(EntityType.SECTION);
+        } else {
+            long enrollments = enrollmentRepository.countByStudentId(id);
+            long sections = sectionRepository.countByInstructorEmail(user.getEmail());
+            if (enrollments > 0 || sections > 0) {
+                throw  new ResponseStatusException( HttpStatus.CONFLICT,
+                        "user has "+enrollments+" enrollments and "+sections+" sections");
+            }
+        }
+        // waitlist places are not kept for a deleted student
+        waitlistRepository.deleteByStudentId(id);
+        userRepository.deleteByUserId(id);
+        changeEventBus.publish(EntityType.USER, ChangeEvent.Kind.DELETE, id);
     }
 
 }
@@ -1,19 +1,59 @@
 package com.cst438.domain;
 
+import com.cst438.event.ChangeEventListener;
 import jakarta.persistence.*;
 
 import java.sql.Date;
 import java.text.SimpleDateFormat;
 
 @Entity
+@EntityListeners(ChangeEventListener.class)
+@NamedEntityGraph(name="Assignment.section", attributeNodes=@NamedAttributeNode(value="section", subgraph="section"),
+        subgraphs=@NamedSubgraph(name="section", attributeNodes={
+                @NamedAttributeNode("course"), @NamedAttributeNode("term")}))
 public class Assignment {
     @Id
     @GeneratedValue(strategy=GenerationType.IDENTITY)
     @Column(name="assignment_id")
     private int assignmentId;
- 
-    // TODO  complete this class
-    // add additional attributes for title, dueDate
-    // add relationship between assignment and section entities
-    // add getter and setter methods
+
+    private String title;
+    @Column(name="due_date")
+    private Date dueDate;
+
+    @ManyToOne(fetch=FetchType.LAZY)
+    @JoinColumn(name="section_no", nullable=false)
+    private Section section;
+
+    public int getAssignmentId() {
+        return assignmentId;
+    }
+
+    public void setAssignmentId(int assignmentId) {
+        this.assignmentId = assignmentId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public Date getDueDate() {
+        return dueDate;
+    }
+
+    public void setDueDate(Date dueDate) {
+        this.dueDate = dueDate;
+    }
+
+    public Section getSection() {
+        return section;
+    }
+
+    public void setSection(Section section) {
+        this.section = section;
+    }
 }
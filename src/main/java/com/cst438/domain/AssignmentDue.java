@@ -0,0 +1,12 @@
+package com.cst438.domain;
+
+import java.sql.Date;
+
+/*
+ * Projection of the due date of an assignment, for the due date reminders.
+ */
+public interface AssignmentDue {
+    int getAssignmentId();
+    int getSectionNo();
+    Date getDueDate();
+}
@@ -1,20 +1,73 @@
 package com.cst438.domain;
 
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.sql.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface AssignmentRepository extends CrudRepository<Assignment, Integer> {
 
-    // TODO uncomment the following lines as needed
+    // the section, course and term are read with the assignment by every caller
+    @Override
+    @EntityGraph("Assignment.section")
+    Optional<Assignment> findById(Integer assignmentId);
 
-//    @Query("select a from Assignment a where a.section.sectionNo=:sectionNo order by a.dueDate")
-//    List<Assignment> findBySectionNoOrderByDueDate(int sectionNo);
-//
-//    @Query("select a from Assignment a join a.section.enrollments e " +
-//            "where a.section.term.year=:year and a.section.term.semester=:semester and" +
-//            " e.student.id=:studentId order by a.dueDate")
-//    List<Assignment> findByStudentIdAndYearAndSemesterOrderByDueDate(int studentId, int year, String semester);
+    @EntityGraph("Assignment.section")
+    @Query("select a from Assignment a where a.section.sectionNo=:sectionNo order by a.dueDate")
+    List<Assignment> findBySectionNoOrderByDueDate(int sectionNo);
 
+    @EntityGraph("Assignment.section")
+    @Query("select a from Assignment a join a.section.enrollments e " +
+            "where a.section.term.year=:year and a.section.term.semester=:semester and" +
+            " e.student.id=:studentId order by a.dueDate")
+    List<Assignment> findByStudentIdAndYearAndSemesterOrderByDueDate(int studentId, int year, String semester);
+
+    @EntityGraph("Assignment.section")
+    @Query("select a from Assignment a join a.section.enrollments e " +
+            "where a.section.term.termId=:termId and e.student.id=:studentId order by a.dueDate")
+    List<Assignment> findByStudentIdAndTermIdOrderByDueDate(int studentId, int termId);
+
+    @Query("select a.section.sectionNo as sectionNo, count(a) as total from Assignment a " +
+            "where a.section.instructorEmail=:email and a.section.term.year=:year and a.section.term.semester=:semester " +
+            "group by a.section.sectionNo")
+    List<SectionCount> countByInstructorEmailAndYearAndSemester(String email, int year, String semester);
+
+    // copy the assignments of the sections of one term to the matching
+    // (same course and sec_id) sections among toSectionNos, shifting due dates by shiftDays.
+    @Modifying
+    @Query(value="insert into assignment (section_no, title, due_date) " +
+            "select t.section_no, a.title, dateadd(day, :shiftDays, a.due_date) " +
+            "from assignment a join section s on a.section_no=s.section_no " +
+            "join section t on t.course_id=s.course_id and t.sec_id=s.sec_id " +
+            "where s.term_id=:fromTermId and t.section_no in :toSectionNos",
+            nativeQuery=true)
+    int copyAssignmentsToSections(int fromTermId, Collection<Integer> toSectionNos, int shiftDays);
+
+    @Query("select a.assignmentId as assignmentId, a.section.sectionNo as sectionNo, a.dueDate as dueDate " +
+            "from Assignment a where a.dueDate>=:from")
+    List<AssignmentDue> findDueOnOrAfter(Date from);
+
+    @Query("select a from Assignment a join fetch a.section s join fetch s.course join fetch s.term " +
+            "where a.assignmentId in :ids")
+    List<Assignment> findWithSectionByIdIn(Collection<Integer> ids);
+
+    @Query("select count(a) from Assignment a where a.section.sectionNo=:sectionNo")
+    long countBySectionNo(int sectionNo);
+
+    @Query("select a.assignmentId from Assignment a where a.section.sectionNo=:sectionNo")
+    List<Integer> findIdsBySectionNo(int sectionNo);
+
+    @Modifying
+    @Query("delete from Assignment a where a.section.sectionNo=:sectionNo")
+    int deleteBySectionNo(int sectionNo);
+
+    @Modifying
+    @Query("delete from Assignment a where a.section.sectionNo in " +
+            "(select s.sectionNo from Section s where s.course.courseId=:courseId)")
+    int deleteByCourseId(String courseId);
 }
@@ -1,9 +1,19 @@
 package com.cst438.domain;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import java.util.List;
 
 public interface CourseRepository extends CrudRepository<Course, String> {
 	
+    @QueryHints(@QueryHint(name=HibernateHints.HINT_CACHEABLE, value="true"))
     List<Course> findAllByOrderByCourseIdAsc();
+
+    @Modifying
+    @Query("delete from Course c where c.courseId=:courseId")
+    int deleteByCourseId(String courseId);
 }
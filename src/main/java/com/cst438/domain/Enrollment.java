@@ -1,17 +1,67 @@
 package com.cst438.domain;
 
+import com.cst438.event.ChangeEventListener;
 import jakarta.persistence.*;
 
 @Entity
+@EntityListeners(ChangeEventListener.class)
+@NamedEntityGraph(name="Enrollment.studentSection", attributeNodes={
+        @NamedAttributeNode("student"), @NamedAttributeNode(value="section", subgraph="section")},
+        subgraphs=@NamedSubgraph(name="section", attributeNodes={
+                @NamedAttributeNode("course"), @NamedAttributeNode("term")}))
 public class Enrollment {
     @Id
     @GeneratedValue(strategy=GenerationType.IDENTITY)
     @Column(name="enrollment_id")
     int enrollmentId;
-	
-	// TODO complete this class
-    // add additional attribute for grade
-    // create relationship between enrollment and user entities
-    // create relationship between enrollment and section entities
-    // add getter/setter methods
+
+    private String grade;  // final grade. null until instructor enters final grades.
+
+    @ManyToOne(fetch=FetchType.LAZY)
+    @JoinColumn(name="user_id", nullable=false)
+    private User student;
+
+    @ManyToOne(fetch=FetchType.LAZY)
+    @JoinColumn(name="section_no", nullable=false)
+    private Section section;
+
+    // incremented by hibernate on every update.  used to detect concurrent grade uploads.
+    @Version
+    private int version;
+
+    public int getEnrollmentId() {
+        return enrollmentId;
+    }
+
+    public void setEnrollmentId(int enrollmentId) {
+        this.enrollmentId = enrollmentId;
+    }
+
+    public String getGrade() {
+        return grade;
+    }
+
+    public void setGrade(String grade) {
+        this.grade = grade;
+    }
+
+    public User getStudent() {
+        return student;
+    }
+
+    public void setStudent(User student) {
+        this.student = student;
+    }
+
+    public Section getSection() {
+        return section;
+    }
+
+    public void setSection(Section section) {
+        this.section = section;
+    }
+
+    public int getVersion() {
+        return version;
+    }
 }
@@ -1,23 +1,95 @@
 package com.cst438.domain;
 
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface EnrollmentRepository extends CrudRepository<Enrollment, Integer> {
 
-    // TODO uncomment the following lines as needed
-
-//    @Query("select e from Enrollment e where e.section.sectionNo=:sectionNo order by e.student.name")
-//    List<Enrollment> findEnrollmentsBySectionNoOrderByStudentName(int sectionNo);
-//
-//    @Query("select e from Enrollment e where e.student.id=:studentId order by e.section.term.termId")
-//    List<Enrollment> findEnrollmentsByStudentIdOrderByTermId(int studentId);
-//
-//    @Query("select e from Enrollment e where e.section.term.year=:year and e.section.term.semester=:semester and e.student.id=:studentId order by e.section.course.courseId")
-//    List<Enrollment> findByYearAndSemesterOrderByCourseId(int year, String semester, int studentId);
-//
-//    @Query("select e from Enrollment e where e.section.sectionNo=:sectionNo and e.student.id=:studentId")
-//    Enrollment findEnrollmentBySectionNoAndStudentId(int sectionNo, int studentId);
+    // queries that return enrollments to be shown as EnrollmentDTOs read the
+    // student, section, course and term in the same select
+    @Override
+    @EntityGraph("Enrollment.studentSection")
+    Optional<Enrollment> findById(Integer enrollmentId);
+
+    @EntityGraph("Enrollment.studentSection")
+    @Query("select e from Enrollment e where e.section.sectionNo=:sectionNo order by e.student.name")
+    List<Enrollment> findEnrollmentsBySectionNoOrderByStudentName(int sectionNo);
+
+    @EntityGraph("Enrollment.studentSection")
+    @Query("select e from Enrollment e where e.student.id=:studentId order by e.section.term.termId")
+    List<Enrollment> findEnrollmentsByStudentIdOrderByTermId(int studentId);
+
+    @EntityGraph("Enrollment.studentSection")
+    @Query("select e from Enrollment e where e.section.term.year=:year and e.section.term.semester=:semester and e.student.id=:studentId order by e.section.course.courseId")
+    List<Enrollment> findByYearAndSemesterOrderByCourseId(int year, String semester, int studentId);
+
+    @EntityGraph("Enrollment.studentSection")
+    @Query("select e from Enrollment e where e.section.term.termId=:termId and e.student.id=:studentId order by e.section.course.courseId")
+    List<Enrollment> findByTermIdAndStudentIdOrderByCourseId(int termId, int studentId);
+
+    @Query("select e from Enrollment e where e.section.sectionNo=:sectionNo and e.student.id=:studentId")
+    Enrollment findEnrollmentBySectionNoAndStudentId(int sectionNo, int studentId);
+
+    @Query("select e.section.sectionNo as sectionNo, count(e) as total from Enrollment e " +
+            "where e.section.instructorEmail=:email and e.section.term.year=:year and e.section.term.semester=:semester " +
+            "group by e.section.sectionNo")
+    List<SectionCount> countByInstructorEmailAndYearAndSemester(String email, int year, String semester);
+
+    @EntityGraph("Enrollment.studentSection")
+    @Query("select e from Enrollment e where e.section.term.termId=:termId order by e.student.id")
+    List<Enrollment> findByTermIdOrderByStudentId(int termId);
+
+    @Query("select e.section.sectionNo as sectionNo, e.student.id as studentId, e.student.name as name, " +
+            "e.student.email as email from Enrollment e where e.section.sectionNo in :sectionNos")
+    List<SectionStudent> findStudentsBySectionNoIn(Collection<Integer> sectionNos);
+
+    @Query("select e.section.sectionNo as sectionNo, e.student.id as studentId, e.student.name as name, " +
+            "e.student.email as email from Enrollment e " +
+            "where e.section.sectionNo in :sectionNos and e.student.id in :studentIds")
+    List<SectionStudent> findStudentsBySectionNoInAndStudentIdIn(Collection<Integer> sectionNos, Collection<Integer> studentIds);
+
+    @Query("select e.section.sectionNo as sectionNo, count(e) as total from Enrollment e " +
+            "where e.section.sectionNo in :sectionNos group by e.section.sectionNo")
+    List<SectionCount> countBySectionNoIn(Collection<Integer> sectionNos);
+
+    @Query("select distinct e.student.id from Enrollment e where e.section.term.year=:year and e.section.term.semester=:semester")
+    List<Integer> findStudentIdsByYearAndSemester(int year, String semester);
+
+    // lock the enrollment rows of a term until the transaction ends.
+    // only the enrollment table is locked, not the sections or students.
+    @Query(value="select enrollment_id from enrollment " +
+            "where section_no in (select section_no from section where term_id=:termId) for update", nativeQuery=true)
+    List<Integer> lockByTermId(int termId);
+
+    @Modifying
+    @Query("delete from Enrollment e where e.enrollmentId in :enrollmentIds")
+    int deleteByEnrollmentIdIn(Collection<Integer> enrollmentIds);
+
+    @Query("select count(e) from Enrollment e where e.section.sectionNo=:sectionNo")
+    long countBySectionNo(int sectionNo);
+
+    @Query("select count(e) from Enrollment e where e.student.id=:studentId")
+    long countByStudentId(int studentId);
+
+    @Query("select e.enrollmentId from Enrollment e where e.section.sectionNo=:sectionNo")
+    List<Integer> findIdsBySectionNo(int sectionNo);
+
+    @Modifying
+    @Query("delete from Enrollment e where e.section.sectionNo=:sectionNo")
+    int deleteBySectionNo(int sectionNo);
+
+    @Modifying
+    @Query("delete from Enrollment e where e.section.sectionNo in " +
+            "(select s.sectionNo from Section s where s.course.courseId=:courseId)")
+    int deleteByCourseId(String courseId);
+
+    @Modifying
+    @Query("delete from Enrollment e where e.student.id=:studentId")
+    int deleteByStudentId(int studentId);
 }
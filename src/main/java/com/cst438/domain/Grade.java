@@ -1,17 +1,69 @@
 package com.cst438.domain;
 
+import com.cst438.event.ChangeEventListener;
 import jakarta.persistence.*;
 
 @Entity
+@EntityListeners(ChangeEventListener.class)
+@NamedEntityGraph(name="Grade.enrollmentAssignment", attributeNodes={
+        @NamedAttributeNode("assignment"), @NamedAttributeNode(value="enrollment", subgraph="enrollment")},
+        subgraphs={
+                @NamedSubgraph(name="enrollment", attributeNodes={
+                        @NamedAttributeNode("student"), @NamedAttributeNode(value="section", subgraph="section")}),
+                @NamedSubgraph(name="section", attributeNodes=@NamedAttributeNode("course"))})
 public class Grade {
     @Id
     @GeneratedValue(strategy=GenerationType.IDENTITY)
     @Column(name="grade_id")
     private int gradeId;
- 
-    // TODO complete this class
-    // add additional attribute for score
-    // add relationship between grade and assignment entities
-    // add relationship between grade and enrollment entities
-    // add getter/setter methods
+
+    private Integer score;  // null until instructor enters a score
+
+    @ManyToOne(fetch=FetchType.LAZY)
+    @JoinColumn(name="assignment_id", nullable=false)
+    private Assignment assignment;
+
+    @ManyToOne(fetch=FetchType.LAZY)
+    @JoinColumn(name="enrollment_id", nullable=false)
+    private Enrollment enrollment;
+
+    // incremented by hibernate on every update.  used to detect concurrent grade uploads.
+    @Version
+    private int version;
+
+    public int getGradeId() {
+        return gradeId;
+    }
+
+    public void setGradeId(int gradeId) {
+        this.gradeId = gradeId;
+    }
+
+    public Integer getScore() {
+        return score;
+    }
+
+    public void setScore(Integer score) {
+        this.score = score;
+    }
+
+    public Assignment getAssignment() {
+        return assignment;
+    }
+
+    public void setAssignment(Assignment assignment) {
+        this.assignment = assignment;
+    }
+
+    public Enrollment getEnrollment() {
+        return enrollment;
+    }
+
+    public void setEnrollment(Enrollment enrollment) {
+        this.enrollment = enrollment;
+    }
+
+    public int getVersion() {
+        return version;
+    }
 }
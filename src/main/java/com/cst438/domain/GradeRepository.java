@@ -1,12 +1,89 @@
 package com.cst438.domain;
 
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 public interface GradeRepository extends CrudRepository<Grade, Integer> {
 
-    // TODO uncomment the following lines as needed
+    // the grade with everything shown in a GradeDTO
+    @Override
+    @EntityGraph("Grade.enrollmentAssignment")
+    Optional<Grade> findById(Integer gradeId);
+
+    @Query("select g from Grade g where g.assignment.assignmentId=:assignmentId and g.enrollment.enrollmentId=:enrollmentId")
+    Grade findByEnrollmentIdAndAssignmentId(int enrollmentId, int assignmentId);
+
+    @Query("select g from Grade g where g.enrollment.student.id=:studentId and g.enrollment.section.term.termId=:termId")
+    List<Grade> findByStudentIdAndTermId(int studentId, int termId);
+
+    @Query("select g from Grade g where g.enrollment.student.id=:studentId " +
+            "and g.enrollment.section.term.year=:year and g.enrollment.section.term.semester=:semester")
+    List<Grade> findByStudentIdAndYearAndSemester(int studentId, int year, String semester);
+
+    @Query("select g from Grade g where g.assignment.assignmentId=:assignmentId")
+    List<Grade> findByAssignmentId(int assignmentId);
+
+    // number of grades with a score, per section
+    @Query("select g.assignment.section.sectionNo as sectionNo, count(g) as total from Grade g " +
+            "where g.score is not null and g.assignment.section.instructorEmail=:email " +
+            "and g.assignment.section.term.year=:year and g.assignment.section.term.semester=:semester " +
+            "group by g.assignment.section.sectionNo")
+    List<SectionCount> countScoredByInstructorEmailAndYearAndSemester(String email, int year, String semester);
+
+    @Query("select g from Grade g where g.enrollment.section.term.termId=:termId")
+    List<Grade> findByTermId(int termId);
+
+    // lock the grade rows of a term until the transaction ends
+    @Query(value="select grade_id from grade where enrollment_id in (select e.enrollment_id from enrollment e " +
+            "join section s on e.section_no=s.section_no where s.term_id=:termId) for update", nativeQuery=true)
+    List<Integer> lockByTermId(int termId);
+
+    @Modifying
+    @Query("delete from Grade g where g.gradeId in :gradeIds")
+    int deleteByGradeIdIn(Collection<Integer> gradeIds);
+
+    // ids of the rows removed by the bulk deletes below, for their change events
+    @Query("select g.gradeId from Grade g where g.enrollment.enrollmentId=:enrollmentId")
+    List<Integer> findIdsByEnrollmentId(int enrollmentId);
+
+    @Query("select g.gradeId from Grade g where g.assignment.assignmentId=:assignmentId")
+    List<Integer> findIdsByAssignmentId(int assignmentId);
+
+    @Query("select g.gradeId from Grade g where " +
+            "g.assignment.assignmentId in (select a.assignmentId from Assignment a where a.section.sectionNo=:sectionNo) " +
+            "or g.enrollment.enrollmentId in (select e.enrollmentId from Enrollment e where e.section.sectionNo=:sectionNo)")
+    List<Integer> findIdsBySectionNo(int sectionNo);
+
+    // bulk deletes used by the restrict / cascade deletes of the controllers.
+    // they bypass the persistence context, so callers publish the change events.
+    @Modifying
+    @Query("delete from Grade g where g.enrollment.enrollmentId=:enrollmentId")
+    int deleteByEnrollmentId(int enrollmentId);
+
+    @Modifying
+    @Query("delete from Grade g where g.assignment.assignmentId=:assignmentId")
+    int deleteByAssignmentId(int assignmentId);
+
+    @Modifying
+    @Query("delete from Grade g where " +
+            "g.assignment.assignmentId in (select a.assignmentId from Assignment a where a.section.sectionNo=:sectionNo) " +
+            "or g.enrollment.enrollmentId in (select e.enrollmentId from Enrollment e where e.section.sectionNo=:sectionNo)")
+    int deleteBySectionNo(int sectionNo);
+
+    @Modifying
+    @Query("delete from Grade g where " +
+            "g.assignment.assignmentId in (select a.assignmentId from Assignment a where a.section.course.courseId=:courseId) " +
+            "or g.enrollment.enrollmentId in (select e.enrollmentId from Enrollment e where e.section.course.courseId=:courseId)")
+    int deleteByCourseId(String courseId);
 
-//    @Query("select g from Grade g where g.assignment.assignmentId=:assignmentId and g.enrollment.enrollmentId=:enrollmentId")
-//    Grade findByEnrollmentIdAndAssignmentId(int enrollmentId, int assignmentId);
+    @Modifying
+    @Query("delete from Grade g where g.enrollment.enrollmentId in " +
+            "(select e.enrollmentId from Enrollment e where e.student.id=:studentId)")
+    int deleteByStudentId(int studentId);
 }
@@ -1,22 +1,28 @@
 package com.cst438.domain;
 
+import com.cst438.event.ChangeEventListener;
 import jakarta.persistence.*;
 
 import java.sql.Date;
 import java.util.List;
 
 @Entity
+@EntityListeners(ChangeEventListener.class)
+@NamedEntityGraph(name="Section.courseTerm", attributeNodes={
+        @NamedAttributeNode("course"), @NamedAttributeNode("term")})
 public class Section {
 
+    public static final int DEFAULT_CAPACITY = 30;
+
     @Id
     @GeneratedValue(strategy= GenerationType.IDENTITY)
     @Column(name="section_no")
     private int sectionNo;  // unique id assigned by database.  Used to enroll into a section.
 
-    @ManyToOne
+    @ManyToOne(fetch=FetchType.LAZY)
     @JoinColumn(name="course_id", nullable=false)
     private Course course;
-    @ManyToOne
+    @ManyToOne(fetch=FetchType.LAZY)
     @JoinColumn(name="term_id", nullable=false)
     private Term term;
     @Column(name="sec_id")
@@ -26,14 +32,17 @@ public class Section {
     private String times;
     @Column(name="instructor_email")
     private String instructorEmail;
+    private int capacity = DEFAULT_CAPACITY;   // seats. students beyond capacity go on the waitlist
 
-    // TODO  uncomment the following lines
+    @OneToMany(mappedBy="section")
+    List<Enrollment> enrollments;
 
-//    @OneToMany(mappedBy="section")
-//    List<Enrollment> enrollments;
+    @OneToMany(mappedBy="section")
+    List<Assignment> assignments;
 
-//    @OneToMany(mappedBy="section")
-//    List<Assignment> assignments;
+    // incremented by hibernate on every update.  used to detect concurrent section updates.
+    @Version
+    private int version;
 
     public int getSectionNo() {
         return sectionNo;
@@ -99,9 +108,21 @@ public class Section {
         this.instructorEmail = instructorEmail;
     }
 
-//    public List<Enrollment> getEnrollments() {
-//        return enrollments;
-//    }
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public List<Enrollment> getEnrollments() {
+        return enrollments;
+    }
+
+    public List<Assignment> getAssignments() { return assignments; }
 
-//    public List<Assignment> getAssignments() { return assignments; }
+    public int getVersion() {
+        return version;
+    }
 }
@@ -0,0 +1,9 @@
+package com.cst438.domain;
+
+/*
+ * Projection for grouped count queries that return one row per section.
+ */
+public interface SectionCount {
+    int getSectionNo();
+    long getTotal();
+}
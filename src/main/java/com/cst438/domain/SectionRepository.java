@@ -1,21 +1,89 @@
 package com.cst438.domain;
 
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface SectionRepository extends CrudRepository<Section, Integer> {
-	
+
+    // the course and term are read with the section by every caller
+    @Override
+    @EntityGraph("Section.courseTerm")
+    Optional<Section> findById(Integer sectionNo);
+
+    @EntityGraph("Section.courseTerm")
     @Query("select s from Section s where s.course.courseId like :courseId and s.term.year=:year and s.term.semester=:semester order by s.course.courseId, s.secId asc")
     List<Section> findByLikeCourseIdAndYearAndSemester(String courseId, int year, String semester);
 
+    @EntityGraph("Section.courseTerm")
     @Query("select s from Section s " +
             "where s.instructorEmail=:email and s.term.year=:year and s.term.semester=:semester " +
             "order by s.course.courseId, s.secId")
     List<Section> findByInstructorEmailAndYearAndSemester(String email, int year, String semester);
 
+    @EntityGraph("Section.courseTerm")
     @Query("select s from Section s where current_date between s.term.addDate and s.term.addDeadline " +
             " order by s.course.courseId, s.secId")
     List<Section> findByOpenOrderByCourseIdSectionId();
+
+    @EntityGraph("Section.courseTerm")
+    @Query("select s from Section s where s.sectionNo in :sectionNos")
+    List<Section> findBySectionNoIn(Collection<Integer> sectionNos);
+
+    // every section with its number of enrollments, in one grouped query
+    @Query("select s.sectionNo as sectionNo, s.term.termId as termId, s.course.courseId as courseId, " +
+            "s.secId as secId, s.capacity as capacity, count(e) as enrolled " +
+            "from Section s left join s.enrollments e " +
+            "group by s.sectionNo, s.term.termId, s.course.courseId, s.secId, s.capacity")
+    List<SectionSeats> findSeats();
+
+    @Query("select s.sectionNo as sectionNo, s.term.termId as termId, s.course.courseId as courseId, " +
+            "s.secId as secId, s.capacity as capacity, count(e) as enrolled " +
+            "from Section s left join s.enrollments e where s.sectionNo in :sectionNos " +
+            "group by s.sectionNo, s.term.termId, s.course.courseId, s.secId, s.capacity")
+    List<SectionSeats> findSeatsBySectionNoIn(Collection<Integer> sectionNos);
+
+    // lock the section row until the transaction ends, so adds and drops of
+    // the section count its enrollments and waitlist one at a time.
+    // only the section table is locked, not the course or term.
+    @Query(value="select section_no from section where section_no=:sectionNo for update", nativeQuery=true)
+    Integer lockBySectionNo(int sectionNo);
+
+    @Query(value="select section_no from section where section_no in :sectionNos for update", nativeQuery=true)
+    List<Integer> lockBySectionNoIn(Collection<Integer> sectionNos);
+
+    // copy the sections of one term into another term with a single statement.
+    // sections with the same course and sec_id already in the target term are skipped.
+    // return the section numbers of the inserted sections.
+    @Query(value="select section_no from final table (" +
+            "insert into section (course_id, sec_id, term_id, building, room, times, instructor_email, capacity) " +
+            "select s.course_id, s.sec_id, :toTermId, s.building, s.room, s.times, s.instructor_email, s.capacity " +
+            "from section s where s.term_id=:fromTermId and not exists " +
+            "(select 1 from section t where t.term_id=:toTermId and t.course_id=s.course_id and t.sec_id=s.sec_id))",
+            nativeQuery=true)
+    List<Integer> copySectionsToTerm(int fromTermId, int toTermId);
+
+    @Query("select count(s) from Section s where s.course.courseId=:courseId")
+    long countByCourseId(String courseId);
+
+    @Query("select count(s) from Section s where s.instructorEmail=:email")
+    long countByInstructorEmail(String email);
+
+    @Modifying
+    @Query("delete from Section s where s.sectionNo=:sectionNo")
+    int deleteBySectionNo(int sectionNo);
+
+    @Modifying
+    @Query("delete from Section s where s.course.courseId=:courseId")
+    int deleteByCourseId(String courseId);
+
+    // sections of a deleted instructor are kept without an instructor
+    @Modifying
+    @Query("update Section s set s.instructorEmail=null where s.instructorEmail=:email")
+    int clearInstructorEmail(String email);
 }
@@ -0,0 +1,13 @@
+package com.cst438.domain;
+
+/*
+ * Projection of a section with its capacity and number of enrollments.
+ */
+public interface SectionSeats {
+    int getSectionNo();
+    int getTermId();
+    String getCourseId();
+    int getSecId();
+    int getCapacity();
+    long getEnrolled();
+}
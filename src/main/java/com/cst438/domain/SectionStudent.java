@@ -0,0 +1,11 @@
+package com.cst438.domain;
+
+/*
+ * Projection of a student enrolled in a section.
+ */
+public interface SectionStudent {
+    int getSectionNo();
+    int getStudentId();
+    String getName();
+    String getEmail();
+}
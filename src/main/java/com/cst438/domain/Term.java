@@ -1,12 +1,20 @@
 package com.cst438.domain;
 
+import com.cst438.event.ChangeEventListener;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.sql.Date;
 
 @Entity
+@EntityListeners(ChangeEventListener.class)
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
 public class Term {
     @Id
     @Column(name="term_id")
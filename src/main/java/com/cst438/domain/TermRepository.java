@@ -1,12 +1,17 @@
 package com.cst438.domain;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
 import java.util.List;
 
 public interface TermRepository extends CrudRepository<Term, Integer> {
 
+    @QueryHints(@QueryHint(name=HibernateHints.HINT_CACHEABLE, value="true"))
     Term findByYearAndSemester( int year, String semester);
 
+    @QueryHints(@QueryHint(name=HibernateHints.HINT_CACHEABLE, value="true"))
     List<Term> findAllByOrderByTermIdDesc();
 }
@@ -1,7 +1,13 @@
 package com.cst438.domain;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface UserRepository extends 
@@ -9,5 +15,12 @@ public interface UserRepository extends
 
 	List<User> findAllByOrderByIdAsc();
 
+	@QueryHints(@QueryHint(name=HibernateHints.HINT_CACHEABLE, value="true"))
 	User findByEmail(String email);
+
+	List<User> findByEmailIn(Collection<String> emails);
+
+	@Modifying
+	@Query("delete from User u where u.id=:id")
+	int deleteByUserId(int id);
 }
@@ -0,0 +1,50 @@
+package com.cst438.domain;
+
+import jakarta.persistence.*;
+
+@Entity
+public class Waitlist {
+    @Id
+    @GeneratedValue(strategy=GenerationType.IDENTITY)
+    @Column(name="waitlist_id")
+    private int waitlistId;
+
+    @ManyToOne(fetch=FetchType.LAZY)
+    @JoinColumn(name="section_no", nullable=false)
+    private Section section;
+
+    @ManyToOne(fetch=FetchType.LAZY)
+    @JoinColumn(name="user_id", nullable=false)
+    private User student;
+
+    // order of arrival on the section's waitlist.  lower tickets are promoted first.
+    private long ticket;
+
+    public int getWaitlistId() {
+        return waitlistId;
+    }
+
+    public Section getSection() {
+        return section;
+    }
+
+    public void setSection(Section section) {
+        this.section = section;
+    }
+
+    public User getStudent() {
+        return student;
+    }
+
+    public void setStudent(User student) {
+        this.student = student;
+    }
+
+    public long getTicket() {
+        return ticket;
+    }
+
+    public void setTicket(long ticket) {
+        this.ticket = ticket;
+    }
+}
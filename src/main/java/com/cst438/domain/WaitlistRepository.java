@@ -0,0 +1,45 @@
+package com.cst438.domain;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface WaitlistRepository extends CrudRepository<Waitlist, Integer> {
+
+    @Query("select w from Waitlist w where w.section.sectionNo=:sectionNo order by w.ticket")
+    List<Waitlist> findBySectionNoOrderByTicket(int sectionNo);
+
+    // remove a student from a waitlist.  returns 0 if the student was not on it,
+    // which is how concurrent promotions find out another one got the student first.
+    @Modifying
+    @Query("delete from Waitlist w where w.section.sectionNo=:sectionNo and w.student.id=:studentId")
+    int deleteBySectionNoAndStudentId(int sectionNo, int studentId);
+
+    @Modifying
+    @Query("delete from Waitlist w where w.section.sectionNo=:sectionNo")
+    int deleteBySectionNo(int sectionNo);
+
+    @Modifying
+    @Query("delete from Waitlist w where w.section.sectionNo in " +
+            "(select s.sectionNo from Section s where s.course.courseId=:courseId)")
+    int deleteByCourseId(String courseId);
+
+    @Modifying
+    @Query("delete from Waitlist w where w.student.id=:studentId")
+    int deleteByStudentId(int studentId);
+
+    @Query("select count(w) from Waitlist w where w.section.sectionNo=:sectionNo")
+    long countBySectionNo(int sectionNo);
+
+    @Query("select w from Waitlist w where w.section.sectionNo=:sectionNo and w.student.id=:studentId")
+    Waitlist findBySectionNoAndStudentId(int sectionNo, int studentId);
+
+    @Query("select coalesce(max(w.ticket), 0) from Waitlist w where w.section.sectionNo=:sectionNo")
+    long findMaxTicketBySectionNo(int sectionNo);
+
+    // position of the holder of a ticket
+    @Query("select count(w) from Waitlist w where w.section.sectionNo=:sectionNo and w.ticket<=:ticket")
+    long countBySectionNoAndTicketUpTo(int sectionNo, long ticket);
+}
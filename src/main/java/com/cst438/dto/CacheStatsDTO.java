@@ -0,0 +1,12 @@
+package com.cst438.dto;
+/*
+ * Data Transfer Object for the counters of one second level cache region
+ */
+public record CacheStatsDTO(
+        String region,
+        long hits,
+        long misses,
+        long puts,
+        long entries   // -1 if the cache provider does not report it
+) {
+}
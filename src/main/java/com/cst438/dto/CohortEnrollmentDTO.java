@@ -0,0 +1,13 @@
+package com.cst438.dto;
+
+import java.util.List;
+
+/*
+ * Data Transfer Object for enrolling every student of a cohort into every
+ * section of a list of sections
+ */
+public record CohortEnrollmentDTO(
+        List<Integer> studentIds,
+        List<Integer> sectionNos
+) {
+}
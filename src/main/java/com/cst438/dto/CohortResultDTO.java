@@ -0,0 +1,17 @@
+package com.cst438.dto;
+
+import java.util.List;
+
+/*
+ * Data Transfer Object for the result of a cohort enrollment.
+ * results.get(i).get(j) is the outcome for studentIds[i] in sectionNos[j]:
+ *   ENROLLED, ALREADY_ENROLLED, STUDENT_NOT_FOUND, SECTION_NOT_FOUND,
+ *   ADD_PERIOD_CLOSED or SECTION_FULL
+ */
+public record CohortResultDTO(
+        List<Integer> studentIds,
+        List<Integer> sectionNos,
+        List<List<String>> results,
+        int enrolled
+) {
+}
@@ -16,7 +16,8 @@ public record EnrollmentDTO(
         String times,
         int credits,
         int year,
-        String semester
+        String semester,
+        Integer version  // enrollment row version. If null, update does not check for conflicts
 
 ) {
 }
@@ -0,0 +1,20 @@
+package com.cst438.dto;
+
+import java.time.Instant;
+
+/*
+ * Data Transfer Object for one change of an assignment score or a final grade
+ */
+public record GradeAuditDTO(
+        long sequence,
+        Instant time,
+        String kind,           // SCORE or FINAL_GRADE
+        int enrollmentId,
+        Integer assignmentId,  // null for a final grade
+        Integer gradeId,       // null for a final grade
+        Integer oldScore,
+        Integer newScore,
+        String oldGrade,
+        String newGrade
+) {
+}
@@ -9,7 +9,8 @@ public record GradeDTO(
         String assignmentTitle,
         String courseId,
         int sectionId,
-        Integer score
+        Integer score,
+        Integer version  // grade row version. If null, update does not check for conflicts
 ) {
 
 }
@@ -0,0 +1,17 @@
+package com.cst438.dto;
+
+/*
+ * Data Transfer Object pushed to clients on the grade update streams.
+ * kind is SCORE for an assignment score or FINAL for a final grade.
+ */
+public record GradeUpdateDTO(
+        long seq,          // position in the stream of all grade updates
+        String kind,
+        int studentId,
+        int sectionNo,
+        int enrollmentId,
+        Integer assignmentId,  // null for FINAL
+        Integer score,         // null for FINAL
+        String grade           // null for SCORE
+) {
+}
@@ -0,0 +1,9 @@
+package com.cst438.dto;
+/*
+ * Data Transfer Object for a row of an import file that was rejected
+ */
+public record ImportErrorDTO(
+        int line,       // line number in the file, starting at 1
+        String message
+) {
+}
@@ -0,0 +1,16 @@
+package com.cst438.dto;
+
+import java.util.List;
+
+/*
+ * Data Transfer Object for the result of a bulk CSV import
+ */
+public record ImportResultDTO(
+        String kind,      // courses, sections or enrollments
+        int rowsRead,
+        int rowsInserted,
+        List<ImportErrorDTO> errors,
+        boolean errorsTruncated,  // true if there were more errors than listed
+        long elapsedMillis
+) {
+}
@@ -0,0 +1,15 @@
+package com.cst438.dto;
+
+import java.util.List;
+
+/*
+ * Data Transfer Object for the instructor landing page
+ */
+public record InstructorDashboardDTO(
+        String instructorName,
+        String instructorEmail,
+        int year,
+        String semester,
+        List<SectionSummaryDTO> sections
+) {
+}
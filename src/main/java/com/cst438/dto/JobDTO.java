@@ -0,0 +1,20 @@
+package com.cst438.dto;
+
+import java.time.Instant;
+
+/*
+ * Data Transfer Object for the status of a background job
+ */
+public record JobDTO(
+        String jobId,
+        String type,
+        String status,     // QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+        long done,
+        long total,        // 0 until the job knows how much work there is
+        Instant submitted,
+        Instant started,
+        Instant finished,
+        String error,      // message of a FAILED job
+        long resultBytes   // size of the result of a SUCCEEDED job
+) {
+}
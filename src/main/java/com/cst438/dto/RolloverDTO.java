@@ -0,0 +1,15 @@
+package com.cst438.dto;
+/*
+ * Data Transfer Object for the result of copying the sections
+ * (and optionally assignments) of one term into the next term
+ */
+public record RolloverDTO(
+        int fromYear,
+        String fromSemester,
+        int toYear,
+        String toSemester,
+        int sectionsCopied,
+        int assignmentsCopied,
+        int shiftDays   // days added to assignment due dates
+) {
+}
@@ -0,0 +1,13 @@
+package com.cst438.dto;
+/*
+ * Data Transfer Object for the seats of a section, from the in-memory seat counters
+ */
+public record SeatAvailabilityDTO(
+        int secNo,
+        String courseId,
+        int secId,
+        int capacity,
+        int enrolled,
+        int seatsAvailable   // 0 when the section is full
+) {
+}
@@ -14,7 +14,10 @@ public record SectionDTO(
         String room,
         String times,
         String instructorName,
-        String instructorEmail
+        String instructorEmail,
+        Integer version,  // row version when read. may be null for new sections
+        Integer enrolled,        // from the seat counters. null in requests, or if
+        Integer seatsAvailable   // the section is not counted yet
 
        ) {
 }
@@ -0,0 +1,18 @@
+package com.cst438.dto;
+
+/*
+ * Data Transfer Object for a section on the instructor dashboard
+ * with counts of enrolled students, assignments and ungraded assignments
+ */
+public record SectionSummaryDTO(
+        int secNo,
+        String courseId,
+        int secId,
+        String building,
+        String room,
+        String times,
+        long enrollments,
+        long assignments,
+        long ungraded  // student assignments that do not have a score yet
+) {
+}
@@ -0,0 +1,19 @@
+package com.cst438.dto;
+
+import java.util.List;
+
+/*
+ * Data Transfer Object for the student landing page.
+ * Schedule and assignments for the given term and the student's transcript.
+ */
+public record StudentHomeDTO(
+        int studentId,
+        String name,
+        int year,
+        String semester,
+        List<EnrollmentDTO> schedule,
+        List<AssignmentStudentDTO> assignments,
+        List<EnrollmentDTO> transcript,
+        int creditsEarned   // credits for courses with a final grade other than F
+) {
+}
@@ -0,0 +1,11 @@
+package com.cst438.dto;
+/*
+ * Data Transfer Object for a student's place on the waitlist of a full section
+ */
+public record WaitlistDTO(
+        int sectionNo,
+        int studentId,
+        long position,   // 1 is the next student to get a seat
+        int waiting      // number of students on the waitlist
+) {
+}
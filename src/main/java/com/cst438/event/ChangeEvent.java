@@ -0,0 +1,23 @@
+package com.cst438.event;
+
+/*
+ * A committed insert, update or delete of one row.
+ * id is null when any number of rows of the type may have changed,
+ * for example after a bulk statement or when the bus overflowed.
+ * Subscribers must then drop everything they hold for that type.
+ */
+public record ChangeEvent(
+        EntityType type,
+        Kind kind,
+        Object id
+) {
+    public enum Kind { INSERT, UPDATE, DELETE }
+
+    public static ChangeEvent all(EntityType type) {
+        return new ChangeEvent(type, Kind.UPDATE, null);
+    }
+
+    public boolean isAll() {
+        return id == null;
+    }
+}
@@ -0,0 +1,209 @@
+package com.cst438.event;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * In-process bus of committed row changes, used by caches to invalidate.
+ *
+ * Changes made inside a transaction are buffered with the transaction and
+ * queued as one batch after it commits; a rolled back transaction publishes
+ * nothing.  Changes made outside a transaction are queued immediately.
+ * Subscribers' onCommit sees each batch on the committing thread before
+ * it is queued.
+ *
+ * The queue is a non-blocking ConcurrentLinkedQueue bounded by a count of
+ * queued events.  A committing thread never waits: when the queue is full
+ * the batch is dropped and its entity types are flagged, and the dispatcher
+ * sends subscribers an "all rows changed" event for each flagged type.
+ *
+ * A single dispatch thread drains everything queued, removes duplicate
+ * events and calls each subscriber once with the events it asked for.
+ */
+@Component
+public class ChangeEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeEventBus.class);
+
+    private final ConcurrentLinkedQueue<List<ChangeEvent>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int capacity;
+
+    // bit per EntityType ordinal for types whose events were dropped
+    private final AtomicInteger overflowed = new AtomicInteger();
+
+    private final ObjectProvider<ChangeSubscriber> subscriberProvider;
+    private volatile List<ChangeSubscriber> subscribers;
+
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public ChangeEventBus(
+            ObjectProvider<ChangeSubscriber> subscriberProvider,
+            @Value("${cst438.change-events.capacity:10000}") int capacity) {
+        this.subscriberProvider = subscriberProvider;
+        this.capacity = capacity;
+        this.dispatcher = new Thread(this::dispatchLoop, "change-events");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+    }
+
+    public void publish(EntityType type, ChangeEvent.Kind kind, Object id) {
+        publish(new ChangeEvent(type, kind, id));
+    }
+
+    // publish a change to any number of rows of the type, for bulk statements
+    // whose rows are not known
+    public void publishAll(EntityType type) {
+        publish(ChangeEvent.all(type));
+    }
+
+    // publish the delete of each row, for bulk deletes of rows read beforehand
+    public void publishDeletes(EntityType type, Collection<?> ids) {
+        for (Object id : ids) {
+            publish(type, ChangeEvent.Kind.DELETE, id);
+        }
+    }
+
+    public void publish(ChangeEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed(List.of(event));
+            enqueue(List.of(event));
+            return;
+        }
+        batch().events.add(event);
+    }
+
+    // the batch of the current transaction.  it is registered as one of the
+    // transaction's synchronizations, which are suspended with the transaction,
+    // so a REQUIRES_NEW transaction gets a batch of its own.
+    private Batch batch() {
+        for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+            if (s instanceof Batch b && b.bus() == this) {
+                return b;
+            }
+        }
+        Batch b = new Batch();
+        TransactionSynchronizationManager.registerSynchronization(b);
+        return b;
+    }
+
+    private class Batch implements TransactionSynchronization {
+        final List<ChangeEvent> events = new ArrayList<>();
+
+        ChangeEventBus bus() {
+            return ChangeEventBus.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            committed(events);
+            enqueue(events);
+        }
+    }
+
+    private void committed(List<ChangeEvent> batch) {
+        for (ChangeSubscriber s : subscribers()) {
+            List<ChangeEvent> selected = select(s, batch);
+            if (!selected.isEmpty()) {
+                try {
+                    s.onCommit(selected);
+                } catch (RuntimeException ex) {
+                    // the transaction has committed; a failing subscriber must not fail the request
+                    log.warn("change subscriber {} failed on commit", s.getClass().getName(), ex);
+                }
+            }
+        }
+    }
+
+    private void enqueue(List<ChangeEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (queued.addAndGet(batch.size()) > capacity) {
+            queued.addAndGet(-batch.size());
+            for (ChangeEvent e : batch) {
+                overflowed.getAndUpdate(bits -> bits | (1 << e.type().ordinal()));
+            }
+        } else {
+            queue.offer(batch);
+        }
+        LockSupport.unpark(dispatcher);
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            Set<ChangeEvent> events = new LinkedHashSet<>();
+            List<ChangeEvent> batch;
+            while ((batch = queue.poll()) != null) {
+                queued.addAndGet(-batch.size());
+                events.addAll(batch);
+            }
+            int bits = overflowed.getAndSet(0);
+            for (EntityType type : EntityType.values()) {
+                if ((bits & (1 << type.ordinal())) != 0) {
+                    events.add(ChangeEvent.all(type));
+                }
+            }
+            if (events.isEmpty()) {
+                LockSupport.park(this);
+            } else {
+                deliver(new ArrayList<>(events));
+            }
+        }
+    }
+
+    private void deliver(List<ChangeEvent> events) {
+        for (ChangeSubscriber s : subscribers()) {
+            List<ChangeEvent> selected = select(s, events);
+            if (!selected.isEmpty()) {
+                try {
+                    s.onChanges(selected);
+                } catch (RuntimeException ex) {
+                    // one failing subscriber must not stop delivery to the others
+                    log.warn("change subscriber {} failed", s.getClass().getName(), ex);
+                }
+            }
+        }
+    }
+
+    private List<ChangeSubscriber> subscribers() {
+        if (subscribers == null) {
+            subscribers = subscriberProvider.orderedStream().toList();
+        }
+        return subscribers;
+    }
+
+    // the events of the types the subscriber is interested in
+    private static List<ChangeEvent> select(ChangeSubscriber s, Collection<ChangeEvent> events) {
+        Set<EntityType> types = s.types();
+        List<ChangeEvent> selected = new ArrayList<>();
+        for (ChangeEvent e : events) {
+            if (types.contains(e.type())) {
+                selected.add(e);
+            }
+        }
+        return selected;
+    }
+}
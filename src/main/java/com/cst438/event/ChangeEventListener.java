@@ -0,0 +1,55 @@
+package com.cst438.event;
+
+import com.cst438.domain.*;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/*
+ * JPA entity listener that publishes inserts, updates and deletes of
+ * entities to the ChangeEventBus.  Entities opt in with
+ *     @EntityListeners(ChangeEventListener.class)
+ * Bulk JPQL or JDBC statements bypass entity listeners; code that uses
+ * them must call ChangeEventBus.publish itself.
+ */
+@Component
+public class ChangeEventListener {
+
+    @Autowired
+    ChangeEventBus bus;
+
+    @PostPersist
+    public void inserted(Object entity) {
+        publish(entity, ChangeEvent.Kind.INSERT);
+    }
+
+    @PostUpdate
+    public void updated(Object entity) {
+        publish(entity, ChangeEvent.Kind.UPDATE);
+    }
+
+    @PostRemove
+    public void deleted(Object entity) {
+        publish(entity, ChangeEvent.Kind.DELETE);
+    }
+
+    private void publish(Object entity, ChangeEvent.Kind kind) {
+        if (entity instanceof Course c) {
+            bus.publish(EntityType.COURSE, kind, c.getCourseId());
+        } else if (entity instanceof Section s) {
+            bus.publish(EntityType.SECTION, kind, s.getSectionNo());
+        } else if (entity instanceof Term t) {
+            bus.publish(EntityType.TERM, kind, t.getTermId());
+        } else if (entity instanceof User u) {
+            bus.publish(EntityType.USER, kind, u.getId());
+        } else if (entity instanceof Enrollment e) {
+            bus.publish(EntityType.ENROLLMENT, kind, e.getEnrollmentId());
+        } else if (entity instanceof Assignment a) {
+            bus.publish(EntityType.ASSIGNMENT, kind, a.getAssignmentId());
+        } else if (entity instanceof Grade g) {
+            bus.publish(EntityType.GRADE, kind, g.getGradeId());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.cst438.event;
+
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Implemented by beans, such as caches, that must know when rows change.
+ * Every ChangeSubscriber bean is registered with the ChangeEventBus.
+ * onChanges is called on the bus dispatch thread, only for committed
+ * changes, with the events for the types the subscriber is interested in.
+ * onCommit is called with the same events on the committing thread, before
+ * the write's request returns.
+ */
+public interface ChangeSubscriber {
+
+    Set<EntityType> types();
+
+    void onChanges(List<ChangeEvent> events);
+
+    // for subscribers that must not serve the old rows to the writer's next
+    // request.  the commit waits for it, so it must be quick.
+    default void onCommit(List<ChangeEvent> events) {
+    }
+}
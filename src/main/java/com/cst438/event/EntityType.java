@@ -0,0 +1,8 @@
+package com.cst438.event;
+
+/*
+ * Entities whose changes are published on the ChangeEventBus.
+ */
+public enum EntityType {
+    COURSE, SECTION, TERM, USER, ENROLLMENT, ASSIGNMENT, GRADE
+}
@@ -0,0 +1,400 @@
+package com.cst438.importer;
+
+import com.cst438.dto.ImportErrorDTO;
+import com.cst438.dto.ImportResultDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
+import com.cst438.seats.SeatCounters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Bulk import of courses, sections and enrollments from CSV files.
+ *
+ * The file is read one line at a time.  Foreign keys (course, term,
+ * instructor, section, student) are resolved against hash maps loaded
+ * once at the start of the import, so validating a row does not query
+ * the database.  Valid rows are inserted with JDBC batch inserts and
+ * committed every chunkSize rows.  If a chunk fails, its rows are
+ * inserted one at a time so the failing lines can be reported.
+ *
+ * Enrollments are checked against the existing enrollments and the
+ * section capacity one chunk at a time, with IN queries for the chunk's
+ * sections and students, in the transaction that inserts the chunk and
+ * holds the locks of its section rows.
+ *
+ * File layouts (a header line with these names is optional)
+ *   courses      course_id,title,credits
+ *   sections     course_id,year,semester,sec_id,building,room,times,instructor_email
+ *   enrollments  section_no,student_email
+ */
+@Component
+public class CsvImporter {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    @Autowired
+    SeatCounters seatCounters;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public CsvImporter(
+            PlatformTransactionManager transactionManager,
+            @Value("${cst438.import.chunk-size:2000}") int chunkSize,
+            @Value("${cst438.import.max-errors:1000}") int maxErrors) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public ImportResultDTO importCourses(InputStream in) throws IOException {
+        return run("courses", new CourseRows(), in);
+    }
+
+    public ImportResultDTO importSections(InputStream in) throws IOException {
+        return run("sections", new SectionRows(), in);
+    }
+
+    public ImportResultDTO importEnrollments(InputStream in) throws IOException {
+        return run("enrollments", new EnrollmentRows(), in);
+    }
+
+    /*
+     * validates rows of one kind of file and supplies the insert statement
+     */
+    interface Rows {
+        String header();            // first column name of the optional header line
+        String insertSql();
+        EntityType type();
+        // return the insert parameters, or throw IllegalArgumentException with the reason
+        Object[] validate(String[] f);
+        // return the reason each row of a chunk can not be inserted, null for
+        // the rows that can.  called in the transaction that inserts the chunk.
+        default List<String> check(List<Object[]> chunk) {
+            return Collections.nCopies(chunk.size(), null);
+        }
+        // called in the transaction that inserts the rows
+        default void inserted(List<Object[]> args) {}
+    }
+
+    private ImportResultDTO run(String kind, Rows rows, InputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        Result result = new Result();
+        List<Object[]> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkLines = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                String[] fields = CsvLine.split(line);
+                if (lineNo==1 && fields[0].equalsIgnoreCase(rows.header())) {
+                    continue;
+                }
+                result.read++;
+                chunk.add(rows.validate(fields));
+                chunkLines.add(lineNo);
+            } catch (IllegalArgumentException e) {
+                result.error(lineNo, e.getMessage());
+            }
+            if (chunk.size()==chunkSize) {
+                insert(rows, chunk, chunkLines, result);
+                chunk.clear();
+                chunkLines.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insert(rows, chunk, chunkLines, result);
+        }
+        // rows rejected by a chunk check are reported after later lines of the chunk
+        result.errors.sort(Comparator.comparingInt(ImportErrorDTO::line));
+        return new ImportResultDTO(kind, result.read, result.inserted, result.errors,
+                result.errorCount > result.errors.size(), System.currentTimeMillis()-start);
+    }
+
+    private void insert(Rows rows, List<Object[]> chunk, List<Integer> lines, Result result) {
+        try {
+            List<String> rejected = insert(rows, chunk);
+            for (int i=0; i<chunk.size(); i++) {
+                if (rejected.get(i) == null) {
+                    result.inserted++;
+                } else {
+                    result.error(lines.get(i), rejected.get(i));
+                }
+            }
+        } catch (DataAccessException e) {
+            // find the rows that failed
+            for (int i=0; i<chunk.size(); i++) {
+                try {
+                    String rejected = insert(rows, Collections.singletonList(chunk.get(i))).get(0);
+                    if (rejected == null) {
+                        result.inserted++;
+                    } else {
+                        result.error(lines.get(i), rejected);
+                    }
+                } catch (DataAccessException ex) {
+                    result.error(lines.get(i), ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    // check and insert the rows in one transaction.
+    // return the reason each row was not inserted, null for inserted rows.
+    private List<String> insert(Rows rows, List<Object[]> chunk) {
+        return transactionTemplate.execute(status -> {
+            List<String> rejected = rows.check(chunk);
+            List<Object[]> accepted = new ArrayList<>(chunk.size());
+            for (int i=0; i<chunk.size(); i++) {
+                if (rejected.get(i) == null) {
+                    accepted.add(chunk.get(i));
+                }
+            }
+            if (!accepted.isEmpty()) {
+                jdbcTemplate.batchUpdate(rows.insertSql(), accepted);
+                changeEventBus.publishAll(rows.type());
+                rows.inserted(accepted);
+            }
+            return rejected;
+        });
+    }
+
+    private class Result {
+        int read;
+        int inserted;
+        int errorCount;
+        List<ImportErrorDTO> errors = new ArrayList<>();
+
+        void error(int line, String message) {
+            errorCount++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportErrorDTO(line, message));
+            }
+        }
+    }
+
+    private class CourseRows implements Rows {
+        final Set<String> courses = new HashSet<>(
+                jdbcTemplate.queryForList("select course_id from course", String.class));
+
+        public String header() { return "course_id"; }
+        public String insertSql() { return "insert into course (course_id, title, credits) values (?, ?, ?)"; }
+        public EntityType type() { return EntityType.COURSE; }
+
+        public Object[] validate(String[] f) {
+            columns(f, 3);
+            String courseId = text(f[0], "course_id", 10);
+            String title = text(f[1], "title", 100);
+            int credits = number(f[2], "credits");
+            if (credits < 0) {
+                throw new IllegalArgumentException("credits must not be negative");
+            }
+            if (!courses.add(courseId)) {
+                throw new IllegalArgumentException("duplicate course "+courseId);
+            }
+            return new Object[] {courseId, title, credits};
+        }
+    }
+
+    private class SectionRows implements Rows {
+        final Set<String> courses = new HashSet<>(
+                jdbcTemplate.queryForList("select course_id from course", String.class));
+        // term_id by  year:semester
+        final Map<String, Integer> terms = new HashMap<>();
+        final Set<String> instructors = new HashSet<>(
+                jdbcTemplate.queryForList("select email from user_table where type='INSTRUCTOR'", String.class));
+        // course_id:term_id:sec_id of existing sections
+        final Set<String> sections = new HashSet<>();
+
+        SectionRows() {
+            jdbcTemplate.query("select term_id, tyear, semester from term",
+                    rs -> { terms.put(rs.getInt(2)+":"+rs.getString(3), rs.getInt(1)); });
+            jdbcTemplate.query("select course_id, term_id, sec_id from section",
+                    rs -> { sections.add(rs.getString(1)+":"+rs.getInt(2)+":"+rs.getInt(3)); });
+        }
+
+        public String header() { return "course_id"; }
+        public String insertSql() {
+            return "insert into section (course_id, term_id, sec_id, building, room, times, instructor_email) values (?, ?, ?, ?, ?, ?, ?)";
+        }
+        public EntityType type() { return EntityType.SECTION; }
+
+        public Object[] validate(String[] f) {
+            columns(f, 8);
+            String courseId = f[0];
+            if (!courses.contains(courseId)) {
+                throw new IllegalArgumentException("course not found "+courseId);
+            }
+            int year = number(f[1], "year");
+            Integer termId = terms.get(year+":"+f[2]);
+            if (termId == null) {
+                throw new IllegalArgumentException("year, semester invalid "+year+" "+f[2]);
+            }
+            int secId = number(f[3], "sec_id");
+            String building = optional(f[4], "building", 10);
+            String room = optional(f[5], "room", 10);
+            String times = optional(f[6], "times", 25);
+            String email = f[7];
+            if (!email.isEmpty() && !instructors.contains(email)) {
+                throw new IllegalArgumentException("email not found or not an instructor "+email);
+            }
+            if (!sections.add(courseId+":"+termId+":"+secId)) {
+                throw new IllegalArgumentException("duplicate section "+courseId+" "+secId);
+            }
+            return new Object[] {courseId, termId, secId, building, room, times, email};
+        }
+    }
+
+    private class EnrollmentRows implements Rows {
+        final Set<Integer> sections = new HashSet<>(
+                jdbcTemplate.queryForList("select section_no from section", Integer.class));
+        // id by email
+        final Map<String, Integer> students = new HashMap<>();
+        // email by id
+        final Map<Integer, String> emails = new HashMap<>();
+
+        EnrollmentRows() {
+            jdbcTemplate.query("select id, email from user_table where type='STUDENT'",
+                    rs -> {
+                        students.put(rs.getString(2), rs.getInt(1));
+                        emails.put(rs.getInt(1), rs.getString(2));
+                    });
+        }
+
+        public String header() { return "section_no"; }
+        public String insertSql() { return "insert into enrollment (section_no, user_id) values (?, ?)"; }
+        public EntityType type() { return EntityType.ENROLLMENT; }
+
+        public Object[] validate(String[] f) {
+            columns(f, 2);
+            int sectionNo = number(f[0], "section_no");
+            if (!sections.contains(sectionNo)) {
+                throw new IllegalArgumentException("section not found "+sectionNo);
+            }
+            Integer studentId = students.get(f[1]);
+            if (studentId == null) {
+                throw new IllegalArgumentException("email not found or not a student "+f[1]);
+            }
+            return new Object[] {sectionNo, studentId};
+        }
+
+        // duplicates and full sections.  the section rows are locked, so
+        // concurrent adds wait until the chunk is committed.
+        public List<String> check(List<Object[]> chunk) {
+            Set<Integer> sectionNos = new HashSet<>();
+            Set<Integer> studentIds = new HashSet<>();
+            for (Object[] a : chunk) {
+                sectionNos.add((Integer) a[0]);
+                studentIds.add((Integer) a[1]);
+            }
+            // free seats by section
+            Map<Integer, Integer> seats = new HashMap<>();
+            jdbcTemplate.query("select section_no, capacity from section where section_no in ("+params(sectionNos)+") for update",
+                    rs -> { seats.put(rs.getInt(1), rs.getInt(2)); }, sectionNos.toArray());
+            jdbcTemplate.query("select section_no, count(*) from enrollment where section_no in ("+params(sectionNos)+") " +
+                            "group by section_no",
+                    rs -> { seats.merge(rs.getInt(1), -rs.getInt(2), Integer::sum); }, sectionNos.toArray());
+            // section_no and user_id of existing enrollments packed in a long
+            Set<Long> enrolled = new HashSet<>();
+            List<Object> args = new ArrayList<>(sectionNos);
+            args.addAll(studentIds);
+            jdbcTemplate.query("select section_no, user_id from enrollment where section_no in ("+params(sectionNos)+") " +
+                            "and user_id in ("+params(studentIds)+")",
+                    rs -> { enrolled.add(key(rs.getInt(1), rs.getInt(2))); }, args.toArray());
+
+            List<String> rejected = new ArrayList<>(chunk.size());
+            for (Object[] a : chunk) {
+                int sectionNo = (Integer) a[0];
+                int studentId = (Integer) a[1];
+                if (!seats.containsKey(sectionNo)) {
+                    rejected.add("section not found "+sectionNo);
+                } else if (!enrolled.add(key(sectionNo, studentId))) {
+                    rejected.add("student already enrolled "+emails.get(studentId)+" "+sectionNo);
+                } else if (seats.get(sectionNo) <= 0) {
+                    rejected.add("section is full "+sectionNo);
+                } else {
+                    seats.merge(sectionNo, -1, Integer::sum);
+                    rejected.add(null);
+                }
+            }
+            return rejected;
+        }
+
+        // count the new enrollments of each section
+        public void inserted(List<Object[]> args) {
+            Map<Integer, Integer> added = new HashMap<>();
+            for (Object[] a : args) {
+                added.merge((Integer) a[0], 1, Integer::sum);
+            }
+            added.forEach(seatCounters::enrolled);
+        }
+
+        private long key(int sectionNo, int studentId) {
+            return ((long) sectionNo << 32) | (studentId & 0xffffffffL);
+        }
+    }
+
+    // n question marks for an IN list
+    private static String params(Collection<?> values) {
+        return String.join(", ", Collections.nCopies(values.size(), "?"));
+    }
+
+    private static void columns(String[] f, int n) {
+        if (f.length != n) {
+            throw new IllegalArgumentException("expected "+n+" columns, found "+f.length);
+        }
+    }
+
+    private static String text(String value, String name, int maxLength) {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException(name+" is required");
+        }
+        return optional(value, name, maxLength);
+    }
+
+    private static String optional(String value, String name, int maxLength) {
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(name+" longer than "+maxLength);
+        }
+        return value;
+    }
+
+    private static int number(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name+" is not a number "+value);
+        }
+    }
+}
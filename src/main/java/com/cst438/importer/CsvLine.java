@@ -0,0 +1,46 @@
+package com.cst438.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Splits one line of a CSV file into fields.
+ * Fields may be enclosed in double quotes to contain commas;
+ * a double quote inside a quoted field is written as two double quotes.
+ * Fields are trimmed.  Quoted fields may not span lines.
+ */
+public class CsvLine {
+
+    public static String[] split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i=0; i<line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c=='"') {
+                    if (i+1<line.length() && line.charAt(i+1)=='"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c=='"') {
+                quoted = true;
+            } else if (c==',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,93 @@
+package com.cst438.job;
+
+import com.cst438.dto.JobDTO;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * One submitted job.  The work reports progress through setTotal and
+ * advance, which also end the work with a CancellationException once the
+ * job has been cancelled.
+ */
+public class Job {
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    final String id;
+    final String type;
+    final String contentType;
+    final Path result;
+    final Instant submitted = Instant.now();
+
+    volatile Status status = Status.QUEUED;
+    volatile Instant started;
+    volatile Instant finished;
+    volatile String error;
+    volatile long resultBytes;
+    volatile boolean cancelRequested;
+    volatile Future<?> future;
+    // guarded by the job's monitor
+    int downloads;
+    boolean removed;
+
+    private final AtomicLong done = new AtomicLong();
+    private volatile long total;
+
+    Job(String id, String type, String contentType, Path result) {
+        this.id = id;
+        this.type = type;
+        this.contentType = contentType;
+        this.result = result;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    // file with the result of a SUCCEEDED job
+    public Path getResult() {
+        return result;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+        checkCancelled();
+    }
+
+    // count units of work done
+    public void advance(long n) {
+        done.addAndGet(n);
+        checkCancelled();
+    }
+
+    public void checkCancelled() {
+        if (cancelRequested) {
+            throw new CancellationException("job cancelled");
+        }
+    }
+
+    boolean isFinished() {
+        return finished != null;
+    }
+
+    public JobDTO toDTO() {
+        return new JobDTO(id, type, status.name(), done.get(), total,
+                submitted, started, finished, error, resultBytes);
+    }
+}
@@ -0,0 +1,230 @@
+package com.cst438.job;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Runs long jobs (exports, reports) on the bounded jobExecutor so they do
+ * not hold request threads.
+ *
+ * A submit returns at once with the job id.  The job writes its result to
+ * a file in cst438.jobs.dir, which the client downloads after polling the
+ * status until the job has SUCCEEDED.  Cancelling a queued job removes it
+ * from the queue; a running job stops at its next progress report and
+ * sets its own final status, so its file is not removed while written.
+ * Status changes are made holding the job's monitor, so a cancel either
+ * ends the job CANCELLED or is refused because the job has finished.
+ * Finished jobs and their files are removed after cst438.jobs.retention-minutes,
+ * except while their result is being downloaded; such a job is removed by
+ * the first submit after the download ends.
+ *
+ * Job status is kept in memory, so jobs do not survive a restart.
+ */
+@Component
+public class JobManager {
+
+    private static final Logger log = LoggerFactory.getLogger(JobManager.class);
+
+    private final ThreadPoolTaskExecutor executor;
+    private final Path dir;
+    private final long retentionMillis;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public JobManager(
+            @Qualifier("jobExecutor") ThreadPoolTaskExecutor executor,
+            @Value("${cst438.jobs.dir:jobs}") String dir,
+            @Value("${cst438.jobs.retention-minutes:60}") long retentionMinutes) throws IOException {
+        this.executor = executor;
+        this.dir = Path.of(dir);
+        this.retentionMillis = retentionMinutes * 60_000;
+        Files.createDirectories(this.dir);
+        // results of jobs from before a restart can not be downloaded any more
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.dir, "*.{out,tmp}")) {
+            for (Path f : files) {
+                Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Job job : jobs.values()) {
+            job.cancelRequested = true;
+        }
+    }
+
+    // start a job.  throws 503 SERVICE_UNAVAILABLE when the job queue is full.
+    public Job submit(String type, String contentType, JobWork work) {
+        removeExpired();
+        String id = UUID.randomUUID().toString();
+        Job job = new Job(id, type, contentType, dir.resolve(id + ".out"));
+        jobs.put(id, job);
+        try {
+            job.future = executor.submit(() -> run(job, work));
+        } catch (TaskRejectedException e) {
+            jobs.remove(id);
+            throw  new ResponseStatusException( HttpStatus.SERVICE_UNAVAILABLE, "too many jobs. try again later");
+        }
+        return job;
+    }
+
+    public Job get(String id) {
+        return jobs.get(id);
+    }
+
+    // the result file of a SUCCEEDED job.  the job is not removed while a
+    // stream opened from the resource is open.
+    public Resource result(Job job) {
+        return new FileSystemResource(job.result) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                synchronized (job) {
+                    if (job.removed) {
+                        throw new FileNotFoundException("job removed " + job.id);
+                    }
+                    job.downloads++;
+                }
+                try {
+                    return new FilterInputStream(super.getInputStream()) {
+                        private boolean closed;
+
+                        @Override
+                        public void close() throws IOException {
+                            try {
+                                super.close();
+                            } finally {
+                                if (!closed) {
+                                    closed = true;
+                                    endDownload(job);
+                                }
+                            }
+                        }
+                    };
+                } catch (IOException e) {
+                    endDownload(job);
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private void endDownload(Job job) {
+        synchronized (job) {
+            job.downloads--;
+        }
+    }
+
+    // return false if the job had already finished
+    public boolean cancel(Job job) {
+        synchronized (job) {
+            if (job.isFinished()) {
+                return false;
+            }
+            job.cancelRequested = true;
+            // a job still in the queue never starts.  a running job is
+            // finished by run() when the work stops.
+            if (job.status == Job.Status.QUEUED) {
+                if (job.future != null) {
+                    job.future.cancel(false);
+                }
+                finish(job, Job.Status.CANCELLED, null);
+            }
+        }
+        return true;
+    }
+
+    private void run(Job job, JobWork work) {
+        synchronized (job) {
+            if (job.isFinished()) {
+                // cancelled while queued
+                return;
+            }
+            if (job.cancelRequested) {
+                finish(job, Job.Status.CANCELLED, null);
+                return;
+            }
+            job.status = Job.Status.RUNNING;
+            job.started = Instant.now();
+        }
+        Path tmp = job.result.resolveSibling(job.id + ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+                work.run(job, out);
+            }
+            Files.move(tmp, job.result, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            synchronized (job) {
+                // a cancel accepted after the work's last progress report
+                if (job.cancelRequested) {
+                    deleteQuietly(job.result);
+                    finish(job, Job.Status.CANCELLED, null);
+                } else {
+                    job.resultBytes = Files.size(job.result);
+                    finish(job, Job.Status.SUCCEEDED, null);
+                }
+            }
+        } catch (CancellationException e) {
+            finish(job, Job.Status.CANCELLED, null);
+        } catch (Exception e) {
+            log.warn("job {} {} failed", job.type, job.id, e);
+            finish(job, Job.Status.FAILED, e.getMessage());
+        } finally {
+            deleteQuietly(tmp);
+        }
+    }
+
+    private void finish(Job job, Job.Status status, String error) {
+        synchronized (job) {
+            job.error = error;
+            job.finished = Instant.now();
+            job.status = status;
+        }
+    }
+
+    private void removeExpired() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        jobs.values().removeIf(job -> {
+            synchronized (job) {
+                if (job.isFinished() && job.finished.toEpochMilli() < cutoff && job.downloads == 0) {
+                    job.removed = true;
+                    deleteQuietly(job.result);
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("can not delete job file {}", file, e);
+        }
+    }
+}
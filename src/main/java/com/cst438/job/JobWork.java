@@ -0,0 +1,11 @@
+package com.cst438.job;
+
+import java.io.OutputStream;
+
+/*
+ * The work of a job.  Writes the job's result to out.
+ */
+@FunctionalInterface
+public interface JobWork {
+    void run(Job job, OutputStream out) throws Exception;
+}
@@ -0,0 +1,117 @@
+package com.cst438.job;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/*
+ * Term wide CSV exports run as jobs.
+ *
+ * Rows are streamed from a JDBC result set straight to the job's result
+ * file, so an export of any size uses little memory.  Each export runs in
+ * one read only transaction, which is sent to the read replica when replica
+ * routing is enabled.
+ */
+@Component
+public class Reports {
+
+    // rows between progress reports (and cancellation checks)
+    private static final int PROGRESS_ROWS = 500;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate readOnly;
+
+    public Reports(PlatformTransactionManager transactionManager) {
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    // every enrollment of the term with the student and final grade
+    public void rosterExport(int termId, Job job, OutputStream out) throws IOException {
+        export(job, out,
+                "course_id,sec_id,section_no,student_id,name,email,grade",
+                "select count(*) from enrollment e join section s on e.section_no=s.section_no where s.term_id=?",
+                "select s.course_id, s.sec_id, s.section_no, u.id, u.name, u.email, e.grade " +
+                "from enrollment e join section s on e.section_no=s.section_no " +
+                "join user_table u on e.user_id=u.id " +
+                "where s.term_id=? order by s.course_id, s.sec_id, u.name",
+                termId);
+    }
+
+    // every enrollment of the term with the number of scored assignments,
+    // the average assignment score and the final grade
+    public void gradeReport(int termId, Job job, OutputStream out) throws IOException {
+        export(job, out,
+                "course_id,sec_id,section_no,student_id,name,scored,average,grade",
+                "select count(*) from enrollment e join section s on e.section_no=s.section_no where s.term_id=?",
+                "select s.course_id, s.sec_id, s.section_no, u.id, u.name, count(g.score), avg(cast(g.score as double)), e.grade " +
+                "from enrollment e join section s on e.section_no=s.section_no " +
+                "join user_table u on e.user_id=u.id " +
+                "left join grade g on g.enrollment_id=e.enrollment_id " +
+                "where s.term_id=? " +
+                "group by s.course_id, s.sec_id, s.section_no, u.id, u.name, e.enrollment_id, e.grade " +
+                "order by s.course_id, s.sec_id, u.name",
+                termId);
+    }
+
+    private void export(Job job, OutputStream out, String header, String countSql, String sql, Object... args)
+            throws IOException {
+        Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        w.write(header);
+        w.write('\n');
+        try {
+            readOnly.executeWithoutResult(status -> {
+                job.setTotal(jdbcTemplate.queryForObject(countSql, Long.class, args));
+                long[] rows = {0};
+                jdbcTemplate.query(sql, rs -> {
+                    writeRow(w, rs);
+                    if (++rows[0] % PROGRESS_ROWS == 0) {
+                        job.advance(PROGRESS_ROWS);
+                    }
+                }, args);
+                job.advance(rows[0] % PROGRESS_ROWS);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        w.flush();
+    }
+
+    private static void writeRow(Writer w, ResultSet rs) throws SQLException {
+        try {
+            int n = rs.getMetaData().getColumnCount();
+            for (int i=1; i<=n; i++) {
+                if (i > 1) {
+                    w.write(',');
+                }
+                String value = rs.getString(i);
+                if (value != null) {
+                    w.write(csv(value));
+                }
+            }
+            w.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
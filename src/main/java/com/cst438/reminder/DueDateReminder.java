@@ -0,0 +1,22 @@
+package com.cst438.reminder;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/*
+ * Reminder sent to the students of one section about the section's
+ * assignments that are due soon.
+ */
+public record DueDateReminder(
+        int sectionNo,
+        String courseId,
+        int secId,
+        List<Due> assignments,
+        List<Student> students
+) {
+    public record Due(int assignmentId, String title, LocalDate dueDate) {
+    }
+
+    public record Student(int id, String name, String email) {
+    }
+}
@@ -0,0 +1,289 @@
+package com.cst438.reminder;
+
+import com.cst438.domain.*;
+import com.cst438.event.ChangeEvent;
+import com.cst438.event.ChangeSubscriber;
+import com.cst438.event.EntityType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Reminds the students of a section lead-hours before each assignment of
+ * the section is due.  An assignment is due at due-time on its due date.
+ *
+ * Upcoming reminders are kept in a timing wheel with one tick per
+ * tick-seconds.  The wheel is loaded once at startup with the assignments
+ * that are not yet due, and then kept up to date by AssignmentController
+ * as assignments are created, changed and deleted.  Bulk statements that
+ * change assignments (rollover, cascading deletes, imports) publish an
+ * "all assignments changed" event, after which the wheel is loaded again.
+ *
+ * Every tick the reminder thread takes the reminders that are due from
+ * the wheel, so its cost depends on the number of reminders due, not on
+ * the number of assignments or enrollments.  The due assignments are
+ * re-read in one query, which drops deleted assignments and moves ones
+ * whose due date changed, and the students of their sections are read
+ * in one more query.  Each section gets one reminder listing all of its
+ * assignments due at that time, sent to every ReminderSink.
+ */
+@Component
+public class DueDateReminders implements ChangeSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(DueDateReminders.class);
+
+    @Autowired
+    AssignmentRepository assignmentRepository;
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    // an assignment with the due date it was scheduled for
+    private record Due(int assignmentId, int sectionNo, LocalDate dueDate) {
+    }
+
+    private final ObjectProvider<ReminderSink> sinkProvider;
+    private final long tickMillis;
+    private final long leadMillis;
+    private final LocalTime dueTime;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // guarded by this
+    private final TimingWheel<Due> wheel;
+    private final Map<Integer, TimingWheel.Entry<Due>> scheduled = new HashMap<>();
+    // while reloads are reading assignments, the number of the latest
+    // schedule or cancel of each assignment.  a reload keeps what was
+    // scheduled after it started reading instead of its own older copy.
+    private int reloads;
+    private long changes;
+    private final Map<Integer, Long> changed = new HashMap<>();
+
+    private final ScheduledExecutorService ticker;
+
+    public DueDateReminders(
+            ObjectProvider<ReminderSink> sinkProvider,
+            @Value("${cst438.reminders.tick-seconds:60}") long tickSeconds,
+            @Value("${cst438.reminders.lead-hours:24}") long leadHours,
+            @Value("${cst438.reminders.due-time:23:59}") String dueTime) {
+        this.sinkProvider = sinkProvider;
+        this.tickMillis = TimeUnit.SECONDS.toMillis(tickSeconds);
+        this.leadMillis = TimeUnit.HOURS.toMillis(leadHours);
+        this.dueTime = LocalTime.parse(dueTime);
+        this.wheel = new TimingWheel<>(System.currentTimeMillis() / tickMillis);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "due-reminders");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    // schedule the reminder for a new assignment or a changed due date.
+    // if the reminder time has passed but the assignment is not yet due,
+    // the reminder goes out on the next tick.
+    public synchronized void schedule(Assignment a) {
+        changed(a.getAssignmentId());
+        schedule(a.getAssignmentId(), a.getSection().getSectionNo(), a.getDueDate(), true);
+    }
+
+    public synchronized void cancel(int assignmentId) {
+        changed(assignmentId);
+        remove(assignmentId);
+    }
+
+    // number of reminders waiting to be sent
+    public synchronized int pending() {
+        return wheel.size();
+    }
+
+    @Override
+    public Set<EntityType> types() {
+        return Set.of(EntityType.ASSIGNMENT);
+    }
+
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        // single assignments are scheduled by AssignmentController.
+        // assignments removed by a section delete arrive as delete events.
+        for (ChangeEvent e : events) {
+            if (e.isAll()) {
+                reload();
+                return;
+            }
+            if (e.kind() == ChangeEvent.Kind.DELETE) {
+                cancel((Integer) e.id());
+            }
+        }
+    }
+
+    private void changed(int assignmentId) {
+        if (reloads > 0) {
+            changed.put(assignmentId, ++changes);
+        }
+    }
+
+    private void remove(int assignmentId) {
+        TimingWheel.Entry<Due> e = scheduled.remove(assignmentId);
+        if (e != null) {
+            wheel.cancel(e);
+        }
+    }
+
+    // caller holds the lock
+    private void schedule(int assignmentId, int sectionNo, Date dueDate, boolean late) {
+        remove(assignmentId);
+        if (dueDate == null) {
+            return;
+        }
+        LocalDate date = dueDate.toLocalDate();
+        long dueMillis = date.atTime(dueTime).atZone(zone).toInstant().toEpochMilli();
+        long remindMillis = dueMillis - leadMillis;
+        long now = System.currentTimeMillis();
+        if (dueMillis <= now || (!late && remindMillis <= now)) {
+            return;
+        }
+        long remindTick = (remindMillis + tickMillis - 1) / tickMillis;
+        scheduled.put(assignmentId, wheel.add(remindTick, new Due(assignmentId, sectionNo, date)));
+    }
+
+    // replace the wheel's contents with the assignments that are not yet due.
+    // reminders whose time has passed are assumed to have been sent.
+    // an assignment scheduled or cancelled while the query runs keeps what
+    // that call did, since the query may have read the assignment before it.
+    private void reload() {
+        long started;
+        synchronized (this) {
+            reloads++;
+            started = changes;
+        }
+        try {
+            List<AssignmentDue> upcoming = assignmentRepository.findDueOnOrAfter(Date.valueOf(LocalDate.now(zone)));
+            synchronized (this) {
+                List<Integer> ids = new ArrayList<>(scheduled.keySet());
+                for (Integer id : ids) {
+                    if (!changedSince(id, started)) {
+                        remove(id);
+                    }
+                }
+                for (AssignmentDue a : upcoming) {
+                    if (!changedSince(a.getAssignmentId(), started)) {
+                        schedule(a.getAssignmentId(), a.getSectionNo(), a.getDueDate(), false);
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                if (--reloads == 0) {
+                    changed.clear();
+                }
+            }
+        }
+        log.info("{} due date reminders scheduled", pending());
+    }
+
+    private boolean changedSince(int assignmentId, long started) {
+        Long n = changed.get(assignmentId);
+        return n != null && n > started;
+    }
+
+    private void tick() {
+        List<Due> expired = new ArrayList<>();
+        synchronized (this) {
+            wheel.advance(System.currentTimeMillis() / tickMillis, expired::add);
+            for (Due d : expired) {
+                TimingWheel.Entry<Due> e = scheduled.get(d.assignmentId());
+                if (e != null && e.value == d) {
+                    scheduled.remove(d.assignmentId());
+                }
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        try {
+            send(expired);
+        } catch (RuntimeException e) {
+            // a failed tick must not cancel the schedule of later ticks
+            log.error("sending {} due date reminders failed", expired.size(), e);
+        }
+    }
+
+    private void send(List<Due> expired) {
+        Map<Integer, Due> byId = new HashMap<>();
+        for (Due d : expired) {
+            byId.put(d.assignmentId(), d);
+        }
+        Map<Integer, List<Assignment>> bySection = new TreeMap<>();
+        for (Assignment a : assignmentRepository.findWithSectionByIdIn(byId.keySet())) {
+            Due d = byId.get(a.getAssignmentId());
+            if (a.getDueDate() == null || !a.getDueDate().toLocalDate().equals(d.dueDate())) {
+                // changed by a statement that did not go through AssignmentController
+                schedule(a);
+                continue;
+            }
+            bySection.computeIfAbsent(a.getSection().getSectionNo(), k -> new ArrayList<>()).add(a);
+        }
+        if (bySection.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, List<DueDateReminder.Student>> students = new HashMap<>();
+        for (SectionStudent s : enrollmentRepository.findStudentsBySectionNoIn(bySection.keySet())) {
+            students.computeIfAbsent(s.getSectionNo(), k -> new ArrayList<>())
+                    .add(new DueDateReminder.Student(s.getStudentId(), s.getName(), s.getEmail()));
+        }
+
+        List<ReminderSink> sinks = sinkProvider.orderedStream().toList();
+        for (Map.Entry<Integer, List<Assignment>> e : bySection.entrySet()) {
+            List<DueDateReminder.Student> recipients = students.get(e.getKey());
+            if (recipients == null) {
+                continue;
+            }
+            Section s = e.getValue().get(0).getSection();
+            List<DueDateReminder.Due> due = new ArrayList<>();
+            for (Assignment a : e.getValue()) {
+                due.add(new DueDateReminder.Due(a.getAssignmentId(), a.getTitle(), a.getDueDate().toLocalDate()));
+            }
+            DueDateReminder reminder = new DueDateReminder(
+                    s.getSectionNo(), s.getCourse().getCourseId(), s.getSecId(), due, recipients);
+            for (ReminderSink sink : sinks) {
+                try {
+                    sink.send(reminder);
+                } catch (RuntimeException ex) {
+                    // one failing sink must not stop delivery to the others
+                    log.warn("reminder sink {} failed", sink.getClass().getName(), ex);
+                }
+            }
+        }
+    }
+}
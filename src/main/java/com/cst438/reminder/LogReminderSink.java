@@ -0,0 +1,24 @@
+package com.cst438.reminder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/*
+ * Writes due date reminders to the log.  Used until a sink that reaches
+ * students, such as email, is configured.
+ */
+@Component
+public class LogReminderSink implements ReminderSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LogReminderSink.class);
+
+    @Override
+    public void send(DueDateReminder reminder) {
+        for (DueDateReminder.Due a : reminder.assignments()) {
+            log.info("reminder {}-{} section {}: \"{}\" due {} sent to {} students",
+                    reminder.courseId(), reminder.secId(), reminder.sectionNo(),
+                    a.title(), a.dueDate(), reminder.students().size());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.cst438.reminder;
+
+/*
+ * Delivers due date reminders, for example by email.  Every ReminderSink
+ * bean is sent every reminder.  send is called on the reminder thread,
+ * one section at a time.
+ */
+public interface ReminderSink {
+
+    void send(DueDateReminder reminder);
+}
@@ -0,0 +1,136 @@
+package com.cst438.reminder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+ * Hierarchical timing wheel of values that expire at a tick.
+ *
+ * Level 0 has one slot per tick for the next 64 ticks, level 1 one slot
+ * per 64 ticks, level 2 one per 64*64 ticks and level 3 one per 64^3
+ * ticks.  A value is kept in the lowest level whose current block holds
+ * its deadline.  When the clock reaches the start of a slot of a higher
+ * level, the slot's values move down to the lower levels, so every value
+ * is moved at most LEVELS-1 times before it expires.  Adding, cancelling
+ * and advancing one tick are constant time whatever the number of values.
+ *
+ * Deadlines beyond the top level wait in an overflow list that is placed
+ * again each time the top level wraps around.
+ *
+ * Not thread safe.  The caller synchronizes.
+ */
+class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    static final class Entry<T> {
+        final long deadline;
+        final T value;
+        private boolean cancelled;
+
+        private Entry(long deadline, T value) {
+            this.deadline = deadline;
+            this.value = value;
+        }
+    }
+
+    // slots[level][slot]
+    private final List<List<Entry<T>>> slots = new ArrayList<>();
+    private final List<Entry<T>> overflow = new ArrayList<>();
+    // deadlines that were not in the future when added
+    private final List<Entry<T>> ready = new ArrayList<>();
+    private long now;
+    private int size;
+
+    TimingWheel(long now) {
+        this.now = now;
+        for (int i=0; i<LEVELS*SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    Entry<T> add(long deadline, T value) {
+        Entry<T> e = new Entry<>(deadline, value);
+        place(e);
+        size++;
+        return e;
+    }
+
+    // the entry's value will not expire.  the entry stays in its slot until
+    // the slot is next visited.
+    void cancel(Entry<T> e) {
+        if (!e.cancelled) {
+            e.cancelled = true;
+            size--;
+        }
+    }
+
+    // move the clock forward to tick and pass the values that expired, in
+    // deadline order, to the consumer
+    void advance(long tick, Consumer<T> expired) {
+        // late adds are in the order they were added
+        ready.sort(Comparator.comparingLong(e -> e.deadline));
+        expire(ready, expired);
+        while (now < tick) {
+            now++;
+            for (int level=LEVELS-1; level>0; level--) {
+                if ((now & ((1L << (BITS * level)) - 1)) == 0) {
+                    List<Entry<T>> slot = slot(level, (int) (now >>> (BITS * level)) & MASK);
+                    List<Entry<T>> cascade = new ArrayList<>(slot);
+                    slot.clear();
+                    for (Entry<T> e : cascade) {
+                        if (!e.cancelled) {
+                            place(e);
+                        }
+                    }
+                }
+            }
+            if ((now & ((1L << (BITS * LEVELS)) - 1)) == 0 && !overflow.isEmpty()) {
+                List<Entry<T>> far = new ArrayList<>(overflow);
+                overflow.clear();
+                far.forEach(this::place);
+            }
+            expire(ready, expired);
+            expire(slot(0, (int) now & MASK), expired);
+        }
+    }
+
+    private void place(Entry<T> e) {
+        if (e.deadline <= now) {
+            ready.add(e);
+            return;
+        }
+        for (int level=0; level<LEVELS; level++) {
+            int above = BITS * (level + 1);
+            if ((e.deadline >>> above) == (now >>> above)) {
+                slot(level, (int) (e.deadline >>> (BITS * level)) & MASK).add(e);
+                return;
+            }
+        }
+        overflow.add(e);
+    }
+
+    private void expire(List<Entry<T>> list, Consumer<T> expired) {
+        for (Entry<T> e : list) {
+            if (!e.cancelled) {
+                e.cancelled = true;
+                size--;
+                expired.accept(e.value);
+            }
+        }
+        list.clear();
+    }
+
+    private List<Entry<T>> slot(int level, int index) {
+        return slots.get(level * SLOTS + index);
+    }
+}
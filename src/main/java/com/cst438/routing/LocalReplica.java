@@ -0,0 +1,166 @@
+package com.cst438.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ * Stand-in read replica for running locally on H2.
+ *
+ * Two in-memory H2 databases take turns as the replica.  Every syncMillis
+ * the primary is copied with the H2 SCRIPT command into the database that
+ * is not in use, which then becomes the replica.  The replica therefore
+ * lags the primary by up to syncMillis plus the copy time, like a real
+ * asynchronous replica.
+ *
+ * Each copy counts its open connections.  A reader that got the copy just
+ * before a swap may still be running on it, so a copy is only dropped and
+ * reloaded once all of its connections are closed.  If they are not closed
+ * within syncMillis the copy is skipped and the active one is kept.
+ */
+public class LocalReplica extends AbstractDataSource implements ReplicaLag {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalReplica.class);
+
+    private final DataSource primary;
+    private final DataSource[] copies = new DataSource[2];
+    private final long syncMillis;
+    private final ScheduledExecutorService scheduler;
+    // open connections of each copy
+    private final AtomicIntegerArray readers = new AtomicIntegerArray(2);
+
+    private volatile int active = -1;
+    private volatile long copiedAt;   // time the active copy was read from the primary
+
+    public LocalReplica(DataSource primary, long syncMillis) {
+        this.primary = primary;
+        this.syncMillis = syncMillis;
+        for (int i=0; i<copies.length; i++) {
+            copies[i] = new DriverManagerDataSource("jdbc:h2:mem:replica"+i+";DB_CLOSE_DELAY=-1", "sa", "");
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "local-replica");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // begin copying.  called once the primary schema and data are loaded.
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::sync, 0, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public long lagMillis() {
+        return (active < 0) ? Long.MAX_VALUE : System.currentTimeMillis() - copiedAt;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        while (true) {
+            int i = active;
+            if (i < 0) {
+                throw new SQLException("local replica is not loaded yet");
+            }
+            readers.incrementAndGet(i);
+            if (active != i) {
+                // swapped while counting; the copy may be about to be dropped
+                readers.decrementAndGet(i);
+                continue;
+            }
+            try {
+                return counted(copies[i].getConnection(), i);
+            } catch (SQLException | RuntimeException e) {
+                readers.decrementAndGet(i);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    private void sync() {
+        int target = (active == 0) ? 1 : 0;
+        long start = System.currentTimeMillis();
+        if (!drained(target, start + syncMillis)) {
+            log.warn("local replica copy {} still has {} open connections, not reloaded", target, readers.get(target));
+            return;
+        }
+        try {
+            List<String> script = new ArrayList<>();
+            try (Connection c = primary.getConnection();
+                 Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS")) {
+                while (rs.next()) {
+                    script.add(rs.getString(1));
+                }
+            }
+            try (Connection c = copies[target].getConnection();
+                 Statement st = c.createStatement()) {
+                st.execute("DROP ALL OBJECTS");
+                for (String sql : script) {
+                    st.execute(sql);
+                }
+            }
+            copiedAt = start;
+            active = target;
+        } catch (SQLException e) {
+            log.warn("local replica copy failed", e);
+        }
+    }
+
+    // wait until the connections of the copy are closed
+    private boolean drained(int copy, long deadline) {
+        while (readers.get(copy) > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // a connection that gives up its count of the copy when closed
+    private Connection counted(Connection c, int copy) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        readers.decrementAndGet(copy);
+                    }
+                    try {
+                        return method.invoke(c, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,63 @@
+package com.cst438.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Replica lag of an external replica, measured by running a database
+ * specific query on the replica that returns the lag in milliseconds, e.g.
+ * for PostgreSQL
+ *   select extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000
+ * If no query is configured the replica is assumed to be current.
+ */
+public class QueryReplicaLag implements ReplicaLag {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryReplicaLag.class);
+
+    private final DataSource replica;
+    private final String query;
+    private final ScheduledExecutorService scheduler;
+    private volatile long lag;
+
+    public QueryReplicaLag(DataSource replica, String query, long intervalMillis) {
+        this.replica = replica;
+        this.query = query;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-lag");
+            t.setDaemon(true);
+            return t;
+        });
+        if (query != null && !query.isBlank()) {
+            scheduler.scheduleWithFixedDelay(this::measure, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public long lagMillis() {
+        return lag;
+    }
+
+    private void measure() {
+        try (Connection c = replica.getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(query)) {
+            lag = rs.next() ? rs.getLong(1) : Long.MAX_VALUE;
+        } catch (Exception e) {
+            // replica unreachable.  send reads to the primary.
+            lag = Long.MAX_VALUE;
+            log.warn("replica lag query failed", e);
+        }
+    }
+}
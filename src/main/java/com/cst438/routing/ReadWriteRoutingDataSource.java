@@ -0,0 +1,43 @@
+package com.cst438.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/*
+ * Sends read only transactions to the replica and everything else to the
+ * primary.  Reads also go to the primary when the replica is further behind
+ * than maxLagMillis, or when the thread's RoutingContext forces the primary.
+ *
+ * The read only flag of a transaction is known only after the transaction
+ * manager has asked for a connection, so this data source must be wrapped
+ * in a LazyConnectionDataSourceProxy.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route { PRIMARY, REPLICA }
+
+    private final ReplicaLag replicaLag;
+    private final long maxLagMillis;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLag replicaLag, long maxLagMillis) {
+        this.replicaLag = replicaLag;
+        this.maxLagMillis = maxLagMillis;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !RoutingContext.isForcePrimary()
+                && replicaLag.lagMillis() <= maxLagMillis) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+}
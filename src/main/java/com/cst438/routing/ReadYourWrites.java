@@ -0,0 +1,60 @@
+package com.cst438.routing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Remembers students that changed their own data recently, so that their
+ * reads are served by the primary until the replica has caught up and the
+ * student sees their own change.
+ *
+ * Requests naming the student with a studentId parameter are marked by
+ * ReadYourWritesInterceptor.  Writes that find their students from other
+ * data, such as a drop by enrollment id or a cohort enrollment, call
+ * markWrite themselves.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final long stickyMillis;
+
+    // time until which the student's reads go to the primary, by student id
+    private final Map<Integer, Long> until = new ConcurrentHashMap<>();
+
+    public ReadYourWrites(@Value("${cst438.replica.sticky-millis:5000}") long stickyMillis) {
+        this.stickyMillis = stickyMillis;
+    }
+
+    // mark the student once the caller's transaction commits, or now if
+    // there is no transaction
+    public void markWrite(int studentId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            mark(studentId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                mark(studentId);
+            }
+        });
+    }
+
+    private void mark(int studentId) {
+        long now = System.currentTimeMillis();
+        until.put(studentId, now + stickyMillis);
+        if (until.size() > 10000) {
+            until.values().removeIf(t -> t < now);
+        }
+    }
+
+    public boolean mustReadPrimary(int studentId) {
+        Long t = until.get(studentId);
+        return t != null && t > System.currentTimeMillis();
+    }
+}
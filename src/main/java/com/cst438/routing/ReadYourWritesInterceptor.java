@@ -0,0 +1,56 @@
+package com.cst438.routing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/*
+ * Finds the student of a request from the studentId request parameter or
+ * path variable.  A successful POST, PUT or DELETE marks the student as having
+ * written; later requests for a marked student read from the primary.
+ */
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesInterceptor(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Integer studentId = studentId(request);
+        RoutingContext.setForcePrimary(studentId != null && readYourWrites.mustReadPrimary(studentId));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RoutingContext.setForcePrimary(false);
+        if (ex == null && response.getStatus() < 400 && !request.getMethod().equals("GET")) {
+            Integer studentId = studentId(request);
+            if (studentId != null) {
+                readYourWrites.markWrite(studentId);
+            }
+        }
+    }
+
+    private static Integer studentId(HttpServletRequest request) {
+        String id = request.getParameter("studentId");
+        if (id == null) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> vars = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            if (vars != null) {
+                id = vars.get("studentId");
+            }
+        }
+        try {
+            return (id != null) ? Integer.valueOf(id) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.cst438.routing;
+
+/*
+ * Reports how far the read replica is behind the primary database.
+ */
+public interface ReplicaLag {
+
+    // milliseconds of committed primary changes the replica may not have yet.
+    // Long.MAX_VALUE if the replica is not available.
+    long lagMillis();
+}
@@ -0,0 +1,50 @@
+package com.cst438.routing;
+
+import java.util.concurrent.Callable;
+
+/*
+ * Per thread routing hint.  When forcePrimary is set, read only transactions
+ * on the thread use the primary database instead of the replica.  Set for a
+ * request by ReadYourWritesInterceptor.
+ */
+public class RoutingContext {
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    public static boolean isForcePrimary() {
+        return Boolean.TRUE.equals(FORCE_PRIMARY.get());
+    }
+
+    public static void setForcePrimary(boolean forcePrimary) {
+        if (forcePrimary) {
+            FORCE_PRIMARY.set(Boolean.TRUE);
+        } else {
+            FORCE_PRIMARY.remove();
+        }
+    }
+
+    // carry the hint of the calling thread to a task run on another thread
+    public static Runnable wrap(Runnable task) {
+        boolean force = isForcePrimary();
+        return () -> {
+            setForcePrimary(force);
+            try {
+                task.run();
+            } finally {
+                setForcePrimary(false);
+            }
+        };
+    }
+
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        boolean force = isForcePrimary();
+        return () -> {
+            setForcePrimary(force);
+            try {
+                return task.call();
+            } finally {
+                setForcePrimary(false);
+            }
+        };
+    }
+}
@@ -0,0 +1,229 @@
+package com.cst438.search;
+
+import com.cst438.dto.SectionDTO;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/*
+ * Bitmap index of the sections of one term.
+ *
+ * The sections are numbered 0..n-1 in course id and section id order.
+ * Every value of every searchable attribute has a bitmap of the sections
+ * with that value: each meeting day, start hour and end hour, building,
+ * instructor, credits and subject (the letters of the course id).  A
+ * search ANDs the bitmaps of its filters, ORing the bitmaps of the values
+ * of a list filter, so its cost depends on the number of filters and
+ * sections, not on how selective they are.  Minutes within the boundary
+ * hours of a time window and course prefixes longer than the subject are
+ * checked on the sections left after the bitmaps.  A prefix of a subject,
+ * such as "cs", ORs the bitmaps of every subject starting with it.
+ *
+ * A term has a few hundred sections, so a bitmap is a few words and
+ * java.util.BitSet needs no compression.
+ *
+ * Immutable.  A change to a section makes a new index.
+ */
+final class SectionIndex {
+
+    record Row(SectionDTO section, int credits, SectionTimes times) {
+    }
+
+    final int termId;
+    // when the index was last searched, to pick the index to drop when full
+    volatile long lastUsed = System.nanoTime();
+
+    private final List<Row> rows;
+    private final BitSet all;
+    private final BitSet scheduled = new BitSet();
+    private final BitSet[] days = bitmaps(SectionTimes.DAYS.length);
+    private final BitSet[] startHours = bitmaps(24);
+    private final BitSet[] endHours = bitmaps(25);
+    private final Map<String, BitSet> buildings = new HashMap<>();
+    private final Map<String, BitSet> instructors = new HashMap<>();
+    private final Map<Integer, BitSet> credits = new HashMap<>();
+    private final NavigableMap<String, BitSet> subjects = new TreeMap<>();
+
+    SectionIndex(int termId, List<Row> rows) {
+        this.termId = termId;
+        this.rows = new ArrayList<>(rows);
+        this.rows.sort(Comparator.comparing((Row r) -> r.section().courseId())
+                .thenComparingInt(r -> r.section().secId()));
+        this.all = new BitSet(this.rows.size());
+        this.all.set(0, this.rows.size());
+        for (int i=0; i<this.rows.size(); i++) {
+            Row r = this.rows.get(i);
+            SectionTimes t = r.times();
+            if (t != null) {
+                scheduled.set(i);
+                for (int d=0; d<days.length; d++) {
+                    if ((t.days() & (1 << d)) != 0) {
+                        days[d].set(i);
+                    }
+                }
+                startHours[t.start() / 60].set(i);
+                endHours[t.end() / 60].set(i);
+            }
+            SectionDTO s = r.section();
+            add(buildings, s.building(), i);
+            add(instructors, s.instructorEmail(), i);
+            add(credits, r.credits(), i);
+            add(subjects, subject(s.courseId()), i);
+        }
+    }
+
+    // this index with the section added, or replaced if it is already in the index
+    SectionIndex with(Row row) {
+        List<Row> list = new ArrayList<>(rows.size() + 1);
+        for (Row r : rows) {
+            if (r.section().secNo() != row.section().secNo()) {
+                list.add(r);
+            }
+        }
+        list.add(row);
+        return new SectionIndex(termId, list);
+    }
+
+    SectionIndex without(int sectionNo) {
+        List<Row> list = new ArrayList<>(rows.size());
+        for (Row r : rows) {
+            if (r.section().secNo() != sectionNo) {
+                list.add(r);
+            }
+        }
+        return new SectionIndex(termId, list);
+    }
+
+    boolean contains(int sectionNo) {
+        for (Row r : rows) {
+            if (r.section().secNo() == sectionNo) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    List<SectionDTO> search(SectionQuery q) {
+        BitSet result = (BitSet) all.clone();
+        if (q.bySchedule()) {
+            result.and(scheduled);
+        }
+        if (q.days() != null) {
+            for (int d=0; d<days.length; d++) {
+                if ((q.days() & (1 << d)) == 0) {
+                    result.andNot(days[d]);
+                }
+            }
+        }
+        if (q.from() != null) {
+            result.and(union(startHours, q.from() / 60, startHours.length - 1));
+        }
+        if (q.to() != null) {
+            result.and(union(endHours, 0, Math.min(q.to() / 60, endHours.length - 1)));
+        }
+        and(result, buildings, q.buildings());
+        and(result, instructors, q.instructors());
+        and(result, credits, q.credits());
+        String subject = q.subject();
+        if (subject != null && !subject.isEmpty()) {
+            // every subject that starts with the letters
+            BitSet any = new BitSet();
+            for (BitSet b : subjects.subMap(subject, true, subject + Character.MAX_VALUE, false).values()) {
+                any.or(b);
+            }
+            result.and(any);
+        }
+
+        boolean check = q.from() != null || q.to() != null
+                || (q.course() != null && (q.course().length() > subject.length() || !subjects.containsKey(subject)));
+        List<SectionDTO> list = new ArrayList<>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            Row r = rows.get(i);
+            if (!check || matches(q, r)) {
+                list.add(r.section());
+            }
+        }
+        return list;
+    }
+
+    // the search without an index, for one section
+    static boolean matches(SectionQuery q, Row r) {
+        SectionTimes t = r.times();
+        if (q.bySchedule() && t == null) {
+            return false;
+        }
+        if (q.days() != null && (t.days() & ~q.days()) != 0) {
+            return false;
+        }
+        if ((q.from() != null && t.start() < q.from()) || (q.to() != null && t.end() > q.to())) {
+            return false;
+        }
+        SectionDTO s = r.section();
+        if (!isEmpty(q.buildings()) && !q.buildings().contains(s.building())) {
+            return false;
+        }
+        if (!isEmpty(q.instructors()) && !q.instructors().contains(s.instructorEmail())) {
+            return false;
+        }
+        if (!isEmpty(q.credits()) && !q.credits().contains(r.credits())) {
+            return false;
+        }
+        return q.course() == null || s.courseId().toLowerCase().startsWith(q.course().toLowerCase());
+    }
+
+    // the leading letters of a course id, lower case
+    static String subject(String courseId) {
+        int i = 0;
+        while (i < courseId.length() && Character.isLetter(courseId.charAt(i))) {
+            i++;
+        }
+        return courseId.substring(0, i).toLowerCase();
+    }
+
+    private static <K> void add(Map<K, BitSet> index, K value, int row) {
+        if (value != null) {
+            index.computeIfAbsent(value, k -> new BitSet()).set(row);
+        }
+    }
+
+    // AND the result with the OR of the bitmaps of the values
+    private static <K> void and(BitSet result, Map<K, BitSet> index, List<K> values) {
+        if (isEmpty(values)) {
+            return;
+        }
+        BitSet any = new BitSet();
+        for (K value : values) {
+            BitSet b = index.get(value);
+            if (b != null) {
+                any.or(b);
+            }
+        }
+        result.and(any);
+    }
+
+    private static BitSet union(BitSet[] bitmaps, int from, int to) {
+        BitSet any = new BitSet();
+        for (int i=from; i<=to; i++) {
+            any.or(bitmaps[i]);
+        }
+        return any;
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private static BitSet[] bitmaps(int n) {
+        BitSet[] b = new BitSet[n];
+        for (int i=0; i<n; i++) {
+            b[i] = new BitSet();
+        }
+        return b;
+    }
+}
@@ -0,0 +1,61 @@
+package com.cst438.search;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/*
+ * Filters of a section search within one term.  A null or empty filter
+ * matches every section.  Filters are combined with AND; the values of
+ * a list filter with OR.
+ *
+ *   days         the days the student can attend.  a section matches if
+ *                it meets on no other day.  bit mask of SectionTimes.DAYS
+ *   from, to     minutes after midnight.  a section matches if it starts
+ *                at or after from and ends at or before to
+ *   buildings    building of the section
+ *   instructors  instructor email
+ *   credits      credits of the course
+ *   course       start of the course id, for example "cst" or "cst3"
+ */
+public record SectionQuery(
+        int year,
+        String semester,
+        Integer days,
+        Integer from,
+        Integer to,
+        List<String> buildings,
+        List<String> instructors,
+        List<Integer> credits,
+        String course
+) {
+
+    // bit mask of days written as "MW", "M,W" or "T Th"
+    public static int parseDays(String days) {
+        int mask = SectionTimes.parseDays(days);
+        if (mask <= 0) {
+            throw new IllegalArgumentException("invalid days " + days);
+        }
+        return mask;
+    }
+
+    // minutes after midnight of a 24 hour time such as "13:30"
+    public static int parseTime(String time) {
+        try {
+            return LocalTime.parse(time).toSecondOfDay() / 60;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid time " + time);
+        }
+    }
+
+    // true if the search needs the meeting times of the sections
+    boolean bySchedule() {
+        return days != null || from != null || to != null;
+    }
+
+    // the letters the course id starts with, the part of course that the
+    // index can look up.  for "cst3" this is "cst".
+    String subject() {
+        return (course == null) ? null : SectionIndex.subject(course);
+    }
+}
@@ -0,0 +1,229 @@
+package com.cst438.search;
+
+import com.cst438.domain.*;
+import com.cst438.dto.SectionDTO;
+import com.cst438.event.ChangeEvent;
+import com.cst438.event.ChangeSubscriber;
+import com.cst438.event.EntityType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Section search by days, time window, building, instructor, credits and
+ * course prefix, answered from a SectionIndex of the term.
+ *
+ * The index of a term is built the first time the term is searched.
+ * Until it is ready, searches of the term read its sections from the
+ * database and filter them.  Up to max-terms indexes are kept; the one
+ * searched least recently is dropped to make room for another.
+ *
+ * Committed section changes arrive from the ChangeEventBus.  The changed
+ * section is read again and the index of its term is replaced by one
+ * with the new section.  Changes to courses, terms and existing users,
+ * and bulk changes, drop every index.
+ *
+ * Builds and changes are applied one at a time on the section-index
+ * thread.  A build reads the database after every change applied before
+ * it, and a change committed while a build runs is applied after the
+ * build, so an index never misses a change.
+ */
+@Component
+public class SectionSearch implements ChangeSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(SectionSearch.class);
+
+    @Autowired
+    SectionRepository sectionRepository;
+
+    @Autowired
+    TermRepository termRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    private final int maxTerms;
+    private final Map<Integer, SectionIndex> indexes = new ConcurrentHashMap<>();
+    // terms with a build waiting or running
+    private final Set<Integer> building = ConcurrentHashMap.newKeySet();
+    private final ExecutorService indexer;
+
+    public SectionSearch(@Value("${cst438.search.max-terms:8}") int maxTerms) {
+        this.maxTerms = maxTerms;
+        this.indexer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "section-index");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+    }
+
+    // sections of the query's term that match it, in course id and section id order.
+    // null if there is no such term.
+    public List<SectionDTO> search(SectionQuery q) {
+        Term term = termRepository.findByYearAndSemester(q.year(), q.semester());
+        if (term == null) {
+            return null;
+        }
+        SectionIndex index = indexes.get(term.getTermId());
+        if (index != null) {
+            index.lastUsed = System.nanoTime();
+            return index.search(q);
+        }
+        build(term.getTermId(), q.year(), q.semester());
+        List<SectionDTO> list = new ArrayList<>();
+        for (SectionIndex.Row r : load(q.year(), q.semester())) {
+            if (SectionIndex.matches(q, r)) {
+                list.add(r.section());
+            }
+        }
+        return list;
+    }
+
+    // true once the index of the term is built
+    boolean isIndexed(int termId) {
+        return indexes.containsKey(termId);
+    }
+
+    @Override
+    public Set<EntityType> types() {
+        return Set.of(EntityType.SECTION, EntityType.COURSE, EntityType.TERM, EntityType.USER);
+    }
+
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        indexer.execute(() -> {
+            try {
+                apply(events);
+            } catch (RuntimeException e) {
+                log.warn("section index update failed, dropping all indexes", e);
+                indexes.clear();
+            }
+        });
+    }
+
+    private void apply(List<ChangeEvent> events) {
+        for (ChangeEvent e : events) {
+            if (e.type() == EntityType.USER && e.kind() == ChangeEvent.Kind.INSERT && !e.isAll()) {
+                // a new user is not yet the instructor of any section
+                continue;
+            }
+            if (e.type() != EntityType.SECTION || e.isAll()) {
+                indexes.clear();
+                return;
+            }
+            int sectionNo = (Integer) e.id();
+            Section s = (e.kind() == ChangeEvent.Kind.DELETE) ? null
+                    : sectionRepository.findById(sectionNo).orElse(null);
+            if (s == null) {
+                for (SectionIndex index : indexes.values()) {
+                    if (index.contains(sectionNo)) {
+                        indexes.put(index.termId, index.without(sectionNo));
+                    }
+                }
+                continue;
+            }
+            SectionIndex index = indexes.get(s.getTerm().getTermId());
+            if (index != null) {
+                User instructor = isBlank(s.getInstructorEmail()) ? null
+                        : userRepository.findByEmail(s.getInstructorEmail());
+                indexes.put(index.termId, index.with(row(s, instructor)));
+            }
+        }
+    }
+
+    // build the index of the term in the background, unless it is being built
+    private void build(int termId, int year, String semester) {
+        if (!building.add(termId)) {
+            return;
+        }
+        indexer.execute(() -> {
+            try {
+                if (!indexes.containsKey(termId)) {
+                    SectionIndex index = new SectionIndex(termId, load(year, semester));
+                    makeRoom();
+                    indexes.put(termId, index);
+                }
+            } catch (RuntimeException e) {
+                log.warn("building the section index of term {} failed", termId, e);
+            } finally {
+                building.remove(termId);
+            }
+        });
+    }
+
+    // drop the least recently searched indexes until there is room for one more
+    private void makeRoom() {
+        while (indexes.size() >= maxTerms) {
+            SectionIndex oldest = null;
+            for (SectionIndex index : indexes.values()) {
+                if (oldest == null || index.lastUsed < oldest.lastUsed) {
+                    oldest = index;
+                }
+            }
+            indexes.remove(oldest.termId);
+        }
+    }
+
+    // the sections of a term with their instructors, in two queries
+    private List<SectionIndex.Row> load(int year, String semester) {
+        List<Section> sections = sectionRepository.findByLikeCourseIdAndYearAndSemester("%", year, semester);
+        Set<String> emails = new HashSet<>();
+        for (Section s : sections) {
+            if (!isBlank(s.getInstructorEmail())) {
+                emails.add(s.getInstructorEmail());
+            }
+        }
+        Map<String, User> instructors = new HashMap<>();
+        if (!emails.isEmpty()) {
+            for (User u : userRepository.findByEmailIn(emails)) {
+                instructors.put(u.getEmail(), u);
+            }
+        }
+        List<SectionIndex.Row> rows = new ArrayList<>(sections.size());
+        for (Section s : sections) {
+            rows.add(row(s, instructors.get(s.getInstructorEmail())));
+        }
+        return rows;
+    }
+
+    private static SectionIndex.Row row(Section s, User instructor) {
+        SectionDTO dto = new SectionDTO(
+                s.getSectionNo(),
+                s.getTerm().getYear(),
+                s.getTerm().getSemester(),
+                s.getCourse().getCourseId(),
+                s.getSecId(),
+                s.getBuilding(),
+                s.getRoom(),
+                s.getTimes(),
+                (instructor!=null) ? instructor.getName() : "",
+                (instructor!=null) ? instructor.getEmail() : "",
+                s.getVersion(),
+                null,
+                null
+        );
+        return new SectionIndex.Row(dto, s.getCourse().getCredits(), SectionTimes.parse(s.getTimes()));
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isEmpty();
+    }
+}
@@ -0,0 +1,92 @@
+package com.cst438.search;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Meeting days and time of a section, parsed from Section.times, for
+ * example "M W 10:00-11:50", "T Th 12:00-1:50" or "W F 1:00-2:50 pm".
+ *
+ * days is a bit mask of DAYS.  start and end are minutes after midnight.
+ * Without am or pm, hours 1 to 7 are taken as afternoon hours, since no
+ * class meets at night.
+ */
+record SectionTimes(int days, int start, int end) {
+
+    // in bit order
+    static final String[] DAYS = {"M", "T", "W", "Th", "F", "Sa", "Su"};
+
+    private static final Pattern TIME = Pattern.compile(
+            "(\\d{1,2}):(\\d{2})\\s*-\\s*(\\d{1,2}):(\\d{2})\\s*(am|pm)?", Pattern.CASE_INSENSITIVE);
+
+    // null if times is not a list of days followed by a time range
+    static SectionTimes parse(String times) {
+        if (times == null) {
+            return null;
+        }
+        Matcher m = TIME.matcher(times);
+        if (!m.find()) {
+            return null;
+        }
+        int days = parseDays(times.substring(0, m.start()));
+        if (days <= 0) {
+            return null;
+        }
+        int startHour = Integer.parseInt(m.group(1));
+        int endHour = Integer.parseInt(m.group(3));
+        String half = m.group(5);
+        if (half == null) {
+            startHour = afternoon(startHour);
+            endHour = afternoon(endHour);
+        } else if (half.equalsIgnoreCase("pm")) {
+            if (endHour < 12) {
+                endHour += 12;
+            }
+            // "11:00-12:50 pm" starts in the morning
+            if (startHour < 12 && startHour + 12 <= endHour) {
+                startHour += 12;
+            }
+        }
+        int start = startHour * 60 + Integer.parseInt(m.group(2));
+        int end = endHour * 60 + Integer.parseInt(m.group(4));
+        if (end <= start || end > 24 * 60) {
+            return null;
+        }
+        return new SectionTimes(days, start, end);
+    }
+
+    // bit mask of days written as "M W", "MW", "T,Th" or "TTh".
+    // -1 if the text has anything else.
+    static int parseDays(String text) {
+        int days = 0;
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == ',') {
+                i++;
+                continue;
+            }
+            int day = -1;
+            int length = 1;
+            for (int d = 0; d < DAYS.length; d++) {
+                // the longest name wins, so Th is not read as T
+                String name = DAYS[d];
+                if (text.regionMatches(true, i, name, 0, name.length())
+                        && (day < 0 || name.length() > length)) {
+                    day = d;
+                    length = name.length();
+                }
+            }
+            if (day < 0) {
+                return -1;
+            }
+            days |= 1 << day;
+            i += length;
+        }
+        return days;
+    }
+
+    private static int afternoon(int hour) {
+        return (hour >= 1 && hour <= 7) ? hour + 12 : hour;
+    }
+}
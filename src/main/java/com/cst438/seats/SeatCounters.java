@@ -0,0 +1,297 @@
+package com.cst438.seats;
+
+import com.cst438.domain.SectionRepository;
+import com.cst438.domain.SectionSeats;
+import com.cst438.dto.SeatAvailabilityDTO;
+import com.cst438.dto.SectionDTO;
+import com.cst438.event.ChangeEvent;
+import com.cst438.event.ChangeSubscriber;
+import com.cst438.event.EntityType;
+import com.cst438.routing.RoutingContext;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Number of students enrolled in every section, held in memory so seat
+ * availability is answered without a query.
+ *
+ * Each section has a LongAdder, so concurrent adds and drops of the same
+ * popular section update separate cells instead of contending on one
+ * value.  Everything that enrolls or drops students, one at a time or in
+ * bulk (cohort enrollment, imports, archiving), calls enrolled(sectionNo,
+ * count) and the counter changes when its transaction commits.  Deleted
+ * sections are removed, and new or changed sections are read again, when
+ * their SECTION event arrives.
+ *
+ * A reconciliation reads every section with its enrollment count in one
+ * grouped query and replaces each counter with the database count.  It
+ * runs at startup, after bulk section changes (rollover, cascading deletes
+ * of courses and users) and every reconcile-seconds, on the seat-counters
+ * thread.  A transaction holds the shared commit lock from just before it
+ * commits until its counters are changed, and a reconciliation holds it
+ * exclusively while it reads, so every change is either in the database
+ * count or added after it, never both.  The counts are still for display;
+ * the capacity check of an enrollment counts in the database.
+ */
+@Component
+public class SeatCounters implements ChangeSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatCounters.class);
+
+    @Autowired
+    SectionRepository sectionRepository;
+
+    private static class Seats {
+        final int sectionNo;
+        final int termId;
+        volatile String courseId;
+        volatile int secId;
+        volatile int capacity;
+        final LongAdder enrolled = new LongAdder();
+
+        Seats(SectionSeats row) {
+            this.sectionNo = row.getSectionNo();
+            this.termId = row.getTermId();
+            this.courseId = row.getCourseId();
+            this.secId = row.getSecId();
+            this.capacity = row.getCapacity();
+        }
+
+        int enrolled() {
+            return (int) Math.max(0, enrolled.sum());
+        }
+
+        int available() {
+            return Math.max(0, capacity - enrolled());
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Seats> sections = new ConcurrentHashMap<>();
+    // shared by commits changing counters, exclusive while counters are read from the database
+    private final ReentrantReadWriteLock commits = new ReentrantReadWriteLock();
+    // a reconciliation is waiting to run
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final long reconcileMillis;
+    private final ScheduledExecutorService reconciler;
+
+    public SeatCounters(@Value("${cst438.seats.reconcile-seconds:60}") long reconcileSeconds) {
+        this.reconcileMillis = TimeUnit.SECONDS.toMillis(reconcileSeconds);
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seat-counters");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reconcileSoon();
+        reconciler.scheduleWithFixedDelay(this::reconcileSoon, reconcileMillis, reconcileMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconciler.shutdownNow();
+    }
+
+    // count students enrolled in (count > 0) or dropped from (count < 0) the
+    // section, once the caller's transaction commits
+    public void enrolled(int sectionNo, int count) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commits.readLock().lock();
+            try {
+                add(sectionNo, count);
+            } finally {
+                commits.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commits.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        add(sectionNo, count);
+                    }
+                } finally {
+                    if (locked) {
+                        commits.readLock().unlock();
+                    }
+                }
+            }
+        });
+    }
+
+    private void add(int sectionNo, int count) {
+        Seats s = sections.get(sectionNo);
+        if (s == null) {
+            // a section added since the last reconciliation
+            reconcileSoon();
+        } else {
+            s.enrolled.add(count);
+        }
+    }
+
+    // null if the section is not counted yet
+    public Integer enrolled(int sectionNo) {
+        Seats s = sections.get(sectionNo);
+        return (s == null) ? null : s.enrolled();
+    }
+
+    // null if the section is not counted yet
+    public Integer available(int sectionNo) {
+        Seats s = sections.get(sectionNo);
+        return (s == null) ? null : s.available();
+    }
+
+    // the section with its current counts
+    public SectionDTO withSeats(SectionDTO d) {
+        return new SectionDTO(d.secNo(), d.year(), d.semester(), d.courseId(), d.secId(),
+                d.building(), d.room(), d.times(), d.instructorName(), d.instructorEmail(),
+                d.version(), enrolled(d.secNo()), available(d.secNo()));
+    }
+
+    // seats of the sections of a term in course id and section id order.
+    // empty if the term has no sections or does not exist.
+    public List<SeatAvailabilityDTO> term(int termId) {
+        List<SeatAvailabilityDTO> list = new ArrayList<>();
+        for (Seats s : sections.values()) {
+            if (s.termId == termId) {
+                list.add(new SeatAvailabilityDTO(s.sectionNo, s.courseId, s.secId,
+                        s.capacity, s.enrolled(), s.available()));
+            }
+        }
+        list.sort(Comparator.comparing(SeatAvailabilityDTO::courseId)
+                .thenComparingInt(SeatAvailabilityDTO::secId));
+        return list;
+    }
+
+    @Override
+    public Set<EntityType> types() {
+        return Set.of(EntityType.SECTION);
+    }
+
+    // enrollments are counted by enrolled(sectionNo, count)
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        Set<Integer> changed = new HashSet<>();
+        for (ChangeEvent e : events) {
+            if (e.isAll()) {
+                reconcileSoon();
+                return;
+            }
+            if (e.kind() == ChangeEvent.Kind.DELETE) {
+                sections.remove((Integer) e.id());
+                changed.remove((Integer) e.id());
+            } else {
+                // a new section, or one whose capacity may have changed
+                changed.add((Integer) e.id());
+            }
+        }
+        if (!changed.isEmpty()) {
+            reconciler.execute(() -> {
+                try {
+                    refresh(changed);
+                } catch (RuntimeException ex) {
+                    log.warn("seat counter refresh failed", ex);
+                }
+            });
+        }
+    }
+
+    private void reconcileSoon() {
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
+        reconciler.execute(() -> {
+            pending.set(false);
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.warn("seat counter reconciliation failed", e);
+            }
+        });
+    }
+
+    private void reconcile() {
+        commits.writeLock().lock();
+        // the replica may not have the latest commits
+        RoutingContext.setForcePrimary(true);
+        try {
+            Set<Integer> found = new HashSet<>();
+            for (SectionSeats row : sectionRepository.findSeats()) {
+                found.add(row.getSectionNo());
+                replace(row);
+            }
+            // deleted sections
+            sections.keySet().retainAll(found);
+        } finally {
+            RoutingContext.setForcePrimary(false);
+            commits.writeLock().unlock();
+        }
+    }
+
+    // read the counts of the given sections again
+    private void refresh(Set<Integer> sectionNos) {
+        commits.writeLock().lock();
+        RoutingContext.setForcePrimary(true);
+        try {
+            Set<Integer> found = new HashSet<>();
+            for (SectionSeats row : sectionRepository.findSeatsBySectionNoIn(sectionNos)) {
+                found.add(row.getSectionNo());
+                replace(row);
+            }
+            for (int sectionNo : sectionNos) {
+                if (!found.contains(sectionNo)) {
+                    sections.remove(sectionNo);
+                }
+            }
+        } finally {
+            RoutingContext.setForcePrimary(false);
+            commits.writeLock().unlock();
+        }
+    }
+
+    // called with the write lock held, so no counter is being changed
+    private void replace(SectionSeats row) {
+        Seats s = sections.computeIfAbsent(row.getSectionNo(), k -> new Seats(row));
+        s.courseId = row.getCourseId();
+        s.secId = row.getSecId();
+        s.capacity = row.getCapacity();
+        long drift = row.getEnrolled() - s.enrolled.sum();
+        if (drift != 0) {
+            log.debug("seat counter of section {} off by {}", row.getSectionNo(), drift);
+            s.enrolled.reset();
+            s.enrolled.add(row.getEnrolled());
+        }
+    }
+}
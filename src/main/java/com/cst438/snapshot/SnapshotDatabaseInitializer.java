@@ -0,0 +1,147 @@
+package com.cst438.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/*
+ * Loads the embedded database from a snapshot file instead of replaying
+ * data.sql.
+ *
+ * The snapshot records a hash of schema.sql and data.sql.  When the file
+ * exists and its hash matches the scripts, schema.sql is run and the rows
+ * are bulk loaded from the snapshot.  Otherwise, or if loading fails, the
+ * database is emptied and both scripts are replayed as usual, and a new
+ * snapshot is written from the loaded tables.
+ *
+ * Takes the place of the initializer spring boot creates from spring.sql.init,
+ * so hibernate still starts after the data is loaded.
+ */
+public class SnapshotDatabaseInitializer extends SqlDataSourceScriptDatabaseInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotDatabaseInitializer.class);
+
+    private final DataSource dataSource;
+    private final Resource schema;
+    private final Resource data;
+    private final Path file;
+
+    public SnapshotDatabaseInitializer(DataSource dataSource, SqlInitializationProperties properties,
+                                       Resource schema, Resource data, Path file) {
+        super(dataSource, properties);
+        this.dataSource = dataSource;
+        this.schema = schema;
+        this.data = data;
+        this.file = file;
+    }
+
+    @Override
+    public boolean initializeDatabase() {
+        if (!isEmbeddedDatabase()) {
+            return super.initializeDatabase();
+        }
+        byte[] hash;
+        try {
+            hash = hash();
+        } catch (IOException e) {
+            log.warn("can not read the sql scripts, snapshot not used", e);
+            return super.initializeDatabase();
+        }
+
+        if (Files.exists(file)) {
+            try {
+                if (Arrays.equals(hash, SnapshotFile.hash(file))) {
+                    load();
+                    return true;
+                }
+                log.info("snapshot {} is stale, replaying sql scripts", file);
+            } catch (IOException | SQLException | RuntimeException e) {
+                log.warn("loading snapshot {} failed, replaying sql scripts", file, e);
+                dropAll();
+            }
+        }
+
+        boolean initialized = super.initializeDatabase();
+        write(hash);
+        return initialized;
+    }
+
+    private void load() throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        new ResourceDatabasePopulator(schema).execute(dataSource);
+        try (Connection c = dataSource.getConnection();
+             Statement st = c.createStatement()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            // rows are inserted table by table, not in foreign key order
+            st.execute("set referential_integrity false");
+            try {
+                long rows = SnapshotFile.load(file, c);
+                c.commit();
+                log.info("loaded {} rows from snapshot {} in {} ms", rows, file, System.currentTimeMillis()-start);
+            } catch (IOException | SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                st.execute("set referential_integrity true");
+                c.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void write(byte[] hash) {
+        long start = System.currentTimeMillis();
+        try (Connection c = dataSource.getConnection()) {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            SnapshotFile.write(file, hash, c);
+            log.info("wrote snapshot {} in {} ms", file, System.currentTimeMillis()-start);
+        } catch (IOException | SQLException e) {
+            // the next start replays the scripts again
+            log.warn("writing snapshot {} failed", file, e);
+        }
+    }
+
+    // empty the database after a partial load so the scripts start from nothing
+    private void dropAll() {
+        try (Connection c = dataSource.getConnection();
+             Statement st = c.createStatement()) {
+            st.execute("drop all objects");
+        } catch (SQLException e) {
+            throw new IllegalStateException("can not reset the database after a failed snapshot load", e);
+        }
+    }
+
+    private byte[] hash() throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (Resource r : new Resource[] {schema, data}) {
+                try (InputStream in = r.getInputStream()) {
+                    md.update(in.readAllBytes());
+                }
+                // separate the scripts so moving a statement from one to the other changes the hash
+                md.update((byte) 0);
+            }
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
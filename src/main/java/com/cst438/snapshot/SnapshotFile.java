@@ -0,0 +1,281 @@
+package com.cst438.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Binary copy of the rows of every table and the value of every sequence
+ * of an H2 database.
+ *
+ *   int    magic "CSTS"
+ *   int    format version
+ *   32     sha-256 of the scripts the data was loaded from
+ *   int    number of sequences,  each { string name, long next value }
+ *   int    number of tables,     each
+ *            string name
+ *            int    number of columns c,  c x { string name, byte kind }
+ *            rows, each a byte 1 followed by c values,  ended by a byte 0
+ *
+ * A value is a byte 0 for null, or a byte 1 followed by the value in the
+ * column's kind.  Strings are an int byte length and UTF-8 bytes.
+ *
+ * The file is read through a memory mapping and the rows are added with
+ * JDBC batch inserts, which skips the SQL parsing of replaying data.sql.
+ */
+class SnapshotFile {
+
+    private static final int MAGIC = 0x43535453;
+    private static final int FORMAT = 1;
+    static final int HASH_BYTES = 32;
+    private static final int BATCH_SIZE = 1000;
+
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte STRING = 5;
+    private static final byte DATE = 6;
+    private static final byte TIMESTAMP = 7;
+
+    // write the tables and sequences of the connection's PUBLIC schema.
+    // the file is written under a temporary name and renamed when complete.
+    static void write(Path file, byte[] hash, Connection c) throws IOException, SQLException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.write(hash);
+
+            List<String[]> sequences = strings(c,
+                    "select sequence_name, base_value from information_schema.sequences where sequence_schema='PUBLIC'");
+            out.writeInt(sequences.size());
+            for (String[] s : sequences) {
+                writeString(out, s[0]);
+                out.writeLong(Long.parseLong(s[1]));
+            }
+
+            List<String[]> tables = strings(c,
+                    "select table_name from information_schema.tables where table_schema='PUBLIC' and table_type='BASE TABLE'");
+            out.writeInt(tables.size());
+            try (Statement st = c.createStatement()) {
+                for (String[] t : tables) {
+                    writeTable(out, st, t[0]);
+                }
+            }
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // hash the snapshot was written with, or null if the file is not a snapshot
+    static byte[] hash(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8 + HASH_BYTES);
+            while (header.hasRemaining()) {
+                if (ch.read(header) < 0) {
+                    return null;
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT) {
+                return null;
+            }
+            byte[] hash = new byte[HASH_BYTES];
+            header.get(hash);
+            return hash;
+        }
+    }
+
+    // insert the rows of the snapshot into the empty tables of the connection.
+    // returns the number of rows inserted.
+    static long load(Path file, Connection c) throws IOException, SQLException {
+        MappedByteBuffer in;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        in.position(8 + HASH_BYTES);
+
+        long rows = 0;
+        try (Statement st = c.createStatement()) {
+            int sequences = in.getInt();
+            for (int i=0; i<sequences; i++) {
+                String name = readString(in);
+                st.execute("alter sequence " + quote(name) + " restart with " + in.getLong());
+            }
+            int tables = in.getInt();
+            for (int i=0; i<tables; i++) {
+                rows += loadTable(in, c);
+            }
+        }
+        return rows;
+    }
+
+    private static void writeTable(DataOutputStream out, Statement st, String table) throws IOException, SQLException {
+        writeString(out, table);
+        try (ResultSet rs = st.executeQuery("select * from " + quote(table))) {
+            ResultSetMetaData md = rs.getMetaData();
+            int n = md.getColumnCount();
+            byte[] kinds = new byte[n];
+            out.writeInt(n);
+            for (int i=0; i<n; i++) {
+                kinds[i] = kind(table, md, i+1);
+                writeString(out, md.getColumnName(i+1));
+                out.writeByte(kinds[i]);
+            }
+            while (rs.next()) {
+                out.writeByte(1);
+                for (int i=0; i<n; i++) {
+                    writeValue(out, rs, i+1, kinds[i]);
+                }
+            }
+            out.writeByte(0);
+        }
+    }
+
+    private static long loadTable(ByteBuffer in, Connection c) throws SQLException {
+        String table = readString(in);
+        int n = in.getInt();
+        String[] columns = new String[n];
+        byte[] kinds = new byte[n];
+        for (int i=0; i<n; i++) {
+            columns[i] = quote(readString(in));
+            kinds[i] = in.get();
+        }
+        String sql = "insert into " + quote(table) + " (" + String.join(", ", columns) + ") values ("
+                + String.join(", ", Arrays.stream(columns).map(col -> "?").toList()) + ")";
+
+        long rows = 0;
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            int batched = 0;
+            while (in.get() == 1) {
+                for (int i=0; i<n; i++) {
+                    ps.setObject(i+1, readValue(in, kinds[i]));
+                }
+                ps.addBatch();
+                rows++;
+                if (++batched == BATCH_SIZE) {
+                    ps.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                ps.executeBatch();
+            }
+        }
+        return rows;
+    }
+
+    private static byte kind(String table, ResultSetMetaData md, int column) throws SQLException, IOException {
+        switch (md.getColumnType(column)) {
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT: return INT;
+            case Types.BIGINT: return LONG;
+            case Types.DOUBLE, Types.FLOAT, Types.REAL: return DOUBLE;
+            case Types.BOOLEAN, Types.BIT: return BOOLEAN;
+            // decimals are kept as their exact text
+            case Types.VARCHAR, Types.CHAR, Types.LONGVARCHAR, Types.CLOB, Types.DECIMAL, Types.NUMERIC: return STRING;
+            case Types.DATE: return DATE;
+            case Types.TIMESTAMP: return TIMESTAMP;
+            default:
+                throw new IOException("column type " + md.getColumnTypeName(column)
+                        + " of " + table + "." + md.getColumnName(column) + " can not be stored in a snapshot");
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, ResultSet rs, int column, byte kind) throws IOException, SQLException {
+        Object value = switch (kind) {
+            case INT -> rs.getObject(column, Integer.class);
+            case LONG -> rs.getObject(column, Long.class);
+            case DOUBLE -> rs.getObject(column, Double.class);
+            case BOOLEAN -> rs.getObject(column, Boolean.class);
+            case DATE -> rs.getObject(column, LocalDate.class);
+            case TIMESTAMP -> rs.getObject(column, LocalDateTime.class);
+            default -> rs.getString(column);
+        };
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        switch (kind) {
+            case INT -> out.writeInt((Integer) value);
+            case LONG -> out.writeLong((Long) value);
+            case DOUBLE -> out.writeDouble((Double) value);
+            case BOOLEAN -> out.writeBoolean((Boolean) value);
+            case DATE -> out.writeLong(((LocalDate) value).toEpochDay());
+            case TIMESTAMP -> writeString(out, value.toString());
+            default -> writeString(out, (String) value);
+        }
+    }
+
+    private static Object readValue(ByteBuffer in, byte kind) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return switch (kind) {
+            case INT -> in.getInt();
+            case LONG -> in.getLong();
+            case DOUBLE -> in.getDouble();
+            case BOOLEAN -> in.get() != 0;
+            case DATE -> LocalDate.ofEpochDay(in.getLong());
+            case TIMESTAMP -> LocalDateTime.parse(readString(in));
+            default -> readString(in);
+        };
+    }
+
+    private static List<String[]> strings(Connection c, String sql) throws SQLException {
+        List<String[]> rows = new ArrayList<>();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            int n = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                String[] row = new String[n];
+                for (int i=0; i<n; i++) {
+                    row[i] = rs.getString(i+1);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static String quote(String name) {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] b = new byte[in.getInt()];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,283 @@
+package com.cst438.stream;
+
+import com.cst438.domain.Enrollment;
+import com.cst438.domain.Grade;
+import com.cst438.dto.GradeUpdateDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Pushes score and final grade changes to students and instructors
+ * over server sent events so that clients do not have to poll.
+ *
+ * publish() never writes to a client. It only records the update in the
+ * pending map of each matching subscriber.  Every flush interval the flush
+ * thread hands each subscriber with pending updates to a bounded pool of
+ * send threads, so a burst of updates to the same grade is sent once with
+ * its latest value.  A subscriber has at most one send running.  One whose
+ * send has not finished after slow-millis is dropped and its client must
+ * reconnect; the send thread it holds is freed when the write fails.
+ * When the pool's queue is full the subscriber is tried again next flush.
+ *
+ * Every update has a sequence number that is sent as the event id, so
+ * the client's position is the id of the last event it received.
+ * A client that reconnects with the Last-Event-ID header is sent the
+ * updates it missed from a bounded buffer of recent updates.
+ */
+@Component
+public class GradeStream {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    // recent updates kept for clients that reconnect
+    private final ConcurrentLinkedDeque<GradeUpdateDTO> recent = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger recentSize = new AtomicInteger();
+    private final int recentCapacity;
+
+    // subscribers by stream key  "student:3"  or  "section:8"
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final long timeoutMillis;
+    private final long heartbeatMillis;
+    private final long slowMillis;
+    private final ScheduledExecutorService flusher;
+    private final ThreadPoolExecutor senders;
+
+    public GradeStream(
+            @Value("${cst438.grade-stream.flush-millis:250}") long flushMillis,
+            @Value("${cst438.grade-stream.heartbeat-millis:30000}") long heartbeatMillis,
+            @Value("${cst438.grade-stream.timeout-millis:1800000}") long timeoutMillis,
+            @Value("${cst438.grade-stream.replay-capacity:10000}") int recentCapacity,
+            @Value("${cst438.grade-stream.send-threads:4}") int sendThreads,
+            @Value("${cst438.grade-stream.send-queue:1000}") int sendQueue,
+            @Value("${cst438.grade-stream.slow-millis:10000}") long slowMillis) {
+        this.heartbeatMillis = heartbeatMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.recentCapacity = recentCapacity;
+        this.slowMillis = slowMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "grade-stream");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger threads = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(sendQueue), r -> {
+                    Thread t = new Thread(r, "grade-send-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        senders.shutdownNow();
+        for (List<Subscriber> list : subscribers.values()) {
+            for (Subscriber s : list) {
+                s.emitter.complete();
+            }
+        }
+    }
+
+    public SseEmitter subscribeStudent(int studentId, Long lastEventId) {
+        return subscribe("student:"+studentId, lastEventId);
+    }
+
+    public SseEmitter subscribeSection(int sectionNo, Long lastEventId) {
+        return subscribe("section:"+sectionNo, lastEventId);
+    }
+
+    // score for an assignment was changed
+    public void publishScore(Grade g) {
+        Enrollment e = g.getEnrollment();
+        publish(new GradeUpdateDTO(
+                sequence.incrementAndGet(),
+                "SCORE",
+                e.getStudent().getId(),
+                e.getSection().getSectionNo(),
+                e.getEnrollmentId(),
+                g.getAssignment().getAssignmentId(),
+                g.getScore(),
+                null));
+    }
+
+    // final grade for an enrollment was changed
+    public void publishFinalGrade(Enrollment e) {
+        publish(new GradeUpdateDTO(
+                sequence.incrementAndGet(),
+                "FINAL",
+                e.getStudent().getId(),
+                e.getSection().getSectionNo(),
+                e.getEnrollmentId(),
+                null,
+                null,
+                e.getGrade()));
+    }
+
+    private SseEmitter subscribe(String key, Long lastEventId) {
+        SseEmitter emitter = newEmitter(timeoutMillis);
+        Subscriber s = new Subscriber(key, emitter);
+        emitter.onCompletion(() -> remove(s));
+        emitter.onTimeout(() -> remove(s));
+        emitter.onError(ex -> remove(s));
+        subscribers.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(s);
+
+        // queue updates the client missed while it was disconnected
+        if (lastEventId != null) {
+            for (GradeUpdateDTO u : recent) {
+                if (u.seq() > lastEventId && s.matches(u)) {
+                    s.offer(u);
+                }
+            }
+        }
+        return emitter;
+    }
+
+    private void publish(GradeUpdateDTO u) {
+        recent.addLast(u);
+        if (recentSize.incrementAndGet() > recentCapacity) {
+            recent.pollFirst();
+            recentSize.decrementAndGet();
+        }
+        offer("student:"+u.studentId(), u);
+        offer("section:"+u.sectionNo(), u);
+    }
+
+    private void offer(String key, GradeUpdateDTO u) {
+        List<Subscriber> list = subscribers.get(key);
+        if (list != null) {
+            for (Subscriber s : list) {
+                s.offer(u);
+            }
+        }
+    }
+
+    // the emitter of a new subscriber.  tests replace it to see what is sent
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void remove(Subscriber s) {
+        List<Subscriber> list = subscribers.get(s.key);
+        if (list != null) {
+            list.remove(s);
+        }
+    }
+
+    // runs on the flush thread, and in tests
+    void flush() {
+        long now = System.currentTimeMillis();
+        for (List<Subscriber> list : subscribers.values()) {
+            for (Subscriber s : list) {
+                long started = s.sendStarted;
+                if (started != 0) {
+                    if (now - started >= slowMillis) {
+                        // the client is not reading, drop it
+                        remove(s);
+                        s.emitter.completeWithError(new IOException("grade stream client too slow"));
+                    }
+                    continue;
+                }
+                if (s.pending.isEmpty() && now - s.lastWrite < heartbeatMillis) {
+                    continue;
+                }
+                s.sendStarted = now;
+                try {
+                    senders.execute(() -> send(s, now));
+                } catch (RejectedExecutionException e) {
+                    // every send thread is busy, try again next flush
+                    s.sendStarted = 0;
+                }
+            }
+        }
+    }
+
+    // runs on a send thread, one at a time for each subscriber
+    private void send(Subscriber s, long now) {
+        try {
+            s.flush(now, heartbeatMillis);
+        } catch (IOException | IllegalStateException e) {
+            // client went away
+            remove(s);
+            s.emitter.completeWithError(e);
+        } finally {
+            s.sendStarted = 0;
+        }
+    }
+
+    private static class Subscriber {
+        final String key;
+        final SseEmitter emitter;
+
+        // latest pending update for each grade, keyed by enrollment and assignment
+        final Map<String, GradeUpdateDTO> pending = new ConcurrentHashMap<>();
+
+        volatile long lastWrite = System.currentTimeMillis();
+        // start of the send running for the subscriber, 0 if there is none
+        volatile long sendStarted;
+
+        Subscriber(String key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+
+        boolean matches(GradeUpdateDTO u) {
+            return key.equals("student:"+u.studentId()) || key.equals("section:"+u.sectionNo());
+        }
+
+        void offer(GradeUpdateDTO u) {
+            String item = u.enrollmentId()+":"+u.assignmentId();
+            pending.merge(item, u, (old, nu) -> nu.seq() > old.seq() ? nu : old);
+        }
+
+        void flush(long now, long heartbeatMillis) throws IOException {
+            if (pending.isEmpty()) {
+                if (now - lastWrite >= heartbeatMillis) {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                    lastWrite = now;
+                }
+                return;
+            }
+            // remove(item) returns the value it removed, so an update merged
+            // after the key was read is either sent now or left for the next flush
+            List<GradeUpdateDTO> batch = new ArrayList<>();
+            for (String item : pending.keySet()) {
+                GradeUpdateDTO u = pending.remove(item);
+                if (u != null) {
+                    batch.add(u);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            batch.sort(Comparator.comparingLong(GradeUpdateDTO::seq));
+            long last = batch.get(batch.size()-1).seq();
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(last))
+                    .name("grades")
+                    .data(batch));
+            lastWrite = now;
+        }
+    }
+}
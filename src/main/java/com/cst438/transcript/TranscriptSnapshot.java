@@ -0,0 +1,17 @@
+package com.cst438.transcript;
+
+import com.cst438.dto.EnrollmentDTO;
+
+import java.util.List;
+
+/*
+ * A student's transcript at one point in time, with the JSON response
+ * body already serialized and its ETag.  Never modified once created.
+ */
+public record TranscriptSnapshot(
+        int studentId,
+        List<EnrollmentDTO> enrollments,
+        byte[] json,
+        String etag
+) {
+}
@@ -0,0 +1,256 @@
+package com.cst438.transcript;
+
+import com.cst438.archive.TermArchive;
+import com.cst438.domain.Enrollment;
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.Section;
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.event.ChangeEvent;
+import com.cst438.event.ChangeSubscriber;
+import com.cst438.event.EntityType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Precomputed transcripts, kept as the serialized JSON response.
+ *
+ * A transcript only changes when an enrollment of the student changes.
+ * Committed enrollment changes arrive from the ChangeEventBus; the
+ * student's snapshot is dropped at once and rebuilt in the background.
+ * Changes to sections, courses, terms or users, and bulk changes,
+ * drop every snapshot; they are rebuilt when next requested.
+ *
+ * Students share GENERATIONS generation numbers by student id; a number
+ * is incremented whenever a snapshot of one of its students is dropped.
+ * A rebuild that started before the latest drop is not cached, instead of
+ * replacing newer data with older.  Sharing keeps the numbers bounded; a
+ * rebuild discarded because another student of the same number changed
+ * is simply built again when next requested.
+ *
+ * At most max-snapshots snapshots are cached.  Beyond that, arbitrary
+ * snapshots are evicted.
+ */
+@Component
+public class TranscriptSnapshots implements ChangeSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(TranscriptSnapshots.class);
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    TermArchive termArchive;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private static final int GENERATIONS = 1024;
+
+    private final Map<Integer, TranscriptSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+    // student id by enrollment id, for the enrollments of cached snapshots
+    private final Map<Integer, Integer> students = new ConcurrentHashMap<>();
+    private final AtomicLong clears = new AtomicLong();
+    private final int maxSnapshots;
+
+    private final ExecutorService rebuilder;
+
+    public TranscriptSnapshots(
+            @Value("${cst438.transcripts.rebuild-threads:2}") int threads,
+            @Value("${cst438.transcripts.max-snapshots:10000}") int maxSnapshots) {
+        this.maxSnapshots = maxSnapshots;
+        this.rebuilder = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "transcript-rebuild");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    // current snapshot of the student's transcript, built now if not cached
+    public TranscriptSnapshot get(int studentId) {
+        TranscriptSnapshot s = snapshots.get(studentId);
+        if (s == null) {
+            s = build(studentId);
+        }
+        return s;
+    }
+
+    // rebuild the snapshots of the students in the background.
+    // used after final grades are posted for a whole term.
+    public void rebuild(List<Integer> studentIds) {
+        for (int studentId : studentIds) {
+            invalidate(studentId);
+        }
+    }
+
+    @Override
+    public Set<EntityType> types() {
+        return Set.of(EntityType.ENROLLMENT, EntityType.SECTION, EntityType.COURSE,
+                EntityType.TERM, EntityType.USER);
+    }
+
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        Set<Integer> changed = new HashSet<>();
+        // new enrollments, or ones not in any cached snapshot
+        List<Integer> unknown = new ArrayList<>();
+        for (ChangeEvent e : events) {
+            if (e.type() != EntityType.ENROLLMENT || e.isAll()) {
+                clear();
+                return;
+            }
+            int enrollmentId = (Integer) e.id();
+            Integer studentId = students.get(enrollmentId);
+            if (studentId != null) {
+                changed.add(studentId);
+            } else if (e.kind() != ChangeEvent.Kind.DELETE) {
+                unknown.add(enrollmentId);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            for (Enrollment en : enrollmentRepository.findAllById(unknown)) {
+                changed.add(en.getStudent().getId());
+            }
+        }
+        for (int studentId : changed) {
+            invalidate(studentId);
+        }
+    }
+
+    private void invalidate(int studentId) {
+        TranscriptSnapshot[] removed = new TranscriptSnapshot[1];
+        snapshots.compute(studentId, (k, old) -> {
+            generations.incrementAndGet(generation(studentId));
+            removed[0] = old;
+            return null;
+        });
+        forget(removed[0]);
+        rebuilder.execute(() -> {
+            try {
+                build(studentId);
+            } catch (RuntimeException ex) {
+                log.warn("transcript rebuild failed for student {}", studentId, ex);
+            }
+        });
+    }
+
+    private void clear() {
+        clears.incrementAndGet();
+        snapshots.clear();
+        students.clear();
+    }
+
+    // remove the enrollments of a snapshot that is no longer cached
+    private void forget(TranscriptSnapshot old) {
+        if (old != null) {
+            for (EnrollmentDTO e : old.enrollments()) {
+                students.remove(e.enrollmentId());
+            }
+        }
+    }
+
+    private static int generation(int studentId) {
+        return Math.floorMod(studentId, GENERATIONS);
+    }
+
+    private TranscriptSnapshot build(int studentId) {
+        long clearsBefore = clears.get();
+        long generation = generations.get(generation(studentId));
+
+        List<EnrollmentDTO> dlist = transcript(studentId);
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(dlist);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        TranscriptSnapshot s = new TranscriptSnapshot(studentId, List.copyOf(dlist), json, etag);
+
+        // cache only if nothing changed while the snapshot was built
+        snapshots.compute(studentId, (k, current) -> {
+            if (generations.get(generation(studentId)) != generation || clears.get() != clearsBefore) {
+                return current;
+            }
+            for (EnrollmentDTO e : dlist) {
+                students.put(e.enrollmentId(), studentId);
+            }
+            return s;
+        });
+        evict();
+        return s;
+    }
+
+    private void evict() {
+        Iterator<Integer> it = snapshots.keySet().iterator();
+        while (snapshots.size() > maxSnapshots && it.hasNext()) {
+            forget(snapshots.remove(it.next()));
+        }
+    }
+
+    // enrollments of closed terms that have been archived, followed by
+    // the enrollments still in the database, in chronological order.
+    private List<EnrollmentDTO> transcript(int studentId) {
+        List<EnrollmentDTO> dlist = new ArrayList<>(termArchive.findEnrollments(studentId));
+        Set<Integer> archived = new HashSet<>();
+        for (EnrollmentDTO e : dlist) {
+            archived.add(e.enrollmentId());
+        }
+        for (Enrollment e : enrollmentRepository.findEnrollmentsByStudentIdOrderByTermId(studentId)) {
+            // a term being archived can briefly be in both places
+            if (!archived.contains(e.getEnrollmentId())) {
+                dlist.add(toDTO(e));
+            }
+        }
+        // Spring before Fall within a year
+        dlist.sort(Comparator.comparingInt(EnrollmentDTO::year)
+                .thenComparing(e -> e.semester().equals("Fall")));
+        return dlist;
+    }
+
+    private static EnrollmentDTO toDTO(Enrollment e) {
+        Section s = e.getSection();
+        return new EnrollmentDTO(
+                e.getEnrollmentId(),
+                e.getGrade(),
+                e.getStudent().getId(),
+                e.getStudent().getName(),
+                e.getStudent().getEmail(),
+                s.getCourse().getCourseId(),
+                s.getSecId(),
+                s.getSectionNo(),
+                s.getBuilding(),
+                s.getRoom(),
+                s.getTimes(),
+                s.getCourse().getCredits(),
+                s.getTerm().getYear(),
+                s.getTerm().getSemester(),
+                e.getVersion()
+        );
+    }
+}
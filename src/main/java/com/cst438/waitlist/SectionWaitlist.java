@@ -0,0 +1,74 @@
+package com.cst438.waitlist;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * In-memory copy of the waitlist of one section.
+ *
+ * Students are kept in arrival order in a non-blocking ConcurrentLinkedQueue
+ * and indexed by student id.  Each student holds the ticket they were given
+ * when they joined, and the section remembers the ticket at the head of the
+ * queue, so a position is  ticket - head + 1  without walking the queue.
+ *
+ * A student who leaves is marked removed and stays in the queue until the
+ * head passes them, so a position counts students ahead who have already
+ * left.  Positions are therefore an upper bound that only goes down.
+ */
+class SectionWaitlist {
+
+    static class Entry {
+        final int studentId;
+        final long ticket;
+        volatile boolean removed;
+
+        Entry(int studentId, long ticket) {
+            this.studentId = studentId;
+            this.ticket = ticket;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<Integer, Entry> students = new ConcurrentHashMap<>();
+    // add a student loaded from the table or just inserted into it
+    void add(int studentId, long ticket) {
+        Entry e = new Entry(studentId, ticket);
+        if (students.putIfAbsent(studentId, e) == null) {
+            queue.offer(e);
+        }
+    }
+
+    void remove(int studentId) {
+        Entry e = students.remove(studentId);
+        if (e != null) {
+            e.removed = true;
+            skipRemoved();
+        }
+    }
+
+    boolean contains(int studentId) {
+        return students.containsKey(studentId);
+    }
+
+    // 1 for the next student to be promoted, 0 if the student is not waiting
+    long position(int studentId) {
+        Entry e = students.get(studentId);
+        if (e == null) {
+            return 0;
+        }
+        Entry head = queue.peek();
+        return (head == null) ? 1 : Math.max(1, e.ticket - head.ticket + 1);
+    }
+
+    int size() {
+        return students.size();
+    }
+
+    // drop removed students from the head of the queue
+    private void skipRemoved() {
+        Entry head;
+        while ((head = queue.peek()) != null && head.removed) {
+            queue.remove(head);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.cst438.waitlist;
+
+import com.cst438.domain.*;
+import com.cst438.event.ChangeEvent;
+import com.cst438.event.ChangeSubscriber;
+import com.cst438.event.EntityType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * First come first served waitlists of full sections.
+ *
+ * The waitlist table is the record; each section's list is also held in
+ * memory (SectionWaitlist), loaded from the table the first time the
+ * section is used, so a student's position is answered without a query.
+ * The memory copy is changed only after the transaction that changed the
+ * table commits.
+ *
+ * A student joins in the transaction that found the section full, while
+ * it holds the lock of the section row.  Tickets and positions are taken
+ * from the table, so they are right even before the memory copy catches
+ * up, and a seat freed while students wait goes to the first of them.
+ *
+ * A promotion claims the first waiting student by deleting their waitlist
+ * row.  If a concurrent promotion claimed the same student first, the
+ * delete finds no row and the next student is tried, so a student is
+ * never promoted twice.
+ */
+@Component
+public class Waitlists implements ChangeSubscriber {
+
+    @Autowired
+    WaitlistRepository waitlistRepository;
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    private final ConcurrentHashMap<Integer, SectionWaitlist> sections = new ConcurrentHashMap<>();
+
+    // add the student to the section's waitlist, if not already on it.
+    // return the student's position.
+    // runs in the caller's transaction, which holds the lock of the section
+    // row (SectionRepository.lockBySectionNo), so tickets are handed out one
+    // at a time and the row commits or rolls back with the caller's check
+    // that the section is full.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long join(Section section, User student) {
+        int sectionNo = section.getSectionNo();
+        Waitlist row = waitlistRepository.findBySectionNoAndStudentId(sectionNo, student.getId());
+        if (row == null) {
+            row = new Waitlist();
+            row.setSection(section);
+            row.setStudent(student);
+            row.setTicket(waitlistRepository.findMaxTicketBySectionNo(sectionNo) + 1);
+            waitlistRepository.save(row);
+            long ticket = row.getTicket();
+            // a list not yet in memory is loaded with the new row when first used.
+            // computeIfPresent waits for a load in progress.
+            afterCommit(() -> sections.computeIfPresent(sectionNo, (k, w) -> {
+                w.add(student.getId(), ticket);
+                return w;
+            }));
+        }
+        return waitlistRepository.countBySectionNoAndTicketUpTo(sectionNo, row.getTicket());
+    }
+
+    // remove the student from the waitlist. return false if the student was not on it.
+    @Transactional
+    public boolean leave(int sectionNo, int studentId) {
+        int removed = waitlistRepository.deleteBySectionNoAndStudentId(sectionNo, studentId);
+        afterCommit(() -> section(sectionNo).remove(studentId));
+        return removed > 0;
+    }
+
+    // 1 for the next student to be promoted, 0 if the student is not on the waitlist
+    public long position(int sectionNo, int studentId) {
+        return section(sectionNo).position(studentId);
+    }
+
+    public int size(int sectionNo) {
+        return section(sectionNo).size();
+    }
+
+    // enroll the first waiting student into a seat freed in the section.
+    // runs in the caller's transaction, so the drop that freed the seat and
+    // the promotion commit or roll back together.  the waiting students are
+    // read from the table, which has every student who joined before the
+    // caller locked the section.
+    // return the new enrollment, or null if nobody is waiting.
+    @Transactional
+    public Enrollment promote(Section section) {
+        int sectionNo = section.getSectionNo();
+        for (Waitlist row : waitlistRepository.findBySectionNoOrderByTicket(sectionNo)) {
+            int studentId = row.getStudent().getId();
+            boolean claimed = waitlistRepository.deleteBySectionNoAndStudentId(sectionNo, studentId) > 0;
+            afterCommit(() -> section(sectionNo).remove(studentId));
+            if (!claimed) {
+                // promoted by a concurrent drop, or left the waitlist
+                continue;
+            }
+            if (enrollmentRepository.findEnrollmentBySectionNoAndStudentId(sectionNo, studentId) != null) {
+                continue;
+            }
+            User student = userRepository.findById(studentId).orElse(null);
+            if (student == null) {
+                continue;
+            }
+            Enrollment e = new Enrollment();
+            e.setSection(section);
+            e.setStudent(student);
+            return enrollmentRepository.save(e);
+        }
+        return null;
+    }
+
+    @Override
+    public Set<EntityType> types() {
+        return Set.of(EntityType.SECTION, EntityType.COURSE, EntityType.USER);
+    }
+
+    // waitlist rows removed by deletes of sections, courses or users.
+    // the lists are reloaded from the table when next used.
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        for (ChangeEvent e : events) {
+            if (e.type() == EntityType.SECTION && !e.isAll()) {
+                if (e.kind() == ChangeEvent.Kind.DELETE) {
+                    sections.remove((Integer) e.id());
+                }
+            } else if (e.isAll() || e.kind() == ChangeEvent.Kind.DELETE) {
+                sections.clear();
+                return;
+            }
+        }
+    }
+
+    private SectionWaitlist section(int sectionNo) {
+        SectionWaitlist w = sections.get(sectionNo);
+        return (w != null) ? w : sections.computeIfAbsent(sectionNo, this::load);
+    }
+
+    private SectionWaitlist load(int sectionNo) {
+        List<Waitlist> rows = waitlistRepository.findBySectionNoOrderByTicket(sectionNo);
+        SectionWaitlist w = new SectionWaitlist();
+        for (Waitlist row : rows) {
+            w.add(row.getStudent().getId(), row.getTicket());
+        }
+        return w;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -27,6 +27,8 @@ create table section (
     room varchar(10),
     times varchar(25),
     instructor_email varchar(50),
+    capacity int default 30 not null check (capacity >= 0),
+    version int default 0 not null,
     foreign key(course_id) references course(course_id),
     foreign key(term_id) references term(term_id)
 );
@@ -50,6 +52,7 @@ create table enrollment (
     grade varchar(5),
     section_no int not null,
     user_id int not null,
+    version int default 0 not null,
     foreign key(section_no) references section(section_no),
     foreign key(user_id) references user_table(id)
 );
@@ -65,6 +68,9 @@ create table assignment (
     foreign key (section_no) references section(section_no)
 );
 
+-- upcoming due dates are loaded by due date at startup
+create index assignment_due_date on assignment (due_date);
+
 create sequence grade_seq;
 ALTER SEQUENCE grade_seq RESTART WITH 12000;
 
@@ -73,6 +79,19 @@ create table grade (
     enrollment_id int not null,
     assignment_id int not null,
     score int check (score between 0 and 100),
+    version int default 0 not null,
     foreign key(enrollment_id) references enrollment(enrollment_id),
     foreign key(assignment_id) references assignment(assignment_id)
 );
+
+create sequence waitlist_seq;
+
+create table waitlist (
+    waitlist_id int default next value for waitlist_seq primary key,
+    section_no int not null,
+    user_id int not null,
+    ticket bigint not null,
+    unique (section_no, user_id),
+    foreign key(section_no) references section(section_no),
+    foreign key(user_id) references user_table(id)
+);
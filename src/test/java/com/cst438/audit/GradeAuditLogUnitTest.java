@@ -0,0 +1,84 @@
+package com.cst438.audit;
+
+import com.cst438.domain.Assignment;
+import com.cst438.domain.Enrollment;
+import com.cst438.domain.Grade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * grade audit records written through the ring into segment files of
+ * 3 records each, and read back by enrollment and by assignment.
+ */
+public class GradeAuditLogUnitTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void historyAcrossSegments() throws Exception {
+
+        GradeAuditLog log = new GradeAuditLog(dir.toString(), 4, 3);
+        try {
+            // enrollment 1 has scores for assignments 10 and 11, enrollment 2 for assignment 10
+            log.scoreChanged(grade(100, 1, 10, 80), null);
+            log.scoreChanged(grade(101, 2, 10, 70), null);
+            log.scoreChanged(grade(102, 1, 11, 90), null);
+            log.scoreChanged(grade(100, 1, 10, 85), 80);
+            log.finalGradeChanged(enrollment(1, "A"), null);
+            log.finalGradeChanged(enrollment(2, "B"), null);
+            log.scoreChanged(grade(101, 2, 10, 75), 70);
+
+            List<GradeAuditRecord> history = log.historyOfEnrollment(1);
+            assertEquals(List.of(0L, 2L, 3L, 4L), history.stream().map(GradeAuditRecord::sequence).toList());
+            assertEquals(85, history.get(2).newScore());
+            assertEquals(80, history.get(2).oldScore());
+            assertEquals(GradeAuditRecord.Kind.FINAL_GRADE, history.get(3).kind());
+            assertEquals("A", history.get(3).newGrade());
+
+            history = log.historyOfAssignment(10);
+            assertEquals(List.of(0L, 1L, 3L, 6L), history.stream().map(GradeAuditRecord::sequence).toList());
+            assertEquals(List.of(1, 2, 1, 2), history.stream().map(GradeAuditRecord::enrollmentId).toList());
+        } finally {
+            log.close();
+        }
+
+        // 7 records in segments of 3
+        assertEquals(3, GradeAuditLog.segmentFiles(dir).size());
+
+        // a restart continues the sequence after the last record
+        log = new GradeAuditLog(dir.toString(), 4, 3);
+        try {
+            log.scoreChanged(grade(102, 1, 11, 95), 90);
+            List<GradeAuditRecord> history = log.historyOfAssignment(11);
+            assertEquals(List.of(2L, 7L), history.stream().map(GradeAuditRecord::sequence).toList());
+            assertEquals(95, history.get(1).newScore());
+            assertEquals(5, log.historyOfEnrollment(1).size());
+        } finally {
+            log.close();
+        }
+    }
+
+    private static Grade grade(int gradeId, int enrollmentId, int assignmentId, int score) {
+        Assignment a = new Assignment();
+        a.setAssignmentId(assignmentId);
+        Grade g = new Grade();
+        g.setGradeId(gradeId);
+        g.setEnrollment(enrollment(enrollmentId, null));
+        g.setAssignment(a);
+        g.setScore(score);
+        return g;
+    }
+
+    private static Enrollment enrollment(int enrollmentId, String grade) {
+        Enrollment e = new Enrollment();
+        e.setEnrollmentId(enrollmentId);
+        e.setGrade(grade);
+        return e;
+    }
+}
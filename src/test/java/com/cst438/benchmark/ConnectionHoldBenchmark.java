@@ -0,0 +1,160 @@
+package com.cst438.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * How long requests hold pooled connections under load, with
+ * open-session-in-view off (the application setting) or on.
+ *
+ * Sessions arrive at sim.rate per second and read a section roster, the
+ * grades of an assignment, a student schedule and a student home page.
+ * Every connection taken from the pool is timed from getConnection to
+ * close.  The report has the number of connections taken per request,
+ * the hold time percentiles and the largest number of connections held
+ * at once.  With open-in-view on, a request keeps its session until the
+ * response is written, and associations missed by the fetch plans are
+ * loaded lazily on connections taken outside the transaction.
+ *
+ * Not run by mvn test (class name does not end in Test). Compare with
+ *    mvn test -Dtest=ConnectionHoldBenchmark
+ *    mvn test -Dtest=ConnectionHoldBenchmark -Dsim.open-in-view=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.open-in-view=${sim.open-in-view:false}")
+@Import(ConnectionHoldBenchmark.Config.class)
+public class ConnectionHoldBenchmark {
+
+    static final double RATE = Double.parseDouble(System.getProperty("sim.rate", "50"));
+    static final int DURATION_SECONDS = Integer.getInteger("sim.duration", 60);
+    static final int RAMP_SECONDS = Integer.getInteger("sim.ramp", 10);
+    static final long THINK_MILLIS = Long.getLong("sim.think-millis", 100);
+    static final int MAX_SESSIONS = Integer.getInteger("sim.max-sessions", 1000);
+    static final long SEED = Long.getLong("sim.seed", 438);
+
+    // hold times in nanoseconds of the connections closed during the run
+    private static final ConcurrentLinkedQueue<Long> holds = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger held = new AtomicInteger();
+    private static final AtomicInteger maxHeld = new AtomicInteger();
+    private static volatile boolean recording;
+
+    @LocalServerPort
+    int port;
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        static BeanPostProcessor connectionHoldDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                    if (bean instanceof DataSource ds && beanName.equals("dataSource")) {
+                        return new TimingDataSource(ds);
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    @Test
+    public void connectionHold() throws Exception {
+        LoadGenerator generator = new LoadGenerator("http://localhost:" + port, THINK_MILLIS, MAX_SESSIONS);
+        System.out.printf("open-in-view %s, sessions %.1f/s, %d s after a %d s ramp%n",
+                System.getProperty("sim.open-in-view", "false"), RATE, DURATION_SECONDS, RAMP_SECONDS);
+        maxHeld.set(held.get());
+        recording = true;
+        try {
+            generator.run(List.of(new LoadGenerator.Scenario("reader", RATE, this::reader)),
+                    Duration.ofSeconds(DURATION_SECONDS + RAMP_SECONDS),
+                    Duration.ofSeconds(RAMP_SECONDS),
+                    SEED);
+        } finally {
+            recording = false;
+        }
+        generator.printReport();
+
+        long[] sorted = holds.stream().mapToLong(Long::longValue).sorted().toArray();
+        assertTrue(sorted.length > 0);
+        System.out.printf("%d connections for %d requests, %.2f per request%n",
+                sorted.length, generator.requests(), (double) sorted.length / generator.requests());
+        System.out.printf("hold ms  p50 %.3f  p90 %.3f  p99 %.3f  max %.3f  total %.1f%n",
+                millis(sorted, 0.50), millis(sorted, 0.90), millis(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6, Arrays.stream(sorted).sum() / 1e6);
+        System.out.printf("at most %d connections held at once%n", maxHeld.get());
+    }
+
+    // ids from data.sql
+    private void reader(LoadGenerator.Session s) throws Exception {
+        s.get("GET /sections/{sectionNo}/enrollments", "/sections/8/enrollments");
+        s.think();
+        s.get("GET /assignments/{id}/grades", "/assignments/1/grades");
+        s.think();
+        s.get("GET /enrollments", "/enrollments?year=2024&semester=Spring&studentId=3");
+        s.think();
+        s.get("GET /students/{id}/home", "/students/3/home?year=2024&semester=Spring");
+    }
+
+    private static double millis(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))] / 1e6;
+    }
+
+    private static class TimingDataSource extends DelegatingDataSource {
+
+        TimingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return wrap(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return wrap(super.getConnection(username, password));
+        }
+
+        private static Connection wrap(Connection connection) {
+            long start = System.nanoTime();
+            maxHeld.accumulateAndGet(held.incrementAndGet(), Math::max);
+            boolean[] closed = new boolean[1];
+            return (Connection) Proxy.newProxyInstance(ConnectionHoldBenchmark.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("close") && !closed[0]) {
+                            closed[0] = true;
+                            held.decrementAndGet();
+                            if (recording) {
+                                holds.add(System.nanoTime() - start);
+                            }
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
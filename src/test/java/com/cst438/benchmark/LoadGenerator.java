@@ -0,0 +1,307 @@
+package com.cst438.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Open model HTTP load generator.
+ *
+ * Sessions of each scenario arrive at a fixed rate with exponential
+ * (Poisson) inter-arrival times, whether or not the server keeps up.  A
+ * slow server builds a backlog of active sessions, as it would on a real
+ * registration day, instead of slowing down the load as a closed loop of
+ * virtual users does.  The rate of every scenario rises linearly from
+ * zero during the ramp.
+ *
+ * A session runs its scenario's script on its own thread: requests one
+ * after another, with exponential think times between them.  At most
+ * maxSessions sessions are active; arrivals beyond that are dropped and
+ * reported.
+ *
+ * Each request is recorded under its endpoint name, for example
+ * "GET /sections/open", with its status and latency.
+ */
+public class LoadGenerator {
+
+    // the requests of one session
+    @FunctionalInterface
+    public interface Script {
+        void run(Session session) throws Exception;
+    }
+
+    public record Scenario(String name, double sessionsPerSecond, Script script) {
+    }
+
+    public record Response(int status, String body) {
+        public boolean ok() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(60);
+
+    private final String baseUrl;
+    private final long thinkMillis;
+    private final int maxSessions;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentSkipListMap<>();
+    private final Map<String, ScenarioStats> scenarios = new ConcurrentHashMap<>();
+    private long elapsedNanos;
+
+    public LoadGenerator(String baseUrl, long thinkMillis, int maxSessions) {
+        this.baseUrl = baseUrl;
+        this.thinkMillis = thinkMillis;
+        this.maxSessions = maxSessions;
+    }
+
+    // start sessions of the scenarios for the duration, then wait for the
+    // active sessions to finish
+    public void run(List<Scenario> mix, Duration duration, Duration ramp, long seed) throws InterruptedException {
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "session-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Semaphore active = new Semaphore(maxSessions);
+        Random random = new Random(seed);
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        PriorityQueue<Arrival> arrivals = new PriorityQueue<>();
+        for (Scenario s : mix) {
+            scenarios.put(s.name(), new ScenarioStats());
+            arrivals.add(new Arrival(start + interArrival(random, s, 0, ramp), s));
+        }
+        while (!arrivals.isEmpty()) {
+            Arrival a = arrivals.poll();
+            if (a.time >= end) {
+                continue;
+            }
+            long wait = a.time - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            ScenarioStats stats = scenarios.get(a.scenario.name());
+            stats.arrived.incrementAndGet();
+            if (active.tryAcquire()) {
+                Session session = new Session(new Random(random.nextLong()));
+                pool.execute(() -> {
+                    try {
+                        a.scenario.script().run(session);
+                        stats.completed.incrementAndGet();
+                    } catch (Exception e) {
+                        stats.fail(e);
+                    } finally {
+                        active.release();
+                    }
+                });
+            } else {
+                stats.dropped.incrementAndGet();
+            }
+            arrivals.add(new Arrival(a.time + interArrival(random, a.scenario, a.time - start, ramp), a.scenario));
+        }
+        pool.shutdown();
+        if (!pool.awaitTermination(DRAIN_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            pool.shutdownNow();
+        }
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    // time to the next arrival at the scenario's rate, scaled during the ramp
+    private static long interArrival(Random random, Scenario s, long sinceStart, Duration ramp) {
+        double rate = s.sessionsPerSecond();
+        if (sinceStart < ramp.toNanos()) {
+            rate *= Math.max(0.05, (double) sinceStart / ramp.toNanos());
+        }
+        return (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+    }
+
+    public void printReport() {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%nrun time %.1f s%n%n", seconds);
+        System.out.printf("%-14s %8s %8s %9s %9s %8s%n",
+                "scenario", "arrived", "dropped", "completed", "failed", "active");
+        for (Map.Entry<String, ScenarioStats> e : scenarios.entrySet()) {
+            ScenarioStats s = e.getValue();
+            System.out.printf("%-14s %8d %8d %9d %9d %8d%n", e.getKey(), s.arrived.get(), s.dropped.get(),
+                    s.completed.get(), s.failed.get(),
+                    s.arrived.get() - s.dropped.get() - s.completed.get() - s.failed.get());
+            if (s.firstFailure != null) {
+                System.out.println("    first failure: " + s.firstFailure);
+            }
+        }
+        System.out.printf("%n%-38s %7s %7s %7s %6s %6s %6s %6s %7s %9s %9s %9s %9s%n",
+                "endpoint", "count", "req/s", "2xx", "409", "4xx", "5xx", "io", "error%",
+                "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, EndpointStats> e : endpoints.entrySet()) {
+            e.getValue().print(e.getKey(), seconds);
+        }
+        System.out.println("409 is expected when a section is full or a grade was changed by another " +
+                "instructor.  error% counts 5xx responses and requests that got no response.");
+    }
+
+    public long requests() {
+        long count = 0;
+        for (EndpointStats s : endpoints.values()) {
+            count += s.count();
+        }
+        return count;
+    }
+
+    private EndpointStats endpoint(String name) {
+        return endpoints.computeIfAbsent(name, k -> new EndpointStats());
+    }
+
+    /*
+     * One simulated user.  Used only by the session's thread.
+     */
+    public class Session {
+        private final Random random;
+
+        Session(Random random) {
+            this.random = random;
+        }
+
+        public Random random() {
+            return random;
+        }
+
+        // pause for an exponential think time
+        public void think() throws InterruptedException {
+            Thread.sleep((long) (-Math.log(1 - random.nextDouble()) * thinkMillis));
+        }
+
+        public Response get(String endpoint, String path) throws IOException, InterruptedException {
+            return send(endpoint, request(path).GET());
+        }
+
+        public Response post(String endpoint, String path) throws IOException, InterruptedException {
+            return send(endpoint, request(path).POST(HttpRequest.BodyPublishers.noBody()));
+        }
+
+        public Response put(String endpoint, String path, String json) throws IOException, InterruptedException {
+            return send(endpoint, request(path)
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(json)));
+        }
+
+        public Response delete(String endpoint, String path) throws IOException, InterruptedException {
+            return send(endpoint, request(path).DELETE());
+        }
+
+        private HttpRequest.Builder request(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Accept", "application/json");
+        }
+
+        private Response send(String endpoint, HttpRequest.Builder request) throws IOException, InterruptedException {
+            EndpointStats stats = endpoint(endpoint);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+                stats.record(response.statusCode(), System.nanoTime() - start);
+                return new Response(response.statusCode(), response.body());
+            } catch (IOException e) {
+                stats.record(0, System.nanoTime() - start);
+                throw e;
+            }
+        }
+    }
+
+    private record Arrival(long time, Scenario scenario) implements Comparable<Arrival> {
+        public int compareTo(Arrival other) {
+            return Long.compare(time, other.time);
+        }
+    }
+
+    private static class ScenarioStats {
+        final AtomicLong arrived = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        volatile String firstFailure;
+
+        void fail(Exception e) {
+            if (failed.incrementAndGet() == 1) {
+                firstFailure = e.toString();
+            }
+        }
+    }
+
+    /*
+     * Status counts and latencies of one endpoint.  status 0 is a request
+     * that got no response.
+     */
+    private static class EndpointStats {
+        private long[] nanos = new long[1024];
+        private int count;
+        private int ok;
+        private int conflict;
+        private int clientError;
+        private int serverError;
+        private int noResponse;
+
+        synchronized void record(int status, long latency) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = latency;
+            if (status == 0) {
+                noResponse++;
+            } else if (status < 300) {
+                ok++;
+            } else if (status == 409) {
+                conflict++;
+            } else if (status < 500) {
+                clientError++;
+            } else {
+                serverError++;
+            }
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized void print(String name, double seconds) {
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            System.out.printf("%-38s %7d %7.1f %7d %6d %6d %6d %6d %6.2f%% %9.2f %9.2f %9.2f %9.2f%n",
+                    name, count, count / seconds, ok, conflict, clientError, serverError, noResponse,
+                    100.0 * (serverError + noResponse) / Math.max(count, 1),
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    percentile(sorted, 1.0));
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int i = Math.min(sorted.length - 1, (int) (sorted.length * p));
+            return sorted[i] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.cst438.benchmark;
+
+import com.cst438.config.JacksonConfig;
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.SectionDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Size and serialization time of a large section list and roster in
+ * JSON, CBOR and Smile, with all fields and with the fields used by the
+ * schedule and roster screens, before and after gzip.  Uses the mappers
+ * of the running application, so the fields filter is the one requests use.
+ *
+ * Not run by mvn test (class name does not end in Test). Run with
+ *    mvn test -Dtest=PayloadBenchmark
+ */
+@SpringBootTest
+public class PayloadBenchmark {
+
+    static final int ROWS = 5000;
+    static final int WARMUP = 50;
+    static final int ITERATIONS = 200;
+
+    static final Set<String> SECTION_FIELDS = Set.of("secNo", "courseId", "secId", "times");
+    static final Set<String> ROSTER_FIELDS = Set.of("enrollmentId", "name", "grade", "version");
+
+    @Autowired
+    ObjectMapper json;
+
+    @Autowired
+    MappingJackson2CborHttpMessageConverter cbor;
+
+    @Autowired
+    MappingJackson2SmileHttpMessageConverter smile;
+
+    @Test
+    public void comparePayloads() throws IOException {
+        List<SectionDTO> sections = new ArrayList<>();
+        List<EnrollmentDTO> roster = new ArrayList<>();
+        for (int i=0; i<ROWS; i++) {
+            sections.add(new SectionDTO(1000+i, 2024, "Spring", "cst"+(100+i%400), i%5+1,
+                    "052", "10"+i%9, "M W 10:00-11:50", "david wisneski", "dwisneski@csumb.edu", 0,
+                    i%40, 40-i%40));
+            roster.add(new EnrollmentDTO(10000+i, (i%3==0) ? "A" : null, 7000+i, "student "+i,
+                    "student"+i+"@csumb.edu", "cst363", 1, 1000, "052", "104", "M W 10:00-11:50",
+                    4, 2024, "Spring", 0));
+        }
+        System.out.printf("%-28s %10s %10s %12s%n", "", "bytes", "gzip", "serialize");
+        measure("sections", sections, SECTION_FIELDS);
+        measure("roster", roster, ROSTER_FIELDS);
+    }
+
+    private void measure(String name, Object body, Set<String> fields) throws IOException {
+        ObjectMapper[] mappers = {json, cbor.getObjectMapper(), smile.getObjectMapper()};
+        String[] encodings = {"json", "cbor", "smile"};
+        for (int m=0; m<mappers.length; m++) {
+            report(name+" "+encodings[m]+" all", mappers[m].writer(), body);
+            ObjectWriter sparse = mappers[m].writer(new SimpleFilterProvider()
+                    .addFilter(JacksonConfig.FIELDS_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+            report(name+" "+encodings[m]+" fields", sparse, body);
+        }
+    }
+
+    private static void report(String name, ObjectWriter writer, Object body) throws IOException {
+        byte[] bytes = null;
+        for (int i=0; i<WARMUP; i++) {
+            bytes = writer.writeValueAsBytes(body);
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i=0; i<ITERATIONS; i++) {
+            long start = System.nanoTime();
+            bytes = writer.writeValueAsBytes(body);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-28s %10d %10d %9.3f ms%n", name, bytes.length, gzip(bytes).length,
+                nanos[nanos.length/2] / 1e6);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
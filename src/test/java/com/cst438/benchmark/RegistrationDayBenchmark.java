@@ -0,0 +1,194 @@
+package com.cst438.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Simulates the worst hour of registration day against the application
+ * over HTTP.
+ *
+ * Students arrive at sim.student-rate sessions per second.  A student
+ * opens their home page, lists the open sections, enrolls in one and
+ * checks their schedule.  With probability sim.drop-rate they drop the
+ * section and enroll in another one first.  Sections fill up, so later
+ * students are put on waitlists (409) and drops promote waiting students.
+ * Instructors arrive at sim.instructor-rate sessions per second, open
+ * their dashboard, read the grades of an assignment and upload scores
+ * through PUT /grades.
+ *
+ * Arrivals follow an open model (see LoadGenerator), so a slow server
+ * builds a backlog instead of slowing down the load.  The report has the
+ * throughput, error rate and latency percentiles of every endpoint.
+ *
+ * The term, sections, assignments and users are inserted into the
+ * in-memory database before the run.
+ *
+ * Not run by mvn test (class name does not end in Test). Run with
+ *    mvn test -Dtest=RegistrationDayBenchmark
+ * and change the load with system properties, for example
+ *    mvn test -Dtest=RegistrationDayBenchmark -Dsim.duration=600 -Dsim.student-rate=60
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class RegistrationDayBenchmark {
+
+    static final int STUDENTS = Integer.getInteger("sim.students", 3000);
+    static final int INSTRUCTORS = Integer.getInteger("sim.instructors", 20);
+    static final int SECTIONS = Integer.getInteger("sim.sections", 60);
+    static final int CAPACITY = Integer.getInteger("sim.capacity", 30);
+    static final double STUDENT_RATE = Double.parseDouble(System.getProperty("sim.student-rate", "25"));
+    static final double INSTRUCTOR_RATE = Double.parseDouble(System.getProperty("sim.instructor-rate", "1"));
+    static final double DROP_RATE = Double.parseDouble(System.getProperty("sim.drop-rate", "0.3"));
+    static final int DURATION_SECONDS = Integer.getInteger("sim.duration", 120);
+    static final int RAMP_SECONDS = Integer.getInteger("sim.ramp", 30);
+    static final long THINK_MILLIS = Long.getLong("sim.think-millis", 1000);
+    static final int MAX_SESSIONS = Integer.getInteger("sim.max-sessions", 2000);
+    static final long SEED = Long.getLong("sim.seed", 438);
+
+    // ids well above the values the sequences hand out
+    static final int TERM_ID = 900_000;
+    static final int SECTION_BASE = 900_000;
+    static final int ASSIGNMENT_BASE = 900_000;
+    static final int INSTRUCTOR_BASE = 900_000;
+    static final int STUDENT_BASE = 1_000_000;
+
+    static final String TERM = "year=2030&semester=Fall";
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void registrationDay() throws Exception {
+        loadData();
+        LoadGenerator generator = new LoadGenerator("http://localhost:" + port, THINK_MILLIS, MAX_SESSIONS);
+        System.out.printf("%d students, %d sections of %d seats, students %.1f/s, instructors %.1f/s, %d s after a %d s ramp%n",
+                STUDENTS, SECTIONS, CAPACITY, STUDENT_RATE, INSTRUCTOR_RATE, DURATION_SECONDS, RAMP_SECONDS);
+        generator.run(List.of(
+                        new LoadGenerator.Scenario("student", STUDENT_RATE, this::student),
+                        new LoadGenerator.Scenario("instructor", INSTRUCTOR_RATE, this::instructor)),
+                Duration.ofSeconds(DURATION_SECONDS + RAMP_SECONDS),
+                Duration.ofSeconds(RAMP_SECONDS),
+                SEED);
+        generator.printReport();
+        assertTrue(generator.requests() > 0);
+    }
+
+    private void student(LoadGenerator.Session s) throws Exception {
+        int studentId = STUDENT_BASE + s.random().nextInt(STUDENTS);
+        s.get("GET /students/{id}/home", "/students/" + studentId + "/home?" + TERM);
+        s.think();
+        LoadGenerator.Response open = s.get("GET /sections/open", "/sections/open");
+        List<Integer> sections = new ArrayList<>();
+        if (open.ok()) {
+            for (JsonNode section : mapper.readTree(open.body())) {
+                sections.add(section.get("secNo").asInt());
+            }
+        }
+        if (sections.isEmpty()) {
+            return;
+        }
+        s.think();
+        Integer enrollmentId = enroll(s, studentId, sections);
+        if (enrollmentId != null && s.random().nextDouble() < DROP_RATE) {
+            s.think();
+            s.delete("DELETE /enrollments/{id}", "/enrollments/" + enrollmentId);
+            s.think();
+            enroll(s, studentId, sections);
+        }
+        s.think();
+        s.get("GET /enrollments", "/enrollments?" + TERM + "&studentId=" + studentId);
+    }
+
+    // enroll in a random section. return the enrollment id, or null if the
+    // student was put on the waitlist or was already enrolled.
+    private Integer enroll(LoadGenerator.Session s, int studentId, List<Integer> sections) throws Exception {
+        int sectionNo = sections.get(s.random().nextInt(sections.size()));
+        LoadGenerator.Response r = s.post("POST /enrollments/sections/{sectionNo}",
+                "/enrollments/sections/" + sectionNo + "?studentId=" + studentId);
+        return r.ok() ? mapper.readTree(r.body()).get("enrollmentId").asInt() : null;
+    }
+
+    private void instructor(LoadGenerator.Session s) throws Exception {
+        int k = s.random().nextInt(SECTIONS);
+        s.get("GET /instructors/{email}/dashboard",
+                "/instructors/" + instructorEmail(k % INSTRUCTORS) + "/dashboard?" + TERM);
+        s.think();
+        LoadGenerator.Response grades = s.get("GET /assignments/{id}/grades",
+                "/assignments/" + (ASSIGNMENT_BASE + k) + "/grades");
+        if (!grades.ok()) {
+            return;
+        }
+        ArrayNode scores = mapper.createArrayNode();
+        for (JsonNode g : mapper.readTree(grades.body())) {
+            ObjectNode score = scores.addObject();
+            score.put("gradeId", g.get("gradeId").asInt());
+            score.put("score", 60 + s.random().nextInt(41));
+            score.set("version", g.get("version"));
+        }
+        if (scores.isEmpty()) {
+            return;
+        }
+        s.think();
+        s.put("PUT /grades", "/grades", mapper.writeValueAsString(scores));
+    }
+
+    private static String instructorEmail(int i) {
+        return "instructor" + i + "@registration.test";
+    }
+
+    // a term open for adds and drops, SECTIONS sections of 10 courses taught by
+    // INSTRUCTORS instructors, one assignment per section and STUDENTS students
+    private void loadData() {
+        LocalDate today = LocalDate.now();
+        jdbcTemplate.update("insert into term (term_id, tyear, semester, add_date, add_deadline, " +
+                        "drop_deadline, start_date, end_date) values (?, 2030, 'Fall', ?, ?, ?, ?, ?)",
+                TERM_ID, Date.valueOf(today.minusDays(7)), Date.valueOf(today.plusDays(7)),
+                Date.valueOf(today.plusDays(7)), Date.valueOf(today.minusDays(1)), Date.valueOf(today.plusDays(100)));
+
+        List<Object[]> courses = new ArrayList<>();
+        for (int c = 0; c < 10; c++) {
+            courses.add(new Object[] {"reg" + c, "Registration Course " + c});
+        }
+        jdbcTemplate.batchUpdate("insert into course (course_id, title, credits) values (?, ?, 4)", courses);
+
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < INSTRUCTORS; i++) {
+            users.add(new Object[] {INSTRUCTOR_BASE + i, "instructor " + i, instructorEmail(i), "INSTRUCTOR"});
+        }
+        for (int i = 0; i < STUDENTS; i++) {
+            users.add(new Object[] {STUDENT_BASE + i, "student " + i, "student" + i + "@registration.test", "STUDENT"});
+        }
+        jdbcTemplate.batchUpdate("insert into user_table (id, name, email, password, type) values (?, ?, ?, '', ?)", users);
+
+        List<Object[]> sections = new ArrayList<>();
+        List<Object[]> assignments = new ArrayList<>();
+        for (int k = 0; k < SECTIONS; k++) {
+            sections.add(new Object[] {SECTION_BASE + k, "reg" + (k % 10), k / 10 + 1, instructorEmail(k % INSTRUCTORS)});
+            assignments.add(new Object[] {ASSIGNMENT_BASE + k, SECTION_BASE + k, Date.valueOf(today.plusDays(14))});
+        }
+        jdbcTemplate.batchUpdate("insert into section (section_no, course_id, sec_id, term_id, building, room, " +
+                "times, instructor_email, capacity) values (?, ?, ?, " + TERM_ID + ", '052', '100', 'M W 10:00-11:50', ?, " +
+                CAPACITY + ")", sections);
+        jdbcTemplate.batchUpdate("insert into assignment (assignment_id, section_no, title, due_date) " +
+                "values (?, ?, 'homework 1', ?)", assignments);
+    }
+}
@@ -0,0 +1,59 @@
+package com.cst438.benchmark;
+
+import com.cst438.cache.SecondLevelCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * SQL statements per request with the Course, Term and User cache empty
+ * (as if there were no cache) and with the cache warm.
+ *
+ * Not run by mvn test (class name does not end in Test). Run with
+ *    mvn test -Dtest=SecondLevelCacheBenchmark
+ */
+@AutoConfigureMockMvc
+@SpringBootTest
+public class SecondLevelCacheBenchmark {
+
+    static final String[] URLS = {
+            "/courses",
+            "/terms",
+            "/sections/open",
+            "/courses/cst/sections?year=2024&semester=Spring",
+            "/sections?email=dwisneski@csumb.edu&year=2024&semester=Spring",
+            "/sections/8/enrollments",
+            "/transcripts?studentId=3",
+    };
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    SecondLevelCache secondLevelCache;
+
+    @Test
+    public void statementsPerRequest() throws Exception {
+        System.out.printf("%-62s %6s %6s%n", "request", "cold", "warm");
+        for (String url : URLS) {
+            secondLevelCache.evictAll();
+            long cold = statements(url);
+            long warm = statements(url);
+            System.out.printf("%-62s %6d %6d%n", url, cold, warm);
+            assertTrue(warm <= cold);
+        }
+        System.out.println(secondLevelCache.stats());
+    }
+
+    private long statements(String url) throws Exception {
+        long before = secondLevelCache.statementCount();
+        int status = mvc.perform(MockMvcRequestBuilders.get(url)).andReturn().getResponse().getStatus();
+        assertEquals(200, status);
+        return secondLevelCache.statementCount() - before;
+    }
+}
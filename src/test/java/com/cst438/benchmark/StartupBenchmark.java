@@ -0,0 +1,143 @@
+package com.cst438.benchmark;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Startup time and first request latency of the application started
+ * as it is today (java -jar) and with the startup profile options added
+ * one at a time: thin class path, AOT, class data sharing, lazy beans.
+ *
+ * Each configuration is started RUNS times in a new JVM.  Startup time is
+ * measured from process start to the "Started" log line, first request is
+ * the first GET /sections/open, which includes the lazy creation of the
+ * controller and of the dispatcher servlet.
+ *
+ * Build first, then run
+ *    mvn -Pstartup package -DskipTests
+ *    mvn test -Dtest=StartupBenchmark
+ * Without the startup profile only the java -jar configuration is measured.
+ */
+public class StartupBenchmark {
+
+    static final int RUNS = 5;
+    static final String MAIN = "com.cst438.Cst438Assignment2Main";
+    static final String FIRST_REQUEST = "/sections/open";
+
+    static final Path TARGET = Path.of("target");
+    static final Path THIN_JAR = TARGET.resolve("Assignment2-0.0.1-SNAPSHOT.jar");
+    static final Path EXEC_JAR = TARGET.resolve("Assignment2-0.0.1-SNAPSHOT-exec.jar");
+    static final Path LIB = TARGET.resolve("startup/lib");
+    static final Path ARCHIVE = TARGET.resolve("startup/app.jsa");
+
+    record Config(String name, List<String> args) { }
+
+    @Test
+    public void compareStartup() throws Exception {
+        List<Config> configs = new ArrayList<>();
+        Path executable = Files.exists(EXEC_JAR) ? EXEC_JAR : THIN_JAR;
+        assertTrue(Files.exists(executable), "build the application jar first");
+        configs.add(new Config("java -jar", List.of("-jar", executable.toString())));
+
+        if (Files.isDirectory(LIB) && Files.exists(ARCHIVE)) {
+            String cp = THIN_JAR + File.pathSeparator + LIB + File.separator + "*";
+            configs.add(new Config("thin class path", List.of("-cp", cp, MAIN)));
+            configs.add(new Config("+ AOT", List.of("-Dspring.aot.enabled=true", "-cp", cp, MAIN)));
+            configs.add(new Config("+ CDS", List.of("-XX:SharedArchiveFile="+ARCHIVE,
+                    "-Dspring.aot.enabled=true", "-cp", cp, MAIN)));
+            configs.add(new Config("+ lazy beans", List.of("-XX:SharedArchiveFile="+ARCHIVE,
+                    "-Dspring.aot.enabled=true", "-Dspring.main.lazy-initialization=true", "-cp", cp, MAIN)));
+        } else {
+            System.out.println("startup profile not built, measuring java -jar only");
+        }
+
+        for (Config c : configs) {
+            long[] startup = new long[RUNS];
+            long[] first = new long[RUNS];
+            for (int i=0; i<RUNS; i++) {
+                long[] r = run(c);
+                startup[i] = r[0];
+                first[i] = r[1];
+            }
+            report(c.name(), startup, first);
+        }
+    }
+
+    // start the application, return startup and first request nanos
+    private long[] run(Config c) throws Exception {
+        int port;
+        try (ServerSocket s = new ServerSocket(0)) {
+            port = s.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Dserver.port="+port);
+        command.addAll(c.args());
+
+        long start = System.nanoTime();
+        Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try {
+            waitForStarted(p);
+            long startup = System.nanoTime() - start;
+
+            HttpClient client = HttpClient.newHttpClient();
+            long t = System.nanoTime();
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:"+port+FIRST_REQUEST)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            long firstRequest = System.nanoTime() - t;
+            assertEquals(200, response.statusCode());
+            return new long[] {startup, firstRequest};
+        } finally {
+            p.destroy();
+            if (!p.waitFor(30, TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+            }
+        }
+    }
+
+    private static void waitForStarted(Process p) throws IOException {
+        BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream()));
+        String line;
+        while ((line = out.readLine()) != null) {
+            if (line.contains("Started Cst438Assignment2Main")) {
+                // keep draining the output so the application never blocks on a full pipe
+                Thread drain = new Thread(() -> out.lines().forEach(l -> { }));
+                drain.setDaemon(true);
+                drain.start();
+                return;
+            }
+        }
+        fail("application exited before it started");
+    }
+
+    private static void report(String name, long[] startup, long[] first) {
+        System.out.printf("%-16s startup median %7.0f ms  min %7.0f ms   first request median %6.1f ms  min %6.1f ms%n",
+                name,
+                median(startup) / 1e6, Arrays.stream(startup).min().getAsLong() / 1e6,
+                median(first) / 1e6, Arrays.stream(first).min().getAsLong() / 1e6);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length/2];
+    }
+}
@@ -0,0 +1,77 @@
+package com.cst438.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Compares end to end latency of the student landing page loaded with
+ * the three separate requests  /enrollments, /assignments, /transcripts
+ * against the single composite request /students/{id}/home.
+ *
+ * Not run by mvn test (class name does not end in Test). Run with
+ *    mvn test -Dtest=StudentHomeBenchmark
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class StudentHomeBenchmark {
+
+    static final int WARMUP = 200;
+    static final int ITERATIONS = 1000;
+
+    static final int STUDENT_ID = 3;
+    static final String TERM = "year=2024&semester=Spring";
+
+    @Autowired
+    TestRestTemplate rest;
+
+    @Test
+    public void compareHomeWithSeparateCalls() {
+        for (int i=0; i<WARMUP; i++) {
+            separateCalls();
+            compositeCall();
+        }
+        long[] separate = new long[ITERATIONS];
+        long[] composite = new long[ITERATIONS];
+        for (int i=0; i<ITERATIONS; i++) {
+            long start = System.nanoTime();
+            separateCalls();
+            separate[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            compositeCall();
+            composite[i] = System.nanoTime() - start;
+        }
+        report("3 separate calls", separate);
+        report("/students/{id}/home", composite);
+    }
+
+    private void separateCalls() {
+        check(rest.getForEntity("/enrollments?studentId="+STUDENT_ID+"&"+TERM, String.class));
+        check(rest.getForEntity("/assignments?studentId="+STUDENT_ID+"&"+TERM, String.class));
+        check(rest.getForEntity("/transcripts?studentId="+STUDENT_ID, String.class));
+    }
+
+    private void compositeCall() {
+        check(rest.getForEntity("/students/"+STUDENT_ID+"/home?"+TERM, String.class));
+    }
+
+    private static void check(ResponseEntity<String> response) {
+        assertEquals(200, response.getStatusCode().value());
+    }
+
+    private static void report(String name, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-22s p50 %8.3f ms   p95 %8.3f ms   p99 %8.3f ms%n",
+                name,
+                sorted[sorted.length/2] / 1e6,
+                sorted[(int)(sorted.length*0.95)] / 1e6,
+                sorted[(int)(sorted.length*0.99)] / 1e6);
+    }
+}
@@ -0,0 +1,161 @@
+package com.cst438.controller;
+
+import com.cst438.dto.CohortEnrollmentDTO;
+import com.cst438.dto.CohortResultDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.routing.ReadYourWrites;
+import com.cst438.test.utils.Fixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.cst438.test.utils.TestUtils.asJsonString;
+import static com.cst438.test.utils.TestUtils.fromJsonString;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * outcomes of POST /enrollments/cohort for every student and section pair.
+ *
+ * the open term has section A with 2 seats and section B with 1 seat.
+ * the closed term has section C.  student 1 is already enrolled in A.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest
+public class CohortEnrollmentUnitTest {
+
+    static final int BASE = 920_000;
+    static final int OPEN_TERM = BASE;
+    static final int CLOSED_TERM = BASE + 1;
+    static final int SECTION_A = BASE;
+    static final int SECTION_B = BASE + 1;
+    static final int SECTION_C = BASE + 2;
+    static final int STUDENT_1 = BASE + 11;
+    static final int STUDENT_2 = BASE + 12;
+    static final int STUDENT_3 = BASE + 13;
+    static final int INSTRUCTOR = BASE + 20;
+    static final int MISSING = BASE + 99;
+    static final String COURSE = "co" + BASE;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    @Autowired
+    ReadYourWrites readYourWrites;
+
+    Fixture fixture;
+
+    @BeforeEach
+    public void load() {
+        LocalDate today = LocalDate.now();
+        fixture = new Fixture(jdbcTemplate, changeEventBus);
+        fixture.openTerm(OPEN_TERM, 2030, "Fall")
+                .term(CLOSED_TERM, 2029, "Fall", today.minusDays(400), today.minusDays(370),
+                        today.minusDays(370), today.minusDays(380), today.minusDays(240))
+                .course(COURSE, "Cohorts", 4)
+                .section(SECTION_A, COURSE, 1, OPEN_TERM, "052", "100", "M W 10:00-11:50", "", 2)
+                .section(SECTION_B, COURSE, 2, OPEN_TERM, "052", "100", "M W 10:00-11:50", "", 1)
+                .section(SECTION_C, COURSE, 1, CLOSED_TERM);
+        for (int id : new int[] {STUDENT_1, STUDENT_2, STUDENT_3}) {
+            fixture.student(id, "s" + id + "@cohort.test");
+        }
+        fixture.instructor(INSTRUCTOR, "i" + INSTRUCTOR + "@cohort.test")
+                .enrollment(SECTION_A, STUDENT_1);
+    }
+
+    @AfterEach
+    public void delete() {
+        fixture.delete();
+    }
+
+    @Test
+    public void enrollCohort() throws Exception {
+
+        CohortEnrollmentDTO cohort = new CohortEnrollmentDTO(
+                List.of(STUDENT_1, STUDENT_2, STUDENT_3, INSTRUCTOR, MISSING),
+                List.of(SECTION_A, SECTION_B, SECTION_C, MISSING));
+
+        MockHttpServletResponse response = enroll(cohort);
+        assertEquals(200, response.getStatus());
+        CohortResultDTO result = fromJsonString(response.getContentAsString(), CohortResultDTO.class);
+
+        // students are placed in request order, so student 1 gets the only
+        // seat of B and student 2 the last seat of A
+        assertEquals(List.of(
+                List.of("ALREADY_ENROLLED", "ENROLLED", "ADD_PERIOD_CLOSED", "SECTION_NOT_FOUND"),
+                List.of("ENROLLED", "SECTION_FULL", "ADD_PERIOD_CLOSED", "SECTION_NOT_FOUND"),
+                List.of("SECTION_FULL", "SECTION_FULL", "ADD_PERIOD_CLOSED", "SECTION_NOT_FOUND"),
+                List.of("STUDENT_NOT_FOUND", "STUDENT_NOT_FOUND", "STUDENT_NOT_FOUND", "SECTION_NOT_FOUND"),
+                List.of("STUDENT_NOT_FOUND", "STUDENT_NOT_FOUND", "STUDENT_NOT_FOUND", "SECTION_NOT_FOUND")),
+                result.results());
+        assertEquals(2, result.enrolled());
+        assertEquals(cohort.studentIds(), result.studentIds());
+        assertEquals(cohort.sectionNos(), result.sectionNos());
+
+        // check the database
+        assertEquals(1, enrollments(SECTION_A, STUDENT_1));
+        assertEquals(1, enrollments(SECTION_A, STUDENT_2));
+        assertEquals(1, enrollments(SECTION_B, STUDENT_1));
+        assertEquals(0, enrollments(SECTION_A, STUDENT_3));
+        assertEquals(0, enrollments(SECTION_B, STUDENT_2));
+        assertEquals(0, enrollments(SECTION_C, STUDENT_1));
+
+        // enrolled students read from the primary until the replica has caught up
+        assertTrue(readYourWrites.mustReadPrimary(STUDENT_2));
+        assertFalse(readYourWrites.mustReadPrimary(STUDENT_3));
+
+        // run again, everyone who got a seat is already enrolled
+        result = fromJsonString(enroll(cohort).getContentAsString(), CohortResultDTO.class);
+        assertEquals(0, result.enrolled());
+        assertEquals(List.of("ALREADY_ENROLLED", "ALREADY_ENROLLED", "ADD_PERIOD_CLOSED", "SECTION_NOT_FOUND"),
+                result.results().get(0));
+        assertEquals(List.of("ALREADY_ENROLLED", "SECTION_FULL", "ADD_PERIOD_CLOSED", "SECTION_NOT_FOUND"),
+                result.results().get(1));
+    }
+
+    @Test
+    public void enrollCohortFailsTooManyPairs() throws Exception {
+
+        List<Integer> students = new ArrayList<>();
+        List<Integer> sections = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            students.add(STUDENT_1);
+        }
+        for (int i = 0; i < 100; i++) {
+            sections.add(SECTION_A);
+        }
+        MockHttpServletResponse response = enroll(new CohortEnrollmentDTO(students, sections));
+        assertEquals(400, response.getStatus());
+        assertEquals(1, enrollments(SECTION_A, STUDENT_1));
+    }
+
+    private MockHttpServletResponse enroll(CohortEnrollmentDTO cohort) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.post("/enrollments/cohort")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(cohort)))
+                .andReturn().getResponse();
+    }
+
+    private int enrollments(int sectionNo, int studentId) {
+        return jdbcTemplate.queryForObject("select count(*) from enrollment where section_no=? and user_id=?",
+                Integer.class, sectionNo, studentId);
+    }
+}
@@ -0,0 +1,184 @@
+package com.cst438.controller;
+
+import com.cst438.event.ChangeEventBus;
+import com.cst438.test.utils.Fixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * delete of a section, course or user that still has rows depending on it.
+ * without cascade the delete is refused with 409 and nothing is removed,
+ * with cascade=true the dependent rows are removed too.
+ *
+ * each test has its own term, course and section with an instructor, one
+ * enrolled student with a graded assignment, and one waitlisted student.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest
+public class DeleteCascadeUnitTest {
+
+    private static final AtomicInteger tests = new AtomicInteger();
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    int base;
+    int section;
+    int student;
+    int waiting;
+    int instructor;
+    int enrollment;
+    int assignment;
+    int grade;
+    String course;
+    Fixture fixture;
+
+    @BeforeEach
+    public void load() {
+        base = 930_000 + tests.incrementAndGet() * 100;
+        section = base;
+        student = base + 1;
+        waiting = base + 2;
+        instructor = base + 3;
+        enrollment = base;
+        assignment = base;
+        grade = base;
+        course = "dc" + base;
+        fixture = new Fixture(jdbcTemplate, changeEventBus);
+        fixture.openTerm(base, 2030, "Spring")
+                .course(course, "Deletes", 4)
+                .user(student, "student", "s" + student + "@delete.test", "STUDENT")
+                .user(waiting, "waiting", "s" + waiting + "@delete.test", "STUDENT")
+                .instructor(instructor, "i" + instructor + "@delete.test")
+                .section(section, course, 1, base, "052", "100", "M W 10:00-11:50", "i" + instructor + "@delete.test", 1)
+                .enrollment(enrollment, section, student)
+                .assignment(assignment, section, "hw 1", LocalDate.now().plusDays(20))
+                .grade(grade, enrollment, assignment, 90)
+                .waitlist(section, waiting, 1);
+    }
+
+    @AfterEach
+    public void delete() {
+        fixture.delete();
+    }
+
+    @Test
+    public void deleteSectionRestrict() throws Exception {
+
+        MockHttpServletResponse response = delete("/sections/" + section);
+        assertEquals(409, response.getStatus());
+        assertEquals("section has 1 enrollments, 1 assignments and 1 waitlisted students", response.getErrorMessage());
+        assertEquals(1, count("section where section_no=?", section));
+        assertEquals(1, count("enrollment where section_no=?", section));
+        assertEquals(1, count("assignment where section_no=?", section));
+        assertEquals(1, count("grade where grade_id=?", grade));
+        assertEquals(1, count("waitlist where section_no=?", section));
+    }
+
+    @Test
+    public void deleteSectionCascade() throws Exception {
+
+        MockHttpServletResponse response = delete("/sections/" + section + "?cascade=true");
+        assertEquals(200, response.getStatus());
+        assertEquals(0, count("section where section_no=?", section));
+        assertEquals(0, count("enrollment where section_no=?", section));
+        assertEquals(0, count("assignment where section_no=?", section));
+        assertEquals(0, count("grade where grade_id=?", grade));
+        assertEquals(0, count("waitlist where section_no=?", section));
+
+        // the course and the users are kept
+        assertEquals(1, count("course where course_id=?", course));
+        assertEquals(3, count("user_table where id between ? and ?", student, instructor));
+    }
+
+    @Test
+    public void deleteCourseRestrict() throws Exception {
+
+        MockHttpServletResponse response = delete("/courses/" + course);
+        assertEquals(409, response.getStatus());
+        assertEquals("course has 1 sections", response.getErrorMessage());
+        assertEquals(1, count("course where course_id=?", course));
+        assertEquals(1, count("section where section_no=?", section));
+        assertEquals(1, count("grade where grade_id=?", grade));
+    }
+
+    @Test
+    public void deleteCourseCascade() throws Exception {
+
+        MockHttpServletResponse response = delete("/courses/" + course + "?cascade=true");
+        assertEquals(200, response.getStatus());
+        assertEquals(0, count("course where course_id=?", course));
+        assertEquals(0, count("section where section_no=?", section));
+        assertEquals(0, count("enrollment where section_no=?", section));
+        assertEquals(0, count("assignment where section_no=?", section));
+        assertEquals(0, count("grade where grade_id=?", grade));
+        assertEquals(0, count("waitlist where section_no=?", section));
+        assertEquals(1, count("term where term_id=?", base));
+    }
+
+    @Test
+    public void deleteUserRestrict() throws Exception {
+
+        MockHttpServletResponse response = delete("/users/" + student);
+        assertEquals(409, response.getStatus());
+        assertEquals("user has 1 enrollments and 0 sections", response.getErrorMessage());
+
+        response = delete("/users/" + instructor);
+        assertEquals(409, response.getStatus());
+        assertEquals("user has 0 enrollments and 1 sections", response.getErrorMessage());
+
+        assertEquals(3, count("user_table where id between ? and ?", student, instructor));
+        assertEquals(1, count("enrollment where enrollment_id=?", enrollment));
+        assertEquals(1, count("grade where grade_id=?", grade));
+    }
+
+    @Test
+    public void deleteUserCascade() throws Exception {
+
+        // the student's enrollment and grade are removed, the section is kept
+        MockHttpServletResponse response = delete("/users/" + student + "?cascade=true");
+        assertEquals(200, response.getStatus());
+        assertEquals(0, count("user_table where id=?", student));
+        assertEquals(0, count("enrollment where enrollment_id=?", enrollment));
+        assertEquals(0, count("grade where grade_id=?", grade));
+        assertEquals(1, count("assignment where assignment_id=?", assignment));
+
+        // a waitlisted student without enrollments needs no cascade
+        response = delete("/users/" + waiting);
+        assertEquals(200, response.getStatus());
+        assertEquals(0, count("waitlist where section_no=?", section));
+
+        // the instructor's section is kept without an instructor
+        response = delete("/users/" + instructor + "?cascade=true");
+        assertEquals(200, response.getStatus());
+        assertEquals(0, count("user_table where id=?", instructor));
+        assertEquals(1, count("section where section_no=? and instructor_email is null", section));
+    }
+
+    private MockHttpServletResponse delete(String url) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.delete(url)).andReturn().getResponse();
+    }
+
+    private int count(String from, Object... args) {
+        return jdbcTemplate.queryForObject("select count(*) from " + from, Integer.class, args);
+    }
+}
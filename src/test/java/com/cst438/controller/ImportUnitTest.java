@@ -0,0 +1,146 @@
+package com.cst438.controller;
+
+import com.cst438.dto.CourseDTO;
+import com.cst438.dto.ImportErrorDTO;
+import com.cst438.dto.ImportResultDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.test.utils.Fixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.cst438.test.utils.TestUtils.fromJsonString;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * POST /import/enrollments reporting every rejected line of the file,
+ * and imported courses listed by the next GET /courses although the
+ * course list is in the query cache.
+ *
+ * the section has 2 seats and student 1 is already enrolled.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest
+public class ImportUnitTest {
+
+    static final int BASE = 960_000;
+    static final int TERM = BASE;
+    static final int SECTION = BASE;
+    static final int STUDENT_1 = BASE + 1;
+    static final int STUDENT_2 = BASE + 2;
+    static final int STUDENT_3 = BASE + 3;
+    static final String COURSE = "im" + BASE;
+    static final String IMPORTED = "im" + (BASE + 1);
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    Fixture fixture;
+
+    @BeforeEach
+    public void load() {
+        fixture = new Fixture(jdbcTemplate, changeEventBus);
+        fixture.openTerm(TERM, 2027, "Fall")
+                .course(COURSE, "Imports", 4)
+                .section(SECTION, COURSE, 1, TERM, "052", "100", "M W 10:00-11:50", "", 2);
+        for (int id : new int[] {STUDENT_1, STUDENT_2, STUDENT_3}) {
+            fixture.student(id, email(id));
+        }
+        fixture.enrollment(SECTION, STUDENT_1);
+    }
+
+    @AfterEach
+    public void delete() {
+        jdbcTemplate.update("delete from course where course_id=?", IMPORTED);
+        fixture.delete();
+    }
+
+    @Test
+    public void importEnrollmentsReportsRejectedLines() throws Exception {
+
+        String file = String.join("\n",
+                "section_no,student_email",
+                SECTION + "," + email(STUDENT_1),
+                SECTION + "," + email(STUDENT_2),
+                SECTION + ",nobody@import.test",
+                "abc," + email(STUDENT_3),
+                (BASE + 99) + "," + email(STUDENT_3),
+                SECTION + "," + email(STUDENT_2),
+                SECTION + "," + email(STUDENT_3),
+                String.valueOf(SECTION));
+
+        MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.multipart("/import/enrollments")
+                        .file(new MockMultipartFile("file", "enrollments.csv", "text/csv",
+                                file.getBytes(StandardCharsets.UTF_8))))
+                .andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+        ImportResultDTO result = fromJsonString(response.getContentAsString(), ImportResultDTO.class);
+
+        assertEquals("enrollments", result.kind());
+        assertEquals(8, result.rowsRead());
+        assertEquals(1, result.rowsInserted());
+        assertFalse(result.errorsTruncated());
+        assertEquals(List.of(
+                new ImportErrorDTO(2, "student already enrolled " + email(STUDENT_1) + " " + SECTION),
+                new ImportErrorDTO(4, "email not found or not a student nobody@import.test"),
+                new ImportErrorDTO(5, "section_no is not a number abc"),
+                new ImportErrorDTO(6, "section not found " + (BASE + 99)),
+                new ImportErrorDTO(7, "student already enrolled " + email(STUDENT_2) + " " + SECTION),
+                new ImportErrorDTO(8, "section is full " + SECTION),
+                new ImportErrorDTO(9, "expected 2 columns, found 1")),
+                result.errors());
+
+        // student 2 took the last seat
+        assertEquals(List.of(STUDENT_1, STUDENT_2), jdbcTemplate.queryForList(
+                "select user_id from enrollment where section_no=? order by user_id", Integer.class, SECTION));
+    }
+
+    @Test
+    public void importedCoursesListedAtOnce() throws Exception {
+
+        // the course list is read into the query cache
+        assertFalse(courses().contains(IMPORTED));
+        assertFalse(courses().contains(IMPORTED));
+
+        String file = "course_id,title,credits\n" + IMPORTED + ",Imported,4";
+        MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.multipart("/import/courses")
+                        .file(new MockMultipartFile("file", "courses.csv", "text/csv",
+                                file.getBytes(StandardCharsets.UTF_8))))
+                .andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+        assertEquals(1, fromJsonString(response.getContentAsString(), ImportResultDTO.class).rowsInserted());
+
+        // the cache was evicted before the import returned
+        assertTrue(courses().contains(IMPORTED));
+    }
+
+    private List<String> courses() throws Exception {
+        MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.get("/courses"))
+                .andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+        return Arrays.stream(fromJsonString(response.getContentAsString(), CourseDTO[].class))
+                .map(CourseDTO::courseId).toList();
+    }
+
+    private static String email(int id) {
+        return "s" + id + "@import.test";
+    }
+}
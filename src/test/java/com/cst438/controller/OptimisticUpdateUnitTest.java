@@ -0,0 +1,169 @@
+package com.cst438.controller;
+
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.GradeDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.test.utils.Fixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.cst438.test.utils.TestUtils.asJsonString;
+import static com.cst438.test.utils.TestUtils.fromJsonString;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * PUT /grades and PUT /enrollments with row versions.  rows whose version
+ * is stale are returned with their current data and a 409 status, the
+ * other rows of the batch are still updated.
+ *
+ * two students are enrolled in the section, each with a score of 50 for
+ * its assignment and no final grade.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest
+public class OptimisticUpdateUnitTest {
+
+    static final int BASE = 970_000;
+    static final int TERM = BASE;
+    static final int SECTION = BASE;
+    static final int ASSIGNMENT = BASE;
+    static final int STUDENT_1 = BASE + 1;
+    static final int STUDENT_2 = BASE + 2;
+    static final int ENROLLMENT_1 = BASE + 1;
+    static final int ENROLLMENT_2 = BASE + 2;
+    static final int GRADE_1 = BASE + 1;
+    static final int GRADE_2 = BASE + 2;
+    static final String COURSE = "ou" + BASE;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    Fixture fixture;
+
+    @BeforeEach
+    public void load() {
+        fixture = new Fixture(jdbcTemplate, changeEventBus);
+        fixture.openTerm(TERM, 2026, "Fall")
+                .course(COURSE, "Versions", 4)
+                .section(SECTION, COURSE, 1, TERM)
+                .assignment(ASSIGNMENT, SECTION, "hw 1", LocalDate.now().plusDays(20));
+        int[][] rows = {{STUDENT_1, ENROLLMENT_1, GRADE_1}, {STUDENT_2, ENROLLMENT_2, GRADE_2}};
+        for (int[] r : rows) {
+            fixture.student(r[0], "s" + r[0] + "@version.test")
+                    .enrollment(r[1], SECTION, r[0])
+                    .grade(r[2], r[1], ASSIGNMENT, 50);
+        }
+    }
+
+    @AfterEach
+    public void delete() {
+        fixture.delete();
+    }
+
+    @Test
+    public void updateGrades() throws Exception {
+
+        MockHttpServletResponse response = put("/grades", List.of(grade(GRADE_1, 90, 0), grade(GRADE_2, 80, 0)));
+        assertEquals(200, response.getStatus());
+        assertEquals(0, fromJsonString(response.getContentAsString(), GradeDTO[].class).length);
+        assertEquals(90, score(GRADE_1));
+        assertEquals(80, score(GRADE_2));
+        assertEquals(1, version("grade", "grade_id", GRADE_1));
+    }
+
+    @Test
+    public void updateGradesStaleVersion() throws Exception {
+
+        // grade 2 was changed by someone else after the instructor read it
+        jdbcTemplate.update("update grade set score=60, version=version+1 where grade_id=?", GRADE_2);
+
+        MockHttpServletResponse response = put("/grades", List.of(grade(GRADE_1, 90, 0), grade(GRADE_2, 80, 0)));
+        assertEquals(409, response.getStatus());
+        GradeDTO[] conflicts = fromJsonString(response.getContentAsString(), GradeDTO[].class);
+        assertEquals(1, conflicts.length);
+        assertEquals(GRADE_2, conflicts[0].gradeId());
+        assertEquals(60, conflicts[0].score());
+        assertEquals(1, conflicts[0].version());
+        assertEquals("s" + STUDENT_2 + "@version.test", conflicts[0].studentEmail());
+
+        // the good row is applied, the stale one is not
+        assertEquals(90, score(GRADE_1));
+        assertEquals(60, score(GRADE_2));
+
+        // sent again with the current version it is applied
+        response = put("/grades", List.of(grade(GRADE_2, 80, conflicts[0].version())));
+        assertEquals(200, response.getStatus());
+        assertEquals(80, score(GRADE_2));
+    }
+
+    @Test
+    public void updateEnrollmentsStaleVersion() throws Exception {
+
+        jdbcTemplate.update("update enrollment set grade='C', version=version+1 where enrollment_id=?", ENROLLMENT_2);
+
+        MockHttpServletResponse response = put("/enrollments",
+                List.of(enrollment(ENROLLMENT_1, STUDENT_1, "A", 0), enrollment(ENROLLMENT_2, STUDENT_2, "B", 0)));
+        assertEquals(409, response.getStatus());
+        EnrollmentDTO[] conflicts = fromJsonString(response.getContentAsString(), EnrollmentDTO[].class);
+        assertEquals(1, conflicts.length);
+        assertEquals(ENROLLMENT_2, conflicts[0].enrollmentId());
+        assertEquals("C", conflicts[0].grade());
+        assertEquals(1, conflicts[0].version());
+
+        assertEquals("A", finalGrade(ENROLLMENT_1));
+        assertEquals(1, version("enrollment", "enrollment_id", ENROLLMENT_1));
+        assertEquals("C", finalGrade(ENROLLMENT_2));
+
+        // without a version the update does not check for conflicts
+        response = put("/enrollments", List.of(enrollment(ENROLLMENT_2, STUDENT_2, "B", null)));
+        assertEquals(200, response.getStatus());
+        assertEquals("B", finalGrade(ENROLLMENT_2));
+    }
+
+    private MockHttpServletResponse put(String url, Object body) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.put(url)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(body)))
+                .andReturn().getResponse();
+    }
+
+    private static GradeDTO grade(int gradeId, int score, Integer version) {
+        return new GradeDTO(gradeId, null, null, "hw 1", COURSE, 1, score, version);
+    }
+
+    private static EnrollmentDTO enrollment(int enrollmentId, int studentId, String grade, Integer version) {
+        return new EnrollmentDTO(enrollmentId, grade, studentId, null, null, COURSE, 1, SECTION,
+                "052", "100", "M W 10:00-11:50", 4, 2026, "Fall", version);
+    }
+
+    private int score(int gradeId) {
+        return jdbcTemplate.queryForObject("select score from grade where grade_id=?", Integer.class, gradeId);
+    }
+
+    private String finalGrade(int enrollmentId) {
+        return jdbcTemplate.queryForObject("select grade from enrollment where enrollment_id=?", String.class, enrollmentId);
+    }
+
+    private int version(String table, String key, int id) {
+        return jdbcTemplate.queryForObject("select version from " + table + " where " + key + "=?", Integer.class, id);
+    }
+}
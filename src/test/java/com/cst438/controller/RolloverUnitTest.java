@@ -0,0 +1,127 @@
+package com.cst438.controller;
+
+import com.cst438.dto.RolloverDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.test.utils.Fixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.cst438.test.utils.TestUtils.fromJsonString;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * POST /sections/rollover copying the sections and assignments of
+ * 2028 Spring into 2028 Fall.
+ *
+ * the spring term has sections 1 and 2 of one course, each with an
+ * assignment.  section 2 already exists in the fall term.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest
+public class RolloverUnitTest {
+
+    static final int BASE = 940_000;
+    static final int SPRING = BASE;
+    static final int FALL = BASE + 1;
+    static final int SPRING_1 = BASE;
+    static final int SPRING_2 = BASE + 1;
+    static final int FALL_2 = BASE + 2;
+    static final String COURSE = "ro" + BASE;
+    static final LocalDate SPRING_START = LocalDate.of(2028, 1, 15);
+    static final LocalDate FALL_START = LocalDate.of(2028, 8, 15);
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    Fixture fixture;
+
+    @BeforeEach
+    public void load() {
+        fixture = new Fixture(jdbcTemplate, changeEventBus);
+        // the sections rollover adds to the fall term are deleted with the term
+        fixture.termStarting(SPRING, 2028, "Spring", SPRING_START)
+                .termStarting(FALL, 2028, "Fall", FALL_START)
+                .course(COURSE, "Rollover", 4)
+                .section(SPRING_1, COURSE, 1, SPRING, "052", "101", "M W 10:00-11:50", "", 30)
+                .section(SPRING_2, COURSE, 2, SPRING, "052", "102", "M W 10:00-11:50", "", 30)
+                .section(FALL_2, COURSE, 2, FALL, "052", "202", "M W 10:00-11:50", "", 30)
+                .assignment(SPRING_1, "hw 1", SPRING_START.plusDays(10))
+                .assignment(SPRING_2, "hw 2", SPRING_START.plusDays(20));
+    }
+
+    @AfterEach
+    public void delete() {
+        fixture.delete();
+    }
+
+    @Test
+    public void rolloverWithAssignments() throws Exception {
+
+        MockHttpServletResponse response = rollover(true);
+        assertEquals(200, response.getStatus());
+        RolloverDTO result = fromJsonString(response.getContentAsString(), RolloverDTO.class);
+
+        // section 2 already existed, only section 1 is copied
+        assertEquals(1, result.sectionsCopied());
+        assertEquals(1, result.assignmentsCopied());
+        int shiftDays = (int) (FALL_START.toEpochDay() - SPRING_START.toEpochDay());
+        assertEquals(shiftDays, result.shiftDays());
+
+        Integer fall1 = jdbcTemplate.queryForObject(
+                "select section_no from section where term_id=? and course_id=? and sec_id=1", Integer.class, FALL, COURSE);
+        assertEquals("101", jdbcTemplate.queryForObject(
+                "select room from section where section_no=?", String.class, fall1));
+
+        // the due date is as far after the start of the fall term as it was after the spring start
+        List<Date> due = jdbcTemplate.queryForList(
+                "select due_date from assignment where section_no=? and title='hw 1'", Date.class, fall1);
+        assertEquals(List.of(Date.valueOf(FALL_START.plusDays(10))), due);
+
+        // the existing section keeps its own room and gets no copied assignments
+        assertEquals("202", jdbcTemplate.queryForObject(
+                "select room from section where section_no=?", String.class, FALL_2));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from assignment where section_no=?", Integer.class, FALL_2));
+
+        // a second rollover finds every section already there
+        result = fromJsonString(rollover(true).getContentAsString(), RolloverDTO.class);
+        assertEquals(0, result.sectionsCopied());
+        assertEquals(0, result.assignmentsCopied());
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "select count(*) from section where term_id=?", Integer.class, FALL));
+    }
+
+    @Test
+    public void rolloverWithoutAssignments() throws Exception {
+
+        RolloverDTO result = fromJsonString(rollover(false).getContentAsString(), RolloverDTO.class);
+        assertEquals(1, result.sectionsCopied());
+        assertEquals(0, result.assignmentsCopied());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from assignment a join section s " +
+                "on a.section_no=s.section_no where s.term_id=?", Integer.class, FALL));
+    }
+
+    private MockHttpServletResponse rollover(boolean assignments) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.post("/sections/rollover?fromYear=2028&fromSemester=Spring" +
+                        "&toYear=2028&toSemester=Fall&assignments=" + assignments))
+                .andReturn().getResponse();
+    }
+}
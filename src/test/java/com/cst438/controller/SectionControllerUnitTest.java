@@ -3,6 +3,7 @@ package com.cst438.controller;
 import com.cst438.domain.Section;
 import com.cst438.domain.SectionRepository;
 import com.cst438.dto.SectionDTO;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,7 +48,10 @@ public class SectionControllerUnitTest {
                 "104",
                 "W F 1:00-2:50 pm",
                 "Joshua Gross",
-                "jgross@csumb.edu"
+                "jgross@csumb.edu",
+                null,
+                null,
+                null
         );
 
         // issue a http POST request to SpringTestServer
@@ -108,7 +112,10 @@ public class SectionControllerUnitTest {
                 "104",
                 "W F 1:00-2:50 pm",
                 "Joshua Gross",
-                "jgross@csumb.edu"
+                "jgross@csumb.edu",
+                null,
+                null,
+                null
         );
 
         // issue the POST request
@@ -130,6 +137,75 @@ public class SectionControllerUnitTest {
 
     }
 
+    @Test
+    public void updateSectionFailsStaleVersion() throws Exception {
+
+        MockHttpServletResponse response;
+
+        // section 1 has never been updated so its version is 0.
+        // an update made from a stale read with version 5 must be rejected.
+        SectionDTO section = new SectionDTO(
+                1,
+                2023,
+                "Fall",
+                "cst338",
+                1,
+                "052",
+                "999",
+                "M W 10:00-11:50",
+                "joshua gross",
+                "jgross@csumb.edu",
+                5,
+                null,
+                null
+        );
+
+        response = mvc.perform(
+                        MockMvcRequestBuilders
+                                .put("/sections")
+                                .accept(MediaType.APPLICATION_JSON)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(asJsonString(section)))
+                .andReturn()
+                .getResponse();
+
+        // response should be 409, CONFLICT with the current section data
+        assertEquals(409, response.getStatus());
+        SectionDTO result = fromJsonString(response.getContentAsString(), SectionDTO.class);
+        assertEquals(0, result.version());
+        assertEquals("100", result.room());
+
+        // check the database was not changed
+        Section s = sectionRepository.findById(1).orElse(null);
+        assertNotNull(s);
+        assertEquals("100", s.getRoom());
+    }
+
+    @Test
+    public void getSectionsSparseFields() throws Exception {
+
+        MockHttpServletResponse response;
+
+        // ask for two of the section fields
+        response = mvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/courses/cst/sections?year=2024&semester=Spring&fields=secNo,courseId")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        assertEquals(200, response.getStatus());
+
+        // each section has only the requested fields
+        JsonNode sections = new ObjectMapper().readTree(response.getContentAsString());
+        assertTrue(sections.size() > 0);
+        for (JsonNode s : sections) {
+            assertEquals(2, s.size());
+            assertTrue(s.has("secNo"));
+            assertTrue(s.get("courseId").asText().startsWith("cst"));
+        }
+    }
+
     private static String asJsonString(final Object obj) {
         try {
             return new ObjectMapper().writeValueAsString(obj);
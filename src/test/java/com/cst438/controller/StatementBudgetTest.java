@@ -0,0 +1,1025 @@
+package com.cst438.controller;
+
+import com.cst438.cache.SecondLevelCache;
+import com.cst438.domain.Course;
+import com.cst438.domain.Term;
+import com.cst438.domain.User;
+import com.cst438.dto.AssignmentDTO;
+import com.cst438.dto.CacheStatsDTO;
+import com.cst438.dto.CohortEnrollmentDTO;
+import com.cst438.dto.CohortResultDTO;
+import com.cst438.dto.CourseDTO;
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.GradeDTO;
+import com.cst438.dto.ImportResultDTO;
+import com.cst438.dto.InstructorDashboardDTO;
+import com.cst438.dto.RolloverDTO;
+import com.cst438.dto.SeatAvailabilityDTO;
+import com.cst438.dto.SectionDTO;
+import com.cst438.dto.SectionSummaryDTO;
+import com.cst438.dto.UserDTO;
+import com.cst438.dto.WaitlistDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
+import com.cst438.job.Job;
+import com.cst438.job.JobManager;
+import com.cst438.test.utils.SqlStatements;
+import com.cst438.test.utils.StatementBudget;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.cst438.test.utils.StatementBudget.constant;
+import static com.cst438.test.utils.StatementBudget.perRow;
+import static com.cst438.test.utils.TestUtils.asJsonString;
+import static com.cst438.test.utils.TestUtils.fromJsonString;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * SQL statement budgets for every controller endpoint.
+ *
+ * Each test runs one request against a small and a large data set and
+ * checks the statements it issued against a StatementBudget.  Endpoints
+ * may not need more statements for more rows: each query loads the
+ * associations its response shows through the entity graph of its
+ * repository method.  Updates that save each row separately have a per
+ * row budget by design.
+ *
+ * A data set of size n has its own terms, course and users:
+ *   n sections in the open term, each with its own instructor and one
+ *     assignment, with all n students enrolled and scored
+ *   n sections of one lead instructor without enrollments
+ *   a full section (capacity 0) with n students on its waitlist
+ *   a section of an ended term with all n students enrolled and scored
+ *   an empty later term to roll sections over to
+ * The second level cache is emptied before each request, so every
+ * request is measured cold.
+ *
+ * Each test also checks the response and the rows the request changed,
+ * so a request that stays within its budget by skipping work fails.
+ *
+ * The test uses its own in-memory database, and writes its database
+ * snapshot, grade audit log, term archive and job results into a
+ * temporary directory.  The context is closed before the directory
+ * is removed.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:statementbudget")
+@Import(SqlStatements.Config.class)
+@DirtiesContext
+public class StatementBudgetTest {
+
+    static final int SMALL = 4;
+    static final int LARGE = 16;
+
+    private static final AtomicInteger loads = new AtomicInteger();
+
+    @TempDir
+    static Path files;
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) {
+        registry.add("cst438.snapshot.file", () -> files.resolve("testdb.snap").toString());
+        registry.add("cst438.audit.dir", () -> files.resolve("audit").toString());
+        registry.add("cst438.archive.dir", () -> files.resolve("archive").toString());
+        registry.add("cst438.jobs.dir", () -> files.resolve("jobs").toString());
+    }
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    SecondLevelCache secondLevelCache;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    @Autowired
+    JobManager jobManager;
+
+    // builds the request for a data set. runs before statements are recorded.
+    @FunctionalInterface
+    interface Request {
+        RequestBuilder build(Data d) throws Exception;
+    }
+
+    // checks the result of the request and the database after it, before
+    // the data set is removed. runs after statements are recorded.
+    @FunctionalInterface
+    interface Verify {
+        void check(Data d, MvcResult result) throws Exception;
+    }
+
+    /*
+     * ids of one loaded data set
+     */
+    record Data(int n, int load, int base) {
+        int term() { return base + 1; }            // 2030 Fall, open for adds and drops
+        int endedTerm() { return base + 2; }       // 2029 Fall
+        int nextTerm() { return base + 3; }        // 2030 Spring
+        String courseId() { return "bt" + load; }
+        int lead() { return base; }
+        int instructor(int k) { return base + 100 + k; }
+        int student(int j) { return base + 200 + j; }
+        int newcomer() { return base + 300; }
+        int waiting(int j) { return base + 400 + j; }
+        int section(int k) { return base + k; }
+        int leadSection(int k) { return base + 100 + k; }
+        int fullSection() { return base + 300; }
+        int endedSection() { return base + 400; }
+        int assignment(int k) { return base + k; }
+        int endedAssignment() { return base + 400; }
+        // the grade of an enrollment has the same id as the enrollment
+        int enrollment(int k, int j) { return base + k * LARGE + j; }
+        int endedEnrollment(int j) { return base + 500 + j; }
+        String leadEmail() { return email("lead"); }
+        String instructorEmail(int k) { return email("i" + k); }
+        String studentEmail(int j) { return email("s" + j); }
+        String email(String name) { return name + "-" + load + "@budget.test"; }
+    }
+
+    /*
+     * SectionController
+     */
+
+    @Test
+    public void addSection() throws Exception {
+        checkBudget("POST /sections", constant(8), 200, d -> json(MockMvcRequestBuilders.post("/sections"),
+                new SectionDTO(0, 2030, "Fall", d.courseId(), 99, "052", "104", "M W 2:00-3:50",
+                        "", d.instructorEmail(0), null, null, null)),
+                (d, result) -> {
+                    SectionDTO s = body(result, SectionDTO.class);
+                    assertEquals("instructor 0", s.instructorName());
+                    assertEquals(1, count("select count(*) from section where section_no=? and term_id=? and sec_id=99 " +
+                            "and room='104' and instructor_email=?", s.secNo(), d.term(), d.instructorEmail(0)));
+                });
+    }
+
+    @Test
+    public void updateSection() throws Exception {
+        checkBudget("PUT /sections", constant(10), 200, d -> json(MockMvcRequestBuilders.put("/sections"),
+                new SectionDTO(d.section(0), 2030, "Fall", d.courseId(), 1, "052", "200", "T Th 10:00-11:50",
+                        "", d.instructorEmail(1), null, null, null)),
+                (d, result) -> {
+                    assertEquals(d.instructorEmail(1), body(result, SectionDTO.class).instructorEmail());
+                    assertEquals(1, count("select count(*) from section where section_no=? and room='200' " +
+                            "and times='T Th 10:00-11:50' and instructor_email=?", d.section(0), d.instructorEmail(1)));
+                });
+    }
+
+    @Test
+    public void deleteSectionCascade() throws Exception {
+        checkBudget("DELETE /sections/{sectionNo}?cascade=true", constant(10), 200,
+                d -> MockMvcRequestBuilders.delete("/sections/" + d.section(0) + "?cascade=true"),
+                (d, result) -> {
+                    assertEquals(0, count("select count(*) from section where section_no=?", d.section(0)));
+                    assertEquals(0, count("select count(*) from enrollment where section_no=?", d.section(0)));
+                    assertEquals(0, count("select count(*) from assignment where section_no=?", d.section(0)));
+                    assertEquals(0, count("select count(*) from grade where assignment_id=?", d.assignment(0)));
+                    // the other sections keep their rows
+                    assertEquals(d.n(), count("select count(*) from enrollment where section_no=?", d.section(1)));
+                });
+    }
+
+    @Test
+    public void deleteSectionRestricted() throws Exception {
+        checkBudget("DELETE /sections/{sectionNo}", constant(6), 409,
+                d -> MockMvcRequestBuilders.delete("/sections/" + d.section(0)),
+                (d, result) -> {
+                    assertEquals("section has " + d.n() + " enrollments, 1 assignments and 0 waitlisted students",
+                            result.getResponse().getErrorMessage());
+                    assertEquals(1, count("select count(*) from section where section_no=?", d.section(0)));
+                });
+    }
+
+    @Test
+    public void rolloverSections() throws Exception {
+        checkBudget("POST /sections/rollover", constant(8), 200,
+                d -> MockMvcRequestBuilders.post("/sections/rollover?fromYear=2030&fromSemester=Fall" +
+                        "&toYear=2030&toSemester=Spring&assignments=true"),
+                (d, result) -> {
+                    // the sections of both instructors and the full section, with the assignments
+                    RolloverDTO r = body(result, RolloverDTO.class);
+                    assertEquals(2 * d.n() + 1, r.sectionsCopied());
+                    assertEquals(d.n(), r.assignmentsCopied());
+                    assertEquals(2 * d.n() + 1, count("select count(*) from section where term_id=?", d.nextTerm()));
+                    assertEquals(d.n(), count("select count(*) from assignment a join section s " +
+                            "on a.section_no=s.section_no where s.term_id=?", d.nextTerm()));
+                });
+    }
+
+    @Test
+    public void getSectionsForCourse() throws Exception {
+        checkBudget("GET /courses/{courseId}/sections", constant(6), 200,
+                d -> MockMvcRequestBuilders.get("/courses/" + d.courseId() + "/sections?year=2030&semester=Fall"),
+                (d, result) -> {
+                    SectionDTO[] sections = body(result, SectionDTO[].class);
+                    assertEquals(2 * d.n() + 1, sections.length);
+                    assertEquals("instructor 0", find(sections, d.section(0)).instructorName());
+                    assertEquals("lead instructor", find(sections, d.leadSection(0)).instructorName());
+                });
+    }
+
+    @Test
+    public void getSectionsForInstructor() throws Exception {
+        checkBudget("GET /sections", constant(6), 200,
+                d -> MockMvcRequestBuilders.get("/sections?email=" + d.leadEmail() + "&year=2030&semester=Fall"),
+                (d, result) -> {
+                    SectionDTO[] sections = body(result, SectionDTO[].class);
+                    assertEquals(d.n() + 1, sections.length);
+                    for (SectionDTO s : sections) {
+                        assertEquals(d.leadEmail(), s.instructorEmail());
+                    }
+                });
+    }
+
+    @Test
+    public void getOpenSections() throws Exception {
+        checkBudget("GET /sections/open", constant(6), 200,
+                d -> MockMvcRequestBuilders.get("/sections/open"),
+                (d, result) -> {
+                    // the sections of the ended and the later term are not open
+                    List<SectionDTO> sections = ofCourse(d, body(result, SectionDTO[].class));
+                    assertEquals(2 * d.n() + 1, sections.size());
+                    for (SectionDTO s : sections) {
+                        assertEquals(2030, s.year());
+                        assertEquals("Fall", s.semester());
+                    }
+                });
+    }
+
+    @Test
+    public void searchSections() throws Exception {
+        checkBudget("GET /sections/search", constant(4), 200,
+                d -> MockMvcRequestBuilders.get("/sections/search?year=2030&semester=Fall&days=MTWThF" +
+                        "&from=08:00&to=12:00&credits=4&course=" + d.courseId()),
+                (d, result) -> {
+                    SectionDTO[] sections = body(result, SectionDTO[].class);
+                    assertEquals(2 * d.n() + 1, sections.length);
+                    assertEquals(d.courseId(), find(sections, d.fullSection()).courseId());
+                });
+    }
+
+    @Test
+    public void getSeatAvailability() throws Exception {
+        checkBudget("GET /sections/availability", constant(0), 200,
+                d -> MockMvcRequestBuilders.get("/sections/availability?term=" + d.term()),
+                (d, result) -> {
+                    // the counters may not have read the new data set yet, but
+                    // what they have of the term is its sections
+                    for (SeatAvailabilityDTO s : body(result, SeatAvailabilityDTO[].class)) {
+                        assertEquals(d.courseId(), s.courseId());
+                    }
+                });
+    }
+
+    /*
+     * CourseController
+     */
+
+    @Test
+    public void addCourse() throws Exception {
+        checkBudget("POST /courses", constant(4), 200, d -> json(MockMvcRequestBuilders.post("/courses"),
+                new CourseDTO(d.courseId() + "n", "New Course", 4)),
+                (d, result) -> assertEquals(1, count("select count(*) from course where course_id=? " +
+                        "and title='New Course' and credits=4", d.courseId() + "n")));
+    }
+
+    @Test
+    public void updateCourse() throws Exception {
+        checkBudget("PUT /courses", constant(4), 200, d -> json(MockMvcRequestBuilders.put("/courses"),
+                new CourseDTO(d.courseId(), "Renamed Course", 3)),
+                (d, result) -> {
+                    assertEquals(new CourseDTO(d.courseId(), "Renamed Course", 3), body(result, CourseDTO.class));
+                    assertEquals(1, count("select count(*) from course where course_id=? " +
+                            "and title='Renamed Course' and credits=3", d.courseId()));
+                });
+    }
+
+    @Test
+    public void deleteCourseCascade() throws Exception {
+        checkBudget("DELETE /courses/{courseId}?cascade=true", constant(12), 200,
+                d -> MockMvcRequestBuilders.delete("/courses/" + d.courseId() + "?cascade=true"),
+                (d, result) -> {
+                    assertEquals(0, count("select count(*) from course where course_id=?", d.courseId()));
+                    assertEquals(0, count("select count(*) from section where course_id=?", d.courseId()));
+                    assertEquals(0, count("select count(*) from enrollment where user_id=?", d.student(0)));
+                    assertEquals(0, count("select count(*) from waitlist where user_id=?", d.waiting(0)));
+                });
+    }
+
+    @Test
+    public void deleteCourseRestricted() throws Exception {
+        checkBudget("DELETE /courses/{courseId}", constant(4), 409,
+                d -> MockMvcRequestBuilders.delete("/courses/" + d.courseId()),
+                (d, result) -> {
+                    assertEquals("course has " + (2 * d.n() + 2) + " sections", result.getResponse().getErrorMessage());
+                    assertEquals(1, count("select count(*) from course where course_id=?", d.courseId()));
+                });
+    }
+
+    @Test
+    public void getAllCourses() throws Exception {
+        checkBudget("GET /courses", constant(2), 200, d -> MockMvcRequestBuilders.get("/courses"),
+                (d, result) -> {
+                    List<String> courseIds = Arrays.stream(body(result, CourseDTO[].class)).map(CourseDTO::courseId).toList();
+                    assertTrue(courseIds.contains(d.courseId()));
+                    // the rows of data.sql, replayed at startup and written to the snapshot of this test
+                    assertTrue(courseIds.contains("cst338"));
+                    assertTrue(Files.exists(files.resolve("testdb.snap")));
+                });
+    }
+
+    @Test
+    public void getAllTerms() throws Exception {
+        checkBudget("GET /terms", constant(2), 200, d -> MockMvcRequestBuilders.get("/terms"),
+                (d, result) -> {
+                    List<Integer> termIds = new ArrayList<>();
+                    tree(result).forEach(t -> termIds.add(t.get("termId").asInt()));
+                    assertTrue(termIds.containsAll(List.of(d.term(), d.endedTerm(), d.nextTerm())));
+                });
+    }
+
+    @Test
+    public void archiveTerm() throws Exception {
+        checkBudget("POST /terms/{termId}/archive", constant(14), 200,
+                d -> MockMvcRequestBuilders.post("/terms/" + d.endedTerm() + "/archive"),
+                (d, result) -> {
+                    assertEquals(d.n(), body(result, Integer.class));
+                    assertEquals(0, count("select count(*) from enrollment where section_no=?", d.endedSection()));
+                    assertEquals(0, count("select count(*) from grade where assignment_id=?", d.endedAssignment()));
+                    assertTrue(Files.exists(files.resolve("archive").resolve("term-" + d.endedTerm() + ".seg")));
+                    // the open term is not touched
+                    assertEquals(d.n(), count("select count(*) from enrollment where section_no=?", d.section(0)));
+                });
+    }
+
+    /*
+     * EnrollmentController
+     */
+
+    @Test
+    public void getEnrollments() throws Exception {
+        checkBudget("GET /sections/{sectionNo}/enrollments", constant(2), 200,
+                d -> MockMvcRequestBuilders.get("/sections/" + d.section(0) + "/enrollments"),
+                (d, result) -> {
+                    EnrollmentDTO[] enrollments = body(result, EnrollmentDTO[].class);
+                    assertEquals(d.n(), enrollments.length);
+                    for (EnrollmentDTO e : enrollments) {
+                        assertEquals(d.section(0), e.sectionNo());
+                        assertEquals(d.courseId(), e.courseId());
+                    }
+                });
+    }
+
+    @Test
+    public void updateEnrollmentGrades() throws Exception {
+        checkBudget("PUT /enrollments", perRow(6, 2), 200, d -> {
+            List<EnrollmentDTO> dlist = new ArrayList<>();
+            for (int j = 0; j < d.n(); j++) {
+                dlist.add(new EnrollmentDTO(d.enrollment(0, j), "B", d.student(j), null, null,
+                        null, 0, d.section(0), null, null, null, 0, 2030, "Fall", null));
+            }
+            return json(MockMvcRequestBuilders.put("/enrollments"), dlist);
+        }, (d, result) -> {
+            assertEquals(0, body(result, EnrollmentDTO[].class).length);
+            assertEquals(d.n(), count("select count(*) from enrollment where section_no=? and grade='B'", d.section(0)));
+        });
+    }
+
+    @Test
+    public void enrollCohort() throws Exception {
+        checkBudget("POST /enrollments/cohort", constant(7), 200, d -> {
+            List<Integer> students = new ArrayList<>();
+            for (int j = 0; j < d.n(); j++) {
+                students.add(d.student(j));
+            }
+            return json(MockMvcRequestBuilders.post("/enrollments/cohort"), new CohortEnrollmentDTO(
+                    students, List.of(d.leadSection(0), d.leadSection(1), d.section(0), d.fullSection())));
+        }, (d, result) -> {
+            CohortResultDTO r = body(result, CohortResultDTO.class);
+            assertEquals(2 * d.n(), r.enrolled());
+            for (List<String> row : r.results()) {
+                assertEquals(List.of("ENROLLED", "ENROLLED", "ALREADY_ENROLLED", "SECTION_FULL"), row);
+            }
+            assertEquals(d.n(), count("select count(*) from enrollment where section_no=?", d.leadSection(1)));
+            assertEquals(0, count("select count(*) from enrollment where section_no=?", d.fullSection()));
+        });
+    }
+
+    @Test
+    public void exportRosters() throws Exception {
+        checkBudget("POST /enrollments/export", constant(2), 202,
+                d -> MockMvcRequestBuilders.post("/enrollments/export?year=2030&semester=Fall"),
+                (d, result) -> assertNotNull(jobManager.get(tree(result).get("jobId").asText())));
+    }
+
+    /*
+     * AssignmentController
+     */
+
+    @Test
+    public void getAssignments() throws Exception {
+        checkBudget("GET /sections/{secNo}/assignments", constant(4), 200,
+                d -> MockMvcRequestBuilders.get("/sections/" + d.section(0) + "/assignments"),
+                (d, result) -> {
+                    AssignmentDTO[] assignments = body(result, AssignmentDTO[].class);
+                    assertEquals(1, assignments.length);
+                    assertEquals(d.assignment(0), assignments[0].id());
+                    assertEquals("homework 0", assignments[0].title());
+                });
+    }
+
+    @Test
+    public void createAssignment() throws Exception {
+        checkBudget("POST /assignments", constant(6), 200, d -> json(MockMvcRequestBuilders.post("/assignments"),
+                new AssignmentDTO(0, "new assignment", LocalDate.now().plusDays(7).toString(),
+                        d.courseId(), 1, d.section(0))),
+                (d, result) -> assertEquals(1, count("select count(*) from assignment where assignment_id=? " +
+                        "and section_no=? and title='new assignment'", body(result, AssignmentDTO.class).id(), d.section(0))));
+    }
+
+    @Test
+    public void updateAssignment() throws Exception {
+        checkBudget("PUT /assignments", constant(6), 200, d -> json(MockMvcRequestBuilders.put("/assignments"),
+                new AssignmentDTO(d.assignment(0), "renamed assignment", LocalDate.now().plusDays(21).toString(),
+                        d.courseId(), 1, d.section(0))),
+                (d, result) -> assertEquals(1, count("select count(*) from assignment where assignment_id=? " +
+                        "and title='renamed assignment' and due_date=?", d.assignment(0),
+                        Date.valueOf(LocalDate.now().plusDays(21)))));
+    }
+
+    @Test
+    public void deleteAssignment() throws Exception {
+        checkBudget("DELETE /assignments/{assignmentId}", constant(8), 200,
+                d -> MockMvcRequestBuilders.delete("/assignments/" + d.assignment(0)),
+                (d, result) -> {
+                    assertEquals(0, count("select count(*) from assignment where assignment_id=?", d.assignment(0)));
+                    assertEquals(0, count("select count(*) from grade where assignment_id=?", d.assignment(0)));
+                    assertEquals(d.n(), count("select count(*) from grade where assignment_id=?", d.assignment(1)));
+                });
+    }
+
+    @Test
+    public void getAssignmentGrades() throws Exception {
+        checkBudget("GET /assignments/{assignmentId}/grades", constant(4), 200,
+                d -> MockMvcRequestBuilders.get("/assignments/" + d.assignment(0) + "/grades"),
+                (d, result) -> {
+                    List<Integer> scores = new ArrayList<>();
+                    for (GradeDTO g : body(result, GradeDTO[].class)) {
+                        assertEquals("homework 0", g.assignmentTitle());
+                        scores.add(g.score());
+                    }
+                    Collections.sort(scores);
+                    List<Integer> expected = new ArrayList<>();
+                    for (int j = 0; j < d.n(); j++) {
+                        expected.add(80 + j);
+                    }
+                    assertEquals(expected, scores);
+                });
+    }
+
+    @Test
+    public void updateGrades() throws Exception {
+        checkBudget("PUT /grades", perRow(6, 2), 200, d -> {
+            List<GradeDTO> dlist = new ArrayList<>();
+            for (int j = 0; j < d.n(); j++) {
+                dlist.add(new GradeDTO(d.enrollment(0, j), null, null, null, null, 0, 70, null));
+            }
+            return json(MockMvcRequestBuilders.put("/grades"), dlist);
+        }, (d, result) -> {
+            assertEquals(0, body(result, GradeDTO[].class).length);
+            assertEquals(d.n(), count("select count(*) from grade where assignment_id=? and score=70", d.assignment(0)));
+        });
+    }
+
+    @Test
+    public void getStudentAssignments() throws Exception {
+        checkBudget("GET /assignments", constant(4), 200,
+                d -> MockMvcRequestBuilders.get("/assignments?studentId=" + d.student(0) + "&year=2030&semester=Fall"),
+                (d, result) -> {
+                    // student 0 has a score of 80 in every section
+                    JsonNode assignments = tree(result);
+                    assertEquals(d.n(), assignments.size());
+                    assignments.forEach(a -> assertEquals(80, a.get("score").asInt()));
+                });
+    }
+
+    @Test
+    public void gradeReport() throws Exception {
+        checkBudget("POST /assignments/report", constant(2), 202,
+                d -> MockMvcRequestBuilders.post("/assignments/report?year=2030&semester=Fall"),
+                (d, result) -> assertEquals("grade-report", tree(result).get("type").asText()));
+    }
+
+    /*
+     * StudentController
+     */
+
+    @Test
+    public void getTranscript() throws Exception {
+        checkBudget("GET /transcripts", constant(6), 200,
+                d -> MockMvcRequestBuilders.get("/transcripts?studentId=" + d.student(0)),
+                (d, result) -> {
+                    assertNotNull(result.getResponse().getHeader("ETag"));
+                    EnrollmentDTO[] transcript = body(result, EnrollmentDTO[].class);
+                    assertEquals(d.n() + 1, transcript.length);
+                    EnrollmentDTO ended = Arrays.stream(transcript)
+                            .filter(e -> e.enrollmentId() == d.endedEnrollment(0)).findFirst().orElseThrow();
+                    assertEquals("A", ended.grade());
+                });
+    }
+
+    @Test
+    public void regenerateTranscripts() throws Exception {
+        checkBudget("POST /transcripts/regenerate", constant(2), 200,
+                d -> MockMvcRequestBuilders.post("/transcripts/regenerate?year=2030&semester=Fall"),
+                (d, result) -> assertEquals(d.n(), body(result, Integer.class)));
+    }
+
+    @Test
+    public void getSchedule() throws Exception {
+        checkBudget("GET /enrollments", constant(2), 200,
+                d -> MockMvcRequestBuilders.get("/enrollments?year=2030&semester=Fall&studentId=" + d.student(0)),
+                (d, result) -> {
+                    EnrollmentDTO[] schedule = body(result, EnrollmentDTO[].class);
+                    assertEquals(d.n(), schedule.length);
+                    for (EnrollmentDTO e : schedule) {
+                        assertEquals(d.student(0), e.studentId());
+                    }
+                });
+    }
+
+    @Test
+    public void getStudentHome() throws Exception {
+        checkBudget("GET /students/{studentId}/home", constant(10), 200,
+                d -> MockMvcRequestBuilders.get("/students/" + d.student(0) + "/home?year=2030&semester=Fall"),
+                (d, result) -> {
+                    JsonNode home = tree(result);
+                    assertEquals(d.n(), home.get("schedule").size());
+                    assertEquals(d.n(), home.get("assignments").size());
+                    assertEquals(d.n() + 1, home.get("transcript").size());
+                    // the A of the ended term
+                    assertEquals(4, home.get("creditsEarned").asInt());
+                });
+    }
+
+    @Test
+    public void addCourseEnrollment() throws Exception {
+        checkBudget("POST /enrollments/sections/{sectionNo}", constant(8), 200,
+                d -> MockMvcRequestBuilders.post("/enrollments/sections/" + d.section(0) + "?studentId=" + d.newcomer()),
+                (d, result) -> {
+                    EnrollmentDTO e = body(result, EnrollmentDTO.class);
+                    assertEquals(d.newcomer(), e.studentId());
+                    assertEquals(1, count("select count(*) from enrollment where enrollment_id=? " +
+                            "and section_no=? and user_id=?", e.enrollmentId(), d.section(0), d.newcomer()));
+                });
+    }
+
+    @Test
+    public void addCourseFullSection() throws Exception {
+        checkBudget("POST /enrollments/sections/{sectionNo} full", constant(10), 409,
+                d -> MockMvcRequestBuilders.post("/enrollments/sections/" + d.fullSection() + "?studentId=" + d.newcomer()),
+                (d, result) -> {
+                    assertEquals("section is full. waitlist position " + (d.n() + 1), result.getResponse().getErrorMessage());
+                    assertEquals(0, count("select count(*) from enrollment where user_id=?", d.newcomer()));
+                    assertEquals(1, count("select count(*) from waitlist where section_no=? and user_id=?",
+                            d.fullSection(), d.newcomer()));
+                });
+    }
+
+    @Test
+    public void getWaitlistPosition() throws Exception {
+        checkBudget("GET /sections/{sectionNo}/waitlist", constant(6), 200,
+                d -> MockMvcRequestBuilders.get("/sections/" + d.fullSection() + "/waitlist?studentId=" + d.waiting(0)),
+                (d, result) -> assertEquals(new WaitlistDTO(d.fullSection(), d.waiting(0), 1, d.n()),
+                        body(result, WaitlistDTO.class)));
+    }
+
+    @Test
+    public void leaveWaitlist() throws Exception {
+        checkBudget("DELETE /sections/{sectionNo}/waitlist", constant(6), 200,
+                d -> MockMvcRequestBuilders.delete("/sections/" + d.fullSection() + "/waitlist?studentId=" + d.waiting(0)),
+                (d, result) -> {
+                    assertEquals(0, count("select count(*) from waitlist where user_id=?", d.waiting(0)));
+                    assertEquals(d.n() - 1, count("select count(*) from waitlist where section_no=?", d.fullSection()));
+                });
+    }
+
+    @Test
+    public void dropCourse() throws Exception {
+        checkBudget("DELETE /enrollments/{enrollmentId}", constant(10), 200,
+                d -> MockMvcRequestBuilders.delete("/enrollments/" + d.enrollment(0, 0)),
+                (d, result) -> {
+                    assertEquals(0, count("select count(*) from enrollment where enrollment_id=?", d.enrollment(0, 0)));
+                    assertEquals(0, count("select count(*) from grade where enrollment_id=?", d.enrollment(0, 0)));
+                    assertEquals(d.n() - 1, count("select count(*) from enrollment where section_no=?", d.section(0)));
+                });
+    }
+
+    /*
+     * UserController
+     */
+
+    @Test
+    public void getAllUsers() throws Exception {
+        checkBudget("GET /users", constant(2), 200, d -> MockMvcRequestBuilders.get("/users"),
+                (d, result) -> {
+                    List<String> emails = Arrays.stream(body(result, UserDTO[].class)).map(UserDTO::email).toList();
+                    assertTrue(emails.containsAll(List.of(d.leadEmail(), d.studentEmail(0), d.instructorEmail(d.n() - 1))));
+                });
+    }
+
+    @Test
+    public void createUser() throws Exception {
+        checkBudget("POST /users", constant(3), 200, d -> json(MockMvcRequestBuilders.post("/users"),
+                new UserDTO(0, "new user", d.email("new"), "STUDENT")),
+                (d, result) -> assertEquals(1, count("select count(*) from user_table where id=? and email=? " +
+                        "and type='STUDENT'", body(result, UserDTO.class).id(), d.email("new"))));
+    }
+
+    @Test
+    public void updateUser() throws Exception {
+        checkBudget("PUT /users", constant(4), 200, d -> json(MockMvcRequestBuilders.put("/users"),
+                new UserDTO(d.student(0), "renamed student", d.studentEmail(0), "STUDENT")),
+                (d, result) -> assertEquals(1, count("select count(*) from user_table where id=? " +
+                        "and name='renamed student'", d.student(0))));
+    }
+
+    @Test
+    public void deleteUserCascade() throws Exception {
+        checkBudget("DELETE /users/{id}?cascade=true", constant(10), 200,
+                d -> MockMvcRequestBuilders.delete("/users/" + d.student(0) + "?cascade=true"),
+                (d, result) -> {
+                    assertEquals(0, count("select count(*) from user_table where id=?", d.student(0)));
+                    assertEquals(0, count("select count(*) from enrollment where user_id=?", d.student(0)));
+                    assertEquals(0, count("select count(*) from grade where enrollment_id=?", d.enrollment(0, 0)));
+                    assertEquals(d.n() - 1, count("select count(*) from enrollment where section_no=?", d.section(0)));
+                });
+    }
+
+    @Test
+    public void deleteUserRestricted() throws Exception {
+        checkBudget("DELETE /users/{id}", constant(5), 409,
+                d -> MockMvcRequestBuilders.delete("/users/" + d.student(0)),
+                (d, result) -> {
+                    assertEquals("user has " + (d.n() + 1) + " enrollments and 0 sections",
+                            result.getResponse().getErrorMessage());
+                    assertEquals(1, count("select count(*) from user_table where id=?", d.student(0)));
+                });
+    }
+
+    /*
+     * InstructorController
+     */
+
+    @Test
+    public void getInstructorDashboard() throws Exception {
+        checkBudget("GET /instructors/{email}/dashboard", constant(10), 200,
+                d -> MockMvcRequestBuilders.get("/instructors/" + d.leadEmail() + "/dashboard?year=2030&semester=Fall"),
+                (d, result) -> {
+                    // the lead instructor's sections have no enrollments or assignments
+                    InstructorDashboardDTO dashboard = body(result, InstructorDashboardDTO.class);
+                    assertEquals("lead instructor", dashboard.instructorName());
+                    assertEquals(d.n() + 1, dashboard.sections().size());
+                    for (SectionSummaryDTO s : dashboard.sections()) {
+                        assertEquals(0, s.enrollments());
+                        assertEquals(0, s.assignments());
+                    }
+                });
+    }
+
+    /*
+     * ImportController.  a file has one line per row.
+     */
+
+    @Test
+    public void importCourses() throws Exception {
+        checkBudget("POST /import/courses", constant(6), 200, d -> {
+            StringBuilder csv = new StringBuilder();
+            for (int k = 0; k < d.n(); k++) {
+                csv.append(d.courseId()).append('i').append(k).append(",Imported Course,3\n");
+            }
+            return upload("/import/courses", csv);
+        }, (d, result) -> {
+            checkImport(d, result);
+            assertEquals(d.n(), count("select count(*) from course where course_id like ? " +
+                    "and title='Imported Course'", d.courseId() + "i%"));
+        });
+    }
+
+    @Test
+    public void importSections() throws Exception {
+        checkBudget("POST /import/sections", constant(10), 200, d -> {
+            StringBuilder csv = new StringBuilder();
+            for (int k = 0; k < d.n(); k++) {
+                csv.append(d.courseId()).append(",2030,Fall,").append(200 + k)
+                        .append(",052,101,M W 8:00-9:50,").append(d.leadEmail()).append('\n');
+            }
+            return upload("/import/sections", csv);
+        }, (d, result) -> {
+            checkImport(d, result);
+            assertEquals(d.n(), count("select count(*) from section where term_id=? and sec_id>=200 " +
+                    "and instructor_email=?", d.term(), d.leadEmail()));
+        });
+    }
+
+    @Test
+    public void importEnrollments() throws Exception {
+        checkBudget("POST /import/enrollments", constant(8), 200, d -> {
+            StringBuilder csv = new StringBuilder();
+            for (int j = 0; j < d.n(); j++) {
+                csv.append(d.leadSection(0)).append(',').append(d.studentEmail(j)).append('\n');
+            }
+            return upload("/import/enrollments", csv);
+        }, (d, result) -> {
+            checkImport(d, result);
+            assertEquals(d.n(), count("select count(*) from enrollment where section_no=?", d.leadSection(0)));
+        });
+    }
+
+    /*
+     * GradeStreamController, CacheController and JobController work from memory
+     */
+
+    @Test
+    public void streamStudentGrades() throws Exception {
+        checkBudget("GET /students/{studentId}/grades/stream", constant(0), 200,
+                d -> MockMvcRequestBuilders.get("/students/" + d.student(0) + "/grades/stream"),
+                (d, result) -> assertTrue(result.getRequest().isAsyncStarted()));
+    }
+
+    @Test
+    public void streamSectionGrades() throws Exception {
+        checkBudget("GET /sections/{sectionNo}/grades/stream", constant(0), 200,
+                d -> MockMvcRequestBuilders.get("/sections/" + d.section(0) + "/grades/stream"),
+                (d, result) -> assertTrue(result.getRequest().isAsyncStarted()));
+    }
+
+    @Test
+    public void getCacheStats() throws Exception {
+        checkBudget("GET /admin/cache", constant(0), 200, d -> MockMvcRequestBuilders.get("/admin/cache"),
+                (d, result) -> {
+                    List<String> regions = Arrays.stream(body(result, CacheStatsDTO[].class))
+                            .map(CacheStatsDTO::region).toList();
+                    assertTrue(regions.containsAll(List.of(Course.class.getName(), Term.class.getName(), User.class.getName())));
+                });
+    }
+
+    @Test
+    public void evictCache() throws Exception {
+        checkBudget("DELETE /admin/cache", constant(0), 200, d -> MockMvcRequestBuilders.delete("/admin/cache"),
+                (d, result) -> {
+                    for (CacheStatsDTO s : secondLevelCache.stats()) {
+                        assertTrue(s.entries() <= 0, s.region() + " has " + s.entries() + " entries");
+                    }
+                });
+    }
+
+    @Test
+    public void getJob() throws Exception {
+        checkBudget("GET /jobs/{jobId}", constant(0), 200,
+                d -> MockMvcRequestBuilders.get("/jobs/" + submitExport(false)),
+                (d, result) -> {
+                    JsonNode job = tree(result);
+                    assertEquals(jobId(result), job.get("jobId").asText());
+                    assertEquals("roster-export", job.get("type").asText());
+                });
+    }
+
+    @Test
+    public void getJobResult() throws Exception {
+        checkBudget("GET /jobs/{jobId}/result", constant(0), 200,
+                d -> MockMvcRequestBuilders.get("/jobs/" + submitExport(true) + "/result"),
+                (d, result) -> {
+                    // a header line and one line for each enrollment of the open term
+                    String csv = result.getResponse().getContentAsString();
+                    assertEquals(1 + d.n() * d.n(), csv.lines().count());
+                    assertTrue(csv.contains(d.studentEmail(0)));
+                    assertTrue(Files.exists(files.resolve("jobs").resolve(jobId(result) + ".out")));
+                });
+    }
+
+    @Test
+    public void cancelFinishedJob() throws Exception {
+        checkBudget("DELETE /jobs/{jobId}", constant(0), 409,
+                d -> MockMvcRequestBuilders.delete("/jobs/" + submitExport(true)),
+                (d, result) -> {
+                    assertEquals("job has already finished", result.getResponse().getErrorMessage());
+                    assertEquals(Job.Status.SUCCEEDED, jobManager.get(jobId(result)).getStatus());
+                });
+    }
+
+    // run the request against a small and a large data set, check its result
+    // and the statements it issued against the budget
+    private void checkBudget(String name, StatementBudget budget, int status, Request request, Verify verify) throws Exception {
+        List<String> small = measure(name, SMALL, status, request, verify);
+        List<String> large = measure(name, LARGE, status, request, verify);
+        budget.check(name, SMALL, small, LARGE, large);
+    }
+
+    private List<String> measure(String name, int n, int status, Request request, Verify verify) throws Exception {
+        Data d = load(n);
+        try {
+            RequestBuilder builder = request.build(d);
+            secondLevelCache.evictAll();
+            MvcResult[] result = new MvcResult[1];
+            List<String> statements = SqlStatements.record(() -> result[0] = mvc.perform(builder).andReturn());
+            assertEquals(status, result[0].getResponse().getStatus(),
+                    name + " " + result[0].getResponse().getErrorMessage());
+            verify.check(d, result[0]);
+            return statements;
+        } finally {
+            delete(d);
+        }
+    }
+
+    private static <T> T body(MvcResult result, Class<T> type) throws Exception {
+        return fromJsonString(result.getResponse().getContentAsString(), type);
+    }
+
+    private static JsonNode tree(MvcResult result) throws Exception {
+        return new ObjectMapper().readTree(result.getResponse().getContentAsString());
+    }
+
+    private int count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+
+    private static SectionDTO find(SectionDTO[] sections, int secNo) {
+        return Arrays.stream(sections).filter(s -> s.secNo() == secNo).findFirst().orElseThrow();
+    }
+
+    // the sections of the data set's course, without those of other tests and data.sql
+    private static List<SectionDTO> ofCourse(Data d, SectionDTO[] sections) {
+        return Arrays.stream(sections).filter(s -> s.courseId().equals(d.courseId())).toList();
+    }
+
+    // every line of the import file is inserted
+    private static void checkImport(Data d, MvcResult result) throws Exception {
+        ImportResultDTO r = body(result, ImportResultDTO.class);
+        assertEquals(List.of(), r.errors());
+        assertEquals(d.n(), r.rowsRead());
+        assertEquals(d.n(), r.rowsInserted());
+    }
+
+    // the job id of a /jobs/{jobId} request
+    private static String jobId(MvcResult result) {
+        return result.getRequest().getRequestURI().split("/")[2];
+    }
+
+    private static RequestBuilder json(MockHttpServletRequestBuilder builder, Object body) {
+        return builder
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(body));
+    }
+
+    private static RequestBuilder upload(String url, CharSequence csv) {
+        return MockMvcRequestBuilders.multipart(url)
+                .file(new MockMultipartFile("file", "import.csv", "text/csv",
+                        csv.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // submit a roster export of the open term and return the job id.
+    // if finished is true, wait for the job to finish.
+    private String submitExport(boolean finished) throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/enrollments/export?year=2030&semester=Fall"))
+                .andReturn();
+        assertEquals(202, result.getResponse().getStatus());
+        String jobId = new ObjectMapper().readTree(result.getResponse().getContentAsString()).get("jobId").asText();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (finished && isActive(jobManager.get(jobId))) {
+            assertTrue(System.currentTimeMillis() < deadline, "export job did not finish");
+            Thread.sleep(20);
+        }
+        return jobId;
+    }
+
+    private static boolean isActive(Job job) {
+        return job.getStatus() == Job.Status.QUEUED || job.getStatus() == Job.Status.RUNNING;
+    }
+
+    private Data load(int n) {
+        int load = loads.incrementAndGet();
+        Data d = new Data(n, load, 500_000 + load * 1000);
+        LocalDate today = LocalDate.now();
+
+        jdbcTemplate.batchUpdate("insert into term (term_id, tyear, semester, add_date, add_deadline, " +
+                "drop_deadline, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?, ?)", List.of(
+                term(d.term(), 2030, "Fall", today.minusDays(30), today.plusDays(30), today.plusDays(120)),
+                term(d.endedTerm(), 2029, "Fall", today.minusDays(400), today.minusDays(370), today.minusDays(240)),
+                term(d.nextTerm(), 2030, "Spring", today.plusDays(100), today.plusDays(130), today.plusDays(260))));
+        jdbcTemplate.update("insert into course (course_id, title, credits) values (?, ?, ?)",
+                d.courseId(), "Statement Budgets", 4);
+
+        List<Object[]> users = new ArrayList<>();
+        users.add(new Object[] {d.lead(), "lead instructor", d.leadEmail(), "INSTRUCTOR"});
+        users.add(new Object[] {d.newcomer(), "new student", d.email("new-student"), "STUDENT"});
+        for (int k = 0; k < n; k++) {
+            users.add(new Object[] {d.instructor(k), "instructor " + k, d.instructorEmail(k), "INSTRUCTOR"});
+            users.add(new Object[] {d.student(k), "student " + k, d.studentEmail(k), "STUDENT"});
+            users.add(new Object[] {d.waiting(k), "waiting " + k, d.email("w" + k), "STUDENT"});
+        }
+        jdbcTemplate.batchUpdate("insert into user_table (id, name, email, password, type) values (?, ?, ?, '', ?)", users);
+
+        List<Object[]> sections = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            sections.add(new Object[] {d.section(k), d.courseId(), k + 1, d.term(), d.instructorEmail(k), 30});
+            sections.add(new Object[] {d.leadSection(k), d.courseId(), n + k + 1, d.term(), d.leadEmail(), 30});
+        }
+        sections.add(new Object[] {d.fullSection(), d.courseId(), 2 * n + 1, d.term(), d.leadEmail(), 0});
+        sections.add(new Object[] {d.endedSection(), d.courseId(), 1, d.endedTerm(), d.leadEmail(), 30});
+        jdbcTemplate.batchUpdate("insert into section (section_no, course_id, sec_id, term_id, building, room, " +
+                "times, instructor_email, capacity) values (?, ?, ?, ?, '052', '100', 'M W 10:00-11:50', ?, ?)", sections);
+
+        List<Object[]> assignments = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            assignments.add(new Object[] {d.assignment(k), d.section(k), "homework " + k, Date.valueOf(today.plusDays(14))});
+        }
+        assignments.add(new Object[] {d.endedAssignment(), d.endedSection(), "final project", Date.valueOf(today.minusDays(300))});
+        jdbcTemplate.batchUpdate("insert into assignment (assignment_id, section_no, title, due_date) values (?, ?, ?, ?)", assignments);
+
+        List<Object[]> enrollments = new ArrayList<>();
+        List<Object[]> grades = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            for (int j = 0; j < n; j++) {
+                enrollments.add(new Object[] {d.enrollment(k, j), null, d.section(k), d.student(j)});
+                grades.add(new Object[] {d.enrollment(k, j), d.enrollment(k, j), d.assignment(k), 80 + j});
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            enrollments.add(new Object[] {d.endedEnrollment(j), "A", d.endedSection(), d.student(j)});
+            grades.add(new Object[] {d.endedEnrollment(j), d.endedEnrollment(j), d.endedAssignment(), 90});
+        }
+        jdbcTemplate.batchUpdate("insert into enrollment (enrollment_id, grade, section_no, user_id) values (?, ?, ?, ?)", enrollments);
+        jdbcTemplate.batchUpdate("insert into grade (grade_id, enrollment_id, assignment_id, score) values (?, ?, ?, ?)", grades);
+
+        List<Object[]> waitlist = new ArrayList<>();
+        for (int j = 0; j < n; j++) {
+            waitlist.add(new Object[] {d.base() + j, d.fullSection(), d.waiting(j), j + 1});
+        }
+        jdbcTemplate.batchUpdate("insert into waitlist (waitlist_id, section_no, user_id, ticket) values (?, ?, ?, ?)", waitlist);
+        return d;
+    }
+
+    private static Object[] term(int termId, int year, String semester, LocalDate addDate, LocalDate deadline, LocalDate endDate) {
+        return new Object[] {termId, year, semester, Date.valueOf(addDate), Date.valueOf(deadline),
+                Date.valueOf(deadline), Date.valueOf(addDate.plusDays(20)), Date.valueOf(endDate)};
+    }
+
+    // remove the data set and the rows the request added to it
+    private void delete(Data d) {
+        Object[] terms = {d.term(), d.endedTerm(), d.nextTerm()};
+        int first = d.base();
+        int last = d.base() + 999;
+        String sections = "(select section_no from section where term_id in (?, ?, ?))";
+        jdbcTemplate.update("delete from waitlist where section_no in " + sections + " or user_id between ? and ?",
+                terms[0], terms[1], terms[2], first, last);
+        jdbcTemplate.update("delete from grade where enrollment_id in (select enrollment_id from enrollment " +
+                        "where section_no in " + sections + " or user_id between ? and ?) " +
+                        "or assignment_id in (select assignment_id from assignment where section_no in " + sections + ")",
+                terms[0], terms[1], terms[2], first, last, terms[0], terms[1], terms[2]);
+        jdbcTemplate.update("delete from enrollment where section_no in " + sections + " or user_id between ? and ?",
+                terms[0], terms[1], terms[2], first, last);
+        jdbcTemplate.update("delete from assignment where section_no in " + sections, terms);
+        jdbcTemplate.update("delete from section where term_id in (?, ?, ?)", terms);
+        jdbcTemplate.update("delete from user_table where id between ? and ? or email like '%@budget.test'", first, last);
+        jdbcTemplate.update("delete from course where course_id like ?", d.courseId() + "%");
+        jdbcTemplate.update("delete from term where term_id in (?, ?, ?)", terms);
+        // in memory caches drop what they hold of the removed rows
+        for (EntityType type : EntityType.values()) {
+            changeEventBus.publishAll(type);
+        }
+    }
+}
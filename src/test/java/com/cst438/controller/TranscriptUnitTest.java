@@ -0,0 +1,157 @@
+package com.cst438.controller;
+
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
+import com.cst438.test.utils.Fixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.cst438.test.utils.TestUtils.asJsonString;
+import static com.cst438.test.utils.TestUtils.fromJsonString;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * GET /transcripts served from snapshots with an ETag.
+ *
+ * the student has one enrollment without a final grade.  the instructor
+ * has no transcript.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest
+public class TranscriptUnitTest {
+
+    static final int BASE = 950_000;
+    static final int TERM = BASE;
+    static final int SECTION = BASE;
+    static final int STUDENT = BASE + 1;
+    static final int INSTRUCTOR = BASE + 2;
+    static final int ENROLLMENT = BASE;
+    static final String COURSE = "tr" + BASE;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    Fixture fixture;
+
+    @BeforeEach
+    public void load() {
+        fixture = new Fixture(jdbcTemplate, changeEventBus);
+        fixture.termStarting(TERM, 2027, "Spring", LocalDate.of(2027, 1, 15))
+                .course(COURSE, "Transcripts", 4)
+                .section(SECTION, COURSE, 1, TERM)
+                .user(STUDENT, "student", "s" + STUDENT + "@transcript.test", "STUDENT")
+                .enrollment(ENROLLMENT, SECTION, STUDENT)
+                .instructor(INSTRUCTOR, "i" + INSTRUCTOR + "@transcript.test");
+        // snapshots of an earlier test of this student are dropped
+        changeEventBus.publishAll(EntityType.ENROLLMENT);
+    }
+
+    @AfterEach
+    public void delete() {
+        fixture.delete();
+    }
+
+    @Test
+    public void transcriptNotModifiedUntilGradeChanges() throws Exception {
+
+        MockHttpServletResponse response = transcript("");
+        assertEquals(200, response.getStatus());
+        String etag = response.getHeader("ETag");
+        assertNotNull(etag);
+        EnrollmentDTO[] enrollments = fromJsonString(response.getContentAsString(), EnrollmentDTO[].class);
+        assertEquals(1, enrollments.length);
+        assertNull(enrollments[0].grade());
+
+        // unchanged transcript
+        response = mvc.perform(get("").header("If-None-Match", etag)).andReturn().getResponse();
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentLength());
+
+        // the instructor posts the final grade
+        EnrollmentDTO e = enrollments[0];
+        EnrollmentDTO graded = new EnrollmentDTO(e.enrollmentId(), "A", e.studentId(), e.name(), e.email(),
+                e.courseId(), e.sectionId(), e.sectionNo(), e.building(), e.room(), e.times(), e.credits(),
+                e.year(), e.semester(), e.version());
+        response = mvc.perform(MockMvcRequestBuilders.put("/enrollments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(List.of(graded))))
+                .andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+
+        // the snapshot is dropped once the change event is delivered
+        long deadline = System.currentTimeMillis() + 5000;
+        do {
+            response = mvc.perform(get("").header("If-None-Match", etag)).andReturn().getResponse();
+        } while (response.getStatus() == 304 && System.currentTimeMillis() < deadline);
+        assertEquals(200, response.getStatus());
+        assertNotEquals(etag, response.getHeader("ETag"));
+        enrollments = fromJsonString(response.getContentAsString(), EnrollmentDTO[].class);
+        assertEquals("A", enrollments[0].grade());
+    }
+
+    @Test
+    public void transcriptFields() throws Exception {
+
+        String etag = transcript("").getHeader("ETag");
+
+        MockHttpServletResponse response = transcript("&fields=enrollmentId,grade");
+        assertEquals(200, response.getStatus());
+        @SuppressWarnings("unchecked")
+        Map<String, Object>[] rows = fromJsonString(response.getContentAsString(), Map[].class);
+        assertEquals(1, rows.length);
+        assertEquals(Set.of("enrollmentId", "grade"), rows[0].keySet());
+        assertEquals(ENROLLMENT, rows[0].get("enrollmentId"));
+
+        // the fields are part of the ETag
+        String fieldsEtag = response.getHeader("ETag");
+        assertNotNull(fieldsEtag);
+        assertNotEquals(etag, fieldsEtag);
+        response = mvc.perform(get("&fields=enrollmentId,grade").header("If-None-Match", fieldsEtag))
+                .andReturn().getResponse();
+        assertEquals(304, response.getStatus());
+        response = mvc.perform(get("").header("If-None-Match", fieldsEtag)).andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void transcriptOfUnknownStudent() throws Exception {
+
+        for (int id : new int[] {BASE + 99, INSTRUCTOR}) {
+            MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.get("/transcripts?studentId=" + id))
+                    .andReturn().getResponse();
+            assertEquals(404, response.getStatus());
+            assertEquals("student not found " + id, response.getErrorMessage());
+        }
+    }
+
+    private MockHttpServletResponse transcript(String params) throws Exception {
+        return mvc.perform(get(params)).andReturn().getResponse();
+    }
+
+    private MockHttpServletRequestBuilder get(String params) {
+        return MockMvcRequestBuilders.get("/transcripts?studentId=" + STUDENT + params)
+                .accept(MediaType.APPLICATION_JSON);
+    }
+}
@@ -0,0 +1,191 @@
+package com.cst438.controller;
+
+import com.cst438.domain.WaitlistRepository;
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.WaitlistDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.routing.ReadYourWrites;
+import com.cst438.test.utils.Fixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.cst438.test.utils.TestUtils.fromJsonString;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * waitlist of a full section: joining, promotion when a seat is dropped
+ * and leaving.
+ *
+ * each test has its own term, open for adds and drops, with one section
+ * of capacity 1 and three students.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest
+public class WaitlistUnitTest {
+
+    private static final AtomicInteger tests = new AtomicInteger();
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    WaitlistRepository waitlistRepository;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    @Autowired
+    ReadYourWrites readYourWrites;
+
+    int section;
+    int student1;
+    int student2;
+    int student3;
+    Fixture fixture;
+
+    @BeforeEach
+    public void load() {
+        int base = 910_000 + tests.incrementAndGet() * 100;
+        section = base;
+        student1 = base + 1;
+        student2 = base + 2;
+        student3 = base + 3;
+        fixture = new Fixture(jdbcTemplate, changeEventBus);
+        fixture.openTerm(base, 2030, "Spring")
+                .course("wl" + base, "Waitlists", 4)
+                .section(section, "wl" + base, 1, base, "052", "100", "M W 10:00-11:50", "", 1);
+        for (int id : new int[] {student1, student2, student3}) {
+            fixture.student(id, "s" + id + "@waitlist.test");
+        }
+    }
+
+    @AfterEach
+    public void delete() {
+        fixture.delete();
+    }
+
+    @Test
+    public void addCourseFullSectionJoinsWaitlist() throws Exception {
+
+        assertEquals(200, add(student1).getStatus());
+
+        // the section is full.  the next students get waitlist positions in order
+        MockHttpServletResponse response = add(student2);
+        assertEquals(409, response.getStatus());
+        assertEquals("section is full. waitlist position 1", response.getErrorMessage());
+
+        response = add(student3);
+        assertEquals(409, response.getStatus());
+        assertEquals("section is full. waitlist position 2", response.getErrorMessage());
+
+        // adding again keeps the student's place
+        response = add(student2);
+        assertEquals(409, response.getStatus());
+        assertEquals("section is full. waitlist position 1", response.getErrorMessage());
+        assertEquals(2, waitlistRepository.countBySectionNo(section));
+
+        WaitlistDTO position = position(student3);
+        assertEquals(2, position.position());
+        assertEquals(2, position.waiting());
+    }
+
+    @Test
+    public void addCourseFreeSeatGoesToWaitingStudent() throws Exception {
+
+        assertEquals(200, add(student1).getStatus());
+        assertEquals(409, add(student2).getStatus());
+
+        // a seat is added while student2 waits.  a new student does not take it
+        jdbcTemplate.update("update section set capacity=2 where section_no=?", section);
+        MockHttpServletResponse response = add(student3);
+        assertEquals(409, response.getStatus());
+        assertEquals("section is full. waitlist position 2", response.getErrorMessage());
+        assertNull(jdbcTemplate.queryForObject("select max(enrollment_id) from enrollment where user_id=?",
+                Integer.class, student3));
+    }
+
+    @Test
+    public void dropCoursePromotesFirstWaitingStudent() throws Exception {
+
+        MockHttpServletResponse response = add(student1);
+        assertEquals(200, response.getStatus());
+        EnrollmentDTO enrollment = fromJsonString(response.getContentAsString(), EnrollmentDTO.class);
+        assertEquals(409, add(student2).getStatus());
+        assertEquals(409, add(student3).getStatus());
+
+        response = mvc.perform(MockMvcRequestBuilders.delete("/enrollments/" + enrollment.enrollmentId()))
+                .andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+
+        // student2 has the seat, student3 is now first in line
+        assertEquals(1, enrollments(student2));
+        assertEquals(0, enrollments(student1));
+        assertEquals(0, enrollments(student3));
+        assertEquals(1, waitlistRepository.countBySectionNo(section));
+        assertEquals(1, position(student3).position());
+
+        // the dropped and the promoted student read their change from the primary
+        assertTrue(readYourWrites.mustReadPrimary(student1));
+        assertTrue(readYourWrites.mustReadPrimary(student2));
+        assertFalse(readYourWrites.mustReadPrimary(student3));
+    }
+
+    @Test
+    public void leaveWaitlist() throws Exception {
+
+        MockHttpServletResponse response = add(student1);
+        EnrollmentDTO enrollment = fromJsonString(response.getContentAsString(), EnrollmentDTO.class);
+        assertEquals(409, add(student2).getStatus());
+
+        response = mvc.perform(MockMvcRequestBuilders.delete("/sections/" + section + "/waitlist?studentId=" + student2))
+                .andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+        assertEquals(0, waitlistRepository.countBySectionNo(section));
+
+        // not on the waitlist any more
+        response = mvc.perform(MockMvcRequestBuilders.delete("/sections/" + section + "/waitlist?studentId=" + student2))
+                .andReturn().getResponse();
+        assertEquals(404, response.getStatus());
+        response = mvc.perform(MockMvcRequestBuilders.get("/sections/" + section + "/waitlist?studentId=" + student2))
+                .andReturn().getResponse();
+        assertEquals(404, response.getStatus());
+
+        // a dropped seat is not given to the student who left
+        response = mvc.perform(MockMvcRequestBuilders.delete("/enrollments/" + enrollment.enrollmentId()))
+                .andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+        assertEquals(0, enrollments(student2));
+        assertEquals(200, add(student3).getStatus());
+    }
+
+    private MockHttpServletResponse add(int studentId) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.post("/enrollments/sections/" + section + "?studentId=" + studentId))
+                .andReturn().getResponse();
+    }
+
+    private WaitlistDTO position(int studentId) throws Exception {
+        MockHttpServletResponse response = mvc.perform(
+                        MockMvcRequestBuilders.get("/sections/" + section + "/waitlist?studentId=" + studentId))
+                .andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+        return fromJsonString(response.getContentAsString(), WaitlistDTO.class);
+    }
+
+    private int enrollments(int studentId) {
+        return jdbcTemplate.queryForObject("select count(*) from enrollment where section_no=? and user_id=?",
+                Integer.class, section, studentId);
+    }
+}
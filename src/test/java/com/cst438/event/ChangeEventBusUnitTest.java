@@ -0,0 +1,166 @@
+package com.cst438.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * change events delivered to subscribers only after the transaction that
+ * published them commits, with a batch of its own for each transaction,
+ * including a REQUIRES_NEW transaction started inside another one.
+ *
+ * events published outside a transaction are delivered at once and in
+ * order, so a marker event shows that every earlier batch was delivered.
+ *
+ * onCommit sees the committed events on the committing thread before the
+ * transaction returns.
+ */
+public class ChangeEventBusUnitTest {
+
+    private final Recorder recorder = new Recorder();
+    private ChangeEventBus bus;
+    private TransactionTemplate transaction;
+    private TransactionTemplate newTransaction;
+    private int markers;
+
+    @BeforeEach
+    public void start() {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("recorder", recorder);
+        bus = new ChangeEventBus(beans.getBeanProvider(ChangeSubscriber.class), 100);
+        DataSourceTransactionManager transactionManager =
+                new DataSourceTransactionManager(new DriverManagerDataSource("jdbc:h2:mem:changeeventbus"));
+        transaction = new TransactionTemplate(transactionManager);
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        bus.shutdown();
+    }
+
+    @Test
+    public void deliveredAfterCommit() throws Exception {
+
+        transaction.executeWithoutResult(status -> {
+            bus.publish(EntityType.COURSE, ChangeEvent.Kind.UPDATE, "c1");
+            bus.publish(EntityType.COURSE, ChangeEvent.Kind.DELETE, "c2");
+            try {
+                assertNull(recorder.events.poll(200, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals(List.of("c1", "c2"), delivered());
+    }
+
+    @Test
+    public void notDeliveredAfterRollback() throws Exception {
+
+        transaction.executeWithoutResult(status -> {
+            bus.publish(EntityType.COURSE, ChangeEvent.Kind.UPDATE, "c1");
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of(), delivered());
+    }
+
+    @Test
+    public void innerTransactionHasItsOwnBatch() throws Exception {
+
+        // the inner transaction commits while the outer one rolls back
+        transaction.executeWithoutResult(status -> {
+            bus.publish(EntityType.COURSE, ChangeEvent.Kind.UPDATE, "outer");
+            newTransaction.executeWithoutResult(inner ->
+                    bus.publish(EntityType.COURSE, ChangeEvent.Kind.UPDATE, "inner"));
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of("inner"), delivered());
+
+        // the inner transaction rolls back while the outer one commits
+        transaction.executeWithoutResult(status -> {
+            bus.publish(EntityType.COURSE, ChangeEvent.Kind.UPDATE, "outer");
+            newTransaction.executeWithoutResult(inner -> {
+                bus.publish(EntityType.COURSE, ChangeEvent.Kind.UPDATE, "inner");
+                inner.setRollbackOnly();
+            });
+            bus.publish(EntityType.COURSE, ChangeEvent.Kind.UPDATE, "outer again");
+        });
+        assertEquals(List.of("outer", "outer again"), delivered());
+    }
+
+    @Test
+    public void onCommitBeforeTheTransactionReturns() throws Exception {
+
+        transaction.executeWithoutResult(status -> {
+            bus.publish(EntityType.COURSE, ChangeEvent.Kind.UPDATE, "c1");
+            assertEquals(List.of(), recorder.committed);
+        });
+        assertEquals(List.of("c1"), recorder.committed);
+        assertEquals(Set.of(Thread.currentThread()), recorder.committedOn);
+
+        transaction.executeWithoutResult(status -> {
+            bus.publish(EntityType.COURSE, ChangeEvent.Kind.UPDATE, "c2");
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of("c1"), recorder.committed);
+        assertEquals(List.of("c1"), delivered());
+    }
+
+    // ids of the events delivered before a marker published now
+    private List<Object> delivered() throws InterruptedException {
+        String marker = "marker " + (++markers);
+        bus.publish(EntityType.COURSE, ChangeEvent.Kind.UPDATE, marker);
+        List<Object> ids = new ArrayList<>();
+        while (true) {
+            ChangeEvent e = recorder.events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(e, "marker not delivered");
+            if (e.id().equals(marker)) {
+                return ids;
+            }
+            ids.add(e.id());
+        }
+    }
+
+    static class Recorder implements ChangeSubscriber {
+        final BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+        // ids of the events passed to onCommit, except markers
+        final List<Object> committed = new ArrayList<>();
+        final Set<Thread> committedOn = new HashSet<>();
+
+        @Override
+        public Set<EntityType> types() {
+            return Set.of(EntityType.COURSE);
+        }
+
+        @Override
+        public void onChanges(List<ChangeEvent> events) {
+            this.events.addAll(events);
+        }
+
+        @Override
+        public void onCommit(List<ChangeEvent> events) {
+            for (ChangeEvent e : events) {
+                if (!e.id().toString().startsWith("marker")) {
+                    committed.add(e.id());
+                    committedOn.add(Thread.currentThread());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.cst438.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * jobs on an executor with one thread and room for one queued job:
+ * a full queue, cancelling a queued, running or finished job, and
+ * expiry of a job whose result is being downloaded.
+ */
+public class JobManagerUnitTest {
+
+    @TempDir
+    Path dir;
+
+    private ThreadPoolTaskExecutor executor;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setup() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setDaemon(true);
+        executor.initialize();
+    }
+
+    @AfterEach
+    public void shutdown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void queueFull() throws Exception {
+
+        JobManager manager = new JobManager(executor, dir.toString(), 60);
+        CountDownLatch running = new CountDownLatch(1);
+        Job first = manager.submit("test", "text/plain", blocking(running));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        Job second = manager.submit("test", "text/plain", (job, out) -> out.write('x'));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> manager.submit("test", "text/plain", (job, out) -> out.write('x')));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertEquals("too many jobs. try again later", e.getReason());
+
+        release.countDown();
+        await(first, Job.Status.SUCCEEDED);
+        await(second, Job.Status.SUCCEEDED);
+    }
+
+    @Test
+    public void cancelQueued() throws Exception {
+
+        JobManager manager = new JobManager(executor, dir.toString(), 60);
+        CountDownLatch running = new CountDownLatch(1);
+        Job first = manager.submit("test", "text/plain", blocking(running));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CountDownLatch started = new CountDownLatch(1);
+        Job queued = manager.submit("test", "text/plain", (job, out) -> started.countDown());
+        assertEquals(Job.Status.QUEUED, queued.getStatus());
+
+        assertTrue(manager.cancel(queued));
+        assertEquals(Job.Status.CANCELLED, queued.getStatus());
+        assertFalse(manager.cancel(queued));
+
+        // the cancelled work never runs
+        release.countDown();
+        await(first, Job.Status.SUCCEEDED);
+        assertFalse(started.await(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void cancelRunning() throws Exception {
+
+        JobManager manager = new JobManager(executor, dir.toString(), 60);
+        CountDownLatch running = new CountDownLatch(1);
+        Job job = manager.submit("test", "text/plain", (j, out) -> {
+            running.countDown();
+            while (true) {
+                out.write('x');
+                j.advance(1);
+                Thread.sleep(5);
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        assertEquals(Job.Status.RUNNING, job.getStatus());
+
+        assertTrue(manager.cancel(job));
+        await(job, Job.Status.CANCELLED);
+        assertFalse(manager.cancel(job));
+        assertFalse(Files.exists(job.result));
+        assertFalse(Files.exists(dir.resolve(job.getId() + ".tmp")));
+    }
+
+    @Test
+    public void cancelAfterLastProgressReport() throws Exception {
+
+        JobManager manager = new JobManager(executor, dir.toString(), 60);
+        // the cancel is accepted after the work reported its last progress
+        Job job = manager.submit("test", "text/plain", (j, out) -> {
+            out.write('x');
+            assertTrue(manager.cancel(j));
+        });
+        await(job, Job.Status.CANCELLED);
+        assertFalse(Files.exists(job.result));
+    }
+
+    @Test
+    public void cancelFinished() throws Exception {
+
+        JobManager manager = new JobManager(executor, dir.toString(), 60);
+        Job job = manager.submit("test", "text/plain", (j, out) -> out.write('x'));
+        await(job, Job.Status.SUCCEEDED);
+
+        assertFalse(manager.cancel(job));
+        assertEquals(Job.Status.SUCCEEDED, job.getStatus());
+        assertEquals(1, job.resultBytes);
+    }
+
+    @Test
+    public void notExpiredWhileDownloading() throws Exception {
+
+        // every finished job has expired by the next submit
+        JobManager manager = new JobManager(executor, dir.toString(), 0);
+        Job job = manager.submit("test", "text/plain", (j, out) -> out.write('x'));
+        await(job, Job.Status.SUCCEEDED);
+        Thread.sleep(5);
+
+        try (InputStream in = manager.result(job).getInputStream()) {
+            await(manager.submit("test", "text/plain", (j, out) -> out.write('y')), Job.Status.SUCCEEDED);
+            assertSame(job, manager.get(job.getId()));
+            assertTrue(Files.exists(job.result));
+            assertEquals('x', in.read());
+        }
+
+        Thread.sleep(5);
+        manager.submit("test", "text/plain", (j, out) -> out.write('z'));
+        assertNull(manager.get(job.getId()));
+        assertFalse(Files.exists(job.result));
+    }
+
+    // work that blocks until the test releases it
+    private JobWork blocking(CountDownLatch running) {
+        return (job, out) -> {
+            running.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            out.write('x');
+        };
+    }
+
+    private static void await(Job job, Job.Status status) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (job.getStatus() != status && System.currentTimeMillis() < end) {
+            Thread.sleep(5);
+        }
+        assertEquals(status, job.getStatus());
+    }
+}
@@ -0,0 +1,98 @@
+package com.cst438.reminder;
+
+import com.cst438.domain.Assignment;
+import com.cst438.domain.AssignmentDue;
+import com.cst438.domain.AssignmentRepository;
+import com.cst438.domain.Section;
+import com.cst438.event.ChangeEvent;
+import com.cst438.event.EntityType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * a reload of the reminders keeps the assignments that were scheduled or
+ * cancelled while it was reading the assignments.
+ */
+public class DueDateRemindersUnitTest {
+
+    private final DueDateReminders reminders = new DueDateReminders(
+            new DefaultListableBeanFactory().getBeanProvider(ReminderSink.class), 60, 24, "23:59");
+
+    @AfterEach
+    public void shutdown() {
+        reminders.shutdown();
+    }
+
+    @Test
+    public void reloadKeepsChangesMadeDuringTheQuery() throws Exception {
+
+        Date due = Date.valueOf(LocalDate.now().plusDays(10));
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // the query reads assignments 1 and 3
+        reminders.assignmentRepository = (AssignmentRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {AssignmentRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findDueOnOrAfter")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    querying.countDown();
+                    release.await();
+                    return List.of(due(1, due), due(3, due));
+                });
+
+        Thread reload = new Thread(() -> reminders.onChanges(List.of(ChangeEvent.all(EntityType.ASSIGNMENT))));
+        reload.start();
+        assertTrue(querying.await(5, TimeUnit.SECONDS));
+
+        // changes committed after the query read the assignments
+        reminders.schedule(assignment(2, due));
+        reminders.schedule(assignment(4, due));
+        reminders.cancel(3);
+        release.countDown();
+        reload.join(5000);
+        assertFalse(reload.isAlive());
+
+        // 1 from the query, 2 and 4 scheduled during it, 3 cancelled during it
+        assertEquals(3, reminders.pending());
+        reminders.cancel(1);
+        reminders.cancel(2);
+        reminders.cancel(4);
+        assertEquals(0, reminders.pending());
+    }
+
+    private static Assignment assignment(int assignmentId, Date dueDate) {
+        Section s = new Section();
+        s.setSectionNo(10);
+        Assignment a = new Assignment();
+        a.setAssignmentId(assignmentId);
+        a.setSection(s);
+        a.setDueDate(dueDate);
+        return a;
+    }
+
+    private static AssignmentDue due(int assignmentId, Date dueDate) {
+        return new AssignmentDue() {
+            public int getAssignmentId() {
+                return assignmentId;
+            }
+
+            public int getSectionNo() {
+                return 10;
+            }
+
+            public Date getDueDate() {
+                return dueDate;
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package com.cst438.reminder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * values of a timing wheel expire at their tick, whichever level or the
+ * overflow list they were placed in.  the test is the wheel's clock and
+ * moves it with advance().
+ */
+public class TimingWheelUnitTest {
+
+    static final long LEVEL_1 = 64;
+    static final long LEVEL_2 = 64 * 64;
+    static final long LEVEL_3 = 64 * 64 * 64;
+    static final long OVERFLOW = 64L * 64 * 64 * 64;
+
+    @Test
+    public void expiresAtLevelBoundaries() {
+
+        long[] offsets = {1, LEVEL_1 - 1, LEVEL_1, LEVEL_1 + 1, LEVEL_2 - 1, LEVEL_2, LEVEL_2 + 1,
+                LEVEL_3 - 1, LEVEL_3, LEVEL_3 + 1, OVERFLOW - 1, OVERFLOW, OVERFLOW + 1};
+        // clocks at and just before the start of a block of each level, and in the middle of one
+        for (long start : new long[] {0, 1, LEVEL_1 - 1, LEVEL_2 - 1, LEVEL_3 - 1, OVERFLOW - 1, 1_000_003}) {
+            TimingWheel<Long> wheel = new TimingWheel<>(start);
+            for (long offset : offsets) {
+                wheel.add(start + offset, start + offset);
+            }
+            assertEquals(offsets.length, wheel.size());
+
+            long now = start;
+            for (long offset : offsets) {
+                long deadline = start + offset;
+                if (deadline - 1 > now) {
+                    assertEquals(List.of(), advance(wheel, deadline - 1), "start " + start);
+                }
+                assertEquals(List.of(deadline), advance(wheel, deadline), "start " + start);
+                now = deadline;
+            }
+            assertEquals(0, wheel.size());
+        }
+    }
+
+    @Test
+    public void expiresInDeadlineOrder() {
+
+        TimingWheel<Long> wheel = new TimingWheel<>(100);
+        List<Long> deadlines = List.of(OVERFLOW + 7, 5_000L, 101L, LEVEL_3 + 3, 170L, 100L, 99L, 4_096L);
+        for (long d : deadlines) {
+            wheel.add(d, d);
+        }
+        assertEquals(deadlines.stream().sorted().toList(), advance(wheel, 2 * OVERFLOW));
+    }
+
+    @Test
+    public void overflowIsPlacedWhenTheTopLevelWraps() {
+
+        TimingWheel<Long> wheel = new TimingWheel<>(10);
+        long far = 3 * OVERFLOW + 5;
+        wheel.add(far, far);
+        wheel.add(2 * OVERFLOW, 2 * OVERFLOW);
+        TimingWheel.Entry<Long> cancelled = wheel.add(2 * OVERFLOW + 1, 0L);
+        wheel.cancel(cancelled);
+        assertEquals(2, wheel.size());
+
+        assertEquals(List.of(), advance(wheel, 2 * OVERFLOW - 1));
+        assertEquals(List.of(2 * OVERFLOW), advance(wheel, 2 * OVERFLOW));
+        assertEquals(List.of(), advance(wheel, far - 1));
+        assertEquals(List.of(far), advance(wheel, far));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cancelledValuesDoNotExpire() {
+
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        TimingWheel.Entry<String> soon = wheel.add(10, "soon");
+        TimingWheel.Entry<String> later = wheel.add(LEVEL_2 + 10, "later");
+        TimingWheel.Entry<String> far = wheel.add(OVERFLOW + 10, "far");
+        wheel.add(LEVEL_2 + 10, "kept");
+        assertEquals(4, wheel.size());
+
+        wheel.cancel(later);
+        wheel.cancel(far);
+        wheel.cancel(later);
+        assertEquals(2, wheel.size());
+
+        assertEquals(List.of("soon"), advance(wheel, 10));
+        // an expired value is no longer pending
+        wheel.cancel(soon);
+        assertEquals(1, wheel.size());
+
+        assertEquals(List.of("kept"), advance(wheel, 2 * OVERFLOW));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void lateAddsExpireOnTheNextAdvance() {
+
+        TimingWheel<String> wheel = new TimingWheel<>(100);
+        wheel.add(90, "past");
+        wheel.add(100, "now");
+        TimingWheel.Entry<String> cancelled = wheel.add(50, "cancelled");
+        wheel.cancel(cancelled);
+        assertEquals(2, wheel.size());
+
+        // the clock does not move, the ready values still expire
+        assertEquals(List.of("past", "now"), advance(wheel, 100));
+        assertEquals(0, wheel.size());
+
+        wheel.add(101, "next");
+        assertEquals(List.of(), advance(wheel, 100));
+        wheel.add(100, "late");
+        // ready values come before the values of the tick
+        assertEquals(List.of("late", "next"), advance(wheel, 101));
+    }
+
+    private static <T> List<T> advance(TimingWheel<T> wheel, long tick) {
+        List<T> expired = new ArrayList<>();
+        wheel.advance(tick, expired::add);
+        return expired;
+    }
+}
@@ -0,0 +1,142 @@
+package com.cst438.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * routing of transactions between the primary and the replica, and
+ * stickiness of students that wrote to the primary.
+ */
+public class ReplicaRoutingUnitTest {
+
+    static final DataSource PRIMARY = new DriverManagerDataSource("jdbc:h2:mem:routingprimary;DB_CLOSE_DELAY=-1", "sa", "");
+
+    @AfterEach
+    public void clear() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        RoutingContext.setForcePrimary(false);
+    }
+
+    @Test
+    public void readOnlyTransactionsUseReplica() {
+
+        long[] lag = {0};
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(PRIMARY, PRIMARY, () -> lag[0], 1000);
+
+        // no transaction, or a read write transaction
+        assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY, routing.determineCurrentLookupKey());
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY, routing.determineCurrentLookupKey());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReadWriteRoutingDataSource.Route.REPLICA, routing.determineCurrentLookupKey());
+
+        // replica too far behind
+        lag[0] = 1001;
+        assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY, routing.determineCurrentLookupKey());
+
+        // student who wrote recently
+        lag[0] = 0;
+        RoutingContext.setForcePrimary(true);
+        assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void writeIsMarkedAfterCommit() {
+
+        ReadYourWrites readYourWrites = new ReadYourWrites(5000);
+        TransactionSynchronizationManager.initSynchronization();
+        readYourWrites.markWrite(1);
+        assertFalse(readYourWrites.mustReadPrimary(1));
+
+        for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+            s.afterCommit();
+        }
+        assertTrue(readYourWrites.mustReadPrimary(1));
+        assertFalse(readYourWrites.mustReadPrimary(2));
+
+        // stickiness ends
+        readYourWrites = new ReadYourWrites(0);
+        TransactionSynchronizationManager.clearSynchronization();
+        readYourWrites.markWrite(1);
+        assertFalse(readYourWrites.mustReadPrimary(1));
+    }
+
+    @Test
+    public void interceptorMarksStudentOfWrite() {
+
+        ReadYourWrites readYourWrites = new ReadYourWrites(5000);
+        ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(readYourWrites);
+
+        // a failed write and a read do not mark the student
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/enrollments/sections/1");
+        post.setParameter("studentId", "3");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(409);
+        interceptor.preHandle(post, response, null);
+        interceptor.afterCompletion(post, response, null, null);
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/transcripts");
+        get.setParameter("studentId", "3");
+        interceptor.afterCompletion(get, new MockHttpServletResponse(), null, null);
+        assertFalse(readYourWrites.mustReadPrimary(3));
+        interceptor.preHandle(get, new MockHttpServletResponse(), null);
+        assertFalse(RoutingContext.isForcePrimary());
+
+        // a successful write does, and later reads of the student go to the primary
+        interceptor.afterCompletion(post, new MockHttpServletResponse(), null, null);
+        assertTrue(readYourWrites.mustReadPrimary(3));
+        interceptor.preHandle(get, new MockHttpServletResponse(), null);
+        assertTrue(RoutingContext.isForcePrimary());
+        interceptor.afterCompletion(get, new MockHttpServletResponse(), null, null);
+        assertFalse(RoutingContext.isForcePrimary());
+    }
+
+    @Test
+    public void localReplicaKeepsCopyOfOpenConnection() throws Exception {
+
+        try (Connection c = PRIMARY.getConnection();
+             Statement st = c.createStatement()) {
+            st.execute("create table if not exists replicated (id int primary key)");
+            st.execute("merge into replicated values (1)");
+        }
+        LocalReplica replica = new LocalReplica(PRIMARY, 20);
+        replica.start();
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (replica.lagMillis() == Long.MAX_VALUE && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(replica.lagMillis() < Long.MAX_VALUE);
+
+            // reads on the connection keep working while the copies are swapped
+            try (Connection c = replica.getConnection();
+                 Statement st = c.createStatement()) {
+                for (int i = 0; i < 20; i++) {
+                    try (ResultSet rs = st.executeQuery("select count(*) from replicated")) {
+                        assertTrue(rs.next());
+                        assertEquals(1, rs.getInt(1));
+                    }
+                    Thread.sleep(10);
+                }
+            }
+        } finally {
+            replica.stop();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.cst438.search;
+
+import com.cst438.dto.SectionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * searches answered by the bitmap index of a term must find the same
+ * sections as the search without an index, SectionIndex.matches, which
+ * is used until the index of the term is built.
+ */
+public class SectionIndexUnitTest {
+
+    static final int M = 1, T = 2, W = 4, TH = 8, F = 16;
+
+    // sections of one term with different subjects, times, buildings, instructors and credits
+    static final List<SectionIndex.Row> ROWS = List.of(
+            row(1, "cst238", 1, "052", "dw@csumb.edu", 5, "M W 10:00-11:50"),
+            row(2, "cst238", 2, "052", "jg@csumb.edu", 5, "T Th 8:00-9:50"),
+            row(3, "cst338", 1, "506", "dw@csumb.edu", 4, "M W 2:00-3:50"),
+            row(4, "cst363", 1, "506", "", 4, "T Th 12:00-1:50"),
+            row(5, "csx100", 1, "052", "jg@csumb.edu", 3, "M W F 9:00-9:50"),
+            row(6, "CST499", 1, "18", "dw@csumb.edu", 4, "F 1:00-3:50 pm"),
+            row(7, "math150", 1, "18", "jg@csumb.edu", 4, "M T W Th 10:30-11:20"),
+            row(8, "math150", 2, "18", "", 4, "online"),
+            row(9, "bio101", 1, "506", "dw@csumb.edu", 3, "Sa 9:00-11:50"),
+            row(10, "bio101", 2, "052", "", 3, null));
+
+    @Test
+    public void indexMatchesSearchWithoutIndex() {
+
+        SectionIndex index = new SectionIndex(1, ROWS);
+        List<SectionIndex.Row> sorted = new ArrayList<>(ROWS);
+        sorted.sort(Comparator.comparing((SectionIndex.Row r) -> r.section().courseId())
+                .thenComparingInt(r -> r.section().secId()));
+
+        Integer[] days = {null, M | W, T | TH, M | T | W | TH | F, F, M | W | F};
+        Integer[] froms = {null, 8 * 60, 9 * 60 + 30, 10 * 60 + 30, 13 * 60};
+        Integer[] tos = {null, 10 * 60, 11 * 60 + 50, 12 * 60, 16 * 60};
+        String[] courses = {null, "c", "cs", "cst", "CST", "cst3", "cst238", "csx", "m", "math1", "x", "3"};
+        List<List<String>> buildings = Arrays.asList(null, List.of("052"), List.of("052", "506"), List.of("999"));
+        List<List<String>> instructors = Arrays.asList(null, List.of("dw@csumb.edu"), List.of("dw@csumb.edu", "jg@csumb.edu"));
+        List<List<Integer>> credits = Arrays.asList(null, List.of(4), List.of(3, 5));
+
+        int queries = 0;
+        for (Integer d : days) {
+            for (Integer from : froms) {
+                for (Integer to : tos) {
+                    for (String course : courses) {
+                        for (List<String> b : buildings) {
+                            for (List<String> i : instructors) {
+                                for (List<Integer> c : credits) {
+                                    SectionQuery q = new SectionQuery(2024, "Fall", d, from, to, b, i, c, course);
+                                    List<SectionDTO> expected = new ArrayList<>();
+                                    for (SectionIndex.Row r : sorted) {
+                                        if (SectionIndex.matches(q, r)) {
+                                            expected.add(r.section());
+                                        }
+                                    }
+                                    assertEquals(expected, index.search(q), q.toString());
+                                    queries++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(6 * 5 * 5 * 12 * 4 * 3 * 3, queries);
+    }
+
+    @Test
+    public void coursePrefixOfSubject() {
+
+        SectionIndex index = new SectionIndex(1, ROWS);
+        assertEquals(List.of(6, 1, 2, 3, 4, 5), secNos(index.search(query("cs"))));
+        assertEquals(List.of(6, 1, 2, 3, 4, 5), secNos(index.search(query("c"))));
+        assertEquals(List.of(6, 1, 2, 3, 4), secNos(index.search(query("cst"))));
+        assertEquals(List.of(3, 4), secNos(index.search(query("cst3"))));
+        assertEquals(List.of(), secNos(index.search(query("x"))));
+
+        // the index of the term after a change of a section
+        index = index.with(row(11, "csa200", 1, "052", "", 4, "M 9:00-9:50")).without(4);
+        assertEquals(List.of(6, 11, 1, 2, 3, 5), secNos(index.search(query("cs"))));
+        assertTrue(index.contains(11));
+        assertFalse(index.contains(4));
+    }
+
+    @Test
+    public void parseTimes() {
+
+        assertEquals(new SectionTimes(M | W, 600, 710), SectionTimes.parse("M W 10:00-11:50"));
+        // hours 1 to 7 without am or pm are afternoon hours
+        assertEquals(new SectionTimes(T | TH, 720, 830), SectionTimes.parse("T Th 12:00-1:50"));
+        assertEquals(new SectionTimes(W | F, 780, 890), SectionTimes.parse("W F 1:00-2:50 pm"));
+        assertEquals(new SectionTimes(M | W, 660, 770), SectionTimes.parse("MW 11:00-12:50 pm"));
+        assertEquals(new SectionTimes(T | TH, 480, 590), SectionTimes.parse("TTh 8:00 - 9:50 am"));
+        assertEquals(new SectionTimes(32 | 64, 540, 710), SectionTimes.parse("Sa,Su 9:00-11:50"));
+
+        assertNull(SectionTimes.parse(null));
+        assertNull(SectionTimes.parse("online"));
+        assertNull(SectionTimes.parse("10:00-11:50"));
+        assertNull(SectionTimes.parse("X Y 10:00-11:50"));
+        assertNull(SectionTimes.parse("M W 11:00-10:00"));
+
+        assertEquals(T | TH, SectionTimes.parseDays("TTh"));
+        assertEquals(M | W | F, SectionTimes.parseDays("m, w, f"));
+        assertEquals(-1, SectionTimes.parseDays("M X"));
+        assertThrows(IllegalArgumentException.class, () -> SectionQuery.parseDays(""));
+        assertEquals(13 * 60 + 30, SectionQuery.parseTime("13:30"));
+        assertThrows(IllegalArgumentException.class, () -> SectionQuery.parseTime("1:30 pm"));
+    }
+
+    private static SectionQuery query(String course) {
+        return new SectionQuery(2024, "Fall", null, null, null, null, null, null, course);
+    }
+
+    private static List<Integer> secNos(List<SectionDTO> sections) {
+        return sections.stream().map(SectionDTO::secNo).toList();
+    }
+
+    private static SectionIndex.Row row(int secNo, String courseId, int secId, String building,
+                                        String instructorEmail, int credits, String times) {
+        SectionDTO s = new SectionDTO(secNo, 2024, "Fall", courseId, secId, building, "100", times,
+                "", instructorEmail, 0, null, null);
+        return new SectionIndex.Row(s, credits, SectionTimes.parse(times));
+    }
+}
@@ -0,0 +1,108 @@
+package com.cst438.search;
+
+import com.cst438.dto.SectionDTO;
+import com.cst438.event.ChangeEventBus;
+import com.cst438.test.utils.Fixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * section search of a term answered from the database before its index
+ * is built and from the index after, with the same results.
+ *
+ * the 2025 Fall term has sections of the courses sra100 (2 sections),
+ * srb200 and sx300, which meets online.
+ */
+@SpringBootTest
+public class SectionSearchUnitTest {
+
+    static final int BASE = 980_000;
+    static final int TERM = BASE;
+    static final int SRA_1 = BASE;
+    static final int SRA_2 = BASE + 1;
+    static final int SRB = BASE + 2;
+    static final int SX = BASE + 3;
+    static final String INSTRUCTOR = "dwisneski@csumb.edu";
+
+    @Autowired
+    SectionSearch sectionSearch;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    Fixture fixture;
+
+    @BeforeEach
+    public void load() {
+        fixture = new Fixture(jdbcTemplate, changeEventBus);
+        fixture.termStarting(TERM, 2025, "Fall", LocalDate.of(2025, 8, 15))
+                .course("sra100", "Search", 4)
+                .course("srb200", "Search", 3)
+                .course("sx300", "Search", 4)
+                .section(SRA_1, "sra100", 1, TERM, "052", "100", "M W 10:00-11:50", INSTRUCTOR, 30)
+                .section(SRA_2, "sra100", 2, TERM, "506", "100", "T Th 2:00-3:50", "", 30)
+                .section(SRB, "srb200", 1, TERM, "052", "100", "M W F 9:00-9:50", INSTRUCTOR, 30)
+                .section(SX, "sx300", 1, TERM, "18", "100", "online", "", 30);
+    }
+
+    @AfterEach
+    public void delete() {
+        fixture.delete();
+    }
+
+    @Test
+    public void sameResultsBeforeAndAfterIndex() throws Exception {
+
+        Map<SectionQuery, List<Integer>> queries = new LinkedHashMap<>();
+        queries.put(query(null, null, null, null, null, null, "sr"), List.of(SRA_1, SRA_2, SRB));
+        queries.put(query(null, null, null, null, null, null, "s"), List.of(SRA_1, SRA_2, SRB, SX));
+        queries.put(query(null, null, null, null, null, null, "SRA1"), List.of(SRA_1, SRA_2));
+        queries.put(query("MW", null, null, null, null, null, null), List.of(SRA_1));
+        queries.put(query("MWF", "09:00", "12:00", null, null, null, null), List.of(SRA_1, SRB));
+        queries.put(query(null, "13:00", null, null, null, null, null), List.of(SRA_2));
+        queries.put(query(null, null, null, List.of("052", "18"), null, null, null), List.of(SRA_1, SRB, SX));
+        queries.put(query(null, null, null, null, null, List.of(3), null), List.of(SRB));
+        queries.put(query(null, null, null, null, List.of(INSTRUCTOR), null, "sr"), List.of(SRA_1, SRB));
+
+        // the first search of the term reads the database and starts the index build
+        for (Map.Entry<SectionQuery, List<Integer>> q : queries.entrySet()) {
+            assertEquals(q.getValue(), secNos(sectionSearch.search(q.getKey())), q.getKey().toString());
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!sectionSearch.isIndexed(TERM)) {
+            assertTrue(System.currentTimeMillis() < deadline, "index of the term was not built");
+            Thread.sleep(20);
+        }
+        for (Map.Entry<SectionQuery, List<Integer>> q : queries.entrySet()) {
+            assertEquals(q.getValue(), secNos(sectionSearch.search(q.getKey())), q.getKey().toString());
+        }
+    }
+
+    private static SectionQuery query(String days, String from, String to, List<String> buildings,
+                                      List<String> instructors, List<Integer> credits, String course) {
+        return new SectionQuery(2025, "Fall",
+                (days == null) ? null : SectionQuery.parseDays(days),
+                (from == null) ? null : SectionQuery.parseTime(from),
+                (to == null) ? null : SectionQuery.parseTime(to),
+                buildings, instructors, credits, course);
+    }
+
+    private static List<Integer> secNos(List<SectionDTO> sections) {
+        return sections.stream().map(SectionDTO::secNo).toList();
+    }
+}
@@ -0,0 +1,201 @@
+package com.cst438.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * the database written to a snapshot file and loaded back, and the
+ * initializer replaying the scripts when the snapshot is stale, truncated
+ * or corrupt.
+ *
+ * every start uses a new in-memory database and the scripts in a
+ * temporary directory: a course and a section numbered by a sequence.
+ */
+public class SnapshotDatabaseInitializerUnitTest {
+
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private static final String SCHEMA = """
+            create sequence sec_seq start with 1000;
+            create table course (course_id varchar(10) primary key, title varchar(100) not null);
+            create table section (
+                section_no int default next value for sec_seq primary key,
+                course_id varchar(10) not null,
+                foreign key(course_id) references course(course_id));
+            """;
+    private static final String DATA = """
+            insert into course (course_id, title) values ('cst363', 'Databases');
+            insert into section (course_id) values ('cst363');
+            """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void writeAndLoad() throws Exception {
+
+        JdbcTemplate from = new JdbcTemplate(database());
+        String table = "create table t (i int primary key, b bigint, d double precision, f boolean, " +
+                "s varchar(20), dt date, ts timestamp, n decimal(10,2))";
+        from.execute(table);
+        from.execute("create sequence seq start with 100");
+        from.update("insert into t values (1, 9000000000, 1.5, true, 'héllo', date '2024-02-29', " +
+                "timestamp '2024-03-01 10:15:30.123', 12.34)");
+        from.update("insert into t (i) values (2)");
+        from.queryForObject("select next value for seq", Long.class);
+        from.queryForObject("select next value for seq", Long.class);
+
+        byte[] hash = new byte[SnapshotFile.HASH_BYTES];
+        hash[0] = 7;
+        Path file = dir.resolve("db.snap");
+        try (Connection c = from.getDataSource().getConnection()) {
+            SnapshotFile.write(file, hash, c);
+        }
+        assertArrayEquals(hash, SnapshotFile.hash(file));
+        assertFalse(Files.exists(dir.resolve("db.snap.tmp")));
+
+        JdbcTemplate to = new JdbcTemplate(database());
+        to.execute(table);
+        to.execute("create sequence seq start with 1");
+        try (Connection c = to.getDataSource().getConnection()) {
+            assertEquals(2, SnapshotFile.load(file, c));
+        }
+        List<Map<String, Object>> rows = from.queryForList("select * from t order by i");
+        assertEquals(rows, to.queryForList("select * from t order by i"));
+        assertNull(rows.get(1).get("S"));
+        // the sequence continues where it was
+        assertEquals(102L, to.queryForObject("select next value for seq", Long.class));
+    }
+
+    @Test
+    public void loadedFromSnapshot() throws Exception {
+
+        Path file = dir.resolve("snapshot/db.snap");
+        scripts(DATA);
+
+        // no snapshot yet, the scripts are replayed and a snapshot is written
+        JdbcTemplate first = start(file);
+        assertEquals(List.of(1000), sections(first));
+        byte[] hash = SnapshotFile.hash(file);
+        assertNotNull(hash);
+
+        // a snapshot with a row the scripts do not have shows the rows came from the file
+        first.update("insert into section (course_id) values ('cst363')");
+        try (Connection c = first.getDataSource().getConnection()) {
+            SnapshotFile.write(file, hash, c);
+        }
+        JdbcTemplate second = start(file);
+        assertEquals(List.of(1000, 1001), sections(second));
+        // the sequence was restored too
+        second.update("insert into section (course_id) values ('cst363')");
+        assertEquals(List.of(1000, 1001, 1002), sections(second));
+    }
+
+    @Test
+    public void staleSnapshotIsReplaced() throws Exception {
+
+        Path file = dir.resolve("db.snap");
+        scripts(DATA);
+        start(file);
+        byte[] hash = SnapshotFile.hash(file);
+
+        // data.sql changed since the snapshot was written
+        scripts(DATA + "insert into section (course_id) values ('cst363');\n");
+        JdbcTemplate db = start(file);
+        assertEquals(List.of(1000, 1001), sections(db));
+        assertFalse(Arrays.equals(hash, SnapshotFile.hash(file)));
+
+        // the next start loads the new snapshot
+        assertEquals(List.of(1000, 1001), sections(start(file)));
+    }
+
+    @Test
+    public void truncatedSnapshotIsReplayed() throws Exception {
+
+        Path file = dir.resolve("db.snap");
+        scripts(DATA);
+        start(file);
+        long size = Files.size(file);
+
+        // the header and hash are intact, the rows are cut off
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(size - 10);
+        }
+        JdbcTemplate db = start(file);
+        assertEquals(List.of(1000), sections(db));
+        assertEquals(List.of("cst363"), db.queryForList("select course_id from course", String.class));
+        // the snapshot was written again
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    public void corruptSnapshotIsReplayed() throws Exception {
+
+        Path file = dir.resolve("db.snap");
+        scripts(DATA);
+        start(file);
+
+        // a table count far beyond the tables in the file, after the sequences
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+        b.position(8 + SnapshotFile.HASH_BYTES);
+        int sequences = b.getInt();
+        for (int i = 0; i < sequences; i++) {
+            int length = b.getInt();
+            b.position(b.position() + length + 8);
+        }
+        b.putInt(b.position(), 1_000_000);
+        Files.write(file, bytes);
+        assertEquals(List.of(1000), sections(start(file)));
+
+        // not a snapshot at all
+        Files.writeString(file, "not a snapshot");
+        assertNull(SnapshotFile.hash(file));
+        assertEquals(List.of(1000), sections(start(file)));
+        assertNotNull(SnapshotFile.hash(file));
+    }
+
+    // a new database initialized from the scripts or the snapshot file
+    private JdbcTemplate start(Path file) {
+        DataSource dataSource = database();
+        SqlInitializationProperties properties = new SqlInitializationProperties();
+        properties.setSchemaLocations(List.of("file:" + dir.resolve("schema.sql")));
+        properties.setDataLocations(List.of("file:" + dir.resolve("data.sql")));
+        SnapshotDatabaseInitializer initializer = new SnapshotDatabaseInitializer(dataSource, properties,
+                new FileSystemResource(dir.resolve("schema.sql")), new FileSystemResource(dir.resolve("data.sql")), file);
+        assertTrue(initializer.initializeDatabase());
+        return new JdbcTemplate(dataSource);
+    }
+
+    private void scripts(String data) throws IOException {
+        Files.writeString(dir.resolve("schema.sql"), SCHEMA);
+        Files.writeString(dir.resolve("data.sql"), data);
+    }
+
+    private static DataSource database() {
+        return new DriverManagerDataSource("jdbc:h2:mem:snapshot" + databases.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    private static List<Integer> sections(JdbcTemplate db) {
+        return db.queryForList("select section_no from section order by section_no", Integer.class);
+    }
+}
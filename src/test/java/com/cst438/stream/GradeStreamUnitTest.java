@@ -0,0 +1,234 @@
+package com.cst438.stream;
+
+import com.cst438.domain.Assignment;
+import com.cst438.domain.Enrollment;
+import com.cst438.domain.Grade;
+import com.cst438.domain.Section;
+import com.cst438.domain.User;
+import com.cst438.dto.GradeUpdateDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * grade updates sent on the streams of students and sections.
+ *
+ * the flush interval is an hour, so updates are sent only when a test
+ * calls flush().  each subscriber's emitter records the events sent to it.
+ */
+public class GradeStreamUnitTest {
+
+    private Stream stream = new Stream(60_000);
+
+    @AfterEach
+    public void shutdown() {
+        stream.shutdown();
+    }
+
+    @Test
+    public void burstOfUpdatesIsSentOnce() throws Exception {
+
+        Client student = stream.student(1, null);
+        Client section = stream.section(10, null);
+        stream.publishScore(grade(1, 10, 100, 7, 60));
+        stream.publishScore(grade(1, 10, 100, 7, 70));
+        stream.publishScore(grade(1, 10, 100, 8, 50));
+        stream.publishScore(grade(1, 10, 100, 7, 80));
+        stream.flush();
+
+        for (Client c : List.of(student, section)) {
+            Sent sent = c.next();
+            // the latest score of assignment 7 and the score of assignment 8, in sequence order
+            assertEquals("4", sent.id);
+            assertEquals(List.of(3L, 4L), sent.updates.stream().map(GradeUpdateDTO::seq).toList());
+            assertEquals(50, sent.updates.get(0).score());
+            assertEquals(80, sent.updates.get(1).score());
+        }
+
+        // nothing is pending after the flush
+        stream.flush();
+        assertNull(student.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void routedByStudentAndSection() throws Exception {
+
+        Client student1 = stream.student(1, null);
+        Client student2 = stream.student(2, null);
+        Client section10 = stream.section(10, null);
+        Client section11 = stream.section(11, null);
+
+        stream.publishScore(grade(1, 10, 100, 7, 90));
+        stream.publishFinalGrade(grade(2, 10, 200, 7, 0).getEnrollment());
+        stream.publishFinalGrade(grade(2, 11, 201, 9, 0).getEnrollment());
+        stream.flush();
+
+        assertEquals(List.of(1L), student1.next().seqs());
+        assertEquals(List.of(2L, 3L), student2.next().seqs());
+        assertEquals(List.of(1L, 2L), section10.next().seqs());
+        Sent sent = section11.next();
+        assertEquals(List.of(3L), sent.seqs());
+        assertEquals("FINAL", sent.updates.get(0).kind());
+        assertEquals("A", sent.updates.get(0).grade());
+    }
+
+    @Test
+    public void reconnectReplaysMissedUpdates() throws Exception {
+
+        stream.publishScore(grade(1, 10, 100, 7, 60));
+        stream.publishScore(grade(1, 10, 100, 8, 70));
+        stream.publishScore(grade(2, 10, 200, 7, 80));
+        stream.publishFinalGrade(grade(1, 10, 100, 7, 0).getEnrollment());
+
+        // the client last received update 1
+        Client student = stream.student(1, 1L);
+        Client section = stream.section(10, 2L);
+        Client fresh = stream.student(1, null);
+        stream.flush();
+
+        Sent sent = student.next();
+        assertEquals("4", sent.id);
+        assertEquals(List.of(2L, 4L), sent.seqs());
+        assertEquals("FINAL", sent.updates.get(1).kind());
+        assertEquals(List.of(3L, 4L), section.next().seqs());
+        // a new client is sent only updates published after it subscribed
+        assertNull(fresh.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void slowClientIsDropped() throws Exception {
+
+        stream.shutdown();
+        stream = new Stream(100);
+        Client slow = stream.student(1, null);
+        Client other = stream.student(2, null);
+        slow.block = new CountDownLatch(1);
+
+        stream.publishScore(grade(1, 10, 100, 7, 60));
+        stream.flush();
+        assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+
+        // the send to the slow client is still running after slow-millis
+        Thread.sleep(150);
+        stream.publishScore(grade(2, 10, 200, 7, 70));
+        stream.flush();
+        assertEquals(List.of(2L), other.next().seqs());
+        assertTrue(slow.failed);
+
+        // the dropped client is not sent later updates
+        slow.block.countDown();
+        assertEquals(List.of(1L), slow.next().seqs());
+        stream.publishScore(grade(1, 10, 100, 7, 65));
+        stream.flush();
+        assertNull(slow.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private static Grade grade(int studentId, int sectionNo, int enrollmentId, int assignmentId, int score) {
+        User student = new User();
+        student.setId(studentId);
+        Section section = new Section();
+        section.setSectionNo(sectionNo);
+        Enrollment e = new Enrollment();
+        e.setEnrollmentId(enrollmentId);
+        e.setStudent(student);
+        e.setSection(section);
+        e.setGrade("A");
+        Assignment a = new Assignment();
+        a.setAssignmentId(assignmentId);
+        a.setSection(section);
+        Grade g = new Grade();
+        g.setEnrollment(e);
+        g.setAssignment(a);
+        g.setScore(score);
+        return g;
+    }
+
+    // an event sent to a client
+    record Sent(String id, List<GradeUpdateDTO> updates) {
+        List<Long> seqs() {
+            return updates.stream().map(GradeUpdateDTO::seq).toList();
+        }
+    }
+
+    static class Stream extends GradeStream {
+
+        Stream(long slowMillis) {
+            super(3_600_000, 3_600_000, 60_000, 100, 2, 10, slowMillis);
+        }
+
+        Client student(int studentId, Long lastEventId) {
+            return (Client) subscribeStudent(studentId, lastEventId);
+        }
+
+        Client section(int sectionNo, Long lastEventId) {
+            return (Client) subscribeSection(sectionNo, lastEventId);
+        }
+
+        @Override
+        SseEmitter newEmitter(long timeoutMillis) {
+            return new Client(timeoutMillis);
+        }
+    }
+
+    static class Client extends SseEmitter {
+        final BlockingQueue<Sent> events = new LinkedBlockingQueue<>();
+        final CountDownLatch sending = new CountDownLatch(1);
+        volatile CountDownLatch block;
+        volatile boolean failed;
+
+        Client(long timeoutMillis) {
+            super(timeoutMillis);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            if (block != null) {
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            String id = null;
+            List<GradeUpdateDTO> updates = new ArrayList<>();
+            for (ResponseBodyEmitter.DataWithMediaType d : builder.build()) {
+                if (d.getData() instanceof List<?> list) {
+                    updates.addAll((List<GradeUpdateDTO>) list);
+                } else if (MediaType.TEXT_PLAIN.equals(d.getMediaType())) {
+                    for (String line : d.getData().toString().split("\n")) {
+                        if (line.startsWith("id:")) {
+                            id = line.substring(3);
+                        }
+                    }
+                }
+            }
+            events.add(new Sent(id, updates));
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            failed = true;
+            super.completeWithError(ex);
+        }
+
+        Sent next() throws InterruptedException {
+            Sent sent = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(sent, "nothing sent");
+            return sent;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.cst438.test.utils;
+
+import com.cst438.event.ChangeEventBus;
+import com.cst438.event.EntityType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/*
+ * Rows of a test inserted with JdbcTemplate, and removed again by delete()
+ * in the test's @AfterEach.  Each test class picks ids from a base of its
+ * own so tests do not see each other's rows.
+ *
+ * delete() also removes the rows that the requests of the test added to
+ * the fixture's terms and sections (enrollments, waitlist entries, grades,
+ * assignments and sections), then tells the caches that every entity type
+ * changed.
+ *
+ *   fixture = new Fixture(jdbcTemplate, changeEventBus)
+ *           .openTerm(BASE, 2030, "Spring")
+ *           .course(COURSE, "Waitlists", 4)
+ *           .section(SECTION, COURSE, 1, BASE)
+ *           .student(STUDENT, "s" + STUDENT + "@waitlist.test");
+ */
+public class Fixture {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeEventBus changeEventBus;
+
+    private final Set<Integer> terms = new LinkedHashSet<>();
+    private final Set<String> courses = new LinkedHashSet<>();
+    private final Set<Integer> sections = new LinkedHashSet<>();
+    private final Set<Integer> users = new LinkedHashSet<>();
+
+    public Fixture(JdbcTemplate jdbcTemplate, ChangeEventBus changeEventBus) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeEventBus = changeEventBus;
+    }
+
+    public Fixture term(int termId, int year, String semester, LocalDate addDate, LocalDate addDeadline,
+                        LocalDate dropDeadline, LocalDate startDate, LocalDate endDate) {
+        jdbcTemplate.update("insert into term (term_id, tyear, semester, add_date, add_deadline, drop_deadline, " +
+                        "start_date, end_date) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                termId, year, semester, Date.valueOf(addDate), Date.valueOf(addDeadline),
+                Date.valueOf(dropDeadline), Date.valueOf(startDate), Date.valueOf(endDate));
+        terms.add(termId);
+        return this;
+    }
+
+    // a term that started 10 days ago and is open for adds and drops for 30 more days
+    public Fixture openTerm(int termId, int year, String semester) {
+        LocalDate today = LocalDate.now();
+        return term(termId, year, semester, today.minusDays(30), today.plusDays(30),
+                today.plusDays(30), today.minusDays(10), today.plusDays(120));
+    }
+
+    // a term that starts on start, open for adds from 60 days before until 14 days after
+    public Fixture termStarting(int termId, int year, String semester, LocalDate start) {
+        return term(termId, year, semester, start.minusDays(60), start.plusDays(14),
+                start.plusDays(14), start, start.plusDays(120));
+    }
+
+    public Fixture course(String courseId, String title, int credits) {
+        jdbcTemplate.update("insert into course (course_id, title, credits) values (?, ?, ?)", courseId, title, credits);
+        courses.add(courseId);
+        return this;
+    }
+
+    // a section with 30 seats and no instructor in room 052 100, meeting M W 10:00-11:50
+    public Fixture section(int sectionNo, String courseId, int secId, int termId) {
+        return section(sectionNo, courseId, secId, termId, "052", "100", "M W 10:00-11:50", "", 30);
+    }
+
+    public Fixture section(int sectionNo, String courseId, int secId, int termId, String building, String room,
+                           String times, String instructorEmail, int capacity) {
+        jdbcTemplate.update("insert into section (section_no, course_id, sec_id, term_id, building, room, times, " +
+                        "instructor_email, capacity) values (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                sectionNo, courseId, secId, termId, building, room, times, instructorEmail, capacity);
+        sections.add(sectionNo);
+        return this;
+    }
+
+    public Fixture user(int id, String name, String email, String type) {
+        jdbcTemplate.update("insert into user_table (id, name, email, password, type) values (?, ?, ?, '', ?)",
+                id, name, email, type);
+        users.add(id);
+        return this;
+    }
+
+    public Fixture student(int id, String email) {
+        return user(id, "student " + id, email, "STUDENT");
+    }
+
+    public Fixture instructor(int id, String email) {
+        return user(id, "instructor", email, "INSTRUCTOR");
+    }
+
+    // an enrollment with a generated id
+    public Fixture enrollment(int sectionNo, int studentId) {
+        jdbcTemplate.update("insert into enrollment (section_no, user_id) values (?, ?)", sectionNo, studentId);
+        return this;
+    }
+
+    public Fixture enrollment(int enrollmentId, int sectionNo, int studentId) {
+        jdbcTemplate.update("insert into enrollment (enrollment_id, section_no, user_id) values (?, ?, ?)",
+                enrollmentId, sectionNo, studentId);
+        return this;
+    }
+
+    // an assignment with a generated id
+    public Fixture assignment(int sectionNo, String title, LocalDate dueDate) {
+        jdbcTemplate.update("insert into assignment (section_no, title, due_date) values (?, ?, ?)",
+                sectionNo, title, Date.valueOf(dueDate));
+        return this;
+    }
+
+    public Fixture assignment(int assignmentId, int sectionNo, String title, LocalDate dueDate) {
+        jdbcTemplate.update("insert into assignment (assignment_id, section_no, title, due_date) values (?, ?, ?, ?)",
+                assignmentId, sectionNo, title, Date.valueOf(dueDate));
+        return this;
+    }
+
+    public Fixture grade(int gradeId, int enrollmentId, int assignmentId, int score) {
+        jdbcTemplate.update("insert into grade (grade_id, enrollment_id, assignment_id, score) values (?, ?, ?, ?)",
+                gradeId, enrollmentId, assignmentId, score);
+        return this;
+    }
+
+    public Fixture waitlist(int sectionNo, int studentId, int ticket) {
+        jdbcTemplate.update("insert into waitlist (section_no, user_id, ticket) values (?, ?, ?)",
+                sectionNo, studentId, ticket);
+        return this;
+    }
+
+    // remove the fixture's rows and the rows added to its terms and sections
+    public void delete() {
+        Set<Integer> all = new LinkedHashSet<>(sections);
+        for (int termId : terms) {
+            all.addAll(jdbcTemplate.queryForList("select section_no from section where term_id=?", Integer.class, termId));
+        }
+        for (int sectionNo : all) {
+            jdbcTemplate.update("delete from grade where enrollment_id in " +
+                    "(select enrollment_id from enrollment where section_no=?)", sectionNo);
+            jdbcTemplate.update("delete from grade where assignment_id in " +
+                    "(select assignment_id from assignment where section_no=?)", sectionNo);
+            jdbcTemplate.update("delete from waitlist where section_no=?", sectionNo);
+            jdbcTemplate.update("delete from enrollment where section_no=?", sectionNo);
+            jdbcTemplate.update("delete from assignment where section_no=?", sectionNo);
+            jdbcTemplate.update("delete from section where section_no=?", sectionNo);
+        }
+        for (String courseId : courses) {
+            jdbcTemplate.update("delete from course where course_id=?", courseId);
+        }
+        for (int id : users) {
+            jdbcTemplate.update("delete from user_table where id=?", id);
+        }
+        for (int termId : terms) {
+            jdbcTemplate.update("delete from term where term_id=?", termId);
+        }
+        for (EntityType type : EntityType.values()) {
+            changeEventBus.publishAll(type);
+        }
+    }
+}
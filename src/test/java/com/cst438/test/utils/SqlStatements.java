@@ -0,0 +1,155 @@
+package com.cst438.test.utils;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Records the SQL statements sent to the database, so that tests can put
+ * a budget on the number of statements a request may issue.
+ *
+ * Add @Import(SqlStatements.Config.class) to a @SpringBootTest.  The
+ * application's DataSource is wrapped so that every statement executed
+ * through it is seen here.  Statements are recorded only while record()
+ * runs, and only on the thread that called record() and the queryExecutor
+ * threads that composite endpoints fan out to.  Statements of background
+ * threads (change event subscribers, transcript rebuilds, jobs) are not
+ * counted.  A JDBC batch is counted as one statement.
+ */
+public class SqlStatements {
+
+    // thread name prefix of the queryExecutor pool.  see ExecutorConfig
+    private static final String QUERY_THREAD_PREFIX = "query-";
+
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate",
+            "executeBatch", "executeLargeBatch");
+
+    private static volatile Recording active;
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    @TestConfiguration
+    public static class Config {
+
+        @Bean
+        public static BeanPostProcessor sqlStatementsDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                    if (bean instanceof DataSource ds && beanName.equals("dataSource")) {
+                        return new RecordingDataSource(ds);
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    // run the action and return the statements it sent to the database, in order
+    public static List<String> record(Action action) throws Exception {
+        Recording recording = new Recording(Thread.currentThread());
+        active = recording;
+        try {
+            action.run();
+        } finally {
+            active = null;
+        }
+        return List.copyOf(recording.statements);
+    }
+
+    // the statements one per line, for assertion messages
+    public static String describe(List<String> statements) {
+        StringBuilder sb = new StringBuilder();
+        for (int i=0; i<statements.size(); i++) {
+            sb.append(String.format("%n  %3d  %s", i+1, statements.get(i)));
+        }
+        return sb.toString();
+    }
+
+    private static void executed(String sql) {
+        Recording recording = active;
+        if (recording != null && recording.accepts(Thread.currentThread())) {
+            recording.statements.add(sql);
+        }
+    }
+
+    private static class Recording {
+        final Thread owner;
+        final ConcurrentLinkedQueue<String> statements = new ConcurrentLinkedQueue<>();
+
+        Recording(Thread owner) {
+            this.owner = owner;
+        }
+
+        boolean accepts(Thread t) {
+            return t == owner || t.getName().startsWith(QUERY_THREAD_PREFIX);
+        }
+    }
+
+    private static class RecordingDataSource extends DelegatingDataSource {
+
+        RecordingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return wrap(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return wrap(super.getConnection(username, password));
+        }
+
+        private static Connection wrap(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(SqlStatements.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (result instanceof Statement statement) {
+                            // createStatement has no sql, prepareStatement and prepareCall do
+                            String sql = (args != null && args.length > 0 && args[0] instanceof String s) ? s : null;
+                            return wrap(statement, method.getReturnType(), sql);
+                        }
+                        return result;
+                    });
+        }
+
+        private static Object wrap(Statement statement, Class<?> type, String preparedSql) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (EXECUTE_METHODS.contains(method.getName())) {
+                    String sql = (args != null && args.length > 0 && args[0] instanceof String s) ? s : preparedSql;
+                    executed(method.getName().contains("Batch") ? "[batch] " + sql : sql);
+                }
+                return invoke(statement, method, args);
+            };
+            return Proxy.newProxyInstance(SqlStatements.class.getClassLoader(), new Class<?>[] {type}, handler);
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.cst438.test.utils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * The number of SQL statements one request may issue, checked against
+ * the statements recorded by SqlStatements for a small and a large data set.
+ *
+ *   constant(max)          at most max statements, and the large data set
+ *                          may not need more statements than the small one
+ *   perRow(fixed, perRow)  at most fixed + perRow * rows statements
+ */
+public record StatementBudget(int fixed, int perRow) {
+
+    public static StatementBudget constant(int max) {
+        return new StatementBudget(max, 0);
+    }
+
+    public static StatementBudget perRow(int fixed, int perRow) {
+        return new StatementBudget(fixed, perRow);
+    }
+
+    public int limit(int rows) {
+        return fixed + perRow * rows;
+    }
+
+    public void check(String request, int smallRows, List<String> small, int largeRows, List<String> large) {
+        assertTrue(small.size() <= limit(smallRows),
+                request+" issued "+small.size()+" statements for "+smallRows+" rows, budget "+limit(smallRows)
+                        +SqlStatements.describe(small));
+        assertTrue(large.size() <= limit(largeRows),
+                request+" issued "+large.size()+" statements for "+largeRows+" rows, budget "+limit(largeRows)
+                        +SqlStatements.describe(large));
+        if (perRow == 0) {
+            assertTrue(large.size() <= small.size(),
+                    request+" statements grow with rows: "+small.size()+" for "+smallRows+" rows, "
+                            +large.size()+" for "+largeRows+" rows"+SqlStatements.describe(large));
+        }
+    }
+}